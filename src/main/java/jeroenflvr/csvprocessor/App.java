@@ -8,7 +8,9 @@ import org.slf4j.LoggerFactory;
 import jeroenflvr.csvprocessor.config.ApplicationConfig;
 import jeroenflvr.csvprocessor.config.KafkaStreamsConfigFactory;
 import jeroenflvr.csvprocessor.config.S3ClientFactory;
+import jeroenflvr.csvprocessor.config.StorageConfig;
 import jeroenflvr.csvprocessor.processing.FileProcessingService;
+import jeroenflvr.csvprocessor.storage.S3AsyncFileReader;
 import jeroenflvr.csvprocessor.storage.S3FileReader;
 import jeroenflvr.csvprocessor.streaming.StreamsTopologyBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -74,6 +76,41 @@ public class App {
      *   <li>{@code STATE_TOPIC} - Kafka state topic (default: local-state-topic)</li>
      *   <li>{@code APP_ID} - Application ID (default: cos-csv-expander-app)</li>
      *   <li>{@code BOOTSTRAP_SERVERS} - Kafka bootstrap servers (default: localhost:9093)</li>
+     *   <li>{@code CSV_SCAN_MODE} - Delimiter scanning, scalar or swar (default: scalar)</li>
+     *   <li>{@code KEY_COLUMNS} - Comma-separated composite key columns (default: o_orderkey,o_custkey)</li>
+     *   <li>{@code OUTPUT_COLUMNS} - Comma-separated output columns (default: all non-key columns)</li>
+     *   <li>{@code COLUMN_TYPES} - Column types for binary records, e.g. o_orderkey:long,o_orderdate:date</li>
+     *   <li>{@code PARSE_PARALLELISM} - Threads parsing a single file (default: 1, sequential)</li>
+     *   <li>{@code PARSE_CHUNK_SIZE} - Bytes per chunk for parallel parsing (default: 4194304)</li>
+     *   <li>{@code MAP_WINDOW_SIZE} - Bytes per memory-mapped window of a file:// input (default: 268435456)</li>
+     *   <li>{@code TOPOLOGY_SERDE_MODE} - Record representation, string or bytes (default: string)</li>
+     *   <li>{@code RECORD_FORMAT} - Record payload encoding, json or binary (default: json)</li>
+     *   <li>{@code SKIP_PROCESSED_OBJECTS} - Skip objects whose ETag and size were already processed (default: false)</li>
+     *   <li>{@code CHECKPOINT_INTERVAL_ROWS} - Rows between checkpoints of an object being processed, 0 disables, requires EXPANSION_THREADS (default: 100000 with expansion threads, else 0)</li>
+     *   <li>{@code EXPANSION_THREADS} - Threads expanding files off the stream threads, 0 disables (default: 0)</li>
+     *   <li>{@code MAX_FILES_IN_FLIGHT} - Files expanded at the same time per task (default: 4)</li>
+     *   <li>{@code CHANGE_DETECTION} - Compare whole records or business column digests, value or digest (default: value)</li>
+     *   <li>{@code STATE_MODE} - Change detection state in a table over the state topic or an attached store, table or store (default: table)</li>
+     *   <li>{@code OUTPUT_MODE} - One output message per record or envelopes of records, records or envelopes (default: records)</li>
+     *   <li>{@code ENVELOPE_MAX_ROWS} - Records per envelope (default: 1000)</li>
+     *   <li>{@code ENVELOPE_MAX_BYTES} - Size at which an envelope is complete (default: 256 KiB)</li>
+     *   <li>{@code REPARTITION_PARTITIONS} - Partitions of the change detection in the store state mode, 0 derives them (default: 0)</li>
+     *   <li>{@code S3_DOWNLOAD_MODE} - Object download, single or ranged (default: single)</li>
+     *   <li>{@code S3_PART_SIZE} - Bytes per ranged download part (default: 8388608)</li>
+     *   <li>{@code S3_DOWNLOAD_CONCURRENCY} - Parts downloaded concurrently per object (default: 4)</li>
+     *   <li>{@code S3_CLIENT_MODE} - S3 HTTP client, blocking or async (default: blocking)</li>
+     *   <li>{@code S3_ASYNC_MAX_CONNECTIONS} - Connection pool size of the async client (default: 64)</li>
+     *   <li>{@code S3_ASYNC_PREFETCH} - Body buffers requested ahead of the parser (default: 4)</li>
+     *   <li>{@code OBJECT_CACHE_DIR} - Directory of the local object cache (default: none, disabled)</li>
+     *   <li>{@code OBJECT_CACHE_MAX_BYTES} - Maximum size of the object cache (default: 10 GiB)</li>
+     *   <li>{@code S3_READ_AHEAD_BUFFERS} - Buffers filled ahead of the parser per download (default: 0, reading on the parsing thread)</li>
+     *   <li>{@code S3_READ_AHEAD_BUFFER_SIZE} - Bytes per read-ahead buffer (default: 1 MiB)</li>
+     *   <li>{@code ROCKSDB_BLOCK_CACHE_BYTES} - Block cache shared by all state stores (default: 256 MiB)</li>
+     *   <li>{@code ROCKSDB_BLOOM_FILTER_BITS} - Bloom filter bits per key, 0 disables (default: 10)</li>
+     *   <li>{@code ROCKSDB_COMPRESSION} - State store compression, none, lz4 or zstd (default: lz4)</li>
+     *   <li>{@code ROCKSDB_WRITE_BUFFER_BYTES} - Memtable size per state store (default: 0, the Kafka Streams default)</li>
+     *   <li>{@code ROCKSDB_MAX_WRITE_BUFFERS} - Memtables per state store (default: 0, the Kafka Streams default)</li>
+     *   <li>{@code ROCKSDB_STATISTICS} - Report RocksDB statistics as metrics (default: false)</li>
      * </ul>
      * 
      * @param args command line arguments (currently unused)
@@ -87,8 +124,13 @@ public class App {
 
         // Create dependencies
         S3Client s3Client = S3ClientFactory.createFromEnvironment();
-        S3FileReader s3FileReader = new S3FileReader(s3Client);
-        FileProcessingService fileProcessingService = new FileProcessingService(s3FileReader);
+        StorageConfig storageConfig = appConfig.getStorageConfig();
+        S3AsyncFileReader asyncReader = storageConfig.getClientMode() == StorageConfig.ClientMode.ASYNC
+                ? new S3AsyncFileReader(S3ClientFactory.createAsyncFromEnvironment(storageConfig), storageConfig)
+                : null;
+        S3FileReader s3FileReader = new S3FileReader(s3Client, storageConfig, asyncReader);
+        FileProcessingService fileProcessingService = new FileProcessingService(s3FileReader,
+                appConfig.getParserConfig(), appConfig.getTopologyConfig().getRecordFormat());
 
         // Build topology
         StreamsTopologyBuilder topologyBuilder = new StreamsTopologyBuilder(appConfig, fileProcessingService);
@@ -103,6 +145,7 @@ public class App {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             log.info("Shutting down CSV processor...");
             streams.close();
+            topologyBuilder.close();
         }));
         
         streams.start();
@@ -23,6 +23,10 @@ public class ApplicationConfig {
     private final String stateTopic;
     private final String applicationId;
     private final boolean emitSnapshotOnBootstrap;
+    private final ParserConfig parserConfig;
+    private final TopologyConfig topologyConfig;
+    private final StorageConfig storageConfig;
+    private final StateStoreConfig stateStoreConfig;
 
     /**
      * Constructs a new ApplicationConfig with the specified parameters.
@@ -36,12 +40,98 @@ public class ApplicationConfig {
      */
     public ApplicationConfig(String inputTopic, String outputTopic, String updateTopic, 
                            String stateTopic, String applicationId, boolean emitSnapshotOnBootstrap) {
+        this(inputTopic, outputTopic, updateTopic, stateTopic, applicationId, emitSnapshotOnBootstrap,
+             ParserConfig.defaults());
+    }
+
+    /**
+     * Constructs a new ApplicationConfig with the specified parameters and parser settings.
+     * 
+     * @param inputTopic the Kafka topic to read file paths from
+     * @param outputTopic the Kafka topic to write all processed records to
+     * @param updateTopic the Kafka topic to write only changed records to
+     * @param stateTopic the Kafka topic used for state management
+     * @param applicationId the unique identifier for this Kafka Streams application
+     * @param emitSnapshotOnBootstrap whether to emit all records on application startup
+     * @param parserConfig the CSV parser settings
+     */
+    public ApplicationConfig(String inputTopic, String outputTopic, String updateTopic, 
+                           String stateTopic, String applicationId, boolean emitSnapshotOnBootstrap,
+                           ParserConfig parserConfig) {
+        this(inputTopic, outputTopic, updateTopic, stateTopic, applicationId, emitSnapshotOnBootstrap,
+             parserConfig, TopologyConfig.defaults());
+    }
+
+    /**
+     * Constructs a new ApplicationConfig with the specified parameters, parser and topology settings.
+     * 
+     * @param inputTopic the Kafka topic to read file paths from
+     * @param outputTopic the Kafka topic to write all processed records to
+     * @param updateTopic the Kafka topic to write only changed records to
+     * @param stateTopic the Kafka topic used for state management
+     * @param applicationId the unique identifier for this Kafka Streams application
+     * @param emitSnapshotOnBootstrap whether to emit all records on application startup
+     * @param parserConfig the CSV parser settings
+     * @param topologyConfig the Kafka Streams topology settings
+     */
+    public ApplicationConfig(String inputTopic, String outputTopic, String updateTopic, 
+                           String stateTopic, String applicationId, boolean emitSnapshotOnBootstrap,
+                           ParserConfig parserConfig, TopologyConfig topologyConfig) {
+        this(inputTopic, outputTopic, updateTopic, stateTopic, applicationId, emitSnapshotOnBootstrap,
+             parserConfig, topologyConfig, StorageConfig.defaults());
+    }
+
+    /**
+     * Constructs a new ApplicationConfig with the specified parameters, parser, topology
+     * and storage settings.
+     * 
+     * @param inputTopic the Kafka topic to read file paths from
+     * @param outputTopic the Kafka topic to write all processed records to
+     * @param updateTopic the Kafka topic to write only changed records to
+     * @param stateTopic the Kafka topic used for state management
+     * @param applicationId the unique identifier for this Kafka Streams application
+     * @param emitSnapshotOnBootstrap whether to emit all records on application startup
+     * @param parserConfig the CSV parser settings
+     * @param topologyConfig the Kafka Streams topology settings
+     * @param storageConfig the object storage access settings
+     */
+    public ApplicationConfig(String inputTopic, String outputTopic, String updateTopic, 
+                           String stateTopic, String applicationId, boolean emitSnapshotOnBootstrap,
+                           ParserConfig parserConfig, TopologyConfig topologyConfig,
+                           StorageConfig storageConfig) {
+        this(inputTopic, outputTopic, updateTopic, stateTopic, applicationId, emitSnapshotOnBootstrap,
+             parserConfig, topologyConfig, storageConfig, StateStoreConfig.defaults());
+    }
+
+    /**
+     * Constructs a new ApplicationConfig with the specified parameters, parser, topology,
+     * storage and state store settings.
+     * 
+     * @param inputTopic the Kafka topic to read file paths from
+     * @param outputTopic the Kafka topic to write all processed records to
+     * @param updateTopic the Kafka topic to write only changed records to
+     * @param stateTopic the Kafka topic used for state management
+     * @param applicationId the unique identifier for this Kafka Streams application
+     * @param emitSnapshotOnBootstrap whether to emit all records on application startup
+     * @param parserConfig the CSV parser settings
+     * @param topologyConfig the Kafka Streams topology settings
+     * @param storageConfig the object storage access settings
+     * @param stateStoreConfig the RocksDB state store settings
+     */
+    public ApplicationConfig(String inputTopic, String outputTopic, String updateTopic, 
+                           String stateTopic, String applicationId, boolean emitSnapshotOnBootstrap,
+                           ParserConfig parserConfig, TopologyConfig topologyConfig,
+                           StorageConfig storageConfig, StateStoreConfig stateStoreConfig) {
         this.inputTopic = inputTopic;
         this.outputTopic = outputTopic;
         this.updateTopic = updateTopic;
         this.stateTopic = stateTopic;
         this.applicationId = applicationId;
         this.emitSnapshotOnBootstrap = emitSnapshotOnBootstrap;
+        this.parserConfig = parserConfig;
+        this.topologyConfig = topologyConfig;
+        this.storageConfig = storageConfig;
+        this.stateStoreConfig = stateStoreConfig;
     }
 
     /**
@@ -59,6 +149,11 @@ public class ApplicationConfig {
      *   <li>{@code APP_ID} - defaults to "cos-csv-expander-app"</li>
      * </ul>
      * 
+     * <p>Parser settings are read by {@link ParserConfig#fromEnvironment()},
+     * topology settings by {@link TopologyConfig#fromEnvironment()}, storage
+     * settings by {@link StorageConfig#fromEnvironment()} and state store
+     * settings by {@link StateStoreConfig#fromEnvironment()}.
+     * 
      * @return a new ApplicationConfig instance with values from environment or defaults
      * @see EnvironmentUtils#envOrProp(String, String)
      */
@@ -69,7 +164,11 @@ public class ApplicationConfig {
             EnvironmentUtils.envOrProp("UPDATE_TOPIC", "local-updates-only-topic"),
             EnvironmentUtils.envOrProp("STATE_TOPIC", "local-state-topic"),
             EnvironmentUtils.envOrProp("APP_ID", "cos-csv-expander-app"),
-            Boolean.parseBoolean("true")
+            Boolean.parseBoolean("true"),
+            ParserConfig.fromEnvironment(),
+            TopologyConfig.fromEnvironment(),
+            StorageConfig.fromEnvironment(),
+            StateStoreConfig.fromEnvironment()
         );
     }
 
@@ -114,4 +213,32 @@ public class ApplicationConfig {
      * @return true if snapshot emission is enabled on bootstrap
      */
     public boolean isEmitSnapshotOnBootstrap() { return emitSnapshotOnBootstrap; }
+    
+    /**
+     * Gets the settings for the CSV parser.
+     * 
+     * @return the parser configuration
+     */
+    public ParserConfig getParserConfig() { return parserConfig; }
+    
+    /**
+     * Gets the settings for the Kafka Streams topology.
+     * 
+     * @return the topology configuration
+     */
+    public TopologyConfig getTopologyConfig() { return topologyConfig; }
+    
+    /**
+     * Gets the settings for object storage access.
+     * 
+     * @return the storage configuration
+     */
+    public StorageConfig getStorageConfig() { return storageConfig; }
+    
+    /**
+     * Gets the settings for the RocksDB state stores.
+     * 
+     * @return the state store configuration
+     */
+    public StateStoreConfig getStateStoreConfig() { return stateStoreConfig; }
 }
@@ -83,4 +83,104 @@ public class EnvironmentUtils {
         }
         return value;
     }
+
+    /**
+     * Gets an enum constant from an environment variable, with fallback to default.
+     * 
+     * <p>The environment value is matched case-insensitively against the
+     * constant names of the given enum type.
+     * 
+     * @param <E> the enum type
+     * @param key the environment variable name to look up
+     * @param type the enum class to resolve the value against
+     * @param defaultValue the value to return if the environment variable is not found or empty
+     * @return the matching enum constant or the default value
+     * @throws IllegalStateException if the value does not name a constant of the enum
+     * @throws NullPointerException if key or type is null
+     */
+    public static <E extends Enum<E>> E envEnum(String key, Class<E> type, E defaultValue) {
+        String value = System.getenv(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid value for environment variable " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Gets an integer environment variable, with fallback to default.
+     * 
+     * @param key the environment variable name to look up
+     * @param defaultValue the value to return if the environment variable is not found or empty
+     * @return the parsed value or the default value
+     * @throws IllegalStateException if the value is not a valid integer
+     * @throws NullPointerException if key is null
+     */
+    public static int envInt(String key, int defaultValue) {
+        return (int) envLong(key, defaultValue, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets a long environment variable, with fallback to default.
+     * 
+     * @param key the environment variable name to look up
+     * @param defaultValue the value to return if the environment variable is not found or empty
+     * @return the parsed value or the default value
+     * @throws IllegalStateException if the value is not a valid long
+     * @throws NullPointerException if key is null
+     */
+    public static long envLong(String key, long defaultValue) {
+        return envLong(key, defaultValue, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static long envLong(String key, long defaultValue, long min, long max) {
+        String value = System.getenv(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalStateException("Invalid value for environment variable " + key + ": " + value);
+    }
+
+    /**
+     * Gets a comma-separated list from an environment variable, with fallback to default.
+     * 
+     * <p>Elements are trimmed and empty elements are dropped, so
+     * {@code "a, b,,c"} yields {@code [a, b, c]}.
+     * 
+     * @param key the environment variable name to look up
+     * @param defaultValue the value to return if the environment variable is not found or empty
+     * @return the immutable list of elements or the default value
+     * @throws NullPointerException if key is null
+     */
+    public static java.util.List<String> envList(String key, java.util.List<String> defaultValue) {
+        String value = System.getenv(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return splitList(value);
+    }
+
+    /**
+     * Splits a comma-separated value into trimmed, non-empty elements.
+     * 
+     * @param value the value to split (must not be null)
+     * @return the immutable list of elements, possibly empty
+     */
+    static java.util.List<String> splitList(String value) {
+        return java.util.Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .toList();
+    }
 }
@@ -20,6 +20,7 @@ import java.util.Properties;
  *   <li>Exactly-once processing semantics</li>
  *   <li>String-based key/value serialization</li>
  *   <li>Configurable bootstrap servers and application ID</li>
+ *   <li>Tuned RocksDB state stores</li>
  * </ul>
  * 
  * @author JeroenFL
@@ -49,6 +50,7 @@ public class KafkaStreamsConfigFactory {
      *   <li>SSL configuration for secure communication</li>
      *   <li>String serializers for keys and values</li>
      *   <li>Exactly-once processing guarantee</li>
+     *   <li>The {@link TunedRocksDBConfigSetter} with the {@link StateStoreConfig} settings</li>
      * </ul>
      * 
      * <p>Required environment variables:
@@ -89,6 +91,15 @@ public class KafkaStreamsConfigFactory {
         // Processing guarantee
         props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
 
+        // State stores
+        StateStoreConfig stateStoreConfig = appConfig.getStateStoreConfig();
+        props.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, TunedRocksDBConfigSetter.class.getName());
+        TunedRocksDBConfigSetter.putProperties(stateStoreConfig, props);
+        if (stateStoreConfig.isStatistics()) {
+            // Kafka Streams only collects RocksDB statistics at the debug recording level
+            props.put(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG, "DEBUG");
+        }
+
         return props;
     }
 }
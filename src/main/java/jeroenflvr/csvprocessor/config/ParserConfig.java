@@ -0,0 +1,276 @@
+package jeroenflvr.csvprocessor.config;
+
+import jeroenflvr.csvprocessor.model.ColumnType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable configuration holder for the CSV parser.
+ * 
+ * <p>This class groups the settings that control how CSV input is tokenized
+ * and transformed. It is part of {@link ApplicationConfig} and is handed to
+ * the processing components when they are created.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ApplicationConfig
+ */
+public class ParserConfig {
+
+    /**
+     * Strategy used to locate delimiters and line terminators in the input.
+     */
+    public enum ScanMode {
+        /**
+         * Examines the input one byte at a time.
+         */
+        SCALAR,
+        /**
+         * Examines eight bytes at a time using SIMD-within-a-register tricks on {@code long} words.
+         */
+        SWAR
+    }
+
+    /**
+     * Columns forming the composite record key when none are configured.
+     */
+    public static final List<String> DEFAULT_KEY_COLUMNS = List.of("o_orderkey", "o_custkey");
+
+    /**
+     * Default size of the newline-aligned chunks parsed in parallel, in bytes.
+     */
+    public static final int DEFAULT_PARSE_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Default size of the windows local files are memory-mapped in, in bytes.
+     */
+    public static final int DEFAULT_MAP_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private final ScanMode scanMode;
+    private final List<String> keyColumns;
+    private final List<String> outputColumns;
+    private final Map<String, ColumnType> columnTypes;
+    private final int parseParallelism;
+    private final int parseChunkSize;
+    private final int mapWindowSize;
+
+    /**
+     * Constructs a new ParserConfig with the specified scan mode and default columns.
+     * 
+     * @param scanMode the delimiter scanning strategy (must not be null)
+     */
+    public ParserConfig(ScanMode scanMode) {
+        this(scanMode, DEFAULT_KEY_COLUMNS, List.of());
+    }
+
+    /**
+     * Constructs a new ParserConfig with the specified parameters.
+     * 
+     * @param scanMode the delimiter scanning strategy (must not be null)
+     * @param keyColumns the columns forming the composite key, in key order (must not be null)
+     * @param outputColumns the columns to include in each record, in output order;
+     *                      empty to include every column except the key columns (must not be null)
+     */
+    public ParserConfig(ScanMode scanMode, List<String> keyColumns, List<String> outputColumns) {
+        this(scanMode, keyColumns, outputColumns, Map.of());
+    }
+
+    /**
+     * Constructs a new ParserConfig with the specified parameters and column types.
+     * 
+     * @param scanMode the delimiter scanning strategy (must not be null)
+     * @param keyColumns the columns forming the composite key, in key order (must not be null)
+     * @param outputColumns the columns to include in each record, in output order;
+     *                      empty to include every column except the key columns (must not be null)
+     * @param columnTypes the value types of columns by name; unlisted columns are strings (must not be null)
+     */
+    public ParserConfig(ScanMode scanMode, List<String> keyColumns, List<String> outputColumns,
+                        Map<String, ColumnType> columnTypes) {
+        this(scanMode, keyColumns, outputColumns, columnTypes, 1, DEFAULT_PARSE_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new ParserConfig with the specified parameters, column types and parse parallelism.
+     * 
+     * @param scanMode the delimiter scanning strategy (must not be null)
+     * @param keyColumns the columns forming the composite key, in key order (must not be null)
+     * @param outputColumns the columns to include in each record, in output order;
+     *                      empty to include every column except the key columns (must not be null)
+     * @param columnTypes the value types of columns by name; unlisted columns are strings (must not be null)
+     * @param parseParallelism the number of threads parsing a single file; 1 parses sequentially
+     * @param parseChunkSize the size in bytes of the chunks a file is split into for parallel parsing
+     * @throws IllegalArgumentException if parseParallelism or parseChunkSize is not positive
+     */
+    public ParserConfig(ScanMode scanMode, List<String> keyColumns, List<String> outputColumns,
+                        Map<String, ColumnType> columnTypes, int parseParallelism, int parseChunkSize) {
+        this(scanMode, keyColumns, outputColumns, columnTypes, parseParallelism, parseChunkSize,
+             DEFAULT_MAP_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a new ParserConfig with the specified parameters and memory-mapping window size.
+     * 
+     * @param scanMode the delimiter scanning strategy (must not be null)
+     * @param keyColumns the columns forming the composite key, in key order (must not be null)
+     * @param outputColumns the columns to include in each record, in output order;
+     *                      empty to include every column except the key columns (must not be null)
+     * @param columnTypes the value types of columns by name; unlisted columns are strings (must not be null)
+     * @param parseParallelism the number of threads parsing a single file; 1 parses sequentially
+     * @param parseChunkSize the size in bytes of the chunks a file is split into for parallel parsing
+     * @param mapWindowSize the size in bytes of the windows local files are memory-mapped in
+     * @throws IllegalArgumentException if a parallelism or size is not positive
+     */
+    public ParserConfig(ScanMode scanMode, List<String> keyColumns, List<String> outputColumns,
+                        Map<String, ColumnType> columnTypes, int parseParallelism, int parseChunkSize,
+                        int mapWindowSize) {
+        if (parseParallelism <= 0) {
+            throw new IllegalArgumentException("Parse parallelism must be positive: " + parseParallelism);
+        }
+        if (parseChunkSize <= 0) {
+            throw new IllegalArgumentException("Parse chunk size must be positive: " + parseChunkSize);
+        }
+        if (mapWindowSize <= 0) {
+            throw new IllegalArgumentException("Map window size must be positive: " + mapWindowSize);
+        }
+        this.scanMode = scanMode;
+        this.keyColumns = List.copyOf(keyColumns);
+        this.outputColumns = List.copyOf(outputColumns);
+        this.columnTypes = Map.copyOf(columnTypes);
+        this.parseParallelism = parseParallelism;
+        this.parseChunkSize = parseChunkSize;
+        this.mapWindowSize = mapWindowSize;
+    }
+
+    /**
+     * Creates a ParserConfig with default settings.
+     * 
+     * @return a new ParserConfig using the scalar scan mode, the order key columns and all output columns
+     */
+    public static ParserConfig defaults() {
+        return new ParserConfig(ScanMode.SCALAR);
+    }
+
+    /**
+     * Creates a ParserConfig instance from environment variables.
+     * 
+     * <p>The following environment variables are consulted:
+     * <ul>
+     *   <li>{@code CSV_SCAN_MODE} - {@code scalar} or {@code swar}, defaults to "scalar"</li>
+     *   <li>{@code KEY_COLUMNS} - comma-separated key columns, defaults to "o_orderkey,o_custkey"</li>
+     *   <li>{@code OUTPUT_COLUMNS} - comma-separated output columns, defaults to all non-key columns</li>
+     *   <li>{@code COLUMN_TYPES} - comma-separated {@code column:type} pairs such as
+     *       {@code o_orderkey:long,o_totalprice:decimal(2),o_orderdate:date}, defaults to none</li>
+     *   <li>{@code PARSE_PARALLELISM} - threads parsing a single file, defaults to 1 (sequential)</li>
+     *   <li>{@code PARSE_CHUNK_SIZE} - bytes per chunk when parsing in parallel, defaults to 4 MiB</li>
+     *   <li>{@code MAP_WINDOW_SIZE} - bytes per memory-mapped window of a local file, defaults to 256 MiB</li>
+     * </ul>
+     * 
+     * @return a new ParserConfig instance with values from environment or defaults
+     * @throws IllegalStateException if an environment variable holds an invalid value
+     */
+    public static ParserConfig fromEnvironment() {
+        return new ParserConfig(
+            EnvironmentUtils.envEnum("CSV_SCAN_MODE", ScanMode.class, ScanMode.SCALAR),
+            EnvironmentUtils.envList("KEY_COLUMNS", DEFAULT_KEY_COLUMNS),
+            EnvironmentUtils.envList("OUTPUT_COLUMNS", List.of()),
+            parseColumnTypes(EnvironmentUtils.envOrDefault("COLUMN_TYPES", "")),
+            EnvironmentUtils.envInt("PARSE_PARALLELISM", 1),
+            EnvironmentUtils.envInt("PARSE_CHUNK_SIZE", DEFAULT_PARSE_CHUNK_SIZE),
+            EnvironmentUtils.envInt("MAP_WINDOW_SIZE", DEFAULT_MAP_WINDOW_SIZE)
+        );
+    }
+
+    /**
+     * Parses a comma-separated list of {@code column:type} pairs.
+     * 
+     * <p>The type is separated from the column name by the last colon, so
+     * decimal types containing commas must not be used; write
+     * {@code decimal(2)} rather than {@code decimal(15,2)}.
+     * 
+     * @param value the column type list (must not be null)
+     * @return the column types by column name, in listed order
+     * @throws IllegalStateException if an entry is malformed
+     * @see ColumnType#parse(String)
+     */
+    static Map<String, ColumnType> parseColumnTypes(String value) {
+        Map<String, ColumnType> types = new LinkedHashMap<>();
+        for (String entry : EnvironmentUtils.splitList(value)) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("Invalid column type entry, expected column:type: " + entry);
+            }
+            try {
+                types.put(entry.substring(0, separator).trim(), ColumnType.parse(entry.substring(separator + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid column type entry " + entry + ": " + e.getMessage());
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Gets the strategy used to locate delimiters and line terminators.
+     * 
+     * @return the scan mode
+     */
+    public ScanMode getScanMode() { return scanMode; }
+
+    /**
+     * Gets the columns whose values are joined into the composite record key.
+     * 
+     * @return the immutable list of key column names, in key order
+     */
+    public List<String> getKeyColumns() { return keyColumns; }
+
+    /**
+     * Gets the columns projected into each record.
+     * 
+     * <p>An empty list means every named column except the key columns.
+     * 
+     * @return the immutable list of output column names, in output order
+     */
+    public List<String> getOutputColumns() { return outputColumns; }
+
+    /**
+     * Gets the value types of the typed columns.
+     * 
+     * <p>Columns that are not listed are strings. Types only affect the
+     * binary record format; JSON records always hold the original text.
+     * 
+     * @return the immutable map of column types by column name
+     */
+    public Map<String, ColumnType> getColumnTypes() { return columnTypes; }
+
+    /**
+     * Gets the number of threads that parse a single file.
+     * 
+     * <p>With more than one thread, files are split into newline-aligned
+     * chunks that are parsed concurrently; records are still emitted in file order.
+     * 
+     * @return the parse parallelism, 1 for sequential parsing
+     */
+    public int getParseParallelism() { return parseParallelism; }
+
+    /**
+     * Gets the target size of the chunks a file is split into for parallel parsing.
+     * 
+     * <p>Chunks are extended to the end of the line they stop in.
+     * 
+     * @return the chunk size in bytes
+     */
+    public int getParseChunkSize() { return parseChunkSize; }
+
+    /**
+     * Gets the size of the windows local files are memory-mapped in.
+     * 
+     * <p>A file larger than one window is mapped one window at a time, each
+     * window ending on a line boundary, so the address space used per file
+     * stays bounded.
+     * 
+     * @return the window size in bytes
+     */
+    public int getMapWindowSize() { return mapWindowSize; }
+}
@@ -2,7 +2,9 @@ package jeroenflvr.csvprocessor.config;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
 
@@ -83,4 +85,37 @@ public class S3ClientFactory {
                         .build())
                 .build();
     }
+
+    /**
+     * Creates an S3AsyncClient instance from environment variables.
+     * 
+     * <p>The client uses the same endpoint, credentials, region and path-style
+     * settings as {@link #createFromEnvironment()}, on top of the Netty
+     * non-blocking HTTP client. Its connection pool is sized by
+     * {@link StorageConfig#getAsyncMaxConnections()}.
+     * 
+     * @param storageConfig the storage settings (must not be null)
+     * @return a configured S3AsyncClient instance
+     * @throws IllegalStateException if required environment variables are missing
+     * @see #createFromEnvironment()
+     */
+    public static S3AsyncClient createAsyncFromEnvironment(StorageConfig storageConfig) {
+        String endpoint = EnvironmentUtils.mustGetEnv("COS_ENDPOINT");
+        String region = EnvironmentUtils.envOrDefault("COS_REGION", "eu-fr2");
+        String accessKey = EnvironmentUtils.mustGetEnv("COS_ACCESS_KEY_ID");
+        String secretKey = EnvironmentUtils.mustGetEnv("COS_SECRET_ACCESS_KEY");
+        boolean pathStyle = Boolean.parseBoolean(EnvironmentUtils.envOrDefault("COS_PATH_STYLE", "true"));
+
+        return S3AsyncClient.builder()
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(storageConfig.getAsyncMaxConnections()))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(accessKey, secretKey)))
+                .endpointOverride(URI.create(endpoint))
+                .region(Region.of(region))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(pathStyle)
+                        .build())
+                .build();
+    }
 }
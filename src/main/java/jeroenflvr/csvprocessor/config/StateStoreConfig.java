@@ -0,0 +1,189 @@
+package jeroenflvr.csvprocessor.config;
+
+/**
+ * Immutable configuration holder for the RocksDB state stores.
+ *
+ * <p>This class groups the settings applied by the
+ * {@link TunedRocksDBConfigSetter} to every persistent state store of the
+ * topology, most importantly the {@code rows-state-store} that the change
+ * detection looks up once per record. It is part of
+ * {@link ApplicationConfig} and is passed to Kafka Streams by the
+ * {@link KafkaStreamsConfigFactory}.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ApplicationConfig
+ * @see TunedRocksDBConfigSetter
+ */
+public class StateStoreConfig {
+
+    /**
+     * Compression of the SST files of the stores.
+     */
+    public enum Compression {
+        /**
+         * No compression.
+         */
+        NONE,
+        /**
+         * LZ4, cheap to decompress on the lookup path.
+         */
+        LZ4,
+        /**
+         * ZSTD, smaller files at a higher CPU cost.
+         */
+        ZSTD
+    }
+
+    /**
+     * Default size of the block cache shared by all stores, in bytes.
+     */
+    public static final long DEFAULT_BLOCK_CACHE_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Default number of bloom filter bits per key.
+     */
+    public static final int DEFAULT_BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    /**
+     * Default size of a memtable, 0 to keep the Kafka Streams default of 16 MiB.
+     */
+    public static final long DEFAULT_WRITE_BUFFER_BYTES = 0;
+
+    /**
+     * Default maximum number of memtables per store, 0 to keep the Kafka Streams default of 3.
+     */
+    public static final int DEFAULT_MAX_WRITE_BUFFERS = 0;
+
+    private final long blockCacheBytes;
+    private final int bloomFilterBitsPerKey;
+    private final Compression compression;
+    private final long writeBufferBytes;
+    private final int maxWriteBuffers;
+    private final boolean statistics;
+
+    /**
+     * Constructs a new StateStoreConfig with the specified parameters.
+     *
+     * @param blockCacheBytes the size in bytes of the block cache shared by all stores
+     * @param bloomFilterBitsPerKey the bloom filter bits per key, or 0 to disable bloom filters
+     * @param compression the compression of the SST files (must not be null)
+     * @param writeBufferBytes the size in bytes of a memtable, or 0 to keep the Kafka Streams default
+     * @param maxWriteBuffers the maximum number of memtables per store, or 0 to keep the Kafka Streams default
+     * @param statistics whether RocksDB statistics are collected and reported as metrics
+     * @throws IllegalArgumentException if blockCacheBytes is not positive, or bloomFilterBitsPerKey,
+     *         writeBufferBytes or maxWriteBuffers is negative
+     */
+    public StateStoreConfig(long blockCacheBytes, int bloomFilterBitsPerKey, Compression compression,
+                            long writeBufferBytes, int maxWriteBuffers, boolean statistics) {
+        if (blockCacheBytes <= 0) {
+            throw new IllegalArgumentException("Block cache size must be positive: " + blockCacheBytes);
+        }
+        if (bloomFilterBitsPerKey < 0) {
+            throw new IllegalArgumentException("Bloom filter bits per key must not be negative: "
+                    + bloomFilterBitsPerKey);
+        }
+        if (writeBufferBytes < 0) {
+            throw new IllegalArgumentException("Write buffer size must not be negative: " + writeBufferBytes);
+        }
+        if (maxWriteBuffers < 0) {
+            throw new IllegalArgumentException("Max write buffers must not be negative: " + maxWriteBuffers);
+        }
+        this.blockCacheBytes = blockCacheBytes;
+        this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+        this.compression = compression;
+        this.writeBufferBytes = writeBufferBytes;
+        this.maxWriteBuffers = maxWriteBuffers;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Creates a StateStoreConfig with default settings.
+     *
+     * @return a new StateStoreConfig with bloom filters, LZ4 compression, the Kafka Streams memtable
+     *         sizes and without statistics
+     */
+    public static StateStoreConfig defaults() {
+        return new StateStoreConfig(DEFAULT_BLOCK_CACHE_BYTES, DEFAULT_BLOOM_FILTER_BITS_PER_KEY, Compression.LZ4,
+                DEFAULT_WRITE_BUFFER_BYTES, DEFAULT_MAX_WRITE_BUFFERS, false);
+    }
+
+    /**
+     * Creates a StateStoreConfig instance from environment variables.
+     *
+     * <p>The following environment variables are consulted:
+     * <ul>
+     *   <li>{@code ROCKSDB_BLOCK_CACHE_BYTES} - block cache shared by all stores, defaults to 268435456</li>
+     *   <li>{@code ROCKSDB_BLOOM_FILTER_BITS} - bloom filter bits per key, 0 to disable, defaults to 10</li>
+     *   <li>{@code ROCKSDB_COMPRESSION} - {@code none}, {@code lz4} or {@code zstd}, defaults to "lz4"</li>
+     *   <li>{@code ROCKSDB_WRITE_BUFFER_BYTES} - size of a memtable, defaults to 0 (the Kafka Streams
+     *       default of 16 MiB)</li>
+     *   <li>{@code ROCKSDB_MAX_WRITE_BUFFERS} - memtables per store, defaults to 0 (the Kafka Streams
+     *       default of 3)</li>
+     *   <li>{@code ROCKSDB_STATISTICS} - report RocksDB statistics as metrics, defaults to "false"</li>
+     * </ul>
+     *
+     * @return a new StateStoreConfig instance with values from environment or defaults
+     * @throws IllegalStateException if an environment variable holds an invalid value
+     */
+    public static StateStoreConfig fromEnvironment() {
+        return new StateStoreConfig(
+            EnvironmentUtils.envLong("ROCKSDB_BLOCK_CACHE_BYTES", DEFAULT_BLOCK_CACHE_BYTES),
+            EnvironmentUtils.envInt("ROCKSDB_BLOOM_FILTER_BITS", DEFAULT_BLOOM_FILTER_BITS_PER_KEY),
+            EnvironmentUtils.envEnum("ROCKSDB_COMPRESSION", Compression.class, Compression.LZ4),
+            EnvironmentUtils.envLong("ROCKSDB_WRITE_BUFFER_BYTES", DEFAULT_WRITE_BUFFER_BYTES),
+            EnvironmentUtils.envInt("ROCKSDB_MAX_WRITE_BUFFERS", DEFAULT_MAX_WRITE_BUFFERS),
+            Boolean.parseBoolean(EnvironmentUtils.envOrDefault("ROCKSDB_STATISTICS", "false"))
+        );
+    }
+
+    /**
+     * Gets the size of the block cache shared by all stores of the application instance.
+     *
+     * @return the block cache size in bytes
+     */
+    public long getBlockCacheBytes() { return blockCacheBytes; }
+
+    /**
+     * Gets the number of bloom filter bits per key.
+     *
+     * <p>Bloom filters let a lookup of an absent key, such as every key of a
+     * first load, skip the SST files without reading their blocks.
+     *
+     * @return the bits per key, or 0 if bloom filters are disabled
+     */
+    public int getBloomFilterBitsPerKey() { return bloomFilterBitsPerKey; }
+
+    /**
+     * Gets the compression of the SST files.
+     *
+     * @return the compression
+     */
+    public Compression getCompression() { return compression; }
+
+    /**
+     * Gets the size of a memtable.
+     *
+     * <p>Memtables are allocated per store, i.e. per task and store, and are
+     * not charged to the shared block cache, so their memory grows with the
+     * number of tasks of the instance.
+     *
+     * @return the write buffer size in bytes, or 0 to keep the Kafka Streams default
+     */
+    public long getWriteBufferBytes() { return writeBufferBytes; }
+
+    /**
+     * Gets the maximum number of memtables per store.
+     *
+     * @return the maximum number of write buffers, or 0 to keep the Kafka Streams default
+     */
+    public int getMaxWriteBuffers() { return maxWriteBuffers; }
+
+    /**
+     * Determines whether RocksDB statistics are collected and reported as metrics.
+     *
+     * @return true if statistics are enabled
+     */
+    public boolean isStatistics() { return statistics; }
+}
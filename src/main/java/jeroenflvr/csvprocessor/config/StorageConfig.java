@@ -0,0 +1,323 @@
+package jeroenflvr.csvprocessor.config;
+
+/**
+ * Immutable configuration holder for object storage access.
+ *
+ * <p>This class groups the settings that control how files are fetched from
+ * S3/COS, as opposed to the client credentials and endpoint handled by
+ * {@link S3ClientFactory}. It is part of {@link ApplicationConfig} and is
+ * handed to the storage components when they are created.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ApplicationConfig
+ */
+public class StorageConfig {
+
+    /**
+     * Strategy used to download an object.
+     */
+    public enum DownloadMode {
+        /**
+         * One GET request streaming the whole object over a single connection.
+         */
+        SINGLE,
+        /**
+         * A HEAD request for the size followed by concurrent GET requests for
+         * consecutive byte ranges, reassembled in order.
+         */
+        RANGED
+    }
+
+    /**
+     * HTTP client model used to download objects.
+     */
+    public enum ClientMode {
+        /**
+         * The blocking {@code S3Client}; the calling thread waits in socket reads.
+         */
+        BLOCKING,
+        /**
+         * The non-blocking {@code S3AsyncClient} on Netty; a few event loop
+         * threads serve all connections and the body is pulled on demand.
+         */
+        ASYNC
+    }
+
+    /**
+     * Default size of a ranged download part, in bytes.
+     */
+    public static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * Default number of parts downloaded concurrently per object.
+     */
+    public static final int DEFAULT_DOWNLOAD_CONCURRENCY = 4;
+
+    /**
+     * Default maximum number of connections of the asynchronous client.
+     */
+    public static final int DEFAULT_ASYNC_MAX_CONNECTIONS = 64;
+
+    /**
+     * Default number of body buffers requested ahead of the parser by the asynchronous client.
+     */
+    public static final int DEFAULT_ASYNC_PREFETCH = 4;
+
+    /**
+     * Default maximum size of the local object cache, in bytes.
+     */
+    public static final long DEFAULT_CACHE_MAX_BYTES = 10L * 1024 * 1024 * 1024;
+
+    /**
+     * Default number of read-ahead buffers per download.
+     */
+    public static final int DEFAULT_READ_AHEAD_BUFFERS = 0;
+
+    /**
+     * Default size of a read-ahead buffer, in bytes.
+     */
+    public static final int DEFAULT_READ_AHEAD_BUFFER_SIZE = 1024 * 1024;
+
+    private final DownloadMode downloadMode;
+    private final long partSize;
+    private final int downloadConcurrency;
+    private final ClientMode clientMode;
+    private final int asyncMaxConnections;
+    private final int asyncPrefetch;
+    private final String cacheDirectory;
+    private final long cacheMaxBytes;
+    private final int readAheadBuffers;
+    private final int readAheadBufferSize;
+
+    /**
+     * Constructs a new StorageConfig with the specified parameters.
+     *
+     * @param downloadMode the download strategy (must not be null)
+     * @param partSize the size in bytes of a ranged download part
+     * @param downloadConcurrency the number of parts downloaded concurrently per object
+     * @throws IllegalArgumentException if partSize or downloadConcurrency is not positive
+     */
+    public StorageConfig(DownloadMode downloadMode, long partSize, int downloadConcurrency) {
+        this(downloadMode, partSize, downloadConcurrency, ClientMode.BLOCKING,
+             DEFAULT_ASYNC_MAX_CONNECTIONS, DEFAULT_ASYNC_PREFETCH);
+    }
+
+    /**
+     * Constructs a new StorageConfig with the specified download and client parameters.
+     *
+     * @param downloadMode the download strategy of the blocking client (must not be null)
+     * @param partSize the size in bytes of a ranged download part
+     * @param downloadConcurrency the number of parts downloaded concurrently per object
+     * @param clientMode the HTTP client model (must not be null)
+     * @param asyncMaxConnections the maximum number of connections of the asynchronous client
+     * @param asyncPrefetch the number of body buffers the asynchronous client requests ahead of the parser
+     * @throws IllegalArgumentException if a size or count is not positive
+     */
+    public StorageConfig(DownloadMode downloadMode, long partSize, int downloadConcurrency,
+                         ClientMode clientMode, int asyncMaxConnections, int asyncPrefetch) {
+        this(downloadMode, partSize, downloadConcurrency, clientMode, asyncMaxConnections, asyncPrefetch,
+             null, DEFAULT_CACHE_MAX_BYTES);
+    }
+
+    /**
+     * Constructs a new StorageConfig with the specified download, client and cache parameters.
+     *
+     * @param downloadMode the download strategy of the blocking client (must not be null)
+     * @param partSize the size in bytes of a ranged download part
+     * @param downloadConcurrency the number of parts downloaded concurrently per object
+     * @param clientMode the HTTP client model (must not be null)
+     * @param asyncMaxConnections the maximum number of connections of the asynchronous client
+     * @param asyncPrefetch the number of body buffers the asynchronous client requests ahead of the parser
+     * @param cacheDirectory the directory of the local object cache, or null to disable the cache
+     * @param cacheMaxBytes the maximum total size of the cached objects in bytes
+     * @throws IllegalArgumentException if a size or count is not positive
+     */
+    public StorageConfig(DownloadMode downloadMode, long partSize, int downloadConcurrency,
+                         ClientMode clientMode, int asyncMaxConnections, int asyncPrefetch,
+                         String cacheDirectory, long cacheMaxBytes) {
+        this(downloadMode, partSize, downloadConcurrency, clientMode, asyncMaxConnections, asyncPrefetch,
+             cacheDirectory, cacheMaxBytes, DEFAULT_READ_AHEAD_BUFFERS, DEFAULT_READ_AHEAD_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new StorageConfig with the specified download, client, cache and read-ahead parameters.
+     *
+     * @param downloadMode the download strategy of the blocking client (must not be null)
+     * @param partSize the size in bytes of a ranged download part
+     * @param downloadConcurrency the number of parts downloaded concurrently per object
+     * @param clientMode the HTTP client model (must not be null)
+     * @param asyncMaxConnections the maximum number of connections of the asynchronous client
+     * @param asyncPrefetch the number of body buffers the asynchronous client requests ahead of the parser
+     * @param cacheDirectory the directory of the local object cache, or null to disable the cache
+     * @param cacheMaxBytes the maximum total size of the cached objects in bytes
+     * @param readAheadBuffers the number of buffers filled ahead of the parser per download, or 0 to disable
+     * @param readAheadBufferSize the size in bytes of a read-ahead buffer
+     * @throws IllegalArgumentException if a size or count is not positive, or readAheadBuffers is negative
+     */
+    public StorageConfig(DownloadMode downloadMode, long partSize, int downloadConcurrency,
+                         ClientMode clientMode, int asyncMaxConnections, int asyncPrefetch,
+                         String cacheDirectory, long cacheMaxBytes, int readAheadBuffers, int readAheadBufferSize) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("Part size must be positive: " + partSize);
+        }
+        if (downloadConcurrency <= 0) {
+            throw new IllegalArgumentException("Download concurrency must be positive: " + downloadConcurrency);
+        }
+        if (asyncMaxConnections <= 0) {
+            throw new IllegalArgumentException("Async max connections must be positive: " + asyncMaxConnections);
+        }
+        if (asyncPrefetch <= 0) {
+            throw new IllegalArgumentException("Async prefetch must be positive: " + asyncPrefetch);
+        }
+        if (cacheMaxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheMaxBytes);
+        }
+        if (readAheadBuffers < 0) {
+            throw new IllegalArgumentException("Read-ahead buffers must not be negative: " + readAheadBuffers);
+        }
+        if (readAheadBufferSize <= 0) {
+            throw new IllegalArgumentException("Read-ahead buffer size must be positive: " + readAheadBufferSize);
+        }
+        this.downloadMode = downloadMode;
+        this.partSize = partSize;
+        this.downloadConcurrency = downloadConcurrency;
+        this.clientMode = clientMode;
+        this.asyncMaxConnections = asyncMaxConnections;
+        this.asyncPrefetch = asyncPrefetch;
+        this.cacheDirectory = cacheDirectory == null || cacheDirectory.isBlank() ? null : cacheDirectory;
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.readAheadBuffers = readAheadBuffers;
+        this.readAheadBufferSize = readAheadBufferSize;
+    }
+
+    /**
+     * Creates a StorageConfig with default settings.
+     *
+     * @return a new StorageConfig using single-stream downloads
+     */
+    public static StorageConfig defaults() {
+        return new StorageConfig(DownloadMode.SINGLE, DEFAULT_PART_SIZE, DEFAULT_DOWNLOAD_CONCURRENCY);
+    }
+
+    /**
+     * Creates a StorageConfig instance from environment variables.
+     *
+     * <p>The following environment variables are consulted:
+     * <ul>
+     *   <li>{@code S3_DOWNLOAD_MODE} - {@code single} or {@code ranged}, defaults to "single"</li>
+     *   <li>{@code S3_PART_SIZE} - bytes per ranged download part, defaults to 8 MiB</li>
+     *   <li>{@code S3_DOWNLOAD_CONCURRENCY} - parts downloaded concurrently per object, defaults to 4</li>
+     *   <li>{@code S3_CLIENT_MODE} - {@code blocking} or {@code async}, defaults to "blocking"</li>
+     *   <li>{@code S3_ASYNC_MAX_CONNECTIONS} - connection pool size of the async client, defaults to 64</li>
+     *   <li>{@code S3_ASYNC_PREFETCH} - body buffers requested ahead of the parser, defaults to 4</li>
+     *   <li>{@code OBJECT_CACHE_DIR} - directory of the local object cache, defaults to none (disabled)</li>
+     *   <li>{@code OBJECT_CACHE_MAX_BYTES} - maximum size of the object cache, defaults to 10 GiB</li>
+     *   <li>{@code S3_READ_AHEAD_BUFFERS} - buffers filled ahead of the parser per download, 0 to read on the parsing thread, defaults to 0</li>
+     *   <li>{@code S3_READ_AHEAD_BUFFER_SIZE} - bytes per read-ahead buffer, defaults to 1 MiB</li>
+     * </ul>
+     *
+     * @return a new StorageConfig instance with values from environment or defaults
+     * @throws IllegalStateException if an environment variable holds an invalid value
+     */
+    public static StorageConfig fromEnvironment() {
+        return new StorageConfig(
+            EnvironmentUtils.envEnum("S3_DOWNLOAD_MODE", DownloadMode.class, DownloadMode.SINGLE),
+            EnvironmentUtils.envLong("S3_PART_SIZE", DEFAULT_PART_SIZE),
+            EnvironmentUtils.envInt("S3_DOWNLOAD_CONCURRENCY", DEFAULT_DOWNLOAD_CONCURRENCY),
+            EnvironmentUtils.envEnum("S3_CLIENT_MODE", ClientMode.class, ClientMode.BLOCKING),
+            EnvironmentUtils.envInt("S3_ASYNC_MAX_CONNECTIONS", DEFAULT_ASYNC_MAX_CONNECTIONS),
+            EnvironmentUtils.envInt("S3_ASYNC_PREFETCH", DEFAULT_ASYNC_PREFETCH),
+            EnvironmentUtils.envOrDefault("OBJECT_CACHE_DIR", ""),
+            EnvironmentUtils.envLong("OBJECT_CACHE_MAX_BYTES", DEFAULT_CACHE_MAX_BYTES),
+            EnvironmentUtils.envInt("S3_READ_AHEAD_BUFFERS", DEFAULT_READ_AHEAD_BUFFERS),
+            EnvironmentUtils.envInt("S3_READ_AHEAD_BUFFER_SIZE", DEFAULT_READ_AHEAD_BUFFER_SIZE)
+        );
+    }
+
+    /**
+     * Gets the strategy used to download an object.
+     *
+     * @return the download mode
+     */
+    public DownloadMode getDownloadMode() { return downloadMode; }
+
+    /**
+     * Gets the size of a ranged download part.
+     *
+     * @return the part size in bytes
+     */
+    public long getPartSize() { return partSize; }
+
+    /**
+     * Gets the number of parts downloaded concurrently per object.
+     *
+     * <p>Together with the part size this bounds the memory used by a ranged download.
+     *
+     * @return the download concurrency
+     */
+    public int getDownloadConcurrency() { return downloadConcurrency; }
+
+    /**
+     * Gets the HTTP client model used to download objects.
+     *
+     * @return the client mode
+     */
+    public ClientMode getClientMode() { return clientMode; }
+
+    /**
+     * Gets the maximum number of connections of the asynchronous client.
+     *
+     * <p>This is the number of downloads that can be in flight at the same
+     * time across all stream threads.
+     *
+     * @return the connection pool size
+     */
+    public int getAsyncMaxConnections() { return asyncMaxConnections; }
+
+    /**
+     * Gets the number of body buffers the asynchronous client requests ahead of the parser.
+     *
+     * <p>The client only reads more of the response once the parser has
+     * consumed a buffer, so this bounds the memory per download.
+     *
+     * @return the prefetch in buffers
+     */
+    public int getAsyncPrefetch() { return asyncPrefetch; }
+
+    /**
+     * Gets the directory of the local object cache.
+     *
+     * @return the cache directory, or null if objects are not cached
+     */
+    public String getCacheDirectory() { return cacheDirectory; }
+
+    /**
+     * Gets the maximum total size of the cached objects.
+     *
+     * <p>The least recently used objects are evicted beyond this size.
+     *
+     * @return the cache size limit in bytes
+     */
+    public long getCacheMaxBytes() { return cacheMaxBytes; }
+
+    /**
+     * Gets the number of buffers filled ahead of the parser per download.
+     *
+     * <p>A fetch thread reads the response into these buffers while the
+     * parser consumes the previous ones, so network reads and parsing
+     * overlap. Together with the buffer size this bounds the memory per
+     * download.
+     *
+     * @return the read-ahead buffer count, or 0 if read-ahead is disabled
+     */
+    public int getReadAheadBuffers() { return readAheadBuffers; }
+
+    /**
+     * Gets the size of a read-ahead buffer.
+     *
+     * @return the buffer size in bytes
+     */
+    public int getReadAheadBufferSize() { return readAheadBufferSize; }
+}
@@ -0,0 +1,548 @@
+package jeroenflvr.csvprocessor.config;
+
+/**
+ * Immutable configuration holder for the Kafka Streams topology.
+ * 
+ * <p>This class groups the settings that control how the topology is wired,
+ * as opposed to topic names and application identifiers. It is part of
+ * {@link ApplicationConfig} and is read by the topology builder.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ApplicationConfig
+ */
+public class TopologyConfig {
+
+    /**
+     * Representation of record keys and values inside the topology.
+     */
+    public enum SerdeMode {
+        /**
+         * Keys and values are Strings, serialized with {@code Serdes.String()}.
+         */
+        STRING,
+        /**
+         * Keys and values stay UTF-8 encoded bytes from the parser to the producer.
+         * 
+         * <p>Messages on all topics are byte-identical to the {@link #STRING} mode,
+         * so the mode can be switched without migrating topics or state.
+         */
+        BYTES
+    }
+
+    /**
+     * Encoding of the record payloads written to the output, updates and state topics.
+     */
+    public enum RecordFormat {
+        /**
+         * A JSON object of column names and text values.
+         */
+        JSON,
+        /**
+         * The compact, typed binary layout of the {@code BinaryRecordWriter}.
+         * 
+         * <p>Requires the {@link SerdeMode#BYTES} serde mode.
+         */
+        BINARY
+    }
+
+    /**
+     * What the change detection compares to decide whether a record has changed.
+     */
+    public enum ChangeDetection {
+        /**
+         * The whole record, including the {@code input_filename} and {@code imported}
+         * metadata; the state topic holds the last changed records.
+         */
+        VALUE,
+        /**
+         * A 64-bit digest of the business columns only; the state topic holds
+         * the digests of the last changed records.
+         * 
+         * <p>The state topic content differs from the {@link #VALUE} mode, so
+         * switching modes requires an empty state topic.
+         */
+        DIGEST
+    }
+
+    /**
+     * Where the change detection keeps the last known state of every record key.
+     */
+    public enum StateMode {
+        /**
+         * A table over the state topic, joined with the records; changed records
+         * are written back to the state topic.
+         */
+        TABLE,
+        /**
+         * A key-value store attached to the change detection step, read and
+         * updated in the same step; the store is backed by its own changelog
+         * topic and the state topic is not used.
+         * 
+         * <p>Each change costs a single changelog write instead of a write to
+         * and a read from the state topic, and a key repeated within a file is
+         * compared against its earlier row in the same file. Switching modes
+         * starts from an empty state.
+         */
+        STORE
+    }
+
+    /**
+     * Shape of the messages written to the output topic.
+     */
+    public enum OutputMode {
+        /**
+         * One message per record, keyed by the record key.
+         */
+        RECORDS,
+        /**
+         * Envelopes of many records of the same file, keyed by file and chunk index.
+         * 
+         * <p>Requires the {@link SerdeMode#BYTES} serde mode. The updates topic
+         * keeps one message per changed record.
+         */
+        ENVELOPES
+    }
+
+    /**
+     * Default number of rows between two checkpoints of an object being processed
+     * when files are expanded by expansion threads.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL_ROWS = 100_000;
+
+    /**
+     * Default maximum number of files expanded at the same time per task.
+     */
+    public static final int DEFAULT_MAX_FILES_IN_FLIGHT = 4;
+
+    /**
+     * Default maximum number of records per envelope.
+     */
+    public static final int DEFAULT_ENVELOPE_MAX_ROWS = 1000;
+
+    /**
+     * Default size in bytes at which an envelope is complete.
+     */
+    public static final int DEFAULT_ENVELOPE_MAX_BYTES = 256 * 1024;
+
+    private final SerdeMode serdeMode;
+    private final RecordFormat recordFormat;
+    private final boolean skipProcessedObjects;
+    private final int checkpointIntervalRows;
+    private final int expansionThreads;
+    private final int maxFilesInFlight;
+    private final ChangeDetection changeDetection;
+    private final StateMode stateMode;
+    private final OutputMode outputMode;
+    private final int envelopeMaxRows;
+    private final int envelopeMaxBytes;
+    private final int repartitionPartitions;
+
+    private TopologyConfig(Builder builder) {
+        if (builder.checkpointIntervalRows < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative: "
+                    + builder.checkpointIntervalRows);
+        }
+        if (builder.expansionThreads < 0) {
+            throw new IllegalArgumentException("Expansion threads must not be negative: " + builder.expansionThreads);
+        }
+        if (builder.checkpointIntervalRows > 0 && builder.expansionThreads == 0) {
+            // A file expanded on the stream thread is committed as a whole, so its checkpoints never survive
+            throw new IllegalArgumentException("Checkpoints require expansion threads: "
+                    + builder.checkpointIntervalRows);
+        }
+        if (builder.maxFilesInFlight <= 0) {
+            throw new IllegalArgumentException("Max files in flight must be positive: " + builder.maxFilesInFlight);
+        }
+        if (builder.envelopeMaxRows <= 0) {
+            throw new IllegalArgumentException("Envelope max rows must be positive: " + builder.envelopeMaxRows);
+        }
+        if (builder.envelopeMaxBytes <= 0) {
+            throw new IllegalArgumentException("Envelope max bytes must be positive: " + builder.envelopeMaxBytes);
+        }
+        if (builder.repartitionPartitions < 0) {
+            throw new IllegalArgumentException("Repartition partitions must not be negative: "
+                    + builder.repartitionPartitions);
+        }
+        if (builder.repartitionPartitions > 0 && builder.stateMode == StateMode.TABLE) {
+            // The join would fail at startup unless the count matched the state topic, which it follows anyway
+            throw new IllegalArgumentException("Repartition partitions require the store state mode: "
+                    + builder.repartitionPartitions);
+        }
+        this.serdeMode = builder.serdeMode;
+        this.recordFormat = builder.recordFormat;
+        this.skipProcessedObjects = builder.skipProcessedObjects;
+        this.checkpointIntervalRows = builder.checkpointIntervalRows;
+        this.expansionThreads = builder.expansionThreads;
+        this.maxFilesInFlight = builder.maxFilesInFlight;
+        this.changeDetection = builder.changeDetection;
+        this.stateMode = builder.stateMode;
+        this.outputMode = builder.outputMode;
+        this.envelopeMaxRows = builder.envelopeMaxRows;
+        this.envelopeMaxBytes = builder.envelopeMaxBytes;
+        this.repartitionPartitions = builder.repartitionPartitions;
+    }
+
+    /**
+     * Creates a builder starting from the default settings.
+     * 
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a TopologyConfig with default settings.
+     * 
+     * @return a new TopologyConfig using String serdes and JSON records
+     */
+    public static TopologyConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a TopologyConfig instance from environment variables.
+     * 
+     * <p>The following environment variables are consulted:
+     * <ul>
+     *   <li>{@code TOPOLOGY_SERDE_MODE} - {@code string} or {@code bytes}, defaults to "string"</li>
+     *   <li>{@code RECORD_FORMAT} - {@code json} or {@code binary}, defaults to "json"</li>
+     *   <li>{@code SKIP_PROCESSED_OBJECTS} - skip objects whose ETag and size were already
+     *       processed, defaults to "false"</li>
+     *   <li>{@code CHECKPOINT_INTERVAL_ROWS} - rows between two checkpoints of an object being
+     *       processed, 0 to disable checkpoints, defaults to 100000 with expansion threads and
+     *       to 0 without; checkpoints require expansion threads</li>
+     *   <li>{@code EXPANSION_THREADS} - threads downloading and parsing files off the stream
+     *       threads, 0 to expand on the stream threads, defaults to 0</li>
+     *   <li>{@code MAX_FILES_IN_FLIGHT} - files expanded at the same time per task, defaults to 4</li>
+     *   <li>{@code CHANGE_DETECTION} - {@code value} or {@code digest}, defaults to "value"</li>
+     *   <li>{@code STATE_MODE} - {@code table} or {@code store}, defaults to "table"</li>
+     *   <li>{@code OUTPUT_MODE} - {@code records} or {@code envelopes}, defaults to "records"</li>
+     *   <li>{@code ENVELOPE_MAX_ROWS} - records per envelope, defaults to 1000</li>
+     *   <li>{@code ENVELOPE_MAX_BYTES} - size at which an envelope is complete, defaults to 262144</li>
+     *   <li>{@code REPARTITION_PARTITIONS} - partitions the records are spread over by record key
+     *       for the change detection, 0 to derive them, defaults to 0; only allowed with
+     *       {@code STATE_MODE=store}</li>
+     * </ul>
+     * 
+     * @return a new TopologyConfig instance with values from environment or defaults
+     * @throws IllegalStateException if an environment variable holds an invalid value
+     */
+    public static TopologyConfig fromEnvironment() {
+        int expansionThreads = EnvironmentUtils.envInt("EXPANSION_THREADS", 0);
+        return builder()
+            .serdeMode(EnvironmentUtils.envEnum("TOPOLOGY_SERDE_MODE", SerdeMode.class, SerdeMode.STRING))
+            .recordFormat(EnvironmentUtils.envEnum("RECORD_FORMAT", RecordFormat.class, RecordFormat.JSON))
+            .skipProcessedObjects(Boolean.parseBoolean(
+                    EnvironmentUtils.envOrDefault("SKIP_PROCESSED_OBJECTS", "false")))
+            .checkpointIntervalRows(EnvironmentUtils.envInt("CHECKPOINT_INTERVAL_ROWS",
+                    expansionThreads > 0 ? DEFAULT_CHECKPOINT_INTERVAL_ROWS : 0))
+            .expansionThreads(expansionThreads)
+            .maxFilesInFlight(EnvironmentUtils.envInt("MAX_FILES_IN_FLIGHT", DEFAULT_MAX_FILES_IN_FLIGHT))
+            .changeDetection(EnvironmentUtils.envEnum("CHANGE_DETECTION", ChangeDetection.class,
+                    ChangeDetection.VALUE))
+            .stateMode(EnvironmentUtils.envEnum("STATE_MODE", StateMode.class, StateMode.TABLE))
+            .outputMode(EnvironmentUtils.envEnum("OUTPUT_MODE", OutputMode.class, OutputMode.RECORDS))
+            .envelopeMaxRows(EnvironmentUtils.envInt("ENVELOPE_MAX_ROWS", DEFAULT_ENVELOPE_MAX_ROWS))
+            .envelopeMaxBytes(EnvironmentUtils.envInt("ENVELOPE_MAX_BYTES", DEFAULT_ENVELOPE_MAX_BYTES))
+            .repartitionPartitions(EnvironmentUtils.envInt("REPARTITION_PARTITIONS", 0))
+            .build();
+    }
+
+    /**
+     * Gets the representation of keys and values inside the topology.
+     * 
+     * @return the serde mode
+     */
+    public SerdeMode getSerdeMode() { return serdeMode; }
+
+    /**
+     * Gets the encoding of record payloads.
+     * 
+     * @return the record format
+     */
+    public RecordFormat getRecordFormat() { return recordFormat; }
+
+    /**
+     * Checks whether objects that were already processed are skipped.
+     * 
+     * <p>When enabled, the topology keeps a ledger of processed objects in a
+     * persistent state store and only downloads an announced object if its
+     * ETag or size differs from the recorded version. Every announcement then
+     * costs a HEAD request, and a deliberately re-sent object with the same
+     * ETag and size is dropped. Repeats are only recognized when producers
+     * key announcements by path, so that they land on the same partition.
+     * 
+     * @return true if unchanged objects are skipped
+     */
+    public boolean isSkipProcessedObjects() { return skipProcessedObjects; }
+
+    /**
+     * Gets the number of rows between two checkpoints of an object being processed.
+     * 
+     * <p>Checkpoints record the byte offset, row number and ETag reached in
+     * an object, so that an object interrupted part-way is continued from
+     * the last checkpoint with a ranged request rather than read again from
+     * the start. Checkpoints are taken at batch boundaries, so the actual
+     * interval is rounded up to whole batches. They are only available with
+     * expansion threads: a file expanded on the stream thread is committed
+     * in one transaction, so a checkpoint taken part-way is never kept.
+     * 
+     * @return the checkpoint interval in rows, or 0 if checkpoints are disabled
+     */
+    public int getCheckpointIntervalRows() { return checkpointIntervalRows; }
+
+    /**
+     * Gets the number of threads that download and parse files off the stream threads.
+     * 
+     * <p>With expansion threads, a stream thread hands each announced file to
+     * a shared pool of this size and forwards the records as they become
+     * available, so a slow object no longer holds up the other partitions
+     * of the thread. With 0, files are expanded on the stream thread itself.
+     * 
+     * @return the expansion thread count, or 0 for synchronous expansion
+     */
+    public int getExpansionThreads() { return expansionThreads; }
+
+    /**
+     * Gets the maximum number of files expanded at the same time per task.
+     * 
+     * <p>Only applies with {@link #getExpansionThreads() expansion threads}.
+     * Announcements beyond the limit are kept in the task's pending store and
+     * started as earlier files complete; the stream thread never waits for them.
+     * 
+     * @return the per-task limit of files in flight
+     */
+    public int getMaxFilesInFlight() { return maxFilesInFlight; }
+
+    /**
+     * Gets what the change detection compares to decide whether a record has changed.
+     * 
+     * <p>In the {@link ChangeDetection#DIGEST digest} mode, a re-delivered
+     * file whose rows are unchanged produces no updates, although the
+     * {@code imported} timestamp of every row differs, and the state keeps 8
+     * bytes per key instead of the whole record.
+     * 
+     * @return the change detection mode
+     */
+    public ChangeDetection getChangeDetection() { return changeDetection; }
+
+    /**
+     * Gets where the change detection keeps the last known state of every record key.
+     * 
+     * @return the state mode
+     */
+    public StateMode getStateMode() { return stateMode; }
+
+    /**
+     * Gets the shape of the messages written to the output topic.
+     * 
+     * <p>In the {@link OutputMode#ENVELOPES envelope} mode, the records of a
+     * file are packed into envelope messages, which cuts the per-message
+     * overhead of the broker requests and the producer for narrow records.
+     * 
+     * @return the output mode
+     */
+    public OutputMode getOutputMode() { return outputMode; }
+
+    /**
+     * Gets the maximum number of records per envelope.
+     * 
+     * @return the record limit of an envelope
+     */
+    public int getEnvelopeMaxRows() { return envelopeMaxRows; }
+
+    /**
+     * Gets the size at which an envelope is complete; an envelope exceeds it by at most one record.
+     * 
+     * @return the size limit of an envelope in bytes
+     */
+    public int getEnvelopeMaxBytes() { return envelopeMaxBytes; }
+
+    /**
+     * Gets the number of partitions the records are spread over by record key for the change detection.
+     * 
+     * <p>The records of one file are produced by the task of its input
+     * partition, and the change detection of each record runs on the task of
+     * its key's partition, so more partitions spread a large file over more
+     * instances. A count can only be set in the {@link StateMode#STORE store}
+     * state mode: in the {@link StateMode#TABLE table} state mode the records
+     * are joined with the state topic, so they always take its partition count.
+     * 
+     * @return the partition count, or 0 if it is derived from the input topics or the state topic
+     */
+    public int getRepartitionPartitions() { return repartitionPartitions; }
+
+    /**
+     * Builder of TopologyConfig instances; every setting starts at its default.
+     * 
+     * <p>The settings are only validated together by {@link #build()}, so they
+     * can be set in any order.
+     */
+    public static final class Builder {
+        private SerdeMode serdeMode = SerdeMode.STRING;
+        private RecordFormat recordFormat = RecordFormat.JSON;
+        private boolean skipProcessedObjects;
+        private int checkpointIntervalRows;
+        private int expansionThreads;
+        private int maxFilesInFlight = DEFAULT_MAX_FILES_IN_FLIGHT;
+        private ChangeDetection changeDetection = ChangeDetection.VALUE;
+        private StateMode stateMode = StateMode.TABLE;
+        private OutputMode outputMode = OutputMode.RECORDS;
+        private int envelopeMaxRows = DEFAULT_ENVELOPE_MAX_ROWS;
+        private int envelopeMaxBytes = DEFAULT_ENVELOPE_MAX_BYTES;
+        private int repartitionPartitions;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the representation of keys and values, {@link SerdeMode#STRING} by default.
+         * 
+         * @param serdeMode the serde mode (must not be null)
+         * @return this builder
+         */
+        public Builder serdeMode(SerdeMode serdeMode) {
+            this.serdeMode = serdeMode;
+            return this;
+        }
+
+        /**
+         * Sets the encoding of record payloads, {@link RecordFormat#JSON} by default.
+         * 
+         * @param recordFormat the record format (must not be null)
+         * @return this builder
+         */
+        public Builder recordFormat(RecordFormat recordFormat) {
+            this.recordFormat = recordFormat;
+            return this;
+        }
+
+        /**
+         * Sets whether objects already processed with the same ETag and size are skipped, false by default.
+         * 
+         * @param skipProcessedObjects true to skip unchanged objects
+         * @return this builder
+         */
+        public Builder skipProcessedObjects(boolean skipProcessedObjects) {
+            this.skipProcessedObjects = skipProcessedObjects;
+            return this;
+        }
+
+        /**
+         * Sets the number of rows between two checkpoints of an object, 0 (disabled) by default.
+         * 
+         * @param checkpointIntervalRows the checkpoint interval, or 0 to disable checkpoints
+         * @return this builder
+         */
+        public Builder checkpointIntervalRows(int checkpointIntervalRows) {
+            this.checkpointIntervalRows = checkpointIntervalRows;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads expanding files, 0 (the stream threads) by default.
+         * 
+         * @param expansionThreads the expansion thread count, or 0 to expand on the stream threads
+         * @return this builder
+         */
+        public Builder expansionThreads(int expansionThreads) {
+            this.expansionThreads = expansionThreads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of files expanded at the same time per task.
+         * 
+         * @param maxFilesInFlight the per-task limit of files in flight
+         * @return this builder
+         */
+        public Builder maxFilesInFlight(int maxFilesInFlight) {
+            this.maxFilesInFlight = maxFilesInFlight;
+            return this;
+        }
+
+        /**
+         * Sets what is compared to detect changed records, {@link ChangeDetection#VALUE} by default.
+         * 
+         * @param changeDetection the change detection mode (must not be null)
+         * @return this builder
+         */
+        public Builder changeDetection(ChangeDetection changeDetection) {
+            this.changeDetection = changeDetection;
+            return this;
+        }
+
+        /**
+         * Sets where the state of the change detection is kept, {@link StateMode#TABLE} by default.
+         * 
+         * @param stateMode the state mode (must not be null)
+         * @return this builder
+         */
+        public Builder stateMode(StateMode stateMode) {
+            this.stateMode = stateMode;
+            return this;
+        }
+
+        /**
+         * Sets the shape of the output topic messages, {@link OutputMode#RECORDS} by default.
+         * 
+         * @param outputMode the output mode (must not be null)
+         * @return this builder
+         */
+        public Builder outputMode(OutputMode outputMode) {
+            this.outputMode = outputMode;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of records per envelope.
+         * 
+         * @param envelopeMaxRows the record limit of an envelope
+         * @return this builder
+         */
+        public Builder envelopeMaxRows(int envelopeMaxRows) {
+            this.envelopeMaxRows = envelopeMaxRows;
+            return this;
+        }
+
+        /**
+         * Sets the size in bytes at which an envelope is complete.
+         * 
+         * @param envelopeMaxBytes the size limit of an envelope
+         * @return this builder
+         */
+        public Builder envelopeMaxBytes(int envelopeMaxBytes) {
+            this.envelopeMaxBytes = envelopeMaxBytes;
+            return this;
+        }
+
+        /**
+         * Sets the number of partitions the records are spread over for the change detection.
+         * 
+         * <p>Only allowed in the {@link StateMode#STORE store} state mode.
+         * 
+         * @param repartitionPartitions the partition count, or 0 to derive it
+         * @return this builder
+         */
+        public Builder repartitionPartitions(int repartitionPartitions) {
+            this.repartitionPartitions = repartitionPartitions;
+            return this;
+        }
+
+        /**
+         * Creates the configuration.
+         * 
+         * @return a new TopologyConfig with the settings of this builder
+         * @throws IllegalArgumentException if checkpointIntervalRows, expansionThreads or
+         *         repartitionPartitions is negative, checkpoints are requested without expansion
+         *         threads, repartition partitions are set in the table state mode, or
+         *         maxFilesInFlight or an envelope limit is not positive
+         */
+        public TopologyConfig build() {
+            return new TopologyConfig(this);
+        }
+    }
+}
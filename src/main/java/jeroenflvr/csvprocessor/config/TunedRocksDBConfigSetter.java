@@ -0,0 +1,176 @@
+package jeroenflvr.csvprocessor.config;
+
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.CompressionType;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * RocksDB configuration of the persistent state stores, driven by a {@link StateStoreConfig}.
+ *
+ * <p>Kafka Streams instantiates this class once per store and passes the
+ * application properties, into which the {@link KafkaStreamsConfigFactory}
+ * copies the state store settings under the {@value #PREFIX} prefix.
+ * Missing properties fall back to the {@link StateStoreConfig#defaults() defaults}.
+ * Every store gets:
+ * <ul>
+ *   <li>the block cache shared by all stores of the application instance,
+ *       which also holds the index and filter blocks, so the data, index and
+ *       filter blocks read by all tasks together stay within one budget</li>
+ *   <li>a bloom filter, so point lookups of absent keys skip the SST files</li>
+ *   <li>the configured compression, and the configured memtable sizes if any</li>
+ * </ul>
+ * The memtables are not part of that budget: every store of every task has
+ * its own, so their memory grows with the number of tasks. Unless memtable
+ * sizes are configured, the Kafka Streams defaults are kept.
+ *
+ * <p>RocksDB statistics are collected by Kafka Streams itself, which reports
+ * them as the RocksDB state store metrics when the metrics recording level
+ * is {@code DEBUG}; the factory raises the level when statistics are enabled.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see StateStoreConfig
+ */
+public class TunedRocksDBConfigSetter implements RocksDBConfigSetter {
+    private static final Logger log = LoggerFactory.getLogger(TunedRocksDBConfigSetter.class);
+
+    /**
+     * Prefix of the application properties read by this setter.
+     */
+    public static final String PREFIX = "csvprocessor.rocksdb.";
+
+    /**
+     * Property holding the size in bytes of the shared block cache.
+     */
+    public static final String BLOCK_CACHE_BYTES_CONFIG = PREFIX + "block.cache.bytes";
+
+    /**
+     * Property holding the number of bloom filter bits per key.
+     */
+    public static final String BLOOM_FILTER_BITS_CONFIG = PREFIX + "bloom.filter.bits";
+
+    /**
+     * Property holding the name of the {@link StateStoreConfig.Compression}.
+     */
+    public static final String COMPRESSION_CONFIG = PREFIX + "compression";
+
+    /**
+     * Property holding the size in bytes of a memtable.
+     */
+    public static final String WRITE_BUFFER_BYTES_CONFIG = PREFIX + "write.buffer.bytes";
+
+    /**
+     * Property holding the maximum number of memtables per store.
+     */
+    public static final String MAX_WRITE_BUFFERS_CONFIG = PREFIX + "max.write.buffers";
+
+    private static Cache sharedCache;
+    private static long sharedCacheBytes;
+
+    private BloomFilter filter;
+
+    /**
+     * Creates a setter; called by Kafka Streams for every store.
+     */
+    public TunedRocksDBConfigSetter() {
+        // Configured through setConfig
+    }
+
+    @Override
+    public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+        StateStoreConfig config = fromConfigs(configs);
+        BlockBasedTableConfig tableConfig = (BlockBasedTableConfig) options.tableFormatConfig();
+        tableConfig.setBlockCache(sharedCache(config.getBlockCacheBytes()));
+        tableConfig.setCacheIndexAndFilterBlocks(true);
+        tableConfig.setPinL0FilterAndIndexBlocksInCache(true);
+        if (config.getBloomFilterBitsPerKey() > 0) {
+            filter = new BloomFilter(config.getBloomFilterBitsPerKey());
+            tableConfig.setFilterPolicy(filter);
+        }
+        options.setTableFormatConfig(tableConfig);
+        options.setCompressionType(compressionType(config.getCompression()));
+        if (config.getWriteBufferBytes() > 0) {
+            options.setWriteBufferSize(config.getWriteBufferBytes());
+        }
+        if (config.getMaxWriteBuffers() > 0) {
+            options.setMaxWriteBufferNumber(config.getMaxWriteBuffers());
+        }
+    }
+
+    @Override
+    public void close(String storeName, Options options) {
+        // The shared cache outlives the stores
+        if (filter != null) {
+            filter.close();
+            filter = null;
+        }
+    }
+
+    /**
+     * Writes the RocksDB settings of a state store configuration into application properties.
+     *
+     * @param config the state store settings
+     * @param properties the properties to write into
+     */
+    static void putProperties(StateStoreConfig config, Map<Object, Object> properties) {
+        properties.put(BLOCK_CACHE_BYTES_CONFIG, config.getBlockCacheBytes());
+        properties.put(BLOOM_FILTER_BITS_CONFIG, config.getBloomFilterBitsPerKey());
+        properties.put(COMPRESSION_CONFIG, config.getCompression().name());
+        properties.put(WRITE_BUFFER_BYTES_CONFIG, config.getWriteBufferBytes());
+        properties.put(MAX_WRITE_BUFFERS_CONFIG, config.getMaxWriteBuffers());
+    }
+
+    /**
+     * Reads the RocksDB settings from application properties.
+     *
+     * @param configs the application properties
+     * @return the state store settings, with defaults for missing properties
+     * @throws IllegalArgumentException if a property holds an invalid value
+     */
+    static StateStoreConfig fromConfigs(Map<String, ?> configs) {
+        StateStoreConfig defaults = StateStoreConfig.defaults();
+        Object compression = configs.get(COMPRESSION_CONFIG);
+        return new StateStoreConfig(
+                longValue(configs, BLOCK_CACHE_BYTES_CONFIG, defaults.getBlockCacheBytes()),
+                (int) longValue(configs, BLOOM_FILTER_BITS_CONFIG, defaults.getBloomFilterBitsPerKey()),
+                compression != null ? StateStoreConfig.Compression.valueOf(compression.toString())
+                        : defaults.getCompression(),
+                longValue(configs, WRITE_BUFFER_BYTES_CONFIG, defaults.getWriteBufferBytes()),
+                (int) longValue(configs, MAX_WRITE_BUFFERS_CONFIG, defaults.getMaxWriteBuffers()),
+                defaults.isStatistics());
+    }
+
+    private static long longValue(Map<String, ?> configs, String key, long defaultValue) {
+        Object value = configs.get(key);
+        return value != null ? Long.parseLong(value.toString()) : defaultValue;
+    }
+
+    private static synchronized Cache sharedCache(long capacity) {
+        // Sized by the first store; all stores of the instance are configured alike
+        if (sharedCache == null) {
+            sharedCache = new LRUCache(capacity);
+            sharedCacheBytes = capacity;
+        } else if (capacity != sharedCacheBytes) {
+            log.warn("Ignoring block cache size {} for a state store, the shared block cache already has {} bytes",
+                    capacity, sharedCacheBytes);
+        }
+        return sharedCache;
+    }
+
+    private static CompressionType compressionType(StateStoreConfig.Compression compression) {
+        return switch (compression) {
+            case NONE -> CompressionType.NO_COMPRESSION;
+            case LZ4 -> CompressionType.LZ4_COMPRESSION;
+            case ZSTD -> CompressionType.ZSTD_COMPRESSION;
+        };
+    }
+}
@@ -8,8 +8,13 @@
  * <p>Key classes:
  * <ul>
  *   <li>{@link jeroenflvr.csvprocessor.config.ApplicationConfig} - Application settings and topic configuration</li>
+ *   <li>{@link jeroenflvr.csvprocessor.config.ParserConfig} - CSV parser settings</li>
+ *   <li>{@link jeroenflvr.csvprocessor.config.TopologyConfig} - Kafka Streams topology settings</li>
+ *   <li>{@link jeroenflvr.csvprocessor.config.StorageConfig} - Object storage download settings</li>
+ *   <li>{@link jeroenflvr.csvprocessor.config.StateStoreConfig} - RocksDB state store settings</li>
  *   <li>{@link jeroenflvr.csvprocessor.config.EnvironmentUtils} - Environment variable access utilities</li>
  *   <li>{@link jeroenflvr.csvprocessor.config.KafkaStreamsConfigFactory} - Kafka Streams configuration factory</li>
+ *   <li>{@link jeroenflvr.csvprocessor.config.TunedRocksDBConfigSetter} - RocksDB options of the state stores</li>
  *   <li>{@link jeroenflvr.csvprocessor.config.S3ClientFactory} - S3 client configuration factory</li>
  * </ul>
  * 
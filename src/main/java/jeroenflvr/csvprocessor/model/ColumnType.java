@@ -0,0 +1,167 @@
+package jeroenflvr.csvprocessor.model;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Immutable description of the value type of a CSV column.
+ *
+ * <p>Column types drive the typed binary record format: values of typed
+ * columns are parsed from their bytes into primitives instead of being kept
+ * as text. The supported types follow the SQL types of the order feeds:
+ * <ul>
+ *   <li>{@code string} - UTF-8 text, kept as is (the default)</li>
+ *   <li>{@code long} - signed 64-bit integer, e.g. {@code INTEGER} and {@code BIGINT}</li>
+ *   <li>{@code decimal(s)} - fixed-point number stored as a {@code long} scaled by
+ *       10<sup>s</sup>, e.g. {@code DECIMAL(15,2)} as {@code decimal(2)}</li>
+ *   <li>{@code date} - ISO {@code yyyy-MM-dd} date stored as days since 1970-01-01</li>
+ * </ul>
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see #parse(String)
+ */
+public final class ColumnType {
+
+    /**
+     * The kinds of values a column can hold.
+     */
+    public enum Kind {
+        /**
+         * UTF-8 text.
+         */
+        STRING,
+        /**
+         * Signed 64-bit integer.
+         */
+        LONG,
+        /**
+         * Fixed-point number as a scaled {@code long}.
+         */
+        DECIMAL,
+        /**
+         * Calendar date as epoch days.
+         */
+        DATE
+    }
+
+    /**
+     * Text column type.
+     */
+    public static final ColumnType STRING = new ColumnType(Kind.STRING, 0);
+
+    /**
+     * Integer column type.
+     */
+    public static final ColumnType LONG = new ColumnType(Kind.LONG, 0);
+
+    /**
+     * Date column type.
+     */
+    public static final ColumnType DATE = new ColumnType(Kind.DATE, 0);
+
+    /**
+     * Largest supported decimal scale; 10<sup>18</sup> is the largest power of ten in a {@code long}.
+     */
+    public static final int MAX_SCALE = 18;
+
+    private final Kind kind;
+    private final int scale;
+
+    private ColumnType(Kind kind, int scale) {
+        this.kind = kind;
+        this.scale = scale;
+    }
+
+    /**
+     * Creates a decimal column type.
+     *
+     * @param scale the number of fractional digits (0 to {@link #MAX_SCALE})
+     * @return the decimal type with the given scale
+     * @throws IllegalArgumentException if the scale is out of range
+     */
+    public static ColumnType decimal(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Decimal scale must be between 0 and " + MAX_SCALE + ": " + scale);
+        }
+        return new ColumnType(Kind.DECIMAL, scale);
+    }
+
+    /**
+     * Parses a column type specification.
+     *
+     * <p>Accepts {@code string}, {@code long}, {@code date} and
+     * {@code decimal(s)}, case-insensitively.
+     *
+     * @param spec the type specification (must not be null)
+     * @return the parsed column type
+     * @throws IllegalArgumentException if the specification is not recognized
+     */
+    public static ColumnType parse(String spec) {
+        String normalized = spec.trim().toLowerCase(Locale.ROOT);
+        switch (normalized) {
+            case "string":
+                return STRING;
+            case "long":
+                return LONG;
+            case "date":
+                return DATE;
+            default:
+                break;
+        }
+        if (normalized.startsWith("decimal(") && normalized.endsWith(")")) {
+            try {
+                return decimal(Integer.parseInt(normalized.substring(8, normalized.length() - 1).trim()));
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+        }
+        throw new IllegalArgumentException("Invalid column type: " + spec);
+    }
+
+    /**
+     * Gets the kind of values of this type.
+     *
+     * @return the value kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the number of fractional digits of a decimal type.
+     *
+     * @return the scale, 0 for non-decimal types
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColumnType)) {
+            return false;
+        }
+        ColumnType that = (ColumnType) o;
+        return kind == that.kind && scale == that.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, scale);
+    }
+
+    /**
+     * Returns the specification of this type, as accepted by {@link #parse(String)}.
+     *
+     * @return the type specification
+     */
+    @Override
+    public String toString() {
+        return kind == Kind.DECIMAL ? "decimal(" + scale + ")" : kind.name().toLowerCase(Locale.ROOT);
+    }
+}
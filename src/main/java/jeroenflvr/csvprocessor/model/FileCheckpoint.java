@@ -0,0 +1,116 @@
+package jeroenflvr.csvprocessor.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable progress marker of an object that is being processed.
+ * 
+ * <p>A checkpoint records how far into a specific version of an object the
+ * records have been produced: the byte offset just past the last row that
+ * was handed out, the number of rows handed out up to there, and the
+ * columns of the header line, so that parsing can continue at the offset
+ * without reading the start of the object again. A checkpoint only applies
+ * to the version with the same ETag.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see jeroenflvr.csvprocessor.processing.ProcessedObjectLedger#lookupCheckpoint(String)
+ */
+public class FileCheckpoint {
+    private final String path;
+    private final String eTag;
+    private final long byteOffset;
+    private final long rowNumber;
+    private final List<String> headers;
+
+    /**
+     * Constructs a new FileCheckpoint with the specified components.
+     * 
+     * @param path the path of the object as announced on the input topic (must not be null)
+     * @param eTag the ETag of the version being processed, or null if unknown
+     * @param byteOffset the offset in the decoded content just past the last produced row
+     * @param rowNumber the number of rows produced up to the offset
+     * @param headers the columns of the object's header line (must not be null)
+     */
+    public FileCheckpoint(String path, String eTag, long byteOffset, long rowNumber, List<String> headers) {
+        this.path = path;
+        this.eTag = eTag;
+        this.byteOffset = byteOffset;
+        this.rowNumber = rowNumber;
+        this.headers = List.copyOf(headers);
+    }
+
+    /**
+     * Gets the path of the object.
+     * 
+     * @return the object path (never null)
+     */
+    public String getPath() { return path; }
+
+    /**
+     * Gets the ETag of the version being processed.
+     * 
+     * @return the ETag, or null if the object store did not report one
+     */
+    public String getETag() { return eTag; }
+
+    /**
+     * Gets the offset at which processing continues.
+     * 
+     * <p>The offset counts decoded bytes, i.e. after decompression, and
+     * always falls at the start of a line.
+     * 
+     * @return the byte offset
+     */
+    public long getByteOffset() { return byteOffset; }
+
+    /**
+     * Gets the number of rows produced before the offset.
+     * 
+     * @return the row number
+     */
+    public long getRowNumber() { return rowNumber; }
+
+    /**
+     * Gets the columns of the object's header line.
+     * 
+     * @return an unmodifiable list of the header columns
+     */
+    public List<String> getHeaders() { return headers; }
+
+    /**
+     * Checks whether this checkpoint can be used to continue processing an object version.
+     * 
+     * <p>Checkpoints without an ETag never apply, since their version cannot be told apart.
+     * 
+     * @param version the version about to be processed (must not be null)
+     * @return true if path and ETag are equal
+     */
+    public boolean appliesTo(ProcessedObject version) {
+        return eTag != null && path.equals(version.getPath()) && eTag.equals(version.getETag());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileCheckpoint other)) {
+            return false;
+        }
+        return byteOffset == other.byteOffset && rowNumber == other.rowNumber && path.equals(other.path)
+                && Objects.equals(eTag, other.eTag) && headers.equals(other.headers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, eTag, byteOffset, rowNumber, headers);
+    }
+
+    @Override
+    public String toString() {
+        return path + " (ETag " + eTag + ", byte " + byteOffset + ", row " + rowNumber + ")";
+    }
+}
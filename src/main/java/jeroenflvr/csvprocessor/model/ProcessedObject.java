@@ -0,0 +1,111 @@
+package jeroenflvr.csvprocessor.model;
+
+import java.util.Objects;
+
+/**
+ * Immutable ledger entry describing an object that has been processed completely.
+ * 
+ * <p>An object is identified by its path and versioned by its ETag and size
+ * as reported by the object store. Two entries describe the same version of
+ * an object when the path, the ETag and the size all match; such an object
+ * does not have to be downloaded and parsed again.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see jeroenflvr.csvprocessor.processing.ProcessedObjectLedger
+ */
+public class ProcessedObject {
+    private final String path;
+    private final String eTag;
+    private final long size;
+    private final long rowCount;
+
+    /**
+     * Constructs a new ProcessedObject with the specified components.
+     * 
+     * @param path the path of the object as announced on the input topic (must not be null)
+     * @param eTag the ETag of the processed version, or null if unknown
+     * @param size the size of the processed version in bytes
+     * @param rowCount the number of records produced from the object
+     */
+    public ProcessedObject(String path, String eTag, long size, long rowCount) {
+        this.path = path;
+        this.eTag = eTag;
+        this.size = size;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Gets the path of the object.
+     * 
+     * @return the object path (never null)
+     */
+    public String getPath() { return path; }
+
+    /**
+     * Gets the ETag of the processed version.
+     * 
+     * @return the ETag, or null if the object store did not report one
+     */
+    public String getETag() { return eTag; }
+
+    /**
+     * Gets the size of the processed version.
+     * 
+     * @return the size in bytes
+     */
+    public long getSize() { return size; }
+
+    /**
+     * Gets the number of records produced from the object.
+     * 
+     * @return the row count
+     */
+    public long getRowCount() { return rowCount; }
+
+    /**
+     * Returns a copy of this entry with the specified row count.
+     * 
+     * @param rowCount the number of records produced from the object
+     * @return a new ProcessedObject for the same object version
+     */
+    public ProcessedObject withRowCount(long rowCount) {
+        return new ProcessedObject(path, eTag, size, rowCount);
+    }
+
+    /**
+     * Checks whether another entry describes the same version of the same object.
+     * 
+     * <p>Entries without an ETag never match, since their version cannot be told apart.
+     * 
+     * @param other the entry to compare with (may be null)
+     * @return true if path, ETag and size are equal
+     */
+    public boolean isSameVersion(ProcessedObject other) {
+        return other != null && eTag != null && path.equals(other.path)
+                && eTag.equals(other.eTag) && size == other.size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProcessedObject other)) {
+            return false;
+        }
+        return size == other.size && rowCount == other.rowCount && path.equals(other.path)
+                && Objects.equals(eTag, other.eTag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, eTag, size, rowCount);
+    }
+
+    @Override
+    public String toString() {
+        return path + " (ETag " + eTag + ", " + size + " bytes, " + rowCount + " rows)";
+    }
+}
@@ -1,5 +1,9 @@
 package jeroenflvr.csvprocessor.model;
 
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+
 /**
  * Immutable representation of an S3 or Cloud Object Storage (COS) location.
  * 
@@ -12,6 +16,7 @@ package jeroenflvr.csvprocessor.model;
  *   <li>{@code s3://bucket-name/path/to/object.csv}</li>
  *   <li>{@code cos://bucket-name/path/to/object.csv}</li>
  *   <li>{@code bucket-name/path/to/object.csv}</li>
+ *   <li>{@code file:///absolute/path/to/object.csv} for files on a local or network disk</li>
  * </ul>
  * 
  * <p>The class automatically handles leading slashes in object keys to ensure
@@ -25,6 +30,7 @@ package jeroenflvr.csvprocessor.model;
 public class S3Location {
     private final String bucket;
     private final String key;
+    private final Path localPath;
 
     /**
      * Private constructor to create an S3Location instance.
@@ -38,6 +44,26 @@ public class S3Location {
     private S3Location(String bucket, String key) {
         this.bucket = bucket;
         this.key = key.startsWith("/") ? key.substring(1) : key;
+        this.localPath = null;
+    }
+
+    /**
+     * Private constructor to create a location of a local file.
+     * 
+     * <p>The bucket is empty and the key is the absolute path without its
+     * leading slash, with a trailing slash for a directory.
+     * 
+     * @param localPath the absolute path of the file
+     * @param directory whether the path was given as a directory
+     */
+    private S3Location(Path localPath, boolean directory) {
+        String path = localPath.toString();
+        if (directory && !path.endsWith("/")) {
+            path += "/";
+        }
+        this.bucket = "";
+        this.key = path.startsWith("/") ? path.substring(1) : path;
+        this.localPath = localPath;
     }
 
     /**
@@ -48,6 +74,7 @@ public class S3Location {
      *   <li><strong>S3 URI:</strong> {@code s3://bucket-name/path/to/file}</li>
      *   <li><strong>COS URI:</strong> {@code cos://bucket-name/path/to/file}</li>
      *   <li><strong>Simple format:</strong> {@code bucket-name/path/to/file}</li>
+     *   <li><strong>File URI:</strong> {@code file:///path/to/file}, an absolute local path</li>
      * </ul>
      * 
      * <p>The parser automatically extracts the bucket name and object key,
@@ -68,6 +95,14 @@ public class S3Location {
     public static S3Location parse(String path) {
         String trimmedPath = path.trim();
         
+        if (trimmedPath.startsWith("file:")) {
+            try {
+                return new S3Location(Path.of(URI.create(trimmedPath)), trimmedPath.endsWith("/"));
+            } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+                throw new IllegalArgumentException("Invalid file URI (expected file:///absolute/path): " + path, e);
+            }
+        }
+
         if (trimmedPath.startsWith("s3://") || trimmedPath.startsWith("cos://")) {
             String rest = trimmedPath.substring(trimmedPath.indexOf("://") + 3);
             int slashIndex = rest.indexOf('/');
@@ -108,13 +143,47 @@ public class S3Location {
         return key;
     }
 
+    /**
+     * Checks whether this location is a prefix rather than a single object.
+     * 
+     * <p>A location is a prefix when its key is empty or ends with a slash,
+     * such as {@code s3://bucket/tpch/sf10/orders/} or {@code file:///data/orders/}.
+     * 
+     * @return true if the location names a prefix or directory
+     */
+    public boolean isPrefix() {
+        return key.isEmpty() || key.endsWith("/");
+    }
+
+    /**
+     * Checks whether this location refers to a local file rather than an object.
+     * 
+     * @return true if the location was parsed from a {@code file:} URI
+     */
+    public boolean isLocalFile() {
+        return localPath != null;
+    }
+
+    /**
+     * Gets the path of a local file.
+     * 
+     * @return the absolute file path, or null if this is an object storage location
+     */
+    public Path getLocalPath() {
+        return localPath;
+    }
+
     /**
      * Returns a string representation of this S3Location.
      * 
-     * @return a string in the format "S3Location{bucket='...', key='...'}"
+     * @return a string in the format "S3Location{bucket='...', key='...'}",
+     *         or "S3Location{file='...'}" for a local file
      */
     @Override
     public String toString() {
+        if (localPath != null) {
+            return "S3Location{file='" + localPath + "'}";
+        }
         return "S3Location{bucket='" + bucket + "', key='" + key + "'}";
     }
 }
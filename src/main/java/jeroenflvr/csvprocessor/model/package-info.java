@@ -8,6 +8,9 @@
  * 
  * <p>Key classes:
  * <ul>
+ *   <li>{@link jeroenflvr.csvprocessor.model.ColumnType} - Describes the value type of a CSV column</li>
+ *   <li>{@link jeroenflvr.csvprocessor.model.ProcessedObject} - Ledger entry of a processed S3/COS object</li>
+ *   <li>{@link jeroenflvr.csvprocessor.model.FileCheckpoint} - Progress marker of an object being processed</li>
  *   <li>{@link jeroenflvr.csvprocessor.model.ProcessedRecord} - Represents a processed CSV row with metadata</li>
  *   <li>{@link jeroenflvr.csvprocessor.model.S3Location} - Represents an S3/COS object location</li>
  * </ul>
@@ -0,0 +1,156 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.model.ColumnType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes records written by {@link BinaryRecordWriter}.
+ *
+ * <p>Meant for consumers and tools that need the field values back, such
+ * as tests and debugging utilities. Values are returned as {@link String},
+ * {@link Long}, {@link BigDecimal} or {@link LocalDate} according to their
+ * {@link ColumnType}, and null for null fields.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see BinaryRecordWriter
+ */
+public final class BinaryRecordReader {
+
+    private BinaryRecordReader() {
+        // Static utility
+    }
+
+    /**
+     * Decodes a record of the given schema.
+     *
+     * @param record the encoded record (must not be null)
+     * @param schema the schema the record was written with (must not be null)
+     * @return the field values by name in output order, metadata fields last
+     * @throws IllegalArgumentException if the record is malformed or does not match the schema
+     */
+    public static Map<String, Object> decode(byte[] record, RowSchema schema) {
+        List<String> names = new ArrayList<>();
+        List<ColumnType> types = new ArrayList<>();
+        for (int c = 0; c < schema.getOutputCount(); c++) {
+            if (schema.getOutputSlot(c) >= 0) {
+                names.add(schema.getOutputName(c));
+                types.add(schema.getOutputType(c));
+            }
+        }
+        return decode(record, names, types);
+    }
+
+    /**
+     * Decodes a record given the names and types of its business fields.
+     *
+     * @param record the encoded record (must not be null)
+     * @param names the names of the output columns, in output order (must not be null)
+     * @param types the types of the output columns, in output order (must not be null)
+     * @return the field values by name in output order, followed by
+     *         {@value RowSchema#INPUT_FILENAME_FIELD} and {@value RowSchema#IMPORTED_FIELD}
+     * @throws IllegalArgumentException if the record is malformed or does not match the columns
+     */
+    public static Map<String, Object> decode(byte[] record, List<String> names, List<ColumnType> types) {
+        if (record.length < BinaryRecordWriter.BUSINESS_SECTION_OFFSET
+                || record[0] != BinaryRecordWriter.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a binary record of version " + BinaryRecordWriter.FORMAT_VERSION);
+        }
+        Cursor cursor = new Cursor(record, BinaryRecordWriter.BUSINESS_SECTION_OFFSET);
+        int fieldCount = (int) cursor.varint();
+        if (fieldCount != names.size() || fieldCount != types.size()) {
+            throw new IllegalArgumentException("Record has " + fieldCount + " fields, expected " + names.size());
+        }
+        int nulls = cursor.position;
+        cursor.position += (fieldCount + 7) >>> 3;
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int f = 0; f < fieldCount; f++) {
+            boolean isNull = (record[nulls + (f >>> 3)] & (1 << (f & 7))) != 0;
+            values.put(names.get(f), isNull ? null : cursor.value(types.get(f)));
+        }
+        if (cursor.position != BinaryRecordWriter.BUSINESS_SECTION_OFFSET + businessLength(record)) {
+            throw new IllegalArgumentException("Business section length does not match its content");
+        }
+        values.put(RowSchema.INPUT_FILENAME_FIELD, cursor.string());
+        values.put(RowSchema.IMPORTED_FIELD, cursor.string());
+        return values;
+    }
+
+    /**
+     * Reads the length of the business section of a record.
+     *
+     * <p>The section starts at {@link BinaryRecordWriter#BUSINESS_SECTION_OFFSET}.
+     *
+     * @param record the encoded record (must not be null)
+     * @return the length of the business section in bytes
+     */
+    public static int businessLength(byte[] record) {
+        return ((record[1] & 0xFF) << 24) | ((record[2] & 0xFF) << 16)
+                | ((record[3] & 0xFF) << 8) | (record[4] & 0xFF);
+    }
+
+    /**
+     * Sequential reader over the bytes of a record.
+     */
+    private static final class Cursor {
+        private final byte[] data;
+        private int position;
+
+        Cursor(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        Object value(ColumnType type) {
+            switch (type.getKind()) {
+                case STRING:
+                    return string();
+                case LONG:
+                    return zigZag();
+                case DECIMAL:
+                    return BigDecimal.valueOf(zigZag(), type.getScale());
+                default:
+                    return LocalDate.ofEpochDay(zigZag());
+            }
+        }
+
+        String string() {
+            int length = (int) varint();
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalArgumentException("Truncated binary record");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        long zigZag() {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new IllegalArgumentException("Truncated binary record");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary record");
+        }
+    }
+}
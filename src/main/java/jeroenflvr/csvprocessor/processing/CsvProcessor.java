@@ -3,12 +3,22 @@ package jeroenflvr.csvprocessor.processing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jeroenflvr.csvprocessor.config.ParserConfig;
+import jeroenflvr.csvprocessor.config.ParserConfig.ScanMode;
 import jeroenflvr.csvprocessor.model.ProcessedRecord;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
 import jeroenflvr.csvprocessor.util.TimeUtils;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Processor for CSV data with semicolon delimiters and composite key generation.
@@ -22,14 +32,17 @@ import java.util.*;
  * <ul>
  *   <li>Semicolon-delimited CSV parsing</li>
  *   <li>BOM (Byte Order Mark) handling for UTF-8 files</li>
- *   <li>Composite key generation from order and customer IDs</li>
+ *   <li>Composite key generation from configurable key columns</li>
+ *   <li>Optional projection of the output columns</li>
  *   <li>Automatic metadata injection (filename, timestamp)</li>
  *   <li>Trailing empty column cleanup</li>
+ *   <li>Optional parallel parsing of large files in newline-aligned chunks</li>
  *   <li>Robust error handling for malformed data</li>
  * </ul>
  * 
- * <p>The processor expects CSV files with at least the following columns:
- * {@code o_orderkey} and {@code o_custkey} for composite key generation.
+ * <p>By default the processor expects CSV files with at least the following columns:
+ * {@code o_orderkey} and {@code o_custkey} for composite key generation. Other
+ * feeds configure their own key and output columns through {@link ParserConfig}.
  * 
  * @author JeroenFL
  * @version 1.0.0
@@ -40,19 +53,41 @@ import java.util.*;
 public class CsvProcessor {
     private static final Logger log = LoggerFactory.getLogger(CsvProcessor.class);
     
+    private final ParserConfig config;
+    private final ForkJoinPool parsePool;
+    
     /**
      * Default constructor.
      * <p>Creates a new CSV processor instance ready for processing semicolon-delimited CSV files.
      * The processor handles BOM detection, header validation, and composite key generation.
      */
     public CsvProcessor() {
-        // Default constructor for CSV processor
+        this(ParserConfig.defaults());
+    }
+    
+    /**
+     * Creates a new CSV processor using the given parser settings.
+     * 
+     * <p>With a {@link ParserConfig#getParseParallelism() parse parallelism}
+     * above 1, the processor creates its own {@link ForkJoinPool} of that size
+     * for parsing files in parallel.
+     * 
+     * @param config the parser configuration, e.g. the delimiter scan mode (must not be null)
+     */
+    public CsvProcessor(ParserConfig config) {
+        this(config, config.getParseParallelism() > 1 ? new ForkJoinPool(config.getParseParallelism()) : null);
     }
     
     /**
-     * Column names used to generate composite keys for order records.
+     * Creates a new CSV processor that parses files in parallel on the given pool.
+     * 
+     * @param config the parser configuration, e.g. the delimiter scan mode and chunk size (must not be null)
+     * @param parsePool the pool parsing the chunks of a file, or null to parse sequentially
      */
-    private static final String[] ORDER_KEY_HEADERS = {"o_orderkey", "o_custkey"};
+    public CsvProcessor(ParserConfig config, ForkJoinPool parsePool) {
+        this.config = config;
+        this.parsePool = parsePool;
+    }
     
     /**
      * Legacy key index maintained for compatibility (currently unused in composite key logic).
@@ -96,44 +131,256 @@ public class CsvProcessor {
      * </pre>
      */
     public List<ProcessedRecord> processCSV(BufferedReader reader, String sourceFilename) throws IOException {
+        return processCSV(new ReaderInputStream(reader), sourceFilename);
+    }
+
+    /**
+     * Processes UTF-8 encoded CSV data from an InputStream and returns processed records.
+     * 
+     * <p>Behaves exactly like {@link #processCSV(BufferedReader, String)} but reads
+     * raw bytes, avoiding the character decoding of the whole input.
+     * 
+     * @param input the InputStream containing UTF-8 encoded CSV data (must not be null)
+     * @param sourceFilename the name/path of the source file for metadata (must not be null)
+     * @return a list of ProcessedRecord instances, may be empty if no valid data is found
+     * @throws IOException if an error occurs reading from the InputStream
+     * @throws NullPointerException if input or sourceFilename is null
+     */
+    public List<ProcessedRecord> processCSV(InputStream input, String sourceFilename) throws IOException {
         List<ProcessedRecord> records = new ArrayList<>();
-        
+        CloseableIterator<ProcessedRecord> iterator = iterateCSV(input, sourceFilename);
+        try {
+            iterator.forEachRemaining(records::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return records;
+    }
+
+    /**
+     * Returns a pull-based iterator over the records of a CSV file.
+     * 
+     * <p>This is the streaming counterpart of {@link #processCSV(BufferedReader, String)}.
+     * The header is read and validated eagerly; data rows are only read and
+     * transformed when the caller asks for the next record, so at most one
+     * row is held in memory regardless of the file size.
+     * 
+     * <p>The returned iterator owns the reader: closing the iterator closes
+     * the reader. Read failures during iteration are reported as
+     * {@link UncheckedIOException}.
+     * 
+     * @param reader the BufferedReader containing CSV data (must not be null)
+     * @param sourceFilename the name/path of the source file for metadata (must not be null)
+     * @return an iterator over the processed records, empty if no valid data is found
+     * @throws IOException if an error occurs reading the header line
+     * @throws NullPointerException if reader or sourceFilename is null
+     * 
+     * <p>Example usage:
+     * <pre>
+     * try (CloseableIterator&lt;ProcessedRecord&gt; records = processor.iterateCSV(reader, "orders.csv")) {
+     *     while (records.hasNext()) {
+     *         send(records.next());
+     *     }
+     * }
+     * </pre>
+     */
+    public CloseableIterator<ProcessedRecord> iterateCSV(BufferedReader reader, String sourceFilename) throws IOException {
+        return iterateCSV(new ReaderInputStream(reader), sourceFilename);
+    }
+
+    /**
+     * Returns a pull-based iterator over the records of UTF-8 encoded CSV data.
+     * 
+     * <p>Rows are tokenized directly from the raw bytes by a {@link CsvTokenizer};
+     * only the fields that end up in a record are decoded into Strings.
+     * Closing the iterator closes the stream.
+     * 
+     * @param input the InputStream containing UTF-8 encoded CSV data (must not be null)
+     * @param sourceFilename the name/path of the source file for metadata (must not be null)
+     * @return an iterator over the processed records, empty if no valid data is found
+     * @throws IOException if an error occurs reading the header line
+     * @throws NullPointerException if input or sourceFilename is null
+     * @see #iterateCSV(BufferedReader, String)
+     */
+    public CloseableIterator<ProcessedRecord> iterateCSV(InputStream input, String sourceFilename) throws IOException {
+        CsvTokenizer tokenizer = newTokenizer(input);
+        return new RecordIterator(tokenizer, sourceFilename, readSchema(tokenizer, sourceFilename));
+    }
+
+    /**
+     * Returns a pull-based iterator over columnar batches of UTF-8 encoded CSV data.
+     * 
+     * <p>Rows are copied as raw bytes into a {@link RecordBatch} of up to
+     * {@link RecordBatch#DEFAULT_CAPACITY} rows, with one buffer per column and
+     * the file metadata stored once per batch. This avoids creating a map and
+     * a String per field for every row, and lets serializers work column by
+     * column straight from the bytes.
+     * 
+     * <p><strong>Reuse:</strong> the iterator returns the same batch instance on
+     * every call to {@code next()}, refilled with the following rows. A batch
+     * must be fully consumed before requesting the next one.
+     * 
+     * <p>With a parse pool, the input is split into newline-aligned chunks of
+     * {@link ParserConfig#getParseChunkSize()} bytes that are parsed
+     * concurrently while the consumer works through earlier ones. Batches are
+     * still returned in file order, but each call to {@code next()} then
+     * returns a new batch instance.
+     * 
+     * <p>Closing the iterator closes the stream. Read failures during iteration
+     * are reported as {@link UncheckedIOException}.
+     * 
+     * @param input the InputStream containing UTF-8 encoded CSV data (must not be null)
+     * @param sourceFilename the name/path of the source file for metadata (must not be null)
+     * @return an iterator over non-empty record batches, empty if no valid data is found
+     * @throws IOException if an error occurs reading the header line
+     * @throws NullPointerException if input or sourceFilename is null
+     */
+    public CloseableIterator<RecordBatch> iterateBatches(InputStream input, String sourceFilename) throws IOException {
+        if (parsePool != null) {
+            return iterateBatchesInParallel(input, sourceFilename);
+        }
+        CsvTokenizer tokenizer = newTokenizer(input);
+        return new BatchIterator(tokenizer, sourceFilename, readSchema(tokenizer, sourceFilename));
+    }
+
+    /**
+     * Returns a pull-based iterator over columnar batches of a local UTF-8 encoded CSV file.
+     * 
+     * <p>Behaves like {@link #iterateBatches(InputStream, String)}, but the
+     * file is memory-mapped in windows of {@link ParserConfig#getMapWindowSize()}
+     * bytes that end on a line boundary and is tokenized straight from the
+     * mapped buffers, without reading it into heap buffers first. With a parse
+     * pool, the windows are split into newline-aligned chunks that are parsed
+     * concurrently; otherwise every call to {@code next()} returns the same batch.
+     * 
+     * <p>Closing the iterator closes the file.
+     * 
+     * @param file the local file containing UTF-8 encoded CSV data (must not be null)
+     * @param sourceFilename the name/path of the source file for metadata (must not be null)
+     * @return an iterator over non-empty record batches, empty if no valid data is found
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws NullPointerException if file or sourceFilename is null
+     */
+    public CloseableIterator<RecordBatch> iterateBatches(Path file, String sourceFilename) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        MappedChunkSource chunks;
+        try {
+            // Sequential parsing takes each window as a single chunk
+            chunks = new MappedChunkSource(channel, config.getMapWindowSize(),
+                    parsePool != null ? config.getParseChunkSize() : config.getMapWindowSize());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return iterateChunks(chunks, sourceFilename, parsePool != null, null);
+    }
+
+    /**
+     * Returns a pull-based iterator over columnar batches of a file that is continued part-way.
+     * 
+     * <p>The input starts at {@code startOffset} of the file, at the start
+     * of a line, for example after a ranged request from a
+     * {@link RecordBatch#getEndOffset() batch end offset} recorded earlier.
+     * Since the header line is not part of the input, its columns are
+     * passed in. Batches report end offsets within the whole file, so the
+     * file can be continued again from any of them.
+     * 
+     * @param input the InputStream containing the rest of the UTF-8 encoded CSV data (must not be null)
+     * @param sourceFilename the name/path of the source file for metadata (must not be null)
+     * @param headers the columns of the file's header line (must not be null)
+     * @param startOffset the file offset of the first input byte
+     * @return an iterator over non-empty record batches, empty if the header is too short or no rows follow
+     * @throws IOException if an error occurs reading the input
+     * @throws NullPointerException if an argument is null
+     */
+    public CloseableIterator<RecordBatch> iterateBatches(InputStream input, String sourceFilename,
+                                                         List<String> headers, long startOffset)
+            throws IOException {
+        if (parsePool != null) {
+            return iterateChunks(new ParallelBatchIterator.ChunkReader(input, config.getParseChunkSize(), startOffset),
+                    sourceFilename, true, headers);
+        }
+        CsvTokenizer tokenizer = newTokenizer(input);
+        tokenizer.setInputOffset(startOffset);
+        return new BatchIterator(tokenizer, sourceFilename, toSchema(headers, tokenizer, sourceFilename));
+    }
+
+    private CloseableIterator<RecordBatch> iterateBatchesInParallel(InputStream input, String sourceFilename)
+            throws IOException {
+        return iterateChunks(new ParallelBatchIterator.ChunkReader(input, config.getParseChunkSize()),
+                sourceFilename, true, null);
+    }
+
+    private CloseableIterator<RecordBatch> iterateChunks(ParallelBatchIterator.ChunkSource chunks,
+                                                         String sourceFilename, boolean parallel,
+                                                         List<String> headers)
+            throws IOException {
+        try {
+            // Without known headers, the first chunk always holds the complete header line
+            ByteBuffer first = chunks.next();
+            CsvTokenizer tokenizer = new CsvTokenizer(first != null ? first : ByteBuffer.allocate(0),
+                    config.getScanMode(), headers == null);
+            tokenizer.setInputOffset(first != null ? chunks.chunkOffset() : 0);
+            RowSchema schema = headers == null
+                    ? readSchema(tokenizer, sourceFilename)
+                    : toSchema(headers, tokenizer, sourceFilename);
+            if (schema == null) {
+                chunks.close();
+                return new BatchIterator(tokenizer, sourceFilename, null);
+            }
+            if (!parallel) {
+                return new BatchIterator(tokenizer, sourceFilename, schema, chunks, config.getScanMode());
+            }
+            // Two chunks per thread: one being parsed and one ready for the consumer
+            return new ParallelBatchIterator(parsePool, chunks, tokenizer, schema, sourceFilename,
+                    TimeUtils.getCurrentTimestamp(), config.getScanMode(), parsePool.getParallelism() * 2);
+        } catch (IOException | RuntimeException e) {
+            chunks.close();
+            throw e;
+        }
+    }
+
+    private CsvTokenizer newTokenizer(InputStream input) {
+        return new CsvTokenizer(input, CsvTokenizer.DEFAULT_BUFFER_SIZE, config.getScanMode());
+    }
+
+    /**
+     * Reads and validates the header line and compiles the row schema.
+     * 
+     * @param tokenizer the tokenizer positioned before the header line
+     * @param sourceFilename the source filename for logging
+     * @return the compiled schema, or null if the file is empty or the header is too short
+     * @throws IOException if an error occurs reading the header line
+     */
+    private RowSchema readSchema(CsvTokenizer tokenizer, String sourceFilename) throws IOException {
         // Read and process header
-        String headerLine = reader.readLine();
-        if (headerLine == null) {
+        if (!tokenizer.nextLine()) {
             log.warn("File {} is empty", sourceFilename);
-            return records;
+            return null;
         }
         
-        List<String> headers = parseHeaders(headerLine);
+        return toSchema(parseHeaders(tokenizer), tokenizer, sourceFilename);
+    }
+
+    /**
+     * Validates the header columns and compiles the row schema.
+     * 
+     * @param headers the columns of the header line
+     * @param tokenizer the tokenizer that will read the data rows
+     * @param sourceFilename the source filename for logging
+     * @return the compiled schema, or null if the header is too short
+     */
+    private RowSchema toSchema(List<String> headers, CsvTokenizer tokenizer, String sourceFilename) {
         if (headers.size() <= KEY_INDEX) {
             log.warn("Header has only {} columns (need at least {}). Skipping {}", 
                     headers.size(), KEY_INDEX + 1, sourceFilename);
-            return records;
-        }
-        
-        List<Integer> keyHeaderIndices = findKeyHeaderIndices(headers);
-        
-        // Process data rows
-        String line;
-        int count = 0;
-        String currentTimestamp = TimeUtils.getCurrentTimestamp();
-        
-        while ((line = reader.readLine()) != null) {
-            if (line.isBlank()) {
-                continue;
-            }
-            
-            ProcessedRecord record = processRow(line, headers, keyHeaderIndices, 
-                                              sourceFilename, currentTimestamp);
-            if (record != null) {
-                records.add(record);
-                count++;
-            }
+            return null;
         }
         
-        log.info("Processed {} records from {}", count, sourceFilename);
-        return records;
+        RowSchema schema = compileSchema(headers);
+        // Unprojected trailing columns are skipped without recording their boundaries
+        tokenizer.setFieldLimit(schema.getRequiredFieldCount());
+        return schema;
     }
 
     /**
@@ -141,22 +388,22 @@ public class CsvProcessor {
      * 
      * <p>This method handles several header-specific concerns:
      * <ul>
-     *   <li>Removes BOM (Byte Order Mark) if present</li>
-     *   <li>Splits on semicolon delimiter</li>
+     *   <li>Decodes the semicolon-separated fields of the current line</li>
      *   <li>Removes trailing empty columns caused by terminal semicolons</li>
      * </ul>
      * 
-     * @param headerLine the raw header line from the CSV file
+     * <p>A leading BOM (Byte Order Mark) has already been skipped by the tokenizer.
+     * 
+     * @param tokenizer the tokenizer positioned on the header line
      * @return a list of cleaned column names
      */
-    private List<String> parseHeaders(String headerLine) {
-        // Strip BOM if present
-        if (!headerLine.isEmpty() && headerLine.charAt(0) == '\uFEFF') {
-            headerLine = headerLine.substring(1);
+    private List<String> parseHeaders(CsvTokenizer tokenizer) {
+        List<String> headers = new ArrayList<>(tokenizer.fieldCount());
+        for (int i = 0; i < tokenizer.fieldCount(); i++) {
+            headers.add(tokenizer.field(i));
         }
         
-        // Split headers and drop trailing empty headers caused by trailing ';'
-        List<String> headers = new ArrayList<>(Arrays.asList(headerLine.split(";", -1)));
+        // Drop trailing empty headers caused by trailing ';'
         while (!headers.isEmpty() && headers.get(headers.size() - 1).isBlank()) {
             headers.remove(headers.size() - 1);
         }
@@ -165,83 +412,258 @@ public class CsvProcessor {
     }
 
     /**
-     * Finds the column indices for the headers used in composite key generation.
+     * Compiles the row processing plan for the given header.
      * 
-     * <p>This method searches for the predefined key headers ({@code o_orderkey}
-     * and {@code o_custkey}) in the provided header list and returns their
-     * positions for efficient access during row processing.
+     * <p>This method locates the configured key columns (by default
+     * {@code o_orderkey} and {@code o_custkey}) and the projected output
+     * columns once per file, so that row processing only walks the resulting
+     * index arrays.
      * 
      * @param headers the list of column headers from the CSV file
-     * @return a list of indices corresponding to key header positions
-     */
-    private List<Integer> findKeyHeaderIndices(List<String> headers) {
-        List<Integer> indices = new ArrayList<>();
-        for (String keyHeader : ORDER_KEY_HEADERS) {
-            int index = headers.indexOf(keyHeader);
-            if (index >= 0) {
-                indices.add(index);
-            }
-        }
-        return indices;
+     * @return the compiled row schema
+     * @see ParserConfig#getKeyColumns()
+     * @see ParserConfig#getOutputColumns()
+     */
+    private RowSchema compileSchema(List<String> headers) {
+        return RowSchema.compile(headers, config.getKeyColumns(), config.getOutputColumns(),
+                config.getColumnTypes(), KEY_INDEX + 1);
     }
 
     /**
      * Processes a single CSV data row into a ProcessedRecord.
      * 
-     * <p>This method handles the transformation of a raw CSV line into a
+     * <p>This method handles the transformation of a tokenized CSV line into a
      * structured ProcessedRecord. It performs the following operations:
      * <ol>
-     *   <li>Splits the line on semicolon delimiters</li>
      *   <li>Validates row completeness</li>
      *   <li>Generates a composite key from designated columns</li>
      *   <li>Creates a data map excluding composite key columns</li>
      *   <li>Adds metadata fields (filename, timestamp)</li>
      * </ol>
      * 
-     * @param line the raw CSV line to process
-     * @param headers the list of column headers
-     * @param keyHeaderIndices the indices of columns used for composite key generation
+     * <p>All column decisions come from the precompiled {@link RowSchema}; fields
+     * are read as slices from the tokenizer and only the ones that are placed
+     * in the record are decoded into Strings.
+     * 
+     * @param row the tokenizer positioned on the CSV line to process
+     * @param schema the row processing plan compiled from the header
+     * @param keyBuilder the reusable builder for the composite key
      * @param sourceFilename the source filename for metadata
      * @param timestamp the processing timestamp
      * @return a ProcessedRecord instance, or null if the row is invalid
      */
-    private ProcessedRecord processRow(String line, List<String> headers, 
-                                     List<Integer> keyHeaderIndices, 
+    private ProcessedRecord processRow(CsvTokenizer row, RowSchema schema, StringBuilder keyBuilder,
                                      String sourceFilename, String timestamp) {
-        String[] parts = line.split(";", -1); // keep trailing empties
-        if (parts.length <= KEY_INDEX) {
+        int fieldCount = row.fieldCount(); // includes trailing empties
+        if (fieldCount < schema.getMinFieldCount()) {
             return null;
         }
         
-        // Create composite key
-        List<String> compositeValues = new ArrayList<>();
-        for (int index : keyHeaderIndices) {
-            if (index < parts.length) {
-                compositeValues.add(parts[index]);
-            }
-        }
-        
-        String compositeKey = String.join("_", compositeValues);
+        String compositeKey = schema.buildKey(row, keyBuilder);
         if (compositeKey.isBlank()) {
             return null;
         }
         
-        // Create value map (include all columns except composite key columns to avoid duplication)
-        Map<String, String> valueMap = new LinkedHashMap<>();
-        for (int i = 0; i < headers.size(); i++) {
-            String header = headers.get(i);
-            if (header == null || header.isBlank()) continue;
-            
-            // Skip the columns used for composite key to avoid duplication
-            if (Arrays.asList(ORDER_KEY_HEADERS).contains(header)) continue;
-            
-            String value = (i < parts.length) ? parts[i] : "";
-            valueMap.put(header, value);
+        // Fill the value map in the precompiled output order (key columns are not part of it)
+        int outputCount = schema.getOutputCount();
+        Map<String, String> valueMap = new LinkedHashMap<>(outputCount * 4 / 3 + 1);
+        for (int i = 0; i < outputCount; i++) {
+            int slot = schema.getOutputSlot(i);
+            String value;
+            if (slot == RowSchema.SOURCE_FILENAME_SLOT) {
+                value = sourceFilename;
+            } else if (slot == RowSchema.IMPORTED_SLOT) {
+                value = timestamp;
+            } else {
+                value = (slot < fieldCount) ? row.field(slot) : "";
+            }
+            valueMap.put(schema.getOutputName(i), value);
         }
         
-        valueMap.put("input_filename", sourceFilename);
-        valueMap.put("imported", timestamp);
-        
         return new ProcessedRecord(compositeKey, valueMap, sourceFilename, timestamp);
     }
+
+    /**
+     * Lazily reads data rows and turns them into records one at a time.
+     */
+    private final class RecordIterator implements CloseableIterator<ProcessedRecord> {
+        private final CsvTokenizer tokenizer;
+        private final String sourceFilename;
+        private final RowSchema schema;
+        private final StringBuilder keyBuilder;
+        private final String currentTimestamp = TimeUtils.getCurrentTimestamp();
+        private ProcessedRecord nextRecord;
+        private boolean finished;
+        private int count;
+
+        RecordIterator(CsvTokenizer tokenizer, String sourceFilename, RowSchema schema) {
+            this.tokenizer = tokenizer;
+            this.sourceFilename = sourceFilename;
+            this.schema = schema;
+            this.keyBuilder = schema != null ? schema.newKeyBuilder() : null;
+            this.finished = schema == null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRecord == null && !finished) {
+                nextRecord = readNext();
+            }
+            return nextRecord != null;
+        }
+
+        @Override
+        public ProcessedRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ProcessedRecord record = nextRecord;
+            nextRecord = null;
+            return record;
+        }
+
+        private ProcessedRecord readNext() {
+            try {
+                while (tokenizer.nextLine()) {
+                    if (tokenizer.isBlankLine()) {
+                        continue;
+                    }
+                    
+                    ProcessedRecord record = processRow(tokenizer, schema, keyBuilder, 
+                                                      sourceFilename, currentTimestamp);
+                    if (record != null) {
+                        count++;
+                        return record;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + sourceFilename, e);
+            }
+            finished = true;
+            log.info("Processed {} records from {}", count, sourceFilename);
+            return null;
+        }
+
+        @Override
+        public void close() {
+            finished = true;
+            nextRecord = null;
+            try {
+                tokenizer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close input for {}: {}", sourceFilename, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lazily refills a single reusable batch with the next rows of the input.
+     * 
+     * <p>The input is either a single tokenizer or a sequence of
+     * newline-aligned chunks, each tokenized in turn.
+     */
+    private static final class BatchIterator implements CloseableIterator<RecordBatch> {
+        private final String sourceFilename;
+        private final RecordBatch batch;
+        private final ParallelBatchIterator.ChunkSource chunks;
+        private final ScanMode scanMode;
+        private CsvTokenizer tokenizer;
+        private boolean filled;
+        private boolean finished;
+        private long count;
+
+        BatchIterator(CsvTokenizer tokenizer, String sourceFilename, RowSchema schema) {
+            this(tokenizer, sourceFilename, schema, null, null);
+        }
+
+        BatchIterator(CsvTokenizer tokenizer, String sourceFilename, RowSchema schema,
+                      ParallelBatchIterator.ChunkSource chunks, ScanMode scanMode) {
+            this.tokenizer = tokenizer;
+            this.chunks = chunks;
+            this.scanMode = scanMode;
+            this.sourceFilename = sourceFilename;
+            this.batch = schema != null
+                    ? new RecordBatch(schema, sourceFilename, TimeUtils.getCurrentTimestamp(), RecordBatch.DEFAULT_CAPACITY)
+                    : null;
+            this.finished = schema == null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!filled && !finished) {
+                fill();
+            }
+            return filled;
+        }
+
+        @Override
+        public RecordBatch next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            filled = false;
+            return batch;
+        }
+
+        private void fill() {
+            batch.clear();
+            try {
+                while (!batch.isFull() && (tokenizer.nextLine() || nextChunk())) {
+                    if (!tokenizer.isBlankLine()) {
+                        batch.addRow(tokenizer);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + sourceFilename, e);
+            }
+            batch.setEndOffset(tokenizer.lineEndOffset());
+            count += batch.size();
+            filled = batch.size() > 0;
+            if (!batch.isFull()) {
+                finished = true;
+                log.info("Processed {} records from {}", count, sourceFilename);
+            }
+        }
+
+        /**
+         * Moves to the first line of the next chunk that has one.
+         * 
+         * @return false at the end of the input
+         */
+        private boolean nextChunk() throws IOException {
+            if (chunks == null) {
+                return false;
+            }
+            ByteBuffer chunk;
+            while ((chunk = chunks.next()) != null) {
+                tokenizer = new CsvTokenizer(chunk, scanMode, false);
+                tokenizer.setInputOffset(chunks.chunkOffset());
+                tokenizer.setFieldLimit(batch.getSchema().getRequiredFieldCount());
+                if (tokenizer.nextLine()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close() {
+            finished = true;
+            filled = false;
+            try {
+                tokenizer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close input for {}: {}", sourceFilename, e.getMessage());
+            } finally {
+                // The chunk source owns the download, so it is closed even if the tokenizer fails
+                if (chunks != null) {
+                    try {
+                        chunks.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close chunks of {}: {}", sourceFilename, e.getMessage());
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,454 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.config.ParserConfig.ScanMode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Allocation-free tokenizer for semicolon-delimited, UTF-8 encoded CSV input.
+ *
+ * <p>The tokenizer reads raw bytes into a single reusable buffer and reports
+ * each line as a list of field slices (start and end offsets into
+ * {@link #buffer()}). Nothing is decoded while scanning: fields only become
+ * {@link String}s when a consumer explicitly asks for them through
+ * {@link #field(int)}. This replaces the {@code readLine()} plus
+ * {@code String.split(";")} combination, which allocated a line string,
+ * a {@code String[]} and one string per field for every row.
+ *
+ * <p>Parsing rules match the previous line-based implementation:
+ * <ul>
+ *   <li>Lines end at {@code \n}, {@code \r} or {@code \r\n}</li>
+ *   <li>Fields are separated by {@code ;}; trailing empty fields are kept</li>
+ *   <li>A UTF-8 BOM at the start of the input is skipped</li>
+ *   <li>A final line without terminator is still returned</li>
+ * </ul>
+ *
+ * <p>Delimiters are located by {@link DelimiterScanner}, either one byte at
+ * a time or a word at a time depending on the configured {@link ScanMode}.
+ * With a {@link #setFieldLimit(int) field limit}, fields beyond the limit
+ * are not recorded: the rest of the line is skipped by only looking for the
+ * line terminator.
+ *
+ * <p>Field slices are only valid until the next call to {@link #nextLine()},
+ * because the buffer is compacted and refilled in place. Instances are not
+ * thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CsvProcessor
+ */
+public final class CsvTokenizer implements Closeable {
+
+    /**
+     * The field delimiter byte.
+     */
+    public static final byte DELIMITER = ';';
+
+    /**
+     * Default size of the read buffer in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int INITIAL_FIELD_CAPACITY = 32;
+
+    private final InputStream in;
+    private final boolean swar;
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int limit;
+    private int pos;
+    private boolean eof;
+    private boolean skipLineFeed;
+    private boolean atStart = true;
+    private long inputOffset;
+
+    private int lineStart;
+    private int lineEnd;
+    private int fieldCount;
+    private int fieldLimit = Integer.MAX_VALUE;
+    private int[] fieldStarts = new int[INITIAL_FIELD_CAPACITY];
+    private int[] fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+
+    /**
+     * Creates a tokenizer reading from the given stream with the default buffer size.
+     *
+     * @param in the UTF-8 encoded input (must not be null)
+     */
+    public CsvTokenizer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE, ScanMode.SCALAR);
+    }
+
+    /**
+     * Creates a tokenizer reading from the given stream.
+     *
+     * <p>The buffer grows automatically when a single line does not fit.
+     *
+     * @param in the UTF-8 encoded input (must not be null)
+     * @param bufferSize the initial buffer size in bytes (must be positive)
+     * @param scanMode the strategy used to locate delimiters (must not be null)
+     * @throws IllegalArgumentException if bufferSize is not positive
+     * @see DelimiterScanner
+     */
+    public CsvTokenizer(InputStream in, int bufferSize, ScanMode scanMode) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.in = in;
+        this.swar = scanMode == ScanMode.SWAR;
+        this.array = new byte[bufferSize];
+        this.buffer = wrap(array);
+    }
+
+    /**
+     * Creates a tokenizer over bytes that are already in memory.
+     *
+     * <p>The array is tokenized in place and must not be modified while the
+     * tokenizer is in use. Used to parse the chunks of a file in parallel; only
+     * the first chunk of a file may start with a byte order mark.
+     *
+     * @param data the UTF-8 encoded input (must not be null)
+     * @param length the number of valid bytes in {@code data}
+     * @param scanMode the strategy used to locate delimiters (must not be null)
+     * @param startOfInput whether the bytes start the input, so that a leading BOM is skipped
+     */
+    CsvTokenizer(byte[] data, int length, ScanMode scanMode, boolean startOfInput) {
+        this.in = null;
+        this.swar = scanMode == ScanMode.SWAR;
+        this.array = data;
+        this.buffer = wrap(data);
+        this.limit = length;
+        this.eof = true;
+        this.atStart = startOfInput;
+    }
+
+    /**
+     * Creates a tokenizer over a buffer that is already in memory.
+     *
+     * <p>The bytes from the buffer's position to its limit are tokenized in
+     * place, without copying; the buffer may be direct, such as a
+     * {@link java.nio.MappedByteBuffer} over a local file. Its contents must
+     * not change while the tokenizer is in use.
+     *
+     * @param data the UTF-8 encoded input (must not be null)
+     * @param scanMode the strategy used to locate delimiters (must not be null)
+     * @param startOfInput whether the bytes start the input, so that a leading BOM is skipped
+     */
+    CsvTokenizer(ByteBuffer data, ScanMode scanMode, boolean startOfInput) {
+        this.in = null;
+        this.swar = scanMode == ScanMode.SWAR;
+        this.buffer = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.array = buffer.hasArray() && buffer.arrayOffset() == 0 ? buffer.array() : null;
+        this.limit = buffer.limit();
+        this.eof = true;
+        this.atStart = startOfInput;
+    }
+
+    /**
+     * Advances to the next line of input.
+     *
+     * @return true if a line is available, false at end of input
+     * @throws IOException if reading from the underlying stream fails
+     */
+    public boolean nextLine() throws IOException {
+        // Everything before pos belongs to lines that were already returned
+        lineStart = pos;
+        fieldCount = 0;
+        if (atStart) {
+            atStart = false;
+            skipByteOrderMark();
+        }
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if ((pos < limit || fill()) && buffer.get(pos) == '\n') {
+                pos++;
+            }
+        }
+        if (pos >= limit && !fill()) {
+            return false;
+        }
+
+        lineStart = pos;
+        int fieldStart = pos;
+        int i = pos;
+        boolean skipping = false;
+        while (true) {
+            if (skipping) {
+                i = swar ? DelimiterScanner.swarLineEnd(buffer, i, limit) : DelimiterScanner.scalarLineEnd(buffer, i, limit);
+            } else {
+                i = swar ? DelimiterScanner.swar(buffer, i, limit) : DelimiterScanner.scalar(buffer, i, limit);
+            }
+            if (i >= limit) {
+                int shift = lineStart;
+                if (!fill()) {
+                    if (!skipping) {
+                        addField(fieldStart, i);
+                    }
+                    lineEnd = i;
+                    pos = i;
+                    return true;
+                }
+                shift -= lineStart;
+                i -= shift;
+                fieldStart -= shift;
+                continue;
+            }
+            byte b = buffer.get(i);
+            if (b == DELIMITER) {
+                addField(fieldStart, i);
+                fieldStart = ++i;
+                skipping = fieldCount >= fieldLimit;
+            } else {
+                if (!skipping) {
+                    addField(fieldStart, i);
+                }
+                lineEnd = i;
+                pos = i + 1;
+                skipLineFeed = b == '\r';
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Limits the number of fields recorded per line.
+     *
+     * <p>Once a line has {@code limit} fields, the remaining ones are skipped
+     * and {@link #fieldCount()} reports at most {@code limit}. Lines with fewer
+     * fields are unaffected. Applies from the next call to {@link #nextLine()}.
+     *
+     * @param limit the maximum number of fields to record (must be positive)
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public void setFieldLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Field limit must be positive: " + limit);
+        }
+        this.fieldLimit = limit;
+    }
+
+    /**
+     * Sets the offset of the first byte of this tokenizer's input within the whole file.
+     *
+     * <p>Used when a file is tokenized in chunks, or continued part-way, so
+     * that {@link #lineEndOffset()} reports offsets within the file. A byte
+     * order mark is only skipped at offset 0. Must be called before the
+     * first call to {@link #nextLine()}.
+     *
+     * @param offset the file offset of the first input byte
+     */
+    void setInputOffset(long offset) {
+        this.inputOffset = offset;
+        this.atStart = atStart && offset == 0;
+    }
+
+    /**
+     * Returns the file offset just past the current line and its terminator.
+     *
+     * <p>Tokenizing can be continued from this offset with a new tokenizer.
+     * When the line ended with {@code \r}, a following {@code \n} is not
+     * included; it then reads as a blank line, which consumers skip anyway.
+     *
+     * @return the offset of the first byte not consumed yet
+     */
+    public long lineEndOffset() {
+        return inputOffset + pos;
+    }
+
+    /**
+     * Returns the number of fields on the current line.
+     *
+     * <p>An empty line has exactly one (empty) field.
+     *
+     * @return the field count of the current line
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the buffer that the field offsets refer to.
+     *
+     * @return the current read buffer; only valid until the next {@link #nextLine()}
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer offset of the first byte of a field.
+     *
+     * @param index the zero-based field index
+     * @return the inclusive start offset in {@link #buffer()}
+     */
+    public int fieldStart(int index) {
+        return fieldStarts[index];
+    }
+
+    /**
+     * Returns the buffer offset just past the last byte of a field.
+     *
+     * @param index the zero-based field index
+     * @return the exclusive end offset in {@link #buffer()}
+     */
+    public int fieldEnd(int index) {
+        return fieldEnds[index];
+    }
+
+    /**
+     * Returns the length of a field in bytes.
+     *
+     * @param index the zero-based field index
+     * @return the field length in bytes
+     */
+    public int fieldLength(int index) {
+        return fieldEnds[index] - fieldStarts[index];
+    }
+
+    /**
+     * Decodes a field of the current line into a String.
+     *
+     * @param index the zero-based field index
+     * @return the decoded field value, never null
+     */
+    public String field(int index) {
+        return decode(fieldStarts[index], fieldEnds[index]);
+    }
+
+    /**
+     * Appends a field of the current line to a StringBuilder.
+     *
+     * <p>ASCII fields are copied byte by byte without creating an intermediate
+     * String; fields containing multi-byte characters are decoded first.
+     *
+     * @param index the zero-based field index
+     * @param target the builder to append to
+     */
+    public void appendField(int index, StringBuilder target) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                target.append(decode(start, end));
+                return;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            target.append((char) buffer.get(i));
+        }
+    }
+
+    /**
+     * Checks whether the current line consists only of whitespace.
+     *
+     * <p>Equivalent to {@link String#isBlank()} on the decoded line.
+     *
+     * @return true if the current line is empty or whitespace-only
+     */
+    public boolean isBlankLine() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                return decode(lineStart, lineEnd).isBlank();
+            }
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException if closing the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private static ByteBuffer wrap(byte[] array) {
+        // Little-endian so that word-at-a-time scanning sees bytes in memory order
+        return ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private String decode(int start, int end) {
+        if (array == null) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new String(array, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        while (limit - pos < 3 && fill()) {
+            // keep reading until three bytes are available or the input ends
+        }
+        if (limit - pos >= 3
+                && buffer.get(pos) == (byte) 0xEF
+                && buffer.get(pos + 1) == (byte) 0xBB
+                && buffer.get(pos + 2) == (byte) 0xBF) {
+            pos += 3;
+            lineStart = pos;
+        }
+    }
+
+    /**
+     * Reads more input, keeping the current line (from {@code lineStart}) in the buffer.
+     *
+     * <p>Bytes before {@code lineStart} are discarded by moving the current
+     * line to the front of the buffer; the buffer is doubled when the line
+     * already fills it. Field offsets and {@code lineStart}/{@code pos} are
+     * adjusted accordingly.
+     *
+     * @return true if at least one byte was added, false at end of input
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int keepFrom = lineStart;
+        if (keepFrom > 0) {
+            int remaining = limit - keepFrom;
+            System.arraycopy(array, keepFrom, array, 0, remaining);
+            for (int f = 0; f < fieldCount; f++) {
+                fieldStarts[f] -= keepFrom;
+                fieldEnds[f] -= keepFrom;
+            }
+            lineStart = 0;
+            pos -= keepFrom;
+            limit = remaining;
+            inputOffset += keepFrom;
+        } else if (limit == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+            buffer = wrap(array);
+        }
+        int n = in.read(array, limit, array.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package jeroenflvr.csvprocessor.processing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Locates the structural bytes of semicolon-delimited CSV input.
+ *
+ * <p>Structural bytes are the field delimiter {@code ;} and the line
+ * terminators {@code \n} and {@code \r}. Two interchangeable strategies are
+ * provided so they can be compared in production:
+ * <ul>
+ *   <li><strong>Scalar:</strong> examines one byte per iteration</li>
+ *   <li><strong>SWAR:</strong> loads eight bytes into a {@code long} and tests
+ *       all of them against the three structural bytes with a handful of
+ *       arithmetic operations, skipping whole words that contain none</li>
+ * </ul>
+ *
+ * <p>Both strategies operate on UTF-8 input safely: every byte of a
+ * multi-byte UTF-8 sequence has its high bit set, so it can never be mistaken
+ * for one of the ASCII structural bytes.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CsvTokenizer
+ */
+public final class DelimiterScanner {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long DELIMITER_PATTERN = ONES * CsvTokenizer.DELIMITER;
+    private static final long LF_PATTERN = ONES * '\n';
+    private static final long CR_PATTERN = ONES * '\r';
+
+    private DelimiterScanner() {
+        // Static utility
+    }
+
+    /**
+     * Finds the first structural byte by examining one byte at a time.
+     *
+     * @param buffer the buffer to scan
+     * @param from the first index to examine (inclusive)
+     * @param to the index to stop at (exclusive)
+     * @return the index of the first structural byte, or {@code to} if there is none
+     */
+    public static int scalar(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == CsvTokenizer.DELIMITER || b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Finds the first structural byte by examining eight bytes at a time.
+     *
+     * <p>The buffer must use {@link ByteOrder#LITTLE_ENDIAN} byte order so
+     * that the lowest flagged byte of a word is the first one in memory.
+     * The tail shorter than a word is handled by {@link #scalar}.
+     *
+     * @param buffer the little-endian buffer to scan
+     * @param from the first index to examine (inclusive)
+     * @param to the index to stop at (exclusive)
+     * @return the index of the first structural byte, or {@code to} if there is none
+     */
+    public static int swar(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long found = matches(word, DELIMITER_PATTERN) | matches(word, LF_PATTERN) | matches(word, CR_PATTERN);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        return scalar(buffer, i, to);
+    }
+
+    /**
+     * Finds the first line terminator by examining one byte at a time.
+     *
+     * <p>Used to skip the rest of a line whose remaining fields are not needed.
+     *
+     * @param buffer the buffer to scan
+     * @param from the first index to examine (inclusive)
+     * @param to the index to stop at (exclusive)
+     * @return the index of the first {@code \n} or {@code \r}, or {@code to} if there is none
+     */
+    public static int scalarLineEnd(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Finds the first line terminator by examining eight bytes at a time.
+     *
+     * <p>Same requirements as {@link #swar}; ignores field delimiters.
+     *
+     * @param buffer the little-endian buffer to scan
+     * @param from the first index to examine (inclusive)
+     * @param to the index to stop at (exclusive)
+     * @return the index of the first {@code \n} or {@code \r}, or {@code to} if there is none
+     */
+    public static int swarLineEnd(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long found = matches(word, LF_PATTERN) | matches(word, CR_PATTERN);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        return scalarLineEnd(buffer, i, to);
+    }
+
+    /**
+     * Flags the bytes of a word equal to the byte repeated in the pattern.
+     *
+     * <p>Sets the high bit of each matching byte. Borrows can also flag
+     * bytes above a real match, but never below one, so the lowest flagged
+     * byte is always exact.
+     */
+    private static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return (x - ONES) & ~x & HIGH_BITS;
+    }
+}
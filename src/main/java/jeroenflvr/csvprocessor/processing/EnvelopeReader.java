@@ -0,0 +1,100 @@
+package jeroenflvr.csvprocessor.processing;
+
+import org.apache.kafka.streams.KeyValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unpacks envelopes written by {@link EnvelopeWriter}.
+ *
+ * <p>Meant for consumers of an output topic in the envelope output mode:
+ * every message of such a topic is an envelope, and each record it holds is
+ * the key and value the record would have had as a message of its own.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see EnvelopeWriter
+ */
+public final class EnvelopeReader {
+
+    private EnvelopeReader() {
+        // Static utility
+    }
+
+    /**
+     * Determines whether a message is an envelope rather than a single record.
+     *
+     * @param message the message value (may be null)
+     * @return true if the message starts like an envelope
+     */
+    public static boolean isEnvelope(byte[] message) {
+        return message != null && message.length >= EnvelopeWriter.HEADER_SIZE
+                && message[0] == EnvelopeWriter.MAGIC;
+    }
+
+    /**
+     * Decodes the records of an envelope.
+     *
+     * @param envelope the encoded envelope (must not be null)
+     * @return the keys and values of the records, in the order they were added
+     * @throws IllegalArgumentException if the envelope is malformed
+     */
+    public static List<KeyValue<byte[], byte[]>> decode(byte[] envelope) {
+        if (!isEnvelope(envelope) || envelope[1] != EnvelopeWriter.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not an envelope of version " + EnvelopeWriter.FORMAT_VERSION);
+        }
+        int rowCount = ((envelope[2] & 0xFF) << 24) | ((envelope[3] & 0xFF) << 16)
+                | ((envelope[4] & 0xFF) << 8) | (envelope[5] & 0xFF);
+        List<KeyValue<byte[], byte[]>> records = new ArrayList<>();
+        Cursor cursor = new Cursor(envelope, EnvelopeWriter.HEADER_SIZE);
+        for (int r = 0; r < rowCount; r++) {
+            byte[] key = cursor.bytes();
+            records.add(KeyValue.pair(key, cursor.bytes()));
+        }
+        if (cursor.position != envelope.length) {
+            throw new IllegalArgumentException("Envelope length does not match its " + rowCount + " records");
+        }
+        return records;
+    }
+
+    /**
+     * Sequential reader over the bytes of an envelope.
+     */
+    private static final class Cursor {
+        private final byte[] data;
+        private int position;
+
+        Cursor(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        byte[] bytes() {
+            int length = varint();
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalArgumentException("Truncated envelope");
+            }
+            byte[] value = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return value;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (position >= data.length) {
+                    throw new IllegalArgumentException("Truncated envelope");
+                }
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in envelope");
+        }
+    }
+}
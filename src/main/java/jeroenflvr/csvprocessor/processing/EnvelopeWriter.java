@@ -0,0 +1,134 @@
+package jeroenflvr.csvprocessor.processing;
+
+import java.util.Arrays;
+
+/**
+ * Packs many keyed records into one envelope message.
+ *
+ * <p>Layout of an envelope:
+ * <pre>
+ * magic       1 byte, {@value #MAGIC}
+ * version     1 byte, {@value #FORMAT_VERSION}
+ * rowCount    4 bytes, big-endian
+ * rows, per record in order:
+ *   key       varint byte length + key bytes
+ *   value     varint byte length + value bytes
+ * </pre>
+ *
+ * <p>The magic byte is neither the first byte of a JSON record nor the
+ * version byte of a {@link BinaryRecordWriter binary} record, so an
+ * envelope is told apart from a single record by its first byte.
+ * Consumers unpack envelopes with the {@link EnvelopeReader}.
+ *
+ * <p>The output buffer is reused for every envelope. Instances are not
+ * thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see EnvelopeReader
+ */
+public final class EnvelopeWriter {
+
+    /**
+     * Byte written at the start of every envelope.
+     */
+    public static final byte MAGIC = (byte) 0xE5;
+
+    /**
+     * Version byte following the magic byte.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Size of the envelope header preceding the rows.
+     */
+    public static final int HEADER_SIZE = 6;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int size = HEADER_SIZE;
+    private int rowCount;
+
+    /**
+     * Appends a record to the envelope.
+     *
+     * @param key the record key (must not be null)
+     * @param value the record value (must not be null)
+     */
+    public void add(byte[] key, byte[] value) {
+        writeBytes(key);
+        writeBytes(value);
+        rowCount++;
+    }
+
+    /**
+     * Gets the number of records in the envelope.
+     *
+     * @return the record count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the size of the envelope written so far, header included.
+     *
+     * @return the size in bytes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines whether the envelope holds no records.
+     *
+     * @return true if no record was added since the last reset
+     */
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    /**
+     * Copies the envelope out of the reusable buffer.
+     *
+     * @return the encoded envelope
+     */
+    public byte[] toByteArray() {
+        buffer[0] = MAGIC;
+        buffer[1] = FORMAT_VERSION;
+        buffer[2] = (byte) (rowCount >>> 24);
+        buffer[3] = (byte) (rowCount >>> 16);
+        buffer[4] = (byte) (rowCount >>> 8);
+        buffer[5] = (byte) rowCount;
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Empties the envelope for the next batch of records.
+     */
+    public void reset() {
+        size = HEADER_SIZE;
+        rowCount = 0;
+    }
+
+    private void writeBytes(byte[] data) {
+        ensureCapacity(size + MAX_VARINT_BYTES + data.length);
+        int length = data.length;
+        while ((length & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        buffer[size++] = (byte) length;
+        System.arraycopy(data, 0, buffer, size, data.length);
+        size += data.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
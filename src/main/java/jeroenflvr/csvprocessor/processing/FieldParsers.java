@@ -0,0 +1,212 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.model.ColumnType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses typed values directly from the UTF-8 bytes of a CSV field.
+ *
+ * <p>The parsers work on a byte range without creating intermediate
+ * Strings, which keeps the typed record path allocation-free for valid
+ * input. Leading and trailing spaces are ignored, as in fixed-width
+ * {@code CHAR} exports. Invalid input is reported with a
+ * {@link NumberFormatException}; the message is only built on that path.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ColumnType
+ */
+public final class FieldParsers {
+
+    /**
+     * Days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    private static final long[] POWERS_OF_TEN = new long[ColumnType.MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FieldParsers() {
+        // Static utility
+    }
+
+    /**
+     * Parses a signed decimal integer.
+     *
+     * @param data the buffer holding the field
+     * @param start the first byte of the field (inclusive)
+     * @param end the end of the field (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not an integer or does not fit in a {@code long}
+     */
+    public static long parseLong(byte[] data, int start, int end) {
+        return parseNumber(data, start, end, 0, false);
+    }
+
+    /**
+     * Parses a fixed-point decimal number into a {@code long} scaled by 10<sup>scale</sup>.
+     *
+     * <p>{@code "100.5"} with scale 2 yields {@code 10050}. Fractional digits
+     * beyond the scale are only accepted when they are zeros, so values are
+     * never rounded silently.
+     *
+     * @param data the buffer holding the field
+     * @param start the first byte of the field (inclusive)
+     * @param end the end of the field (exclusive)
+     * @param scale the number of fractional digits to keep (0 to {@link ColumnType#MAX_SCALE})
+     * @return the scaled value
+     * @throws NumberFormatException if the field is not a decimal number or does not fit in a {@code long}
+     */
+    public static long parseDecimal(byte[] data, int start, int end, int scale) {
+        return parseNumber(data, start, end, scale, true);
+    }
+
+    private static long parseNumber(byte[] data, int start, int end, int scale, boolean fraction) {
+        int i = skipLeadingSpaces(data, start, end);
+        end = skipTrailingSpaces(data, i, end);
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        // Accumulate negatively, like Long.parseLong, so that Long.MIN_VALUE fits
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b == '.' && fractionDigits < 0 && fraction) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid("number", data, start, end);
+            }
+            digits++;
+            if (fractionDigits >= 0) {
+                if (fractionDigits == scale) {
+                    if (digit != 0) {
+                        throw invalid("number with scale " + scale, data, start, end);
+                    }
+                    continue;
+                }
+                fractionDigits++;
+            }
+            if (result < multiplyLimit) {
+                throw invalid("number", data, start, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw invalid("number", data, start, end);
+            }
+            result -= digit;
+        }
+        if (digits == 0) {
+            throw invalid("number", data, start, end);
+        }
+        int missing = scale - Math.max(fractionDigits, 0);
+        if (missing > 0) {
+            long factor = POWERS_OF_TEN[missing];
+            if (result < limit / factor) {
+                throw invalid("number", data, start, end);
+            }
+            result *= factor;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses an ISO {@code yyyy-MM-dd} date into days since 1970-01-01.
+     *
+     * @param data the buffer holding the field
+     * @param start the first byte of the field (inclusive)
+     * @param end the end of the field (exclusive)
+     * @return the epoch day, as {@link java.time.LocalDate#toEpochDay()} would return it
+     * @throws NumberFormatException if the field is not a valid date
+     */
+    public static long parseEpochDay(byte[] data, int start, int end) {
+        int i = skipLeadingSpaces(data, start, end);
+        end = skipTrailingSpaces(data, i, end);
+        if (end - i != 10 || data[i + 4] != '-' || data[i + 7] != '-') {
+            throw invalid("date", data, start, end);
+        }
+        int year = digits(data, i, 4);
+        int month = digits(data, i + 5, 2);
+        int day = digits(data, i + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw invalid("date", data, start, end);
+        }
+        // Same arithmetic as LocalDate.toEpochDay for non-negative years
+        long y = year;
+        long total = 365 * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static int digits(byte[] data, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int skipLeadingSpaces(byte[] data, int start, int end) {
+        while (start < end && data[start] == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpaces(byte[] data, int start, int end) {
+        while (end > start && data[end - 1] == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static NumberFormatException invalid(String what, byte[] data, int start, int end) {
+        return new NumberFormatException("Invalid " + what + ": \""
+                + new String(data, start, end - start, StandardCharsets.UTF_8) + "\"");
+    }
+}
@@ -1,22 +1,39 @@
 package jeroenflvr.csvprocessor.processing;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 
+import jeroenflvr.csvprocessor.config.ParserConfig;
+import jeroenflvr.csvprocessor.config.TopologyConfig.RecordFormat;
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
 import jeroenflvr.csvprocessor.model.ProcessedRecord;
 import jeroenflvr.csvprocessor.model.S3Location;
+import jeroenflvr.csvprocessor.storage.CompressionCodec;
 import jeroenflvr.csvprocessor.storage.S3FileReader;
 
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.KeyValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
 import jeroenflvr.csvprocessor.processing.ProcessingErrorHandler;
 
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * High-level service that orchestrates the processing of S3 files into Kafka records.
@@ -28,12 +45,22 @@ import java.util.List;
  * <p>Processing workflow:
  * <ol>
  *   <li>Parse the file path to extract S3 location information</li>
- *   <li>Retrieve the file content from S3 storage</li>
+ *   <li>Retrieve the file content from S3 storage, or map it from disk for {@code file:} paths</li>
  *   <li>Process the CSV data using the CSV processor</li>
  *   <li>Convert processed records to JSON format</li>
  *   <li>Create Kafka KeyValue pairs for message publishing</li>
  * </ol>
  * 
+ * <p>Paths naming a prefix or a manifest are not processed themselves but
+ * expanded into the paths of the objects they cover, see
+ * {@link #expandWorkItems(String)}.
+ * 
+ * <p>With a {@link ProcessedObjectLedger}, objects are checked with a HEAD
+ * request first and skipped when the ledger already holds the same ETag
+ * and size; the number of skipped objects and bytes is kept as a metric.
+ * The ledger may also hold checkpoints, from which an object that was
+ * interrupted part-way is continued with a ranged request.
+ * 
  * <p>The service handles all error conditions gracefully, logging issues
  * and returning empty results rather than propagating exceptions to
  * the Kafka Streams processing pipeline.
@@ -51,9 +78,17 @@ import org.springframework.stereotype.Component;
 public class FileProcessingService {
     private static final Logger log = LoggerFactory.getLogger(FileProcessingService.class);
     
+    /**
+     * File name suffix marking a manifest object, which lists the objects to process.
+     */
+    public static final String MANIFEST_SUFFIX = ".manifest";
+
     private final S3FileReader s3FileReader;
     private final CsvProcessor csvProcessor;
-    private final ObjectMapper objectMapper;
+    private final RecordFormat recordFormat;
+    private final AtomicLong skippedObjects = new AtomicLong();
+    private final AtomicLong skippedBytes = new AtomicLong();
+    private final AtomicLong resumedObjects = new AtomicLong();
 
     @Autowired
     private ProcessingErrorHandler errorHandler;
@@ -62,15 +97,41 @@ public class FileProcessingService {
      * Constructs a new FileProcessingService with the specified S3 file reader.
      * 
      * <p>This constructor initializes all required components for file processing,
-     * including the CSV processor and JSON object mapper with appropriate configuration.
+     * including the CSV processor with appropriate configuration.
+     * The CSV processor uses {@link ParserConfig#defaults() default} parser settings.
      * 
      * @param s3FileReader the S3 file reader for retrieving file content (must not be null)
      * @throws NullPointerException if s3FileReader is null
      */
+    @Autowired
     public FileProcessingService(S3FileReader s3FileReader) {
+        this(s3FileReader, ParserConfig.defaults());
+    }
+
+    /**
+     * Constructs a new FileProcessingService with the specified S3 file reader and parser settings.
+     * 
+     * @param s3FileReader the S3 file reader for retrieving file content (must not be null)
+     * @param parserConfig the settings for the CSV parser (must not be null)
+     * @throws NullPointerException if s3FileReader is null
+     */
+    public FileProcessingService(S3FileReader s3FileReader, ParserConfig parserConfig) {
+        this(s3FileReader, parserConfig, RecordFormat.JSON);
+    }
+
+    /**
+     * Constructs a new FileProcessingService with the specified S3 file reader, parser settings
+     * and record format.
+     * 
+     * @param s3FileReader the S3 file reader for retrieving file content (must not be null)
+     * @param parserConfig the settings for the CSV parser (must not be null)
+     * @param recordFormat the encoding of record payloads (must not be null)
+     * @throws NullPointerException if s3FileReader is null
+     */
+    public FileProcessingService(S3FileReader s3FileReader, ParserConfig parserConfig, RecordFormat recordFormat) {
         this.s3FileReader = s3FileReader;
-        this.csvProcessor = new CsvProcessor();
-        this.objectMapper = new ObjectMapper().configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        this.csvProcessor = new CsvProcessor(parserConfig);
+        this.recordFormat = recordFormat;
     }
 
     /**
@@ -103,25 +164,437 @@ public class FileProcessingService {
      */
     public List<KeyValue<String, String>> processFile(String pathValue) {
         List<KeyValue<String, String>> result = new ArrayList<>();
+        streamFile(pathValue).forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Processes a file path value into a lazily evaluated sequence of KeyValue pairs.
+     * 
+     * <p>This is the streaming counterpart of {@link #processFile(String)}. The file
+     * is only opened when iteration starts and is parsed into columnar
+     * {@link RecordBatch}es; each row is serialized to JSON straight from the
+     * batch buffers and handed out one at a time, without building a
+     * {@link ProcessedRecord} or a map per row. Peak memory is therefore bounded
+     * by the tokenizer buffer and one batch rather than by the size of the file,
+     * which makes this the method of choice for the Kafka Streams topology.
+     * 
+     * <p>The underlying stream is closed as soon as the last record has been
+     * returned or an error occurs. Errors are reported through the
+     * {@link ProcessingErrorHandler} and end the iteration; records that were
+     * already handed out before the failure are not retracted.
+     * 
+     * <p>The returned {@link Iterable} opens the file again on each call to
+     * {@link Iterable#iterator()}, so it should normally be iterated only once.
+     * An iterator that is abandoned before its end can be closed as a
+     * {@link CloseableIterator} to release the download.
+     * 
+     * @param pathValue the S3 file path to process (may be null or empty)
+     * @return a lazily evaluated sequence of KeyValue pairs, never null but may be empty
+     * @throws IllegalStateException if the service writes binary records, which have no String form
+     */
+    public Iterable<KeyValue<String, String>> streamFile(String pathValue) {
+        return streamFile(pathValue, null);
+    }
+
+    /**
+     * Processes a file path value into a lazily evaluated sequence of KeyValue pairs,
+     * skipping objects that have already been processed.
+     * 
+     * <p>When iteration starts, the object's ETag and size are read with a
+     * HEAD request. If the ledger holds the same version, the sequence is
+     * empty and nothing is downloaded. Otherwise the object is processed like
+     * in {@link #streamFile(String)} and, once its last record has been handed
+     * out without errors, the version and row count are recorded in the ledger.
+     * Objects that fail part-way are not recorded and will be processed again.
+     * 
+     * <p>While the object is processed, a {@link FileCheckpoint} is recorded
+     * after every batch of rows. If the ledger holds a checkpoint of the same
+     * version, processing continues at its byte offset, with a ranged request
+     * for the rest of the object, instead of starting over.
+     * 
+     * @param pathValue the S3 file path to process (may be null or empty)
+     * @param ledger the record of processed objects, or null to always process the file
+     * @return a lazily evaluated sequence of KeyValue pairs, never null but may be empty
+     * @throws IllegalStateException if the service writes binary records, which have no String form
+     */
+    public Iterable<KeyValue<String, String>> streamFile(String pathValue, ProcessedObjectLedger ledger) {
+        if (recordFormat == RecordFormat.BINARY) {
+            throw new IllegalStateException("Binary records can only be streamed as bytes");
+        }
+        return streamFile(pathValue, ledger, FileProcessingService::decodeKey, FileProcessingService::decodeValue);
+    }
+
+    /**
+     * Processes a file path value into a lazily evaluated sequence of binary KeyValue pairs.
+     * 
+     * <p>Behaves exactly like {@link #streamFile(String)}, but hands out the
+     * UTF-8 encoded keys and payloads as produced by the parser and the
+     * {@link RecordWriter}, without decoding them into Strings. For JSON
+     * records the bytes are identical to what {@code Serdes.String()} would
+     * produce for the String variant, so both can be written to the same
+     * topics. Binary records ({@link BinaryRecordWriter}) are only available
+     * through this method.
+     * 
+     * @param pathValue the S3 file path to process (may be null or empty)
+     * @return a lazily evaluated sequence of binary KeyValue pairs, never null but may be empty
+     */
+    public Iterable<KeyValue<Bytes, byte[]>> streamFileBytes(String pathValue) {
+        return streamFileBytes(pathValue, null);
+    }
+
+    /**
+     * Processes a file path value into a lazily evaluated sequence of binary KeyValue pairs,
+     * skipping objects that have already been processed.
+     * 
+     * <p>The binary counterpart of {@link #streamFile(String, ProcessedObjectLedger)}.
+     * 
+     * @param pathValue the S3 file path to process (may be null or empty)
+     * @param ledger the record of processed objects, or null to always process the file
+     * @return a lazily evaluated sequence of binary KeyValue pairs, never null but may be empty
+     */
+    public Iterable<KeyValue<Bytes, byte[]>> streamFileBytes(String pathValue, ProcessedObjectLedger ledger) {
+        return streamFile(pathValue, ledger, FileProcessingService::copyKey, FileProcessingService::copyValue);
+    }
+
+    /**
+     * Checks whether a path names a collection of objects rather than a single object.
+     * 
+     * <p>Collections are prefixes, whose key ends with a slash, and manifest
+     * objects, whose name ends with {@value #MANIFEST_SUFFIX}. Their objects
+     * are obtained with {@link #expandWorkItems(String)}.
+     * 
+     * @param pathValue the path to check (may be null or empty)
+     * @return true if the path is a valid prefix or manifest location
+     */
+    public boolean isObjectCollection(String pathValue) {
         if (pathValue == null || pathValue.isBlank()) {
-            return result;
+            return false;
         }
         try {
-            S3Location location = S3Location.parse(pathValue.trim());
-            try (BufferedReader reader = s3FileReader.createReader(location)) {
-                List<ProcessedRecord> records = csvProcessor.processCSV(reader, pathValue.trim());
-                for (ProcessedRecord record : records) {
-                    String json = objectMapper.writeValueAsString(record.getData());
-                    result.add(KeyValue.pair(record.getCompositeKey(), json));
+            S3Location location = S3Location.parse(pathValue);
+            return location.isPrefix() || location.getKey().endsWith(MANIFEST_SUFFIX);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Expands a prefix or manifest path into the paths of the objects it covers.
+     * 
+     * <p>A prefix is listed completely, following every page of the listing.
+     * A manifest is read as UTF-8 text with one path per line; blank lines
+     * and lines starting with {@code #} are ignored, and paths without a
+     * scheme are resolved against the directory of the manifest. The
+     * returned paths use the scheme of the given path, so each of them can
+     * be processed as an input message of its own.
+     * 
+     * <p>The result never contains a collection: manifests found under a
+     * listed prefix are left out, and manifest lines naming a prefix, a
+     * manifest or the manifest itself are ignored with a warning, so an
+     * expansion can never announce itself again.
+     * 
+     * <p>Errors are reported through the {@link ProcessingErrorHandler} and
+     * result in an empty list.
+     * 
+     * @param pathValue the prefix or manifest path to expand
+     * @return the object paths, in listing or manifest order; never null but may be empty
+     */
+    public List<String> expandWorkItems(String pathValue) {
+        try {
+            String path = pathValue.trim();
+            S3Location location = S3Location.parse(path);
+            List<String> items = new ArrayList<>();
+            if (location.isPrefix()) {
+                for (String name : s3FileReader.listObjects(location)) {
+                    String item = resolve(location, path, name);
+                    if (isObjectCollection(item)) {
+                        log.debug("Skipping collection {} listed under {}", item, path);
+                        continue;
+                    }
+                    items.add(item);
+                }
+            } else {
+                String directory = path.substring(0, path.lastIndexOf('/') + 1);
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        s3FileReader.openStream(location), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty() || line.startsWith("#")) {
+                            continue;
+                        }
+                        boolean absolute = line.contains("://") || line.startsWith("file:");
+                        String item = absolute ? line : resolve(location, directory, line);
+                        if (isObjectCollection(item)) {
+                            log.warn("Ignoring manifest line {} of {}: manifests may only list objects", line, path);
+                            continue;
+                        }
+                        items.add(item);
+                    }
                 }
             }
+            log.info("Expanded {} into {} objects", path, items.size());
+            return items;
         } catch (Exception e) {
-            if (errorHandler != null) {
-                errorHandler.handleProcessingError(pathValue, e);
+            handleError(pathValue, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Gets the number of objects skipped because the ledger held the same version.
+     * 
+     * @return the skipped object count since this service was created
+     */
+    public long getSkippedObjectCount() {
+        return skippedObjects.get();
+    }
+
+    /**
+     * Gets the total size of the objects skipped because the ledger held the same version.
+     * 
+     * @return the skipped bytes since this service was created
+     */
+    public long getSkippedBytes() {
+        return skippedBytes.get();
+    }
+
+    /**
+     * Gets the number of objects continued from a checkpoint instead of from the start.
+     * 
+     * @return the resumed object count since this service was created
+     */
+    public long getResumedObjectCount() {
+        return resumedObjects.get();
+    }
+
+    private <K, V> Iterable<KeyValue<K, V>> streamFile(String pathValue, ProcessedObjectLedger ledger,
+                                                      RowEncoder<K> keyEncoder, RowEncoder<V> valueEncoder) {
+        if (pathValue == null || pathValue.isBlank()) {
+            return Collections.emptyList();
+        }
+        return () -> openRecords(pathValue, ledger, keyEncoder, valueEncoder);
+    }
+
+    /**
+     * Opens the file behind the given path and returns an iterator over its records.
+     * 
+     * @param pathValue the S3 file path to process
+     * @param ledger the record of processed objects, or null
+     * @param keyEncoder converts the key of a row
+     * @param valueEncoder converts the serialized payload of a row
+     * @return an iterator over the file's KeyValue pairs, empty if the file cannot be opened
+     *         or has already been processed
+     */
+    private <K, V> Iterator<KeyValue<K, V>> openRecords(String pathValue, ProcessedObjectLedger ledger,
+                                                       RowEncoder<K> keyEncoder, RowEncoder<V> valueEncoder) {
+        InputStream input = null;
+        try {
+            String path = pathValue.trim();
+            S3Location location = S3Location.parse(path);
+            ProcessedObject version = null;
+            if (ledger != null) {
+                HeadObjectResponse head = s3FileReader.headObject(location);
+                version = new ProcessedObject(path, head.eTag(),
+                        head.contentLength() != null ? head.contentLength() : -1, 0);
+                ProcessedObject previous = ledger.lookup(path);
+                if (version.isSameVersion(previous)) {
+                    skippedObjects.incrementAndGet();
+                    skippedBytes.addAndGet(previous.getSize());
+                    ledger.recordSkipped(previous);
+                    log.info("Skipping unchanged {}", previous);
+                    return Collections.emptyIterator();
+                }
+            }
+            FileCheckpoint checkpoint = ledger != null ? ledger.lookupCheckpoint(path) : null;
+            CloseableIterator<RecordBatch> batches;
+            if (checkpoint != null && checkpoint.appliesTo(version)) {
+                // Continue after the rows that were already produced
+                log.info("Resuming {}", checkpoint);
+                resumedObjects.incrementAndGet();
+                input = s3FileReader.openStream(location, checkpoint.getByteOffset(), checkpoint.getETag());
+                batches = csvProcessor.iterateBatches(input, path, checkpoint.getHeaders(),
+                        checkpoint.getByteOffset());
+                return new KeyValueIterator<>(pathValue, batches, keyEncoder, valueEncoder, ledger, version,
+                        checkpoint.getRowNumber());
+            }
+            if (location.isLocalFile() && CompressionCodec.detect(location.getLocalPath()) == CompressionCodec.NONE) {
+                // Parsed straight from memory-mapped windows of the file
+                batches = csvProcessor.iterateBatches(location.getLocalPath(), path);
             } else {
-                log.error("Failed to process file {}: {}", pathValue, e.getMessage(), e);
+                input = s3FileReader.openStream(location);
+                batches = csvProcessor.iterateBatches(input, path);
             }
+            return new KeyValueIterator<>(pathValue, batches, keyEncoder, valueEncoder, ledger, version, 0);
+        } catch (Exception e) {
+            closeQuietly(input);
+            handleError(pathValue, e);
+            return Collections.emptyIterator();
         }
-        return result;
+    }
+
+    /**
+     * Resolves an object name against the directory part of a collection path.
+     */
+    private static String resolve(S3Location collection, String directory, String name) {
+        if (collection.isLocalFile()) {
+            Path base = collection.isPrefix() ? collection.getLocalPath() : collection.getLocalPath().getParent();
+            return base.resolve(name).toUri().toString();
+        }
+        return directory + name;
+    }
+
+    private void handleError(String pathValue, Exception e) {
+        if (errorHandler != null) {
+            errorHandler.handleProcessingError(pathValue, e);
+        } else {
+            log.error("Failed to process file {}: {}", pathValue, e.getMessage(), e);
+        }
+    }
+
+    private static void closeQuietly(InputStream input) {
+        if (input == null) {
+            return;
+        }
+        try {
+            input.close();
+        } catch (IOException e) {
+            log.warn("Failed to close input: {}", e.getMessage());
+        }
+    }
+
+    private static String decodeKey(RecordBatch batch, int row, RecordWriter writer) {
+        return batch.getKey(row);
+    }
+
+    private static String decodeValue(RecordBatch batch, int row, RecordWriter writer) {
+        return new String(writer.buffer(), 0, writer.size(), StandardCharsets.UTF_8);
+    }
+
+    private static Bytes copyKey(RecordBatch batch, int row, RecordWriter writer) {
+        return Bytes.wrap(Arrays.copyOfRange(batch.keyData(), batch.keyStart(row), batch.keyEnd(row)));
+    }
+
+    private static byte[] copyValue(RecordBatch batch, int row, RecordWriter writer) {
+        return writer.toByteArray();
+    }
+
+    /**
+     * Converts a row of a batch, after its payload has been written, into a key or value.
+     */
+    @FunctionalInterface
+    private interface RowEncoder<T> {
+        T encode(RecordBatch batch, int row, RecordWriter writer);
+    }
+
+    /**
+     * Converts record batches into Kafka KeyValue pairs as they are pulled.
+     * 
+     * <p>Rows are serialized by a {@link RecordWriter} straight from the batch
+     * buffers; JSON records are the same as serializing the row's map with
+     * Jackson. The encoders then copy the key and payload out of the
+     * reused buffers, either as Strings or as bytes.
+     * 
+     * <p>Closes the batch iterator once it is exhausted or fails, so that the
+     * S3 connection is released without relying on the caller; a caller that
+     * stops early closes it explicitly. Records the
+     * object in the ledger, if any, once it is exhausted without errors, and
+     * a checkpoint after every batch whose rows have all been handed out.
+     */
+    private final class KeyValueIterator<K, V> implements CloseableIterator<KeyValue<K, V>> {
+        private final String pathValue;
+        private final CloseableIterator<RecordBatch> batches;
+        private final RowEncoder<K> keyEncoder;
+        private final RowEncoder<V> valueEncoder;
+        private final ProcessedObjectLedger ledger;
+        private final ProcessedObject version;
+        private RecordWriter writer;
+        private RecordBatch batch;
+        private int row;
+        private KeyValue<K, V> pending;
+        private long rowCount;
+        private boolean open = true;
+
+        KeyValueIterator(String pathValue, CloseableIterator<RecordBatch> batches,
+                         RowEncoder<K> keyEncoder, RowEncoder<V> valueEncoder,
+                         ProcessedObjectLedger ledger, ProcessedObject version, long firstRow) {
+            this.pathValue = pathValue;
+            this.batches = batches;
+            this.keyEncoder = keyEncoder;
+            this.valueEncoder = valueEncoder;
+            this.ledger = ledger;
+            this.version = version;
+            this.rowCount = firstRow;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pending == null && open) {
+                try {
+                    if (advance()) {
+                        writer.write(batch, row);
+                        pending = KeyValue.pair(keyEncoder.encode(batch, row, writer),
+                                valueEncoder.encode(batch, row, writer));
+                        row++;
+                        rowCount++;
+                    } else {
+                        close();
+                        if (ledger != null) {
+                            ledger.recordProcessed(version.withRowCount(rowCount));
+                        }
+                    }
+                } catch (Exception e) {
+                    close();
+                    handleError(pathValue, e);
+                }
+            }
+            return pending != null;
+        }
+
+        @Override
+        public KeyValue<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KeyValue<K, V> result = pending;
+            pending = null;
+            return result;
+        }
+
+        private boolean advance() {
+            while (batch == null || row >= batch.size()) {
+                if (batch != null && ledger != null && batch.getEndOffset() >= 0) {
+                    // Every row of the batch has been handed out
+                    ledger.recordCheckpoint(new FileCheckpoint(version.getPath(), version.getETag(),
+                            batch.getEndOffset(), rowCount, batch.getSchema().getHeaders()));
+                }
+                if (!batches.hasNext()) {
+                    return false;
+                }
+                batch = batches.next();
+                row = 0;
+                if (writer == null) {
+                    writer = newWriter(batch.getSchema());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                batches.close();
+                if (writer instanceof BinaryRecordWriter binary && binary.getInvalidValueCount() > 0) {
+                    log.warn("{} typed values in {} could not be parsed and were written as null",
+                            binary.getInvalidValueCount(), pathValue);
+                }
+            }
+        }
+    }
+
+    private RecordWriter newWriter(RowSchema schema) {
+        return recordFormat == RecordFormat.BINARY ? new BinaryRecordWriter(schema) : new JsonRecordWriter(schema);
     }
 }
@@ -0,0 +1,293 @@
+package jeroenflvr.csvprocessor.processing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the JSON payload of a row directly from the UTF-8 bytes of a {@link RecordBatch}.
+ *
+ * <p>The output is byte-for-byte the UTF-8 encoding of what Jackson's
+ * {@code ObjectMapper#writeValueAsString} produces for the row's
+ * {@code Map<String, String>} with default settings, i.e. what the String
+ * serde sends: a compact object with the fields in schema order, {@code "}
+ * and {@code \} escaped with a backslash, control characters written as
+ * {@code \b}, {@code \t}, {@code \f}, {@code \n}, {@code \r} or
+ * <code>&#92;u00XX</code> (upper case hex), and all other characters,
+ * including those outside the Basic Multilingual Plane, written as raw UTF-8.
+ *
+ * <p>The field name prefixes ({@code "name":}) are encoded once per schema
+ * and the file metadata values once per batch. Column values are copied
+ * from the batch with a single pass that only escapes when needed, so a row
+ * is serialized without any {@code String}, map or generator involved.
+ * Values that are not valid UTF-8 are decoded first so that invalid
+ * sequences are replaced exactly as in the String based serialization.
+ *
+ * <p>The output buffer is reused for every row: the result of
+ * {@link #write(RecordBatch, int)} is only valid until the next call.
+ * Instances are not thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see FileProcessingService
+ */
+public final class JsonRecordWriter implements RecordWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Escape replacement per ASCII byte: 0 for none, 'u' for a unicode escape,
+     * otherwise the character following the backslash.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private final RowSchema schema;
+    private final byte[][] fieldPrefixes;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int size;
+
+    private String cachedFilename;
+    private byte[] encodedFilename;
+    private String cachedTimestamp;
+    private byte[] encodedTimestamp;
+
+    /**
+     * Creates a writer for rows of the given schema.
+     *
+     * @param schema the schema of the batches to serialize (must not be null)
+     */
+    public JsonRecordWriter(RowSchema schema) {
+        this.schema = schema;
+        this.fieldPrefixes = new byte[schema.getOutputCount()][];
+        for (int c = 0; c < fieldPrefixes.length; c++) {
+            // Leading '{' for the first field and ',' for all others
+            size = 0;
+            append(c == 0 ? (byte) '{' : (byte) ',');
+            writeString(schema.getEncodedOutputName(c));
+            append((byte) ':');
+            fieldPrefixes[c] = Arrays.copyOf(buffer, size);
+        }
+        size = 0;
+    }
+
+    /**
+     * Gets the schema this writer serializes.
+     *
+     * @return the row schema
+     */
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Serializes one row of a batch into the internal buffer.
+     *
+     * @param batch a batch of this writer's schema (must not be null)
+     * @param row the row index within the batch
+     * @return the number of bytes written, available through {@link #buffer()}
+     */
+    @Override
+    public int write(RecordBatch batch, int row) {
+        size = 0;
+        for (int c = 0; c < fieldPrefixes.length; c++) {
+            append(fieldPrefixes[c]);
+            int slot = schema.getOutputSlot(c);
+            if (slot == RowSchema.SOURCE_FILENAME_SLOT) {
+                append(encodedFilename(batch.getSourceFilename()));
+            } else if (slot == RowSchema.IMPORTED_SLOT) {
+                append(encodedTimestamp(batch.getImportTimestamp()));
+            } else {
+                writeString(batch.columnData(c), batch.valueStart(c, row), batch.valueEnd(c, row));
+            }
+        }
+        // The schema always has the metadata fields, so the object is never empty
+        append((byte) '}');
+        return size;
+    }
+
+    /**
+     * Gets the buffer holding the last serialized row.
+     *
+     * @return the output buffer; only valid until the next {@link #write(RecordBatch, int)}
+     */
+    @Override
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Gets the length of the last serialized row.
+     *
+     * @return the number of valid bytes in {@link #buffer()}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the last serialized row.
+     *
+     * @return a new array holding the UTF-8 encoded JSON object
+     */
+    @Override
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Decodes the last serialized row.
+     *
+     * @return the JSON object as a String
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private byte[] encodedFilename(String filename) {
+        if (encodedFilename == null || !filename.equals(cachedFilename)) {
+            cachedFilename = filename;
+            encodedFilename = encodeValue(filename);
+        }
+        return encodedFilename;
+    }
+
+    private byte[] encodedTimestamp(String timestamp) {
+        if (encodedTimestamp == null || !timestamp.equals(cachedTimestamp)) {
+            cachedTimestamp = timestamp;
+            encodedTimestamp = encodeValue(timestamp);
+        }
+        return encodedTimestamp;
+    }
+
+    private byte[] encodeValue(String value) {
+        int mark = size;
+        writeString(value.getBytes(StandardCharsets.UTF_8));
+        byte[] encoded = Arrays.copyOfRange(buffer, mark, size);
+        size = mark;
+        return encoded;
+    }
+
+    private void writeString(byte[] utf8) {
+        writeString(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Writes a quoted, escaped JSON string from UTF-8 bytes.
+     */
+    private void writeString(byte[] data, int start, int end) {
+        if (!isValidUtf8(data, start, end)) {
+            // Round trip through String to replace invalid sequences with U+FFFD
+            byte[] replaced = new String(data, start, end - start, StandardCharsets.UTF_8)
+                    .getBytes(StandardCharsets.UTF_8);
+            data = replaced;
+            start = 0;
+            end = replaced.length;
+        }
+        // Worst case every byte becomes a six byte unicode escape; non-ASCII
+        // sequences, including those outside the BMP, are copied as they are
+        ensureCapacity(size + 2 + (end - start) * 6);
+        byte[] out = buffer;
+        int pos = size;
+        out[pos++] = '"';
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            byte escape = b >= 0 ? ESCAPES[b] : 0;
+            if (escape == 0) {
+                out[pos++] = b;
+            } else {
+                out[pos++] = '\\';
+                out[pos++] = escape;
+                if (escape == 'u') {
+                    out[pos++] = '0';
+                    out[pos++] = '0';
+                    out[pos++] = HEX_DIGITS[b >> 4];
+                    out[pos++] = HEX_DIGITS[b & 0xF];
+                }
+            }
+        }
+        out[pos++] = '"';
+        size = pos;
+    }
+
+    private void append(byte b) {
+        ensureCapacity(size + 1);
+        buffer[size++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(size + bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    /**
+     * Checks that a byte range is well-formed UTF-8, with a fast path for ASCII.
+     *
+     * <p>Rejects overlong encodings, surrogate code points and code points
+     * above U+10FFFF, like the JDK decoder does.
+     */
+    static boolean isValidUtf8(byte[] data, int start, int end) {
+        int i = start;
+        while (i < end) {
+            int b = data[i];
+            if (b >= 0) {
+                i++;
+                continue;
+            }
+            b &= 0xFF;
+            int length;
+            int min;
+            if (b >= 0xC2 && b <= 0xDF) {
+                length = 2;
+                min = 0x80;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                length = 3;
+                min = 0x800;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                length = 4;
+                min = 0x10000;
+            } else {
+                return false;
+            }
+            if (i + length > end) {
+                return false;
+            }
+            int codePoint = b & (0xFF >> (length + 1));
+            for (int k = 1; k < length; k++) {
+                int next = data[i + k] & 0xFF;
+                if ((next & 0xC0) != 0x80) {
+                    return false;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+            if (codePoint < min || codePoint > 0x10FFFF
+                    || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+                return false;
+            }
+            i += length;
+        }
+        return true;
+    }
+}
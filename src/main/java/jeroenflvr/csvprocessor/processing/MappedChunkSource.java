@@ -0,0 +1,143 @@
+package jeroenflvr.csvprocessor.processing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Splits a local file into newline-aligned chunks of memory-mapped windows.
+ *
+ * <p>The file is mapped read-only with {@link FileChannel#map} one window
+ * at a time. Each window is cut back to its last line terminator, and the
+ * next window starts right after it, so no line ever spans two windows; a
+ * window grows beyond the configured size only when a single line does not
+ * fit. Chunks are slices of the current window ending on a line terminator
+ * and are tokenized in place: the file content is never copied onto the heap.
+ *
+ * <p>Mappings are released by the garbage collector once no chunk refers to
+ * them any more; they remain readable after {@link #close()}.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CsvProcessor#iterateBatches(java.nio.file.Path, String)
+ */
+final class MappedChunkSource implements ParallelBatchIterator.ChunkSource {
+
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final int chunkSize;
+    private long nextWindowOffset;
+    private long windowOffset;
+    private long chunkOffset;
+    private ByteBuffer window;
+
+    /**
+     * Creates a chunk source over an open file.
+     *
+     * @param channel the file to split, closed by {@link #close()} (must not be null)
+     * @param windowSize the target size in bytes of a mapped window (must be positive)
+     * @param chunkSize the target size in bytes of a chunk; at least the window size for one chunk per window
+     * @throws IOException if the file size cannot be determined
+     */
+    MappedChunkSource(FileChannel channel, int windowSize, int chunkSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+        if ((window == null || !window.hasRemaining()) && !mapNextWindow()) {
+            return null;
+        }
+        int start = window.position();
+        int end = start + Math.min(chunkSize, window.remaining());
+        if (end < window.limit()) {
+            int lineEnd = lastLineEnd(window, start, end);
+            end = lineEnd > start ? lineEnd : firstLineEnd(window, end, window.limit());
+        }
+        ByteBuffer chunk = window.slice(start, end - start);
+        window.position(end);
+        chunkOffset = windowOffset + start;
+        return chunk;
+    }
+
+    @Override
+    public long chunkOffset() {
+        return chunkOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Maps the window following the previous one, cut back to its last line terminator.
+     *
+     * @return false at the end of the file
+     */
+    private boolean mapNextWindow() throws IOException {
+        long remaining = fileSize - nextWindowOffset;
+        if (remaining <= 0) {
+            return false;
+        }
+        int size = (int) Math.min(windowSize, remaining);
+        while (true) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, nextWindowOffset, size);
+            int end = size;
+            if (size < remaining) {
+                end = lastLineEnd(mapped, 0, size);
+                if (end == 0) {
+                    if (size == MAX_WINDOW_SIZE) {
+                        throw new IOException("Line at offset " + nextWindowOffset + " exceeds "
+                                + MAX_WINDOW_SIZE + " bytes");
+                    }
+                    // The current line is longer than the window
+                    size = (int) Math.min(Math.min((long) size * 2, MAX_WINDOW_SIZE), remaining);
+                    continue;
+                }
+            }
+            window = mapped.slice(0, end);
+            windowOffset = nextWindowOffset;
+            nextWindowOffset += end;
+            return true;
+        }
+    }
+
+    /**
+     * Finds the end of the last complete line in a range.
+     *
+     * @return the index just past the last line terminator, or {@code from} if there is none
+     */
+    private static int lastLineEnd(ByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                return i + 1;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Finds the end of the first line terminated in a range.
+     *
+     * @return the index just past the first line terminator, or {@code to} if there is none
+     */
+    private static int firstLineEnd(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,310 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.config.ParserConfig.ScanMode;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses the data rows of a file in newline-aligned chunks on a {@link ForkJoinPool}.
+ *
+ * <p>The input is read sequentially into chunks of about the configured size,
+ * each extended to the end of the line it stops in, either from a stream by
+ * a {@link ChunkReader} or as slices of a memory-mapped file by a
+ * {@link MappedChunkSource}, and every chunk is
+ * tokenized into its own {@link RecordBatch}es by a pool task. Batches are
+ * handed out strictly in chunk order, so consumers see the rows in the same
+ * order as with sequential parsing.
+ *
+ * <p>At most {@code maxInFlight} chunks are read ahead of the consumer, which
+ * bounds memory to a few chunks regardless of the file size and stops
+ * reading from the source when the consumer falls behind.
+ *
+ * <p>Chunks may split a {@code \r\n} pair. The {@code \n} then starts the
+ * next chunk as an empty line, which is skipped like any other blank line,
+ * so the records are the same as with sequential parsing.
+ *
+ * <p>Unlike the sequential batch iterator, every call to {@code next()}
+ * returns a fresh batch. Instances are not thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CsvProcessor#iterateBatches(InputStream, String)
+ */
+final class ParallelBatchIterator implements CloseableIterator<RecordBatch> {
+    private static final Logger log = LoggerFactory.getLogger(ParallelBatchIterator.class);
+
+    private final ForkJoinPool pool;
+    private final ChunkSource chunks;
+    private final RowSchema schema;
+    private final String sourceFilename;
+    private final String importTimestamp;
+    private final ScanMode scanMode;
+    private final int maxInFlight;
+    private final ArrayDeque<ForkJoinTask<List<RecordBatch>>> pending = new ArrayDeque<>();
+    private Iterator<RecordBatch> current = Collections.emptyIterator();
+    private boolean finished;
+    private long count;
+
+    /**
+     * Starts parsing a file whose header has been read from the first chunk.
+     *
+     * @param pool the pool running the chunk tasks
+     * @param chunks the source providing the chunks following the first one
+     * @param first the tokenizer over the first chunk, positioned after the header line
+     * @param schema the schema compiled from the header
+     * @param sourceFilename the source filename for the batches and logging
+     * @param importTimestamp the import timestamp shared by all batches
+     * @param scanMode the delimiter scanning strategy for the chunk tokenizers
+     * @param maxInFlight the maximum number of chunks being parsed or waiting to be consumed
+     */
+    ParallelBatchIterator(ForkJoinPool pool, ChunkSource chunks, CsvTokenizer first, RowSchema schema,
+                          String sourceFilename, String importTimestamp, ScanMode scanMode, int maxInFlight) {
+        this.pool = pool;
+        this.chunks = chunks;
+        this.schema = schema;
+        this.sourceFilename = sourceFilename;
+        this.importTimestamp = importTimestamp;
+        this.scanMode = scanMode;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        submit(first);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && !finished) {
+            readAhead();
+            ForkJoinTask<List<RecordBatch>> task = pending.poll();
+            if (task == null) {
+                finished = true;
+                log.info("Processed {} records from {} in parallel", count, sourceFilename);
+            } else {
+                List<RecordBatch> batches = task.join();
+                for (RecordBatch batch : batches) {
+                    count += batch.size();
+                }
+                current = batches.iterator();
+                // Keep the pool busy while the consumer works on this chunk
+                readAhead();
+            }
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public RecordBatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        current = Collections.emptyIterator();
+        for (ForkJoinTask<List<RecordBatch>> task : pending) {
+            task.cancel(false);
+        }
+        pending.clear();
+        try {
+            chunks.close();
+        } catch (IOException e) {
+            log.warn("Failed to close input for {}: {}", sourceFilename, e.getMessage());
+        }
+    }
+
+    private void readAhead() {
+        try {
+            while (pending.size() < maxInFlight) {
+                ByteBuffer chunk = chunks.next();
+                if (chunk == null) {
+                    return;
+                }
+                CsvTokenizer tokenizer = new CsvTokenizer(chunk, scanMode, false);
+                tokenizer.setInputOffset(chunks.chunkOffset());
+                tokenizer.setFieldLimit(schema.getRequiredFieldCount());
+                submit(tokenizer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + sourceFilename, e);
+        }
+    }
+
+    private void submit(CsvTokenizer tokenizer) {
+        pending.add(pool.submit(() -> parse(tokenizer)));
+    }
+
+    /**
+     * Tokenizes a whole chunk into batches; runs on a pool thread.
+     */
+    private List<RecordBatch> parse(CsvTokenizer tokenizer) throws IOException {
+        List<RecordBatch> batches = new ArrayList<>();
+        RecordBatch batch = null;
+        while (tokenizer.nextLine()) {
+            if (tokenizer.isBlankLine()) {
+                continue;
+            }
+            if (batch == null || batch.isFull()) {
+                batch = new RecordBatch(schema, sourceFilename, importTimestamp, RecordBatch.DEFAULT_CAPACITY);
+                batches.add(batch);
+            }
+            batch.addRow(tokenizer);
+            batch.setEndOffset(tokenizer.lineEndOffset());
+        }
+        if (batch != null) {
+            // Rejected lines at the end of the chunk are covered as well
+            batch.setEndOffset(tokenizer.lineEndOffset());
+        }
+        // A batch may stay empty when all of its lines were rejected
+        batches.removeIf(b -> b.size() == 0);
+        return batches;
+    }
+
+    /**
+     * A sequence of chunks of a file that each end on a line terminator, except the last one.
+     */
+    interface ChunkSource extends AutoCloseable {
+
+        /**
+         * Returns the next chunk.
+         *
+         * @return the bytes of the next chunk between position and limit, or null at end of input
+         * @throws IOException if reading from the input fails
+         */
+        ByteBuffer next() throws IOException;
+
+        /**
+         * Returns the position of the last chunk within the file.
+         *
+         * @return the file offset of the first byte of the chunk last returned by {@link #next()}
+         */
+        long chunkOffset();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Reads an input stream as a sequence of chunks that end on a line terminator.
+     *
+     * <p>Bytes following the last terminator of a chunk are carried over to
+     * the start of the next one. A chunk grows beyond the target size when a
+     * single line does not fit; the last chunk ends with the input.
+     */
+    static final class ChunkReader implements ChunkSource {
+        private final InputStream input;
+        private final int chunkSize;
+        private byte[] carry = new byte[0];
+        private int carryLength;
+        private boolean eof;
+        private long chunkOffset;
+        private long nextOffset;
+
+        /**
+         * Creates a chunk reader for an input starting at the beginning of a file.
+         *
+         * @param input the input to split (must not be null)
+         * @param chunkSize the target chunk size in bytes (must be positive)
+         */
+        ChunkReader(InputStream input, int chunkSize) {
+            this(input, chunkSize, 0);
+        }
+
+        /**
+         * Creates a chunk reader for an input starting part-way into a file.
+         *
+         * @param input the input to split (must not be null)
+         * @param chunkSize the target chunk size in bytes (must be positive)
+         * @param startOffset the file offset of the first input byte
+         */
+        ChunkReader(InputStream input, int chunkSize, long startOffset) {
+            this.input = input;
+            this.chunkSize = chunkSize;
+            this.nextOffset = startOffset;
+        }
+
+        /**
+         * Reads the next chunk.
+         *
+         * @return the next chunk, or null at end of input
+         * @throws IOException if reading from the input fails
+         */
+        @Override
+        public ByteBuffer next() throws IOException {
+            if (eof && carryLength == 0) {
+                return null;
+            }
+            byte[] data = new byte[Math.max(chunkSize, carryLength * 2)];
+            System.arraycopy(carry, 0, data, 0, carryLength);
+            int length = carryLength;
+            carryLength = 0;
+            while (true) {
+                if (!eof) {
+                    length += input.readNBytes(data, length, data.length - length);
+                    eof = length < data.length;
+                }
+                if (eof) {
+                    return length > 0 ? chunk(data, length) : null;
+                }
+                int end = lineEnd(data, length);
+                if (end > 0) {
+                    carryLength = length - end;
+                    if (carry.length < carryLength) {
+                        carry = new byte[carryLength];
+                    }
+                    System.arraycopy(data, end, carry, 0, carryLength);
+                    return chunk(data, end);
+                }
+                // The current line is longer than the chunk
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+
+        @Override
+        public long chunkOffset() {
+            return chunkOffset;
+        }
+
+        private ByteBuffer chunk(byte[] data, int length) {
+            chunkOffset = nextOffset;
+            nextOffset += length;
+            return ByteBuffer.wrap(data, 0, length);
+        }
+
+        /**
+         * Finds the end of the last complete line.
+         *
+         * @return the index just past the last line terminator, or 0 if there is none
+         */
+        private static int lineEnd(byte[] data, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (data[i] == '\n' || data[i] == '\r') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
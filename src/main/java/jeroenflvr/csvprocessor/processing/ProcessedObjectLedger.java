@@ -0,0 +1,75 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+
+/**
+ * Record of the objects that have already been processed completely.
+ * 
+ * <p>The {@link FileProcessingService} consults the ledger before
+ * downloading an object and skips objects whose ETag and size match the
+ * recorded version. Implementations decide where the entries live; the
+ * Kafka Streams topology keeps them in a persistent state store so that
+ * they are written in the same transaction as the produced records.
+ * 
+ * <p>A ledger may also keep {@link FileCheckpoint checkpoints} of objects
+ * that are being processed, so that an object interrupted part-way is
+ * continued where it stopped instead of being read again from the start.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see FileProcessingService#streamFile(String, ProcessedObjectLedger)
+ */
+public interface ProcessedObjectLedger {
+
+    /**
+     * Looks up the last processed version of an object.
+     * 
+     * @param path the object path (must not be null)
+     * @return the ledger entry, or null if the object has not been processed
+     */
+    ProcessedObject lookup(String path);
+
+    /**
+     * Records that an object version has been processed completely.
+     * 
+     * @param object the processed object version (must not be null)
+     */
+    void recordProcessed(ProcessedObject object);
+
+    /**
+     * Notifies the ledger that an unchanged object has been skipped.
+     * 
+     * <p>The default implementation does nothing.
+     * 
+     * @param object the ledger entry of the skipped object (must not be null)
+     */
+    default void recordSkipped(ProcessedObject object) {
+    }
+
+    /**
+     * Looks up the checkpoint of an object that was being processed.
+     * 
+     * <p>The default implementation keeps no checkpoints and returns null.
+     * 
+     * @param path the object path (must not be null)
+     * @return the last recorded checkpoint, or null if there is none
+     */
+    default FileCheckpoint lookupCheckpoint(String path) {
+        return null;
+    }
+
+    /**
+     * Records the progress of an object that is being processed.
+     * 
+     * <p>Called after every batch of rows handed out. Implementations may
+     * keep only some of the checkpoints; the checkpoint of an object is
+     * discarded once the object is {@link #recordProcessed recorded as processed}.
+     * The default implementation does nothing.
+     * 
+     * @param checkpoint the current progress (must not be null)
+     */
+    default void recordCheckpoint(FileCheckpoint checkpoint) {
+    }
+}
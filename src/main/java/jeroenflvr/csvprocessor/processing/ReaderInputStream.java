@@ -0,0 +1,87 @@
+package jeroenflvr.csvprocessor.processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Adapts a character {@link Reader} to a UTF-8 encoded {@link InputStream}.
+ *
+ * <p>Used by the {@code BufferedReader} based entry points of {@link CsvProcessor}
+ * so that they share the byte-level {@link CsvTokenizer} with the stream based
+ * ones. Characters are encoded in fixed-size chunks; unpaired surrogates are
+ * replaced the same way {@link String#getBytes(java.nio.charset.Charset)} does.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ReaderInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Reader reader;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE).flip();
+    private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE * 3).flip();
+    private boolean endOfInput;
+    private boolean flushed;
+
+    /**
+     * Creates a stream that encodes the given reader's characters as UTF-8.
+     *
+     * @param reader the character source (must not be null)
+     */
+    ReaderInputStream(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!bytes.hasRemaining()) {
+            if (flushed) {
+                return -1;
+            }
+            encodeChunk();
+        }
+        int n = Math.min(len, bytes.remaining());
+        bytes.get(b, off, n);
+        return n;
+    }
+
+    private void encodeChunk() throws IOException {
+        bytes.clear();
+        if (!endOfInput) {
+            chars.compact();
+            int n = reader.read(chars);
+            chars.flip();
+            endOfInput = n < 0;
+        }
+        encoder.encode(chars, bytes, endOfInput);
+        if (endOfInput && !chars.hasRemaining()) {
+            encoder.flush(bytes);
+            flushed = true;
+        }
+        bytes.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
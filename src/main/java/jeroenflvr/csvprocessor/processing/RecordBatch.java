@@ -0,0 +1,327 @@
+package jeroenflvr.csvprocessor.processing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Columnar, reusable container for a batch of processed CSV rows.
+ *
+ * <p>Instead of one {@code Map} per row, a batch stores the raw UTF-8 bytes of
+ * each output column in its own growing byte array, with an offset array
+ * marking where each row's value starts and ends. Composite keys are stored
+ * the same way. The header names come from the shared {@link RowSchema} and
+ * the {@code input_filename}/{@code imported} metadata is stored once per
+ * batch, so filling a batch allocates nothing per row once its buffers have
+ * reached their working size.
+ *
+ * <p>Row {@code r} of output column {@code c} occupies
+ * {@code columnData(c)[valueStart(c, r) .. valueEnd(c, r))}. Metadata output
+ * fields have no column data; use {@link #getSourceFilename()} and
+ * {@link #getImportTimestamp()} instead.
+ *
+ * <p>Batches are meant to be filled, consumed and {@link #clear() cleared} in
+ * a loop by a single thread; they are not thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CsvProcessor#iterateBatches(java.io.InputStream, String)
+ */
+public final class RecordBatch {
+
+    /**
+     * Default number of rows per batch.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int INITIAL_BYTES_PER_VALUE = 8;
+
+    private final RowSchema schema;
+    private final String sourceFilename;
+    private final String importTimestamp;
+    private final int capacity;
+    private int size;
+    private long endOffset = -1;
+
+    private byte[] keyData;
+    private final int[] keyOffsets;
+    private final byte[][] columnData;
+    private final int[][] columnOffsets;
+
+    /**
+     * Creates an empty batch for the given schema and file metadata.
+     *
+     * @param schema the row schema the batch layout is derived from (must not be null)
+     * @param sourceFilename the source file path shared by all rows
+     * @param importTimestamp the import timestamp shared by all rows
+     * @param capacity the maximum number of rows (must be positive)
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public RecordBatch(RowSchema schema, String sourceFilename, String importTimestamp, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Batch capacity must be positive: " + capacity);
+        }
+        this.schema = schema;
+        this.sourceFilename = sourceFilename;
+        this.importTimestamp = importTimestamp;
+        this.capacity = capacity;
+        this.keyData = new byte[capacity * INITIAL_BYTES_PER_VALUE];
+        this.keyOffsets = new int[capacity + 1];
+
+        int outputCount = schema.getOutputCount();
+        this.columnData = new byte[outputCount][];
+        this.columnOffsets = new int[outputCount][];
+        for (int c = 0; c < outputCount; c++) {
+            if (schema.getOutputSlot(c) >= 0) {
+                columnData[c] = new byte[capacity * INITIAL_BYTES_PER_VALUE];
+                columnOffsets[c] = new int[capacity + 1];
+            }
+        }
+    }
+
+    /**
+     * Appends the current row of a tokenizer, applying the rules of the schema.
+     *
+     * <p>Rows with fewer fields than {@link RowSchema#getMinFieldCount()} and
+     * rows whose composite key is blank are rejected, exactly like
+     * single-record processing.
+     *
+     * @param row the tokenizer positioned on the row to append
+     * @return true if the row was added, false if it was rejected
+     * @throws IllegalStateException if the batch is full
+     */
+    public boolean addRow(CsvTokenizer row) {
+        if (isFull()) {
+            throw new IllegalStateException("Batch is full");
+        }
+        int fieldCount = row.fieldCount();
+        if (fieldCount < schema.getMinFieldCount()) {
+            return false;
+        }
+
+        ByteBuffer source = row.buffer();
+        int keyStart = keyOffsets[size];
+        int keyEnd = keyStart;
+        boolean first = true;
+        for (int k = 0; k < schema.getKeyCount(); k++) {
+            int index = schema.getKeyIndex(k);
+            if (index < fieldCount) {
+                int length = row.fieldLength(index) + (first ? 0 : 1);
+                keyData = ensureCapacity(keyData, keyEnd + length);
+                if (!first) {
+                    keyData[keyEnd++] = '_';
+                }
+                source.get(row.fieldStart(index), keyData, keyEnd, row.fieldLength(index));
+                keyEnd += row.fieldLength(index);
+                first = false;
+            }
+        }
+        if (isBlank(keyData, keyStart, keyEnd)) {
+            return false;
+        }
+        keyOffsets[size + 1] = keyEnd;
+
+        for (int c = 0; c < columnData.length; c++) {
+            int slot = schema.getOutputSlot(c);
+            if (slot < 0) {
+                continue;
+            }
+            int[] offsets = columnOffsets[c];
+            int start = offsets[size];
+            int length = slot < fieldCount ? row.fieldLength(slot) : 0;
+            byte[] data = ensureCapacity(columnData[c], start + length);
+            columnData[c] = data;
+            if (length > 0) {
+                source.get(row.fieldStart(slot), data, start, length);
+            }
+            offsets[size + 1] = start + length;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes all rows while keeping the allocated buffers for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the number of rows in this batch.
+     *
+     * @return the row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the batch has reached its capacity.
+     *
+     * @return true if no more rows can be added
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Gets the file offset just past the input covered by this batch.
+     *
+     * <p>Every line before this offset has either been added to this or an
+     * earlier batch or been rejected, so parsing can continue from here
+     * without losing or repeating rows.
+     *
+     * @return the byte offset in the decoded file, or -1 if unknown
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Sets the file offset just past the input covered by this batch.
+     *
+     * @param endOffset the byte offset in the decoded file
+     */
+    void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Gets the schema describing the columns of this batch.
+     *
+     * @return the row schema
+     */
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Gets the source file path shared by all rows.
+     *
+     * @return the source filename
+     */
+    public String getSourceFilename() {
+        return sourceFilename;
+    }
+
+    /**
+     * Gets the import timestamp shared by all rows.
+     *
+     * @return the import timestamp in yyyyMMddHHmmss format
+     */
+    public String getImportTimestamp() {
+        return importTimestamp;
+    }
+
+    /**
+     * Gets the buffer holding the UTF-8 encoded composite keys.
+     *
+     * @return the key buffer; must not be modified
+     */
+    public byte[] keyData() {
+        return keyData;
+    }
+
+    /**
+     * Gets the offset of a row's key in {@link #keyData()}.
+     *
+     * @param row the row index
+     * @return the inclusive start offset
+     */
+    public int keyStart(int row) {
+        return keyOffsets[row];
+    }
+
+    /**
+     * Gets the end offset of a row's key in {@link #keyData()}.
+     *
+     * @param row the row index
+     * @return the exclusive end offset
+     */
+    public int keyEnd(int row) {
+        return keyOffsets[row + 1];
+    }
+
+    /**
+     * Decodes the composite key of a row.
+     *
+     * @param row the row index
+     * @return the composite key
+     */
+    public String getKey(int row) {
+        return new String(keyData, keyOffsets[row], keyOffsets[row + 1] - keyOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the buffer holding the UTF-8 encoded values of an output column.
+     *
+     * @param column the output field index
+     * @return the column buffer, or null for metadata fields; must not be modified
+     */
+    public byte[] columnData(int column) {
+        return columnData[column];
+    }
+
+    /**
+     * Gets the offset of a row's value in {@link #columnData(int)}.
+     *
+     * @param column the output field index of a non-metadata field
+     * @param row the row index
+     * @return the inclusive start offset
+     */
+    public int valueStart(int column, int row) {
+        return columnOffsets[column][row];
+    }
+
+    /**
+     * Gets the end offset of a row's value in {@link #columnData(int)}.
+     *
+     * @param column the output field index of a non-metadata field
+     * @param row the row index
+     * @return the exclusive end offset
+     */
+    public int valueEnd(int column, int row) {
+        return columnOffsets[column][row + 1];
+    }
+
+    /**
+     * Decodes the value of an output field for a row, metadata fields included.
+     *
+     * @param column the output field index
+     * @param row the row index
+     * @return the field value, never null
+     */
+    public String getValue(int column, int row) {
+        int slot = schema.getOutputSlot(column);
+        if (slot == RowSchema.SOURCE_FILENAME_SLOT) {
+            return sourceFilename;
+        }
+        if (slot == RowSchema.IMPORTED_SLOT) {
+            return importTimestamp;
+        }
+        int start = columnOffsets[column][row];
+        return new String(columnData[column], start, columnOffsets[column][row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ensureCapacity(byte[] data, int required) {
+        if (required <= data.length) {
+            return data;
+        }
+        return Arrays.copyOf(data, Math.max(required, data.length * 2));
+    }
+
+    private static boolean isBlank(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b < 0) {
+                return new String(data, start, end - start, StandardCharsets.UTF_8).isBlank();
+            }
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
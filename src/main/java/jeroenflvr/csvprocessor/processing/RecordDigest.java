@@ -0,0 +1,114 @@
+package jeroenflvr.csvprocessor.processing;
+
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-bit content digests of serialized records that ignore the per-file metadata.
+ *
+ * <p>Every record carries the {@value RowSchema#INPUT_FILENAME_FIELD} and
+ * {@value RowSchema#IMPORTED_FIELD} metadata fields, and the import
+ * timestamp differs on every delivery of a file. Comparing whole records
+ * therefore reports every row of a re-delivered file as changed. The
+ * digests computed here cover the business columns only, so two records
+ * have the same digest exactly when their business columns are the same,
+ * barring hash collisions.
+ *
+ * <p>The digest is the xxHash64 of the business part of the record:
+ * <ul>
+ *   <li>for a {@link BinaryRecordWriter binary} record, its length-prefixed business section</li>
+ *   <li>for a {@link JsonRecordWriter JSON} record, everything before the metadata
+ *       members, which the {@link RowSchema} places after the columns</li>
+ * </ul>
+ * A column that is itself named like a metadata field keeps its earlier
+ * position in a JSON record; a record with such a column is digested up
+ * to that column only.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see RowSchema
+ */
+public final class RecordDigest {
+
+    private static final XXHash64 HASH = XXHashFactory.fastestInstance().hash64();
+    private static final long SEED = 0;
+    private static final byte[] METADATA_MEMBER =
+            (",\"" + RowSchema.INPUT_FILENAME_FIELD + "\":").getBytes(StandardCharsets.UTF_8);
+
+    private RecordDigest() {
+    }
+
+    /**
+     * Computes the digest of the business columns of a JSON record.
+     *
+     * <p>Quotes inside JSON strings are escaped, so the last unescaped
+     * {@code ,"input_filename":} marks the start of the metadata members.
+     * A record without metadata is digested as a whole.
+     *
+     * @param record the UTF-8 encoded JSON object (must not be null)
+     * @return the 64-bit digest
+     */
+    public static long ofJson(byte[] record) {
+        return of(record, 0, metadataStart(record));
+    }
+
+    /**
+     * Computes the digest of the business columns of a JSON record.
+     *
+     * @param record the JSON object (must not be null)
+     * @return the 64-bit digest
+     * @see #ofJson(byte[])
+     */
+    public static long ofJson(String record) {
+        return ofJson(record.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the digest of the business section of a binary record.
+     *
+     * @param record a record written by a {@link BinaryRecordWriter} (must not be null)
+     * @return the 64-bit digest
+     * @throws IllegalArgumentException if the record is truncated
+     */
+    public static long ofBinary(byte[] record) {
+        int length = record.length >= BinaryRecordWriter.BUSINESS_SECTION_OFFSET
+                ? BinaryRecordReader.businessLength(record) : -1;
+        if (length < 0 || record.length < BinaryRecordWriter.BUSINESS_SECTION_OFFSET + length) {
+            throw new IllegalArgumentException("Truncated record: " + record.length + " bytes");
+        }
+        return of(record, BinaryRecordWriter.BUSINESS_SECTION_OFFSET, length);
+    }
+
+    /**
+     * Computes the digest of a range of bytes.
+     *
+     * @param data the bytes to digest (must not be null)
+     * @param offset the start of the range
+     * @param length the length of the range
+     * @return the 64-bit digest
+     */
+    public static long of(byte[] data, int offset, int length) {
+        return HASH.hash(data, offset, length, SEED);
+    }
+
+    private static int metadataStart(byte[] record) {
+        for (int i = record.length - METADATA_MEMBER.length; i >= 0; i--) {
+            if (startsWithMetadata(record, i)) {
+                return i;
+            }
+        }
+        return record.length;
+    }
+
+    private static boolean startsWithMetadata(byte[] record, int offset) {
+        for (int j = 0; j < METADATA_MEMBER.length; j++) {
+            if (record[offset + j] != METADATA_MEMBER[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package jeroenflvr.csvprocessor.processing;
+
+/**
+ * Serializes rows of a {@link RecordBatch} into a reusable byte buffer.
+ *
+ * <p>Implementations are bound to one {@link RowSchema} and write one row
+ * at a time; the result is only valid until the next call to
+ * {@link #write(RecordBatch, int)}. Implementations are not thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see JsonRecordWriter
+ * @see BinaryRecordWriter
+ */
+public interface RecordWriter {
+
+    /**
+     * Serializes one row of a batch into the internal buffer.
+     *
+     * @param batch a batch of this writer's schema (must not be null)
+     * @param row the row index within the batch
+     * @return the number of bytes written, available through {@link #buffer()}
+     */
+    int write(RecordBatch batch, int row);
+
+    /**
+     * Gets the buffer holding the last serialized row.
+     *
+     * @return the output buffer; only valid until the next {@link #write(RecordBatch, int)}
+     */
+    byte[] buffer();
+
+    /**
+     * Gets the length of the last serialized row.
+     *
+     * @return the number of valid bytes in {@link #buffer()}
+     */
+    int size();
+
+    /**
+     * Copies the last serialized row.
+     *
+     * @return a new array holding the serialized row
+     */
+    byte[] toByteArray();
+}
@@ -0,0 +1,320 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.model.ColumnType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row processing plan compiled once from a CSV header line.
+ *
+ * <p>All per-file decisions of the row loop are made up front: which columns
+ * form the composite key, which columns are copied into the record and in
+ * which order, and under which names. The row loop then only walks primitive
+ * index arrays instead of searching header lists, boxing indices or
+ * re-checking key column names for every field of every row.
+ *
+ * <p>The output layout reproduces the ordering rules of a
+ * {@link LinkedHashMap} filled column by column and followed by the
+ * {@value #INPUT_FILENAME_FIELD} and {@value #IMPORTED_FIELD} metadata
+ * fields: a duplicated column name keeps the position of its first occurrence
+ * and the value of its last one. Metadata fields are represented by the
+ * negative slots {@link #SOURCE_FILENAME_SLOT} and {@link #IMPORTED_SLOT}.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CsvProcessor
+ */
+public final class RowSchema {
+
+    /**
+     * Name of the metadata field holding the source file path.
+     */
+    public static final String INPUT_FILENAME_FIELD = "input_filename";
+
+    /**
+     * Name of the metadata field holding the import timestamp.
+     */
+    public static final String IMPORTED_FIELD = "imported";
+
+    /**
+     * Output slot that is filled with the source file path instead of a column value.
+     */
+    public static final int SOURCE_FILENAME_SLOT = -1;
+
+    /**
+     * Output slot that is filled with the import timestamp instead of a column value.
+     */
+    public static final int IMPORTED_SLOT = -2;
+
+    private static final int KEY_BUILDER_CAPACITY_PER_COLUMN = 16;
+
+    private final List<String> headers;
+    private final int[] keyIndices;
+    private final String[] outputNames;
+    private final byte[][] encodedOutputNames;
+    private final int[] outputSlots;
+    private final ColumnType[] outputTypes;
+    private final int minFieldCount;
+    private final int requiredFieldCount;
+
+    private RowSchema(List<String> headers, int[] keyIndices, String[] outputNames,
+                      int[] outputSlots, ColumnType[] outputTypes, int minFieldCount) {
+        this.headers = headers;
+        this.keyIndices = keyIndices;
+        this.outputNames = outputNames;
+        this.outputSlots = outputSlots;
+        this.outputTypes = outputTypes;
+        this.minFieldCount = minFieldCount;
+        int required = minFieldCount;
+        for (int index : keyIndices) {
+            required = Math.max(required, index + 1);
+        }
+        for (int slot : outputSlots) {
+            required = Math.max(required, slot + 1);
+        }
+        this.requiredFieldCount = required;
+        this.encodedOutputNames = new byte[outputNames.length][];
+        for (int i = 0; i < outputNames.length; i++) {
+            encodedOutputNames[i] = outputNames[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Compiles the processing plan for a header, projecting every column.
+     *
+     * <p>Key columns are located by their first occurrence in the header; key
+     * names that do not occur are ignored. Every other non-blank column is
+     * part of the output, followed by the metadata fields.
+     *
+     * @param headers the cleaned column names of the file (must not be null)
+     * @param keyHeaders the names of the columns forming the composite key, in key order
+     * @param minFieldCount the minimum number of fields a row needs to be processed
+     * @return the compiled schema
+     */
+    public static RowSchema compile(List<String> headers, String[] keyHeaders, int minFieldCount) {
+        return compile(headers, Arrays.asList(keyHeaders), List.of(), minFieldCount);
+    }
+
+    /**
+     * Compiles the processing plan for a header with an optional column projection.
+     *
+     * <p>Key columns are located by their first occurrence in the header; key
+     * names that do not occur are ignored. With an empty projection every
+     * other non-blank column is part of the output. Otherwise the output holds
+     * exactly the projected columns in projection order, taking the value of
+     * the last column of that name; projected names that do not occur are
+     * ignored. The metadata fields always follow.
+     *
+     * @param headers the cleaned column names of the file (must not be null)
+     * @param keyHeaders the names of the columns forming the composite key, in key order
+     * @param outputColumns the names of the columns to project, or an empty list for all
+     * @param minFieldCount the minimum number of fields a row needs to be processed
+     * @return the compiled schema
+     */
+    public static RowSchema compile(List<String> headers, List<String> keyHeaders,
+                                    List<String> outputColumns, int minFieldCount) {
+        return compile(headers, keyHeaders, outputColumns, Map.of(), minFieldCount);
+    }
+
+    /**
+     * Compiles the processing plan for a header with a column projection and column types.
+     *
+     * <p>Columns follow the rules of
+     * {@link #compile(List, List, List, int)}; output columns without an
+     * entry in {@code columnTypes} and the metadata fields are strings.
+     *
+     * @param headers the cleaned column names of the file (must not be null)
+     * @param keyHeaders the names of the columns forming the composite key, in key order
+     * @param outputColumns the names of the columns to project, or an empty list for all
+     * @param columnTypes the value types of columns by name
+     * @param minFieldCount the minimum number of fields a row needs to be processed
+     * @return the compiled schema
+     */
+    public static RowSchema compile(List<String> headers, List<String> keyHeaders, List<String> outputColumns,
+                                    Map<String, ColumnType> columnTypes, int minFieldCount) {
+        int[] keyIndices = new int[keyHeaders.size()];
+        int keyCount = 0;
+        for (String keyHeader : keyHeaders) {
+            int index = headers.indexOf(keyHeader);
+            if (index >= 0) {
+                keyIndices[keyCount++] = index;
+            }
+        }
+
+        Map<String, Integer> layout = new LinkedHashMap<>();
+        if (outputColumns.isEmpty()) {
+            for (int i = 0; i < headers.size(); i++) {
+                String header = headers.get(i);
+                if (header == null || header.isBlank() || keyHeaders.contains(header)) {
+                    continue;
+                }
+                layout.put(header, i);
+            }
+        } else {
+            for (String column : outputColumns) {
+                int index = headers.lastIndexOf(column);
+                if (index >= 0) {
+                    layout.put(column, index);
+                }
+            }
+        }
+        layout.put(INPUT_FILENAME_FIELD, SOURCE_FILENAME_SLOT);
+        layout.put(IMPORTED_FIELD, IMPORTED_SLOT);
+
+        String[] outputNames = layout.keySet().toArray(new String[0]);
+        int[] outputSlots = layout.values().stream().mapToInt(Integer::intValue).toArray();
+        ColumnType[] outputTypes = new ColumnType[outputNames.length];
+        for (int i = 0; i < outputNames.length; i++) {
+            outputTypes[i] = outputSlots[i] >= 0
+                    ? columnTypes.getOrDefault(outputNames[i], ColumnType.STRING)
+                    : ColumnType.STRING;
+        }
+        return new RowSchema(List.copyOf(headers), Arrays.copyOf(keyIndices, keyCount),
+                outputNames, outputSlots, outputTypes, minFieldCount);
+    }
+
+    /**
+     * Gets the column names of the file this schema was compiled from.
+     *
+     * @return the immutable list of column names
+     */
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets the minimum number of fields a row needs to be processed.
+     *
+     * @return the minimum field count
+     */
+    public int getMinFieldCount() {
+        return minFieldCount;
+    }
+
+    /**
+     * Gets the number of leading fields of a row that this schema reads.
+     *
+     * <p>Covers the key columns, the projected columns and the minimum field
+     * count. Fields beyond it never influence a record, so tokenizers may
+     * skip them without recording their boundaries.
+     *
+     * @return the number of fields needed per row
+     * @see CsvTokenizer#setFieldLimit(int)
+     */
+    public int getRequiredFieldCount() {
+        return requiredFieldCount;
+    }
+
+    /**
+     * Gets the number of columns forming the composite key.
+     *
+     * @return the key column count
+     */
+    public int getKeyCount() {
+        return keyIndices.length;
+    }
+
+    /**
+     * Gets the column index of a composite key part.
+     *
+     * @param index the position within the composite key
+     * @return the column index in the row
+     */
+    public int getKeyIndex(int index) {
+        return keyIndices[index];
+    }
+
+    /**
+     * Gets the number of fields in a record produced by this schema, metadata included.
+     *
+     * @return the output field count
+     */
+    public int getOutputCount() {
+        return outputSlots.length;
+    }
+
+    /**
+     * Gets the name of an output field.
+     *
+     * @param index the output field index
+     * @return the field name
+     */
+    public String getOutputName(int index) {
+        return outputNames[index];
+    }
+
+    /**
+     * Gets the UTF-8 encoded name of an output field, for serializers writing bytes directly.
+     *
+     * @param index the output field index
+     * @return the encoded field name; must not be modified
+     */
+    public byte[] getEncodedOutputName(int index) {
+        return encodedOutputNames[index];
+    }
+
+    /**
+     * Gets the source of an output field.
+     *
+     * @param index the output field index
+     * @return the column index, or {@link #SOURCE_FILENAME_SLOT} / {@link #IMPORTED_SLOT}
+     */
+    public int getOutputSlot(int index) {
+        return outputSlots[index];
+    }
+
+    /**
+     * Gets the value type of an output field.
+     *
+     * @param index the output field index
+     * @return the column type; metadata fields are strings
+     */
+    public ColumnType getOutputType(int index) {
+        return outputTypes[index];
+    }
+
+    /**
+     * Creates a StringBuilder sized for the composite keys of this schema.
+     *
+     * <p>Callers keep one builder per row loop and pass it to
+     * {@link #buildKey(CsvTokenizer, StringBuilder)} for every row.
+     *
+     * @return a new, empty key builder
+     */
+    public StringBuilder newKeyBuilder() {
+        return new StringBuilder(Math.max(1, keyIndices.length) * KEY_BUILDER_CAPACITY_PER_COLUMN);
+    }
+
+    /**
+     * Builds the composite key of the current row.
+     *
+     * <p>Key column values are joined with underscores; key columns missing
+     * from a short row are skipped.
+     *
+     * @param row the tokenizer positioned on the row
+     * @param builder a reusable builder from {@link #newKeyBuilder()}; its content is replaced
+     * @return the composite key, possibly blank
+     */
+    public String buildKey(CsvTokenizer row, StringBuilder builder) {
+        builder.setLength(0);
+        int fieldCount = row.fieldCount();
+        boolean first = true;
+        for (int index : keyIndices) {
+            if (index < fieldCount) {
+                if (!first) {
+                    builder.append('_');
+                }
+                row.appendField(index, builder);
+                first = false;
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -9,7 +9,15 @@
  * <p>Key classes:
  * <ul>
  *   <li>{@link jeroenflvr.csvprocessor.processing.CsvProcessor} - Core CSV parsing and transformation logic</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.CsvTokenizer} - Allocation-free byte-level field tokenizer</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.RecordBatch} - Columnar container for batches of parsed rows</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.JsonRecordWriter} - Direct JSON serialization of batch rows</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.BinaryRecordWriter} - Compact typed binary serialization of batch rows</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.BinaryRecordReader} - Decoding of binary records</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.EnvelopeWriter} - Packing of many records into one envelope message</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.EnvelopeReader} - Unpacking of envelopes for consumers</li>
  *   <li>{@link jeroenflvr.csvprocessor.processing.FileProcessingService} - High-level file processing orchestration</li>
+ *   <li>{@link jeroenflvr.csvprocessor.processing.ProcessedObjectLedger} - Record of processed objects and checkpoints, used to skip repeats and resume</li>
  * </ul>
  * 
  * <p>Processing capabilities:
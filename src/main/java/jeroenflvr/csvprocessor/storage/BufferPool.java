@@ -0,0 +1,65 @@
+package jeroenflvr.csvprocessor.storage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of equally sized heap byte buffers.
+ *
+ * <p>Read-ahead buffers are large and short-lived, so they are reused
+ * across downloads instead of being allocated for every object. The
+ * buffers are backed by arrays, so an {@link java.io.InputStream} reads
+ * straight into them. The pool keeps every buffer released to it, i.e. as
+ * many as were in use at the same time at the peak.
+ *
+ * <p>Instances are thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ReadAheadInputStream
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param bufferSize the capacity in bytes of the pooled buffers (must be positive)
+     */
+    BufferPool(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Takes a buffer from the pool, allocating a new one if none is free.
+     *
+     * @return a cleared, array-backed buffer owned by the caller until it is released
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * <p>The caller must not use the buffer afterwards.
+     *
+     * @param buffer a buffer obtained from {@link #acquire()}
+     */
+    void release(ByteBuffer buffer) {
+        free.add(buffer);
+    }
+
+    /**
+     * Gets the number of buffers available for reuse.
+     *
+     * @return the free buffer count
+     */
+    int freeCount() {
+        return free.size();
+    }
+}
@@ -0,0 +1,170 @@
+package jeroenflvr.csvprocessor.storage;
+
+import com.github.luben.zstd.ZstdInputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats recognized in input objects.
+ * 
+ * <p>A format is detected, in order of precedence, from the
+ * {@code Content-Encoding} of the object, from the extension of its key,
+ * and finally from the magic bytes at the start of its content. Plain CSV
+ * text can never start with any of the magic numbers, so detection does
+ * not misfire on uncompressed objects.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see S3FileReader#openStream(jeroenflvr.csvprocessor.model.S3Location)
+ */
+public enum CompressionCodec {
+    /**
+     * Uncompressed content.
+     */
+    NONE(new byte[0]) {
+        @Override
+        InputStream decode(InputStream compressed) {
+            return compressed;
+        }
+    },
+    /**
+     * gzip ({@code .gz}), decoded with the JDK inflater.
+     */
+    GZIP(new byte[] {0x1f, (byte) 0x8b}) {
+        @Override
+        InputStream decode(InputStream compressed) throws IOException {
+            return new GZIPInputStream(compressed, 64 * 1024);
+        }
+    },
+    /**
+     * Zstandard ({@code .zst}), decoded with zstd-jni.
+     */
+    ZSTD(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}) {
+        @Override
+        InputStream decode(InputStream compressed) throws IOException {
+            return new ZstdInputStream(compressed);
+        }
+    },
+    /**
+     * The LZ4 frame format ({@code .lz4}), decoded with lz4-java.
+     */
+    LZ4(new byte[] {0x04, 0x22, 0x4d, 0x18}) {
+        @Override
+        InputStream decode(InputStream compressed) throws IOException {
+            return new LZ4FrameInputStream(compressed);
+        }
+    };
+
+    /**
+     * The number of leading content bytes needed by {@link #fromMagic(byte[], int)}.
+     */
+    public static final int MAGIC_LENGTH = 4;
+
+    private final byte[] magic;
+
+    CompressionCodec(byte[] magic) {
+        this.magic = magic;
+    }
+
+    /**
+     * Wraps a compressed stream in a decoder for this format.
+     * 
+     * @param compressed the compressed content
+     * @return a stream of the decompressed content
+     * @throws IOException if the stream header is invalid
+     */
+    abstract InputStream decode(InputStream compressed) throws IOException;
+
+    /**
+     * Detects the format from a {@code Content-Encoding} header.
+     * 
+     * @param contentEncoding the header value (may be null)
+     * @return the format, or null if the header does not name a supported format
+     */
+    public static CompressionCodec fromContentEncoding(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return GZIP;
+            case "zstd":
+                return ZSTD;
+            case "lz4":
+                return LZ4;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Detects the format from the extension of an object key.
+     * 
+     * @param key the object key (must not be null)
+     * @return the format, or null if the extension does not name a supported format
+     */
+    public static CompressionCodec fromExtension(String key) {
+        String lower = key.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz") || lower.endsWith(".gzip")) {
+            return GZIP;
+        }
+        if (lower.endsWith(".zst") || lower.endsWith(".zstd")) {
+            return ZSTD;
+        }
+        if (lower.endsWith(".lz4")) {
+            return LZ4;
+        }
+        return null;
+    }
+
+    /**
+     * Detects the format from the first bytes of the content.
+     * 
+     * @param header the first bytes of the content
+     * @param length the number of valid bytes in {@code header}
+     * @return the format, {@link #NONE} if no magic number matches
+     */
+    public static CompressionCodec fromMagic(byte[] header, int length) {
+        for (CompressionCodec codec : values()) {
+            if (codec.magic.length > 0 && codec.magic.length <= length && startsWith(header, codec.magic)) {
+                return codec;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Detects the format of a local file from its extension or its first bytes.
+     * 
+     * @param file the file to inspect (must not be null)
+     * @return the format, {@link #NONE} for uncompressed files
+     * @throws IOException if the file cannot be read
+     */
+    public static CompressionCodec detect(Path file) throws IOException {
+        CompressionCodec codec = fromExtension(file.getFileName().toString());
+        if (codec != null) {
+            return codec;
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            byte[] header = input.readNBytes(MAGIC_LENGTH);
+            return fromMagic(header, header.length);
+        }
+    }
+
+    private static boolean startsWith(byte[] header, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (header[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+package jeroenflvr.csvprocessor.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * InputStream that decompresses its source on a background thread.
+ * 
+ * <p>A worker reads the compressed source through the codec's decoder and
+ * hands the decompressed content to the reader in chunks through a small
+ * bounded queue. Decompression therefore overlaps with parsing, and the
+ * worker blocks once it is {@value #QUEUE_CAPACITY} chunks ahead of the
+ * reader, which bounds memory per stream.
+ * 
+ * <p>Failures of the source or the decoder are rethrown to the reader.
+ * Closing the stream stops the worker and closes the source. Instances are
+ * not thread-safe for readers.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CompressionCodec
+ */
+final class DecompressingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int QUEUE_CAPACITY = 4;
+
+    /**
+     * Queue entry signalling the end of the content.
+     */
+    private static final Object END = new Object();
+
+    private final InputStream source;
+    private final String description;
+    private final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Future<?> worker;
+    private byte[] current;
+    private int position;
+    private int limit;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Starts decompressing a source on the given executor.
+     * 
+     * @param codec the compression format of the source
+     * @param source the compressed content; closed by this stream
+     * @param executor the executor running the decompression
+     * @param description the source of the data, used in error messages
+     */
+    DecompressingInputStream(CompressionCodec codec, InputStream source, ExecutorService executor,
+                             String description) {
+        this.source = source;
+        this.description = description;
+        this.worker = executor.submit(() -> decompress(codec, source));
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? limit - position : 0;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            current = null;
+            worker.cancel(true);
+            chunks.clear();
+            // The worker may not have started, so it cannot be relied on to close the source
+            try {
+                source.close();
+            } catch (IOException e) {
+                // Nothing more to read from it
+            }
+        }
+    }
+
+    private void decompress(CompressionCodec codec, InputStream source) {
+        try (InputStream compressed = source; InputStream decoded = codec.decode(compressed)) {
+            while (true) {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int n = decoded.readNBytes(chunk, 0, CHUNK_SIZE);
+                if (n > 0) {
+                    chunks.put(new Chunk(chunk, n));
+                }
+                if (n < CHUNK_SIZE) {
+                    break;
+                }
+            }
+            chunks.put(END);
+        } catch (InterruptedException | InterruptedIOException e) {
+            // Closed by the reader
+        } catch (Throwable t) {
+            try {
+                chunks.put(t);
+            } catch (InterruptedException e) {
+                // Closed by the reader
+            }
+        }
+    }
+
+    /**
+     * Makes the next unread byte available in {@code current}, waiting for the worker if needed.
+     * 
+     * @return false at the end of the content
+     */
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || position >= limit) {
+            if (finished) {
+                return false;
+            }
+            Object next;
+            try {
+                next = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new InterruptedIOException("Interrupted while decompressing " + description);
+            }
+            if (next == END) {
+                finished = true;
+                current = null;
+            } else if (next instanceof Throwable failure) {
+                finished = true;
+                current = null;
+                throw new IOException("Failed to decompress " + description + ": " + failure.getMessage(), failure);
+            } else {
+                Chunk chunk = (Chunk) next;
+                current = chunk.data;
+                position = 0;
+                limit = chunk.length;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A filled prefix of a buffer.
+     */
+    private static final class Chunk {
+        final byte[] data;
+        final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package jeroenflvr.csvprocessor.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jeroenflvr.csvprocessor.model.S3Location;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size-bounded local disk cache of downloaded S3 objects.
+ *
+ * <p>Each object is stored as one file named after a hash of its bucket and
+ * key plus its ETag, so at most one version per object is kept and the
+ * cached ETag can be sent in an {@code If-None-Match} request to validate
+ * the copy. Objects are written to the cache while they are being read for
+ * processing: a copy is only kept once the whole object has been read.
+ *
+ * <p>The least recently used objects are evicted once the total size
+ * exceeds the limit. Recency survives restarts through the files'
+ * modification times, which are refreshed on every hit. Cached objects are
+ * read through a {@link FileChannel}.
+ *
+ * <p>Instances are thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see S3FileReader
+ */
+public class ObjectCache {
+    private static final Logger log = LoggerFactory.getLogger(ObjectCache.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Opens the cache in the given directory, picking up objects cached by earlier runs.
+     *
+     * @param directory the cache directory; created if it does not exist (must not be null)
+     * @param maxBytes the maximum total size of the cached objects in bytes
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ObjectCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * Gets the ETag of the cached copy of an object.
+     *
+     * @param location the object location (must not be null)
+     * @return the ETag of the cached version, or null if the object is not cached
+     */
+    public synchronized String cachedETag(S3Location location) {
+        Entry entry = entries.get(keyHash(location));
+        return entry != null ? entry.eTag : null;
+    }
+
+    /**
+     * Opens the cached copy of an object.
+     *
+     * <p>Marks the object as recently used.
+     *
+     * @param location the object location (must not be null)
+     * @param eTag the expected ETag (must not be null)
+     * @return a stream over the cached content, or null if that version is no longer cached
+     */
+    public InputStream open(S3Location location, String eTag) {
+        Path file;
+        synchronized (this) {
+            Entry entry = entries.get(keyHash(location));
+            if (entry == null || !entry.eTag.equals(eTag)) {
+                return null;
+            }
+            hits++;
+            file = entry.file;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+        } catch (IOException e) {
+            log.warn("Failed to open cached copy of {}: {}", location, e.getMessage());
+            remove(keyHash(location), file);
+            return null;
+        }
+    }
+
+    /**
+     * Wraps a download so that its content is cached once it has been read completely.
+     *
+     * <p>Content is written to a temporary file as it is read and only becomes
+     * part of the cache when the end of the stream is reached with the
+     * expected length. Closing the stream earlier discards the copy. Failures
+     * to write the copy are logged and never affect the returned data.
+     *
+     * @param location the object location (must not be null)
+     * @param eTag the ETag of the downloaded version, or null if unknown
+     * @param contentLength the size of the object in bytes, or -1 if unknown
+     * @param source the downloaded content (must not be null)
+     * @return a stream delivering exactly the bytes of {@code source}
+     */
+    public InputStream cacheWhileReading(S3Location location, String eTag, long contentLength, InputStream source) {
+        synchronized (this) {
+            misses++;
+        }
+        if (eTag == null || contentLength > maxBytes) {
+            return source;
+        }
+        try {
+            Path temp = Files.createTempFile(directory, "download-", TEMP_SUFFIX);
+            return new CachingInputStream(source, location, eTag, contentLength, temp);
+        } catch (IOException e) {
+            log.warn("Not caching {}: {}", location, e.getMessage());
+            return source;
+        }
+    }
+
+    /**
+     * Gets the total size of the cached objects.
+     *
+     * @return the cache size in bytes
+     */
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Gets the number of cached objects.
+     *
+     * @return the entry count
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of reads served from the cache.
+     *
+     * @return the hit count since this cache was opened
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of reads that had to download the object.
+     *
+     * @return the miss count since this cache was opened
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private synchronized void commit(S3Location location, String eTag, Path temp, long size) throws IOException {
+        String keyHash = keyHash(location);
+        Path file = directory.resolve(fileName(keyHash, eTag));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Entry previous = entries.put(keyHash, new Entry(eTag, file, size));
+        totalBytes += size;
+        if (previous != null) {
+            totalBytes -= previous.size;
+            if (!previous.file.equals(file)) {
+                deleteQuietly(previous.file);
+            }
+        }
+        evict();
+        log.debug("Cached {} ({} bytes, ETag {})", location, size, eTag);
+    }
+
+    private synchronized void remove(String keyHash, Path file) {
+        Entry entry = entries.get(keyHash);
+        if (entry != null && entry.file.equals(file)) {
+            entries.remove(keyHash);
+            totalBytes -= entry.size;
+        }
+        deleteQuietly(file);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            totalBytes -= entry.size;
+            // Readers that still have the file open keep reading it
+            deleteQuietly(entry.file);
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparing(ObjectCache::lastModified));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int separator = name.indexOf('.');
+            if (name.endsWith(TEMP_SUFFIX) || separator <= 0) {
+                // Left over from an interrupted download
+                deleteQuietly(file);
+                continue;
+            }
+            String eTag;
+            try {
+                eTag = new String(Base64.getUrlDecoder().decode(name.substring(separator + 1)), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                deleteQuietly(file);
+                continue;
+            }
+            long size = Files.size(file);
+            entries.put(name.substring(0, separator), new Entry(eTag, file, size));
+            totalBytes += size;
+        }
+        evict();
+        log.info("Object cache {} holds {} objects ({} bytes)", directory, entries.size(), totalBytes);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String fileName(String keyHash, String eTag) {
+        return keyHash + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(eTag.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String keyHash(S3Location location) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((location.getBucket() + "/" + location.getKey())
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * A cached object version.
+     */
+    private static final class Entry {
+        final String eTag;
+        final Path file;
+        final long size;
+
+        Entry(String eTag, Path file, long size) {
+            this.eTag = eTag;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Copies everything read from a download into a temporary cache file.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final S3Location location;
+        private final String eTag;
+        private final long contentLength;
+        private final Path temp;
+        private FileChannel channel;
+        private long written;
+
+        CachingInputStream(InputStream source, S3Location location, String eTag, long contentLength,
+                           Path temp) throws IOException {
+            super(source);
+            this.location = location;
+            this.eTag = eTag;
+            this.contentLength = contentLength;
+            this.temp = temp;
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                complete();
+            } else {
+                copy(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                complete();
+            } else {
+                copy(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the copy
+            abort();
+            return in.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            abort();
+            super.close();
+        }
+
+        private void copy(byte[] b, int off, int len) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                written += len;
+                if (written > maxBytes) {
+                    abort();
+                }
+            } catch (IOException e) {
+                log.warn("Not caching {}: {}", location, e.getMessage());
+                abort();
+            }
+        }
+
+        private void complete() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+                channel = null;
+                if (contentLength >= 0 && written != contentLength) {
+                    log.warn("Not caching {}: read {} of {} bytes", location, written, contentLength);
+                    deleteQuietly(temp);
+                } else {
+                    commit(location, eTag, temp, written);
+                }
+            } catch (IOException e) {
+                log.warn("Not caching {}: {}", location, e.getMessage());
+                deleteQuietly(temp);
+            }
+        }
+
+        private void abort() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The temporary file is deleted anyway
+            }
+            channel = null;
+            deleteQuietly(temp);
+        }
+    }
+}
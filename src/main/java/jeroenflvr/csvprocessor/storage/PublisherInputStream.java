@@ -0,0 +1,156 @@
+package jeroenflvr.csvprocessor.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking InputStream view of a {@link Flow.Publisher} of byte buffers.
+ *
+ * <p>The stream subscribes with an initial demand of {@code prefetch}
+ * buffers and requests one more buffer each time the reader has fully
+ * consumed one. The publisher therefore never runs more than
+ * {@code prefetch} buffers ahead of the reader: with the asynchronous S3
+ * client, the HTTP connection simply stops being read while the parser is
+ * busy, instead of a thread being parked in a socket read per download.
+ *
+ * <p>Closing the stream cancels the subscription. Instances are not
+ * thread-safe for readers; publisher signals may arrive on any thread.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see S3AsyncFileReader
+ */
+final class PublisherInputStream extends InputStream implements Flow.Subscriber<ByteBuffer> {
+
+    /**
+     * Queue entry signalling the end of the stream.
+     */
+    private static final Object COMPLETE = new Object();
+
+    private final int prefetch;
+    private final String description;
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean closed;
+    private ByteBuffer current;
+    private boolean finished;
+
+    /**
+     * Creates a stream that still has to be subscribed to a publisher.
+     *
+     * @param prefetch the number of buffers requested ahead of the reader (must be positive)
+     * @param description the source of the data, used in error messages
+     */
+    PublisherInputStream(int prefetch, String description) {
+        this.prefetch = prefetch;
+        this.description = description;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null || closed) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        signals.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        signals.add(COMPLETE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.remaining() : 0;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            current = null;
+            Flow.Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+            signals.clear();
+        }
+    }
+
+    /**
+     * Makes the next unread byte available in {@code current}, waiting for the publisher if needed.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (finished) {
+                return false;
+            }
+            if (current != null) {
+                // The consumed buffer is replaced by a new one
+                current = null;
+                subscription.request(1);
+            }
+            Object signal;
+            try {
+                signal = signals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new InterruptedIOException("Interrupted while reading " + description);
+            }
+            if (signal == COMPLETE) {
+                finished = true;
+            } else if (signal instanceof Throwable failure) {
+                finished = true;
+                throw new IOException("Failed to read " + description + ": " + failure.getMessage(), failure);
+            } else {
+                current = (ByteBuffer) signal;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,193 @@
+package jeroenflvr.csvprocessor.storage;
+
+import jeroenflvr.csvprocessor.model.S3Location;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * InputStream over an S3 object that is downloaded as concurrent byte ranges.
+ *
+ * <p>The object is split into consecutive parts of a fixed size. Up to
+ * {@code concurrency} parts are fetched at the same time with ranged GET
+ * requests, each on its own connection, while the reader consumes the
+ * oldest one; parts are handed out strictly in offset order. A new part is
+ * only requested once the reader has moved on, so memory stays bounded by
+ * {@code (concurrency + 1) * partSize} regardless of the object size.
+ *
+ * <p>Every part request carries the ETag seen by the initial HEAD request in
+ * an {@code If-Match} header, so a concurrent overwrite of the object fails
+ * the download instead of mixing two versions.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see S3FileReader#openStream(S3Location)
+ */
+final class RangedObjectInputStream extends InputStream {
+
+    private final S3Client s3Client;
+    private final S3Location location;
+    private final String eTag;
+    private final long size;
+    private final long partSize;
+    private final int concurrency;
+    private final Executor executor;
+    private final ArrayDeque<CompletableFuture<byte[]>> parts = new ArrayDeque<>();
+    private long nextOffset;
+    private byte[] current;
+    private int position;
+    private boolean closed;
+
+    /**
+     * Starts downloading the first parts of an object.
+     *
+     * @param s3Client the client issuing the ranged requests
+     * @param location the object to download
+     * @param eTag the ETag of the object version to download, or null to accept any version
+     * @param size the size of the object in bytes
+     * @param partSize the size of a part in bytes
+     * @param concurrency the maximum number of parts being downloaded at the same time
+     * @param executor the executor running the part downloads
+     */
+    RangedObjectInputStream(S3Client s3Client, S3Location location, String eTag, long size,
+                            long partSize, int concurrency, Executor executor) {
+        this(s3Client, location, eTag, 0, size, partSize, concurrency, executor);
+    }
+
+    /**
+     * Starts downloading the first parts of an object from a byte offset on.
+     *
+     * @param s3Client the client issuing the ranged requests
+     * @param location the object to download
+     * @param eTag the ETag of the object version to download, or null to accept any version
+     * @param start the offset of the first byte to download
+     * @param size the size of the object in bytes
+     * @param partSize the size of a part in bytes
+     * @param concurrency the maximum number of parts being downloaded at the same time
+     * @param executor the executor running the part downloads
+     */
+    RangedObjectInputStream(S3Client s3Client, S3Location location, String eTag, long start, long size,
+                            long partSize, int concurrency, Executor executor) {
+        this.s3Client = s3Client;
+        this.location = location;
+        this.eTag = eTag;
+        this.size = size;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.executor = executor;
+        this.nextOffset = start;
+        requestParts();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.length - position : 0;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            current = null;
+            for (CompletableFuture<byte[]> part : parts) {
+                part.cancel(false);
+            }
+            parts.clear();
+        }
+    }
+
+    /**
+     * Makes the next unread byte available in {@code current}, waiting for its part if needed.
+     *
+     * @return false at the end of the object
+     */
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || position >= current.length) {
+            CompletableFuture<byte[]> part = parts.poll();
+            if (part == null) {
+                current = null;
+                return false;
+            }
+            current = await(part);
+            position = 0;
+            // Replace the consumed part while the reader works on it
+            requestParts();
+        }
+        return true;
+    }
+
+    private void requestParts() {
+        while (parts.size() < concurrency && nextOffset < size) {
+            long first = nextOffset;
+            long last = Math.min(size, first + partSize) - 1;
+            parts.add(CompletableFuture.supplyAsync(() -> fetch(first, last), executor));
+            nextOffset = last + 1;
+        }
+    }
+
+    private byte[] fetch(long first, long last) {
+        GetObjectRequest.Builder request = GetObjectRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .range("bytes=" + first + "-" + last);
+        if (eTag != null) {
+            request.ifMatch(eTag);
+        }
+        byte[] bytes = s3Client.getObjectAsBytes(request.build()).asByteArray();
+        if (bytes.length != last - first + 1) {
+            throw new IllegalStateException("Expected " + (last - first + 1) + " bytes for range "
+                    + first + "-" + last + " but received " + bytes.length);
+        }
+        return bytes;
+    }
+
+    private byte[] await(CompletableFuture<byte[]> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new InterruptedIOException("Interrupted while downloading " + location);
+        } catch (ExecutionException | CancellationException e) {
+            close();
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new IOException("Failed to download part of " + location + ": " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package jeroenflvr.csvprocessor.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * InputStream that reads its source ahead of the reader on a fetch thread.
+ *
+ * <p>The stream owns a ring of buffers taken from a {@link BufferPool}. A worker fills a free buffer from the source,
+ * hands it to the reader and moves on to the next free one; the reader
+ * hands each buffer back once it has consumed it. With two or more buffers,
+ * the network read of the next buffer therefore overlaps with the parsing
+ * of the current one, and the worker blocks once every buffer is filled,
+ * which bounds memory per stream.
+ *
+ * <p>Failures of the source are rethrown to the reader. Closing the stream
+ * stops the worker, closes the source and returns the buffers to the pool;
+ * a buffer the worker hands over after the queues were drained is returned
+ * by the worker itself.
+ * Instances are not thread-safe for readers.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see S3FileReader#openStream(jeroenflvr.csvprocessor.model.S3Location)
+ */
+final class ReadAheadInputStream extends InputStream {
+
+    /**
+     * Queue entry signalling the end of the source.
+     */
+    private static final Object END = new Object();
+
+    private final InputStream source;
+    private final String description;
+    private final BufferPool pool;
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<Object> filled;
+    private final Future<?> worker;
+    private ByteBuffer current;
+    private boolean finished;
+    private volatile boolean closed;
+
+    /**
+     * Starts reading a source ahead on the given executor.
+     *
+     * @param source the content to read; closed by this stream
+     * @param pool the pool providing the buffers
+     * @param bufferCount the number of buffers in the ring (must be positive)
+     * @param executor the executor running the fetch thread
+     * @param description the source of the data, used in error messages
+     */
+    ReadAheadInputStream(InputStream source, BufferPool pool, int bufferCount, ExecutorService executor,
+                         String description) {
+        this.source = source;
+        this.description = description;
+        this.pool = pool;
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        // One more slot than buffers, so the end marker never blocks the worker
+        this.filled = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(pool.acquire());
+        }
+        this.worker = executor.submit(this::fetch);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.remaining() : 0;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            // Set before draining, so the worker returns what it hands over afterwards
+            closed = true;
+            worker.cancel(true);
+            List<Object> buffers = new ArrayList<>();
+            free.drainTo(buffers);
+            filled.drainTo(buffers);
+            if (current != null) {
+                buffers.add(current);
+                current = null;
+            }
+            for (Object buffer : buffers) {
+                if (buffer instanceof ByteBuffer byteBuffer) {
+                    pool.release(byteBuffer);
+                }
+            }
+            try {
+                source.close();
+            } catch (IOException e) {
+                // Nothing more to read from it
+            }
+        }
+    }
+
+    private void fetch() {
+        ByteBuffer buffer = null;
+        try {
+            // Reads that ignore the interrupt of close() end the loop here
+            while (!closed) {
+                buffer = free.take();
+                // Fill the whole buffer, so the reader is woken up once per buffer
+                int n;
+                do {
+                    n = source.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    if (n > 0) {
+                        buffer.position(buffer.position() + n);
+                    }
+                } while (n >= 0 && buffer.hasRemaining());
+                buffer.flip();
+                if (buffer.hasRemaining()) {
+                    handOver(filled, buffer);
+                } else {
+                    handOver(free, buffer);
+                }
+                buffer = null;
+                if (n < 0) {
+                    break;
+                }
+            }
+            filled.put(END);
+        } catch (InterruptedException | InterruptedIOException e) {
+            // Closed by the reader, which has already returned the other buffers
+            if (buffer != null) {
+                pool.release(buffer);
+            }
+        } catch (Throwable t) {
+            // The reader stops at the failure, so the buffer is not needed in the ring again
+            if (buffer != null) {
+                pool.release(buffer);
+            }
+            try {
+                filled.put(t);
+            } catch (InterruptedException e) {
+                // Closed by the reader
+            }
+        }
+    }
+
+    /**
+     * Puts a buffer into one of the queues, returning it to the pool instead if the stream was closed.
+     *
+     * <p>{@link #close()} sets {@code closed} before it drains the queues, so
+     * a buffer put after the drain is seen here and removed again. The queue
+     * lock makes sure exactly one of the two returns it.
+     */
+    private void handOver(BlockingQueue<? super ByteBuffer> queue, ByteBuffer buffer) throws InterruptedException {
+        queue.put(buffer);
+        if (closed && queue.removeIf(entry -> entry == buffer)) {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Makes the next unread byte available in {@code current}, waiting for the worker if needed.
+     *
+     * @return false at the end of the source
+     */
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (finished) {
+                return false;
+            }
+            if (current != null) {
+                // The consumed buffer goes back into the ring
+                free.add(current.clear());
+                current = null;
+            }
+            Object next;
+            try {
+                next = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new InterruptedIOException("Interrupted while reading " + description);
+            }
+            if (next == END) {
+                finished = true;
+            } else if (next instanceof Throwable failure) {
+                finished = true;
+                throw new IOException("Failed to read " + description + ": " + failure.getMessage(), failure);
+            } else {
+                current = (ByteBuffer) next;
+            }
+        }
+        return true;
+    }
+}
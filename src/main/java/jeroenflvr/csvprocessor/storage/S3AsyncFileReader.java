@@ -0,0 +1,114 @@
+package jeroenflvr.csvprocessor.storage;
+
+import org.reactivestreams.FlowAdapters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jeroenflvr.csvprocessor.config.StorageConfig;
+import jeroenflvr.csvprocessor.model.S3Location;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking reader for files in S3 or Cloud Object Storage.
+ *
+ * <p>Objects are fetched with an {@link S3AsyncClient}, typically backed by
+ * the Netty HTTP client, whose small set of event loop threads serves every
+ * open connection. The response body is exposed as a
+ * {@link Flow.Publisher} of byte buffers: the client only reads more of the
+ * body from the connection when the subscriber signals demand, so a slow
+ * consumer applies backpressure all the way to the socket and many
+ * downloads can be in flight without a thread per connection.
+ *
+ * <p>{@link #openStream(S3Location)} bridges the publisher to the blocking
+ * parser with a bounded prefetch of {@link StorageConfig#getAsyncPrefetch()}
+ * buffers.
+ *
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see S3FileReader
+ * @see S3AsyncClient
+ */
+public class S3AsyncFileReader {
+    private static final Logger log = LoggerFactory.getLogger(S3AsyncFileReader.class);
+
+    private final S3AsyncClient s3AsyncClient;
+    private final StorageConfig storageConfig;
+
+    /**
+     * Constructs a new S3AsyncFileReader with the specified client and settings.
+     *
+     * @param s3AsyncClient the asynchronous S3 client to use for file operations (must not be null)
+     * @param storageConfig the settings controlling the prefetch (must not be null)
+     */
+    public S3AsyncFileReader(S3AsyncClient s3AsyncClient, StorageConfig storageConfig) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.storageConfig = storageConfig;
+    }
+
+    /**
+     * Requests an object and publishes its content.
+     *
+     * <p>The returned future completes once the response headers have been
+     * received, or fails if the object cannot be found or accessed. The body
+     * is only transferred as the subscriber requests it. The publisher
+     * supports a single subscriber.
+     *
+     * @param location the S3 location to read from (must not be null)
+     * @return a future of a publisher of the object content
+     */
+    public CompletableFuture<Flow.Publisher<ByteBuffer>> publish(S3Location location) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .build();
+        return s3AsyncClient.getObject(request, AsyncResponseTransformer.toPublisher())
+                .thenApply(FlowAdapters::toFlowPublisher);
+    }
+
+    /**
+     * Opens a raw byte stream for the specified S3 location.
+     *
+     * <p>Waits for the response headers, then returns a stream that pulls
+     * the body from the publisher with a bounded prefetch.
+     *
+     * <p><strong>Resource Management:</strong> The caller is responsible for
+     * closing the returned stream; closing it cancels the download.
+     *
+     * @param location the S3 location to read from (must not be null)
+     * @return an InputStream over the S3 object content
+     * @throws IOException if the S3 object cannot be found, accessed, or read
+     */
+    public InputStream openStream(S3Location location) throws IOException {
+        Flow.Publisher<ByteBuffer> publisher;
+        try {
+            publisher = publish(location).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while opening " + location);
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof NoSuchKeyException) {
+                log.error("S3 key not found: {}", location);
+                throw new IOException("S3 key not found: " + location, cause);
+            }
+            log.error("Failed to read from S3 location: {}", location, cause);
+            throw new IOException("Failed to read from S3: " + location, cause);
+        }
+        PublisherInputStream stream = new PublisherInputStream(storageConfig.getAsyncPrefetch(), location.toString());
+        publisher.subscribe(stream);
+        return stream;
+    }
+}
@@ -2,19 +2,43 @@ package jeroenflvr.csvprocessor.storage;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import jeroenflvr.csvprocessor.config.StorageConfig;
+import jeroenflvr.csvprocessor.config.StorageConfig.DownloadMode;
 import jeroenflvr.csvprocessor.model.S3Location;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Service for reading files from S3 or Cloud Object Storage.
@@ -29,6 +53,11 @@ import java.nio.charset.StandardCharsets;
  *   <li>UTF-8 encoding for text files</li>
  *   <li>Error handling for missing files</li>
  *   <li>Resource management (though callers must close returned readers)</li>
+ *   <li>Optional ranged downloads over several concurrent connections</li>
+ *   <li>Optional non-blocking downloads through an {@link S3AsyncFileReader}</li>
+ *   <li>Optional local {@link ObjectCache} validated with conditional requests</li>
+ *   <li>Streaming decompression of gzip, zstd and lz4 objects</li>
+ *   <li>Read-ahead of single-stream downloads on a fetch thread</li>
  * </ul>
  * 
  * <p><strong>Important:</strong> Callers are responsible for closing the
@@ -46,15 +75,86 @@ public class S3FileReader {
     private static final Logger log = LoggerFactory.getLogger(S3FileReader.class);
     
     private final S3Client s3Client;
+    private final StorageConfig storageConfig;
+    private final ExecutorService downloadExecutor;
+    private final ExecutorService decompressionExecutor = Executors.newCachedThreadPool(daemonThreads("decompress-"));
+    private final S3AsyncFileReader asyncReader;
+    private final ObjectCache objectCache;
+    private final ExecutorService readAheadExecutor;
+    private final BufferPool readAheadBuffers;
 
     /**
      * Constructs a new S3FileReader with the specified S3 client.
      * 
+     * <p>Objects are downloaded with the {@link StorageConfig#defaults() default}
+     * settings, i.e. over a single stream.
+     * 
      * @param s3Client the S3 client to use for file operations (must not be null)
      * @throws NullPointerException if s3Client is null
      */
+    @Autowired
     public S3FileReader(S3Client s3Client) {
+        this(s3Client, StorageConfig.defaults());
+    }
+
+    /**
+     * Constructs a new S3FileReader with the specified S3 client and download settings.
+     * 
+     * @param s3Client the S3 client to use for file operations (must not be null)
+     * @param storageConfig the settings controlling how objects are downloaded (must not be null)
+     * @throws NullPointerException if s3Client is null
+     */
+    public S3FileReader(S3Client s3Client, StorageConfig storageConfig) {
+        this(s3Client, storageConfig, null);
+    }
+
+    /**
+     * Constructs a new S3FileReader that downloads object content through an asynchronous reader.
+     * 
+     * <p>With an asynchronous reader, {@link #openStream(S3Location)} streams
+     * the content with demand-driven backpressure instead of a blocking GET;
+     * the {@link StorageConfig#getDownloadMode() download mode} then does not apply.
+     * 
+     * @param s3Client the S3 client to use for file operations (must not be null)
+     * @param storageConfig the settings controlling how objects are downloaded (must not be null)
+     * @param asyncReader the non-blocking reader for object content, or null to use the blocking client
+     * @throws NullPointerException if s3Client is null
+     */
+    public S3FileReader(S3Client s3Client, StorageConfig storageConfig, S3AsyncFileReader asyncReader) {
+        this(s3Client, storageConfig, asyncReader, openCache(storageConfig));
+    }
+
+    /**
+     * Constructs a new S3FileReader with an explicit object cache.
+     * 
+     * <p>The cache applies to the blocking download modes; with an
+     * asynchronous reader, objects are always streamed from storage.
+     * 
+     * @param s3Client the S3 client to use for file operations (must not be null)
+     * @param storageConfig the settings controlling how objects are downloaded (must not be null)
+     * @param asyncReader the non-blocking reader for object content, or null to use the blocking client
+     * @param objectCache the local cache of downloaded objects, or null to disable caching
+     * @throws NullPointerException if s3Client is null
+     */
+    public S3FileReader(S3Client s3Client, StorageConfig storageConfig, S3AsyncFileReader asyncReader,
+                        ObjectCache objectCache) {
         this.s3Client = s3Client;
+        this.storageConfig = storageConfig;
+        this.asyncReader = asyncReader;
+        this.objectCache = asyncReader == null ? objectCache : null;
+        if (asyncReader != null && objectCache != null) {
+            log.warn("The object cache is not used with the asynchronous S3 client");
+        }
+        this.downloadExecutor = asyncReader == null && storageConfig.getDownloadMode() == DownloadMode.RANGED
+                ? Executors.newCachedThreadPool(daemonThreads("s3-range-download-"))
+                : null;
+        if (asyncReader == null && storageConfig.getReadAheadBuffers() > 0) {
+            this.readAheadExecutor = Executors.newCachedThreadPool(daemonThreads("s3-read-ahead-"));
+            this.readAheadBuffers = new BufferPool(storageConfig.getReadAheadBufferSize());
+        } else {
+            this.readAheadExecutor = null;
+            this.readAheadBuffers = null;
+        }
     }
 
     /**
@@ -85,14 +185,88 @@ public class S3FileReader {
      * </pre>
      */
     public BufferedReader createReader(S3Location location) throws IOException {
+        return new BufferedReader(new InputStreamReader(openStream(location), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens a raw byte stream for the specified S3 location.
+     * 
+     * <p>This is the byte-level counterpart of {@link #createReader(S3Location)}
+     * for consumers that tokenize UTF-8 input themselves and do not need the
+     * content decoded into characters.
+     * 
+     * <p>In the {@link DownloadMode#RANGED ranged} download mode the object size
+     * is read with a HEAD request first. Objects larger than one part are then
+     * fetched as concurrent byte ranges and reassembled in order, so the
+     * returned stream delivers exactly the same bytes as a single GET.
+     * 
+     * <p>With an {@link ObjectCache}, an object that is cached is requested
+     * with its cached ETag in {@code If-None-Match}; if it has not changed the
+     * cached copy is read from local disk, otherwise the new version is
+     * downloaded. Downloads are written to the cache while they are read.
+     * 
+     * <p>A single-stream download is read ahead of the consumer into a ring
+     * of {@link StorageConfig#getReadAheadBuffers() read-ahead buffers} on a
+     * fetch thread, so the next network read overlaps with parsing. Ranged
+     * downloads already fetch their parts ahead and are not read ahead again.
+     * 
+     * <p>Objects compressed with one of the {@link CompressionCodec formats}
+     * are decompressed on the fly, on a separate thread; the format is
+     * detected from the {@code Content-Encoding}, the key's extension or the
+     * content's magic bytes. The object cache holds the compressed content.
+     * 
+     * <p>Local files ({@code file:} locations) are read straight from disk,
+     * bypassing the cache and the download modes.
+     * 
+     * <p><strong>Resource Management:</strong> The caller is responsible for
+     * closing the returned stream.
+     * 
+     * @param location the S3 location to read from (must not be null)
+     * @return an InputStream over the S3 object content
+     * @throws IOException if the S3 object cannot be found, accessed, or read
+     * @throws NullPointerException if location is null
+     */
+    public InputStream openStream(S3Location location) throws IOException {
+        if (location.isLocalFile()) {
+            return decompress(location, null, Channels.newInputStream(
+                    FileChannel.open(location.getLocalPath(), StandardOpenOption.READ)));
+        }
+        if (asyncReader != null) {
+            return decompress(location, null, asyncReader.openStream(location));
+        }
         try {
+            if (objectCache != null) {
+                String cachedETag = objectCache.cachedETag(location);
+                if (cachedETag != null) {
+                    InputStream validated = openValidated(location, cachedETag);
+                    if (validated != null) {
+                        return validated;
+                    }
+                }
+            }
+
+            if (downloadExecutor != null) {
+                HeadObjectResponse head = head(location);
+                long size = head.contentLength();
+                if (size > storageConfig.getPartSize()) {
+                    log.debug("Downloading {} ({} bytes) in parts of {} bytes", location, size,
+                            storageConfig.getPartSize());
+                    return decompress(location, head.contentEncoding(), cache(location, head.eTag(), size,
+                            new RangedObjectInputStream(s3Client, location, head.eTag(), size,
+                                    storageConfig.getPartSize(), storageConfig.getDownloadConcurrency(),
+                                    downloadExecutor)));
+                }
+            }
+
             GetObjectRequest request = GetObjectRequest.builder()
                     .bucket(location.getBucket())
                     .key(location.getKey())
                     .build();
 
             ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(request);
-            return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            return decompress(location, inputStream.response().contentEncoding(), readAhead(location,
+                    cache(location, inputStream.response().eTag(), contentLength(inputStream.response()),
+                            inputStream)));
             
         } catch (NoSuchKeyException e) {
             log.error("S3 key not found: {}", location);
@@ -102,4 +276,287 @@ public class S3FileReader {
             throw new IOException("Failed to read from S3: " + location, e);
         }
     }
+
+    /**
+     * Opens a byte stream for the specified S3 location that starts at an offset.
+     * 
+     * <p>Used to continue an object that was processed part-way. The offset
+     * counts bytes of the decoded content, as delivered by
+     * {@link #openStream(S3Location)}. For an uncompressed object, only the
+     * tail is downloaded with a ranged GET, concurrently in parts in the
+     * {@link DownloadMode#RANGED ranged} download mode. A compressed object
+     * cannot be entered in the middle: it is downloaded and decompressed from
+     * the start, and the decoded bytes before the offset are discarded.
+     * 
+     * <p>The ranged request carries the expected ETag in {@code If-Match}, so
+     * a version that changed in the meantime fails the download rather than
+     * continuing another version at the offset.
+     * 
+     * @param location the S3 location to read from (must not be null)
+     * @param offset the offset of the first byte to read
+     * @param eTag the ETag of the version to continue, or null to accept any version
+     * @return an InputStream over the object content from the offset on
+     * @throws IOException if the S3 object cannot be found, accessed, or read, or has another ETag
+     * @throws NullPointerException if location is null
+     */
+    public InputStream openStream(S3Location location, long offset, String eTag) throws IOException {
+        if (offset <= 0) {
+            return openStream(location);
+        }
+        if (location.isLocalFile()) {
+            if (CompressionCodec.detect(location.getLocalPath()) != CompressionCodec.NONE) {
+                return skip(openStream(location), offset);
+            }
+            FileChannel channel = FileChannel.open(location.getLocalPath(), StandardOpenOption.READ);
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        }
+        try {
+            HeadObjectResponse head = head(location);
+            if (eTag != null && !eTag.equals(head.eTag())) {
+                throw new IOException("Object has changed since the checkpoint: " + location);
+            }
+            if (detectCodec(location, head) != CompressionCodec.NONE) {
+                log.debug("Decompressing {} from the start to continue at byte {}", location, offset);
+                return skip(openStream(location), offset);
+            }
+            long size = head.contentLength();
+            if (offset >= size) {
+                return InputStream.nullInputStream();
+            }
+            if (downloadExecutor != null && size - offset > storageConfig.getPartSize()) {
+                return new RangedObjectInputStream(s3Client, location, head.eTag(), offset, size,
+                        storageConfig.getPartSize(), storageConfig.getDownloadConcurrency(), downloadExecutor);
+            }
+            return readAhead(location, s3Client.getObject(GetObjectRequest.builder()
+                    .bucket(location.getBucket())
+                    .key(location.getKey())
+                    .range("bytes=" + offset + "-")
+                    .ifMatch(head.eTag())
+                    .build()));
+        } catch (IOException e) {
+            throw e;
+        } catch (NoSuchKeyException e) {
+            log.error("S3 key not found: {}", location);
+            throw new IOException("S3 key not found: " + location, e);
+        } catch (Exception e) {
+            log.error("Failed to read from S3 location: {}", location, e);
+            throw new IOException("Failed to read from S3: " + location, e);
+        }
+    }
+
+    /**
+     * Reads the metadata of the specified S3 object without downloading it.
+     * 
+     * <p>A HEAD request is cheap compared to a download and returns the
+     * ETag and size of the current version, which is enough to tell whether
+     * an object has changed since it was last processed. For a local file,
+     * the size and modification time are read from the file system instead.
+     * 
+     * @param location the S3 location to inspect (must not be null)
+     * @return the response with the object's ETag and content length
+     * @throws IOException if the S3 object cannot be found or accessed
+     * @throws NullPointerException if location is null
+     */
+    public HeadObjectResponse headObject(S3Location location) throws IOException {
+        if (location.isLocalFile()) {
+            // The modification time stands in for the ETag of a local file
+            Path file = location.getLocalPath();
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            return HeadObjectResponse.builder()
+                    .eTag("\"" + Long.toHexString(modified) + "\"")
+                    .contentLength(Files.size(file))
+                    .lastModified(Instant.ofEpochMilli(modified))
+                    .build();
+        }
+        try {
+            return head(location);
+        } catch (NoSuchKeyException e) {
+            throw new IOException("S3 key not found: " + location, e);
+        } catch (Exception e) {
+            throw new IOException("Failed to read metadata from S3: " + location, e);
+        }
+    }
+
+    /**
+     * Lists the objects below a prefix.
+     * 
+     * <p>All pages of a {@code ListObjectsV2} listing are fetched, so the
+     * result is complete however many objects the prefix holds. Like the
+     * listing itself, the result includes objects in nested "directories";
+     * zero-byte directory markers are left out. For a local directory, the
+     * regular files in it and its subdirectories are listed.
+     * 
+     * @param prefix the location of the prefix, normally ending with a slash (must not be null)
+     * @return the names of the objects relative to the prefix, in lexicographic order
+     * @throws IOException if the prefix cannot be listed
+     * @throws NullPointerException if prefix is null
+     */
+    public List<String> listObjects(S3Location prefix) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (prefix.isLocalFile()) {
+            Path directory = prefix.getLocalPath();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.filter(Files::isRegularFile)
+                        .map(file -> directory.relativize(file).toString().replace(File.separatorChar, '/'))
+                        .forEach(names::add);
+            }
+            names.sort(null);
+            return names;
+        }
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(prefix.getBucket())
+                .prefix(prefix.getKey())
+                .build();
+        try {
+            for (S3Object object : s3Client.listObjectsV2Paginator(request).contents()) {
+                if (!object.key().endsWith("/")) {
+                    names.add(object.key().substring(prefix.getKey().length()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to list S3 prefix: {}", prefix, e);
+            throw new IOException("Failed to list S3 prefix: " + prefix, e);
+        }
+        return names;
+    }
+
+    private HeadObjectResponse head(S3Location location) {
+        return s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .build());
+    }
+
+    /**
+     * Requests an object unless it still matches the cached ETag.
+     * 
+     * @return the cached copy if the object is unchanged, the new version otherwise,
+     *         or null if the cached copy has disappeared in the meantime
+     */
+    private InputStream openValidated(S3Location location, String cachedETag) throws IOException {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .ifNoneMatch(cachedETag)
+                .build();
+        ResponseInputStream<GetObjectResponse> inputStream;
+        try {
+            inputStream = s3Client.getObject(request);
+        } catch (S3Exception e) {
+            if (e.statusCode() != 304) {
+                throw e;
+            }
+            log.debug("Reading unchanged {} from the object cache", location);
+            InputStream cached = objectCache.open(location, cachedETag);
+            return cached != null ? decompress(location, null, cached) : null;
+        }
+        log.debug("Cached copy of {} is outdated", location);
+        return decompress(location, inputStream.response().contentEncoding(), readAhead(location,
+                cache(location, inputStream.response().eTag(), contentLength(inputStream.response()),
+                        inputStream)));
+    }
+
+    /**
+     * Wraps the raw content of an object in a decompressor if it is compressed.
+     * 
+     * <p>The compression format is taken from the {@code Content-Encoding},
+     * the key's extension, or else the first bytes of the content. Compressed
+     * content is decompressed on a background thread, overlapping with the
+     * parsing of the previous chunk.
+     */
+    private InputStream decompress(S3Location location, String contentEncoding, InputStream raw) throws IOException {
+        CompressionCodec codec = CompressionCodec.fromContentEncoding(contentEncoding);
+        if (codec == null) {
+            codec = CompressionCodec.fromExtension(location.getKey());
+        }
+        InputStream input = raw;
+        if (codec == null) {
+            PushbackInputStream sniffed = new PushbackInputStream(raw, CompressionCodec.MAGIC_LENGTH);
+            try {
+                byte[] header = sniffed.readNBytes(CompressionCodec.MAGIC_LENGTH);
+                sniffed.unread(header);
+                codec = CompressionCodec.fromMagic(header, header.length);
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+            input = sniffed;
+        }
+        if (codec == CompressionCodec.NONE) {
+            return input;
+        }
+        log.debug("Decompressing {} as {}", location, codec);
+        return new DecompressingInputStream(codec, input, decompressionExecutor, location.toString());
+    }
+
+    /**
+     * Determines the compression format of an object from its metadata or, failing that, its first bytes.
+     */
+    private CompressionCodec detectCodec(S3Location location, HeadObjectResponse head) {
+        CompressionCodec codec = CompressionCodec.fromContentEncoding(head.contentEncoding());
+        if (codec == null) {
+            codec = CompressionCodec.fromExtension(location.getKey());
+        }
+        if (codec == null) {
+            byte[] header = s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                    .bucket(location.getBucket())
+                    .key(location.getKey())
+                    .range("bytes=0-" + (CompressionCodec.MAGIC_LENGTH - 1))
+                    .ifMatch(head.eTag())
+                    .build()).asByteArray();
+            codec = CompressionCodec.fromMagic(header, header.length);
+        }
+        return codec;
+    }
+
+    private static InputStream skip(InputStream input, long offset) throws IOException {
+        try {
+            input.skipNBytes(offset);
+            return input;
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a single-stream download ahead of the consumer, unless read-ahead is disabled.
+     */
+    private InputStream readAhead(S3Location location, InputStream input) {
+        if (readAheadExecutor == null) {
+            return input;
+        }
+        return new ReadAheadInputStream(input, readAheadBuffers, storageConfig.getReadAheadBuffers(),
+                readAheadExecutor, location.toString());
+    }
+
+    private InputStream cache(S3Location location, String eTag, long contentLength, InputStream input) {
+        return objectCache != null ? objectCache.cacheWhileReading(location, eTag, contentLength, input) : input;
+    }
+
+    private static long contentLength(GetObjectResponse response) {
+        return response.contentLength() != null ? response.contentLength() : -1;
+    }
+
+    private static ObjectCache openCache(StorageConfig storageConfig) {
+        if (storageConfig.getCacheDirectory() == null) {
+            return null;
+        }
+        try {
+            return new ObjectCache(Path.of(storageConfig.getCacheDirectory()), storageConfig.getCacheMaxBytes());
+        } catch (IOException e) {
+            log.warn("Object cache disabled, cannot use {}: {}", storageConfig.getCacheDirectory(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
@@ -8,6 +8,10 @@
  * <p>Key classes:
  * <ul>
  *   <li>{@link jeroenflvr.csvprocessor.storage.S3FileReader} - Service for reading files from S3/COS</li>
+ *   <li>{@link jeroenflvr.csvprocessor.storage.S3AsyncFileReader} - Non-blocking reader with backpressure</li>
+ *   <li>{@link jeroenflvr.csvprocessor.storage.ObjectCache} - Local disk cache of downloaded objects</li>
+ *   <li>{@link jeroenflvr.csvprocessor.storage.CompressionCodec} - Detection and decoding of compressed objects</li>
+ *   <li>{@code ReadAheadInputStream} - Reads downloads ahead of the parser into pooled buffers</li>
  * </ul>
  * 
  * <p>Storage capabilities:
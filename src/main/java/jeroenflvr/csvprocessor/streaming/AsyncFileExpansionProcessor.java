@@ -0,0 +1,380 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.errors.StreamsException;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+import jeroenflvr.csvprocessor.processing.ProcessedObjectLedger;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Processor that expands file path messages into the records of the files on a separate thread pool.
+ *
+ * <p>Downloading and parsing a file runs on a shared, bounded executor
+ * instead of the stream thread, so one slow object no longer blocks the
+ * other partitions of the thread or delays its next poll. The records of
+ * each file are handed back in chunks through a small bounded queue and
+ * forwarded on the stream thread, from {@link #process} and from a
+ * wall-clock punctuation every {@value #FORWARD_INTERVAL_MS} ms. Several
+ * files of a task are expanded at the same time, but their records are
+ * forwarded strictly in the order of the announcements, so the output of
+ * a partition is the same as with the synchronous {@link FileExpansionProcessor}.
+ * At most {@code maxFilesInFlight} files of a task are expanded at the same
+ * time; further announcements are held in the pending store and started
+ * in order as earlier files complete.
+ *
+ * <p>The stream thread never waits for an expansion: it only forwards
+ * chunks that are already available. Expansions are also submitted in the
+ * order of the announcements, so any expansion that waits for its queue to
+ * drain was submitted after the oldest file of its task, which the shared
+ * executor has therefore already started. The executor can thus be shared
+ * by all tasks without one task's queued files starving another's.
+ *
+ * <p>The processed-object ledger and the checkpoints live in the task's
+ * state stores, which are only touched on the stream thread: the ledger
+ * entry and checkpoint of a file are read when its expansion starts, and
+ * the updates made by the expansion travel along with the records and are
+ * applied after them. Every batch of rows ends a chunk, and its checkpoint
+ * is stored once at least {@code checkpointIntervalRows} rows of the file
+ * have been forwarded since the last stored one.
+ *
+ * <p>Under exactly-once processing the input offset of an announcement may
+ * be committed before its records have all been forwarded. Each
+ * announcement is therefore stored in a pending store until its file is
+ * complete. After a failure or rebalance the task starts the pending files
+ * again on initialization and, with a checkpoint store, continues them
+ * after the last batch that was committed, so every row is still produced
+ * exactly once. Without checkpoints a pending file starts over.
+ *
+ * @param <K> the key type of the produced records
+ * @param <V> the value type of the produced records
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see FileExpansionProcessor
+ * @see StreamsTopologyBuilder
+ */
+final class AsyncFileExpansionProcessor<K, V> implements Processor<String, String, K, V> {
+    private static final Logger log = LoggerFactory.getLogger(AsyncFileExpansionProcessor.class);
+
+    /**
+     * Interval of the punctuation forwarding the records that became available, in milliseconds.
+     */
+    static final long FORWARD_INTERVAL_MS = 100;
+
+    /**
+     * Number of chunks a file can be expanded ahead of the forwarding.
+     */
+    private static final int QUEUE_CAPACITY = 8;
+
+    /**
+     * Number of records per chunk when there is no ledger to mark batch boundaries.
+     */
+    private static final int CHUNK_ROWS = 4096;
+
+    private final BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<K, V>>> expander;
+    private final ExecutorService executor;
+    private final int maxFilesInFlight;
+    private final String pendingStoreName;
+    private final String ledgerStoreName;
+    private final String checkpointStoreName;
+    private final int checkpointIntervalRows;
+    private final ArrayDeque<Expansion> expansions = new ArrayDeque<>();
+    private ProcessorContext<K, V> context;
+    private KeyValueStore<Long, String> pending;
+    private ProcessedObjectLedger ledger;
+    private long nextSequence;
+
+    /**
+     * Creates a processor expanding files with the given function on the given executor.
+     *
+     * @param expander turns a file path and an optional ledger into the file's records
+     * @param executor the shared executor running the expansions
+     * @param maxFilesInFlight the maximum number of files expanded at the same time
+     * @param pendingStoreName the name of the store of announcements whose file is not complete yet
+     * @param ledgerStoreName the name of the ledger store, or null to process every announcement
+     * @param checkpointStoreName the name of the checkpoint store, or null to always start at the beginning
+     * @param checkpointIntervalRows the minimum number of rows between two stored checkpoints
+     */
+    AsyncFileExpansionProcessor(BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<K, V>>> expander,
+                                ExecutorService executor, int maxFilesInFlight, String pendingStoreName,
+                                String ledgerStoreName, String checkpointStoreName, int checkpointIntervalRows) {
+        this.expander = expander;
+        this.executor = executor;
+        this.maxFilesInFlight = maxFilesInFlight;
+        this.pendingStoreName = pendingStoreName;
+        this.ledgerStoreName = ledgerStoreName;
+        this.checkpointStoreName = checkpointStoreName;
+        this.checkpointIntervalRows = checkpointIntervalRows;
+    }
+
+    @Override
+    public void init(ProcessorContext<K, V> context) {
+        this.context = context;
+        this.pending = context.getStateStore(pendingStoreName);
+        // Checkpoints reach the ledger at chunk boundaries, which thins them out to the interval
+        this.ledger = FileExpansionProcessor.openLedger(context, ledgerStoreName, checkpointStoreName,
+                checkpointIntervalRows);
+        try (KeyValueIterator<Long, String> announcements = pending.all()) {
+            while (announcements.hasNext()) {
+                KeyValue<Long, String> announcement = announcements.next();
+                expansions.add(new Expansion(announcement.key,
+                        new Record<>(null, announcement.value, context.currentSystemTimeMs())));
+                nextSequence = announcement.key + 1;
+            }
+        }
+        if (!expansions.isEmpty()) {
+            log.info("Restarting {} unfinished file expansions of task {}", expansions.size(), context.taskId());
+        }
+        startExpansions();
+        context.schedule(Duration.ofMillis(FORWARD_INTERVAL_MS), PunctuationType.WALL_CLOCK_TIME,
+                timestamp -> forwardAvailable());
+    }
+
+    @Override
+    public void process(Record<String, String> record) {
+        if (record.value() == null) {
+            return;
+        }
+        long sequence = nextSequence++;
+        pending.put(sequence, record.value());
+        expansions.add(new Expansion(sequence, record));
+        startExpansions();
+        forwardAvailable();
+    }
+
+    /**
+     * Cancels the expansions of this task, interrupting those in flight.
+     *
+     * <p>The shared thread pool outlives the task, so a cancelled expansion
+     * stops at its next record instead of parsing the rest of its file.
+     */
+    @Override
+    public void close() {
+        for (Expansion expansion : expansions) {
+            expansion.cancel();
+        }
+        expansions.clear();
+    }
+
+    /**
+     * Starts the expansions that are not running yet, in order and up to the limit of files in flight.
+     *
+     * <p>An announcement of a path that is still being expanded for an
+     * earlier announcement waits, so that it sees the ledger entry or
+     * checkpoint left by the earlier one, and so do all announcements after it.
+     */
+    private void startExpansions() {
+        Set<String> earlier = new HashSet<>();
+        int inFlight = 0;
+        for (Expansion expansion : expansions) {
+            if (inFlight++ >= maxFilesInFlight) {
+                break;
+            }
+            if (expansion.worker == null) {
+                if (earlier.contains(expansion.path)) {
+                    break;
+                }
+                expansion.start();
+            }
+            earlier.add(expansion.path);
+        }
+    }
+
+    private void forwardAvailable() {
+        while (forwardNext()) {
+            // Forward until the oldest file has nothing ready
+        }
+    }
+
+    /**
+     * Forwards the next chunk of the oldest file, if it is available, and applies its ledger updates.
+     *
+     * @return false if no chunk was available
+     */
+    private boolean forwardNext() {
+        Expansion head = expansions.peek();
+        if (head == null) {
+            return false;
+        }
+        Chunk<K, V> chunk = head.chunks.poll();
+        if (chunk == null) {
+            return false;
+        }
+        if (chunk.failure != null) {
+            throw new StreamsException("Failed to expand " + head.path, chunk.failure);
+        }
+        for (KeyValue<K, V> record : chunk.records) {
+            context.forward(head.input.withKey(record.key).withValue(record.value));
+        }
+        if (ledger != null) {
+            chunk.updates.forEach(update -> update.accept(ledger));
+        }
+        if (chunk.last) {
+            expansions.poll();
+            pending.delete(head.sequence);
+            startExpansions();
+        }
+        return true;
+    }
+
+    /**
+     * The expansion of one announced file, produced on the executor and forwarded on the stream thread.
+     */
+    private final class Expansion implements Runnable {
+        final long sequence;
+        final Record<String, String> input;
+        final String path;
+        final BlockingQueue<Chunk<K, V>> chunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Future<?> worker;
+        private DeferredLedger deferred;
+
+        Expansion(long sequence, Record<String, String> input) {
+            this.sequence = sequence;
+            this.input = input;
+            this.path = input.value().trim();
+        }
+
+        void start() {
+            if (ledger != null) {
+                deferred = new DeferredLedger(ledger.lookup(path), ledger.lookupCheckpoint(path));
+            }
+            worker = executor.submit(this);
+        }
+
+        void cancel() {
+            if (worker != null) {
+                worker.cancel(true);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<KeyValue<K, V>> records = new ArrayList<>();
+            Iterator<KeyValue<K, V>> iterator = null;
+            try {
+                iterator = expander.apply(input.value(), deferred).iterator();
+                while (iterator.hasNext()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        // Cancelled when the task was closed
+                        return;
+                    }
+                    // A checkpoint recorded by hasNext() ends the batch collected so far
+                    if (deferred != null ? deferred.atBoundary() : records.size() >= CHUNK_ROWS) {
+                        chunks.put(new Chunk<>(records, drainUpdates(), false, null));
+                        records = new ArrayList<>();
+                    }
+                    records.add(iterator.next());
+                }
+                chunks.put(new Chunk<>(records, drainUpdates(), true, null));
+            } catch (InterruptedException e) {
+                // Cancelled when the task was closed
+            } catch (Throwable t) {
+                chunks.clear();
+                chunks.offer(new Chunk<>(List.of(), List.of(), true, t));
+            } finally {
+                if (iterator instanceof CloseableIterator<?> closeable) {
+                    closeable.close();
+                }
+            }
+        }
+
+        private List<Consumer<ProcessedObjectLedger>> drainUpdates() {
+            return deferred != null ? deferred.drainUpdates() : List.of();
+        }
+    }
+
+    /**
+     * Ledger handed to an expansion: answers lookups from a snapshot and defers updates to the stream thread.
+     */
+    private static final class DeferredLedger implements ProcessedObjectLedger {
+        private final ProcessedObject previous;
+        private final FileCheckpoint checkpoint;
+        private List<Consumer<ProcessedObjectLedger>> updates = new ArrayList<>();
+        private boolean boundary;
+
+        DeferredLedger(ProcessedObject previous, FileCheckpoint checkpoint) {
+            this.previous = previous;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public ProcessedObject lookup(String path) {
+            return previous;
+        }
+
+        @Override
+        public FileCheckpoint lookupCheckpoint(String path) {
+            return checkpoint;
+        }
+
+        @Override
+        public void recordProcessed(ProcessedObject object) {
+            updates.add(ledger -> ledger.recordProcessed(object));
+        }
+
+        @Override
+        public void recordSkipped(ProcessedObject object) {
+            updates.add(ledger -> ledger.recordSkipped(object));
+        }
+
+        @Override
+        public void recordCheckpoint(FileCheckpoint checkpoint) {
+            updates.add(ledger -> ledger.recordCheckpoint(checkpoint));
+            boundary = true;
+        }
+
+        boolean atBoundary() {
+            boolean result = boundary;
+            boundary = false;
+            return result;
+        }
+
+        List<Consumer<ProcessedObjectLedger>> drainUpdates() {
+            List<Consumer<ProcessedObjectLedger>> result = updates;
+            updates = new ArrayList<>();
+            return result;
+        }
+    }
+
+    /**
+     * Records of a file ready to be forwarded, with the ledger updates that follow them.
+     */
+    private static final class Chunk<K, V> {
+        final List<KeyValue<K, V>> records;
+        final List<Consumer<ProcessedObjectLedger>> updates;
+        final boolean last;
+        final Throwable failure;
+
+        Chunk(List<KeyValue<K, V>> records, List<Consumer<ProcessedObjectLedger>> updates, boolean last,
+              Throwable failure) {
+            this.records = records;
+            this.updates = updates;
+            this.last = last;
+            this.failure = failure;
+        }
+    }
+}
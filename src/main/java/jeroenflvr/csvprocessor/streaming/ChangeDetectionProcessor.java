@@ -0,0 +1,76 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Processor that forwards only the records whose state differs from the stored state of their key.
+ * 
+ * <p>This is the single-store counterpart of the join of the records
+ * with a table over the state topic. The state of each key lives in a
+ * key-value store attached to this processor, and the stored state is read,
+ * compared and replaced in the same step. Compared to the join:
+ * <ul>
+ *   <li>a change costs one changelog write of the store, instead of a
+ *       write to the state topic, a read back from it and the changelog
+ *       write of the table</li>
+ *   <li>a key repeated within a file is compared against its earlier row,
+ *       since the store is updated before the next record is processed,
+ *       whereas the table only sees the earlier row after the round trip
+ *       through the state topic</li>
+ * </ul>
+ * 
+ * <p>The store must be partitioned like the records, i.e. the records
+ * must be keyed by record key on their way into this processor.
+ * 
+ * @param <K> the key type of the records
+ * @param <V> the value type of the records
+ * @param <S> the type of the stored state, the record itself or a digest of it
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see StreamsTopologyBuilder
+ */
+final class ChangeDetectionProcessor<K, V, S> implements FixedKeyProcessor<K, V, V> {
+
+    private final String storeName;
+    private final Function<V, S> stateOf;
+    private final BiPredicate<S, S> sameState;
+    private FixedKeyProcessorContext<K, V> context;
+    private KeyValueStore<K, S> store;
+
+    /**
+     * Creates a processor detecting changes against the given store.
+     * 
+     * @param storeName the name of the store holding the state of every key
+     * @param stateOf turns a record value into the state to store and compare
+     * @param sameState the equality check for the state representation
+     */
+    ChangeDetectionProcessor(String storeName, Function<V, S> stateOf, BiPredicate<S, S> sameState) {
+        this.storeName = storeName;
+        this.stateOf = stateOf;
+        this.sameState = sameState;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<K, V> context) {
+        this.context = context;
+        this.store = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<K, V> record) {
+        S state = stateOf.apply(record.value());
+        S stored = store.get(record.key());
+        if (stored != null && sameState.test(state, stored)) {
+            return;
+        }
+        store.put(record.key(), state);
+        context.forward(record);
+    }
+}
@@ -0,0 +1,192 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+import jeroenflvr.csvprocessor.processing.EnvelopeWriter;
+import jeroenflvr.csvprocessor.processing.ProcessedObjectLedger;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * File expansion that also packs the records of each file into envelopes.
+ * 
+ * <p>The records of the wrapped expansion are passed on unchanged, and
+ * every record is also added to an {@link EnvelopeWriter}. An envelope is
+ * passed on after the record that fills it, i.e. once it holds
+ * {@code maxRows} records or reaches {@code maxBytes}, and after the last
+ * record of the file. Envelopes are keyed by {@code <path>#<chunk>}, with
+ * the chunk counted from 0 in each expansion, also in one continued from a
+ * checkpoint, and are told apart from the
+ * records by {@link jeroenflvr.csvprocessor.processing.EnvelopeReader#isEnvelope(byte[])}.
+ * 
+ * <p>Ledger updates made by the wrapped expansion while an envelope holds
+ * records, such as a checkpoint or the completion of the file, are held
+ * back until that envelope has been passed on. A checkpoint does not cut
+ * the envelope short; it waits until the envelope is complete, and only the
+ * end of the file passes on a partial envelope. A checkpoint therefore
+ * never covers records whose envelope has not been forwarded, so a file
+ * continued from a checkpoint loses no envelope content, although it may
+ * repeat the rows between the checkpoint and the end of the envelope that
+ * was forwarded before it.
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see StreamsTopologyBuilder
+ */
+final class EnvelopeExpansion
+        implements BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<Bytes, byte[]>>> {
+
+    private final BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<Bytes, byte[]>>> expander;
+    private final int maxRows;
+    private final int maxBytes;
+
+    /**
+     * Creates an expansion packing the records of the given expansion.
+     * 
+     * @param expander turns a file path and an optional ledger into the file's records
+     * @param maxRows the maximum number of records per envelope
+     * @param maxBytes the size in bytes at which an envelope is complete
+     */
+    EnvelopeExpansion(BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<Bytes, byte[]>>> expander,
+                      int maxRows, int maxBytes) {
+        this.expander = expander;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public Iterable<KeyValue<Bytes, byte[]>> apply(String path, ProcessedObjectLedger ledger) {
+        return () -> new EnvelopingIterator(path, ledger);
+    }
+
+    /**
+     * Iterator over the records of one file, interleaved with their envelopes.
+     */
+    private final class EnvelopingIterator implements CloseableIterator<KeyValue<Bytes, byte[]>> {
+        private final String path;
+        private final ProcessedObjectLedger ledger;
+        private final List<Consumer<ProcessedObjectLedger>> held = new ArrayList<>();
+        private final EnvelopeWriter writer = new EnvelopeWriter();
+        private final Iterator<KeyValue<Bytes, byte[]>> records;
+        private KeyValue<Bytes, byte[]> next;
+        private Boolean recordAvailable;
+        private int chunk;
+
+        EnvelopingIterator(String path, ProcessedObjectLedger ledger) {
+            this.path = path;
+            this.ledger = ledger;
+            this.records = expander.apply(path, ledger != null ? new HoldingLedger(ledger) : null).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            // Updates held back for the envelope passed on last
+            applyHeldIfPassedOn();
+            if (writer.getRowCount() >= maxRows || writer.size() >= maxBytes) {
+                next = envelope();
+                return true;
+            }
+            if (recordAvailable == null) {
+                recordAvailable = records.hasNext();
+            }
+            if (!writer.isEmpty() && !recordAvailable) {
+                // The end of the file, whose completion is held for this envelope
+                next = envelope();
+                return true;
+            }
+            // A checkpoint recorded between two envelopes applies right away
+            applyHeldIfPassedOn();
+            if (recordAvailable) {
+                recordAvailable = null;
+                next = records.next();
+                writer.add(next.key.get(), next.value);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public KeyValue<Bytes, byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KeyValue<Bytes, byte[]> result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            if (records instanceof CloseableIterator<?> closeable) {
+                closeable.close();
+            }
+        }
+
+        private KeyValue<Bytes, byte[]> envelope() {
+            Bytes key = Bytes.wrap((path + "#" + chunk++).getBytes(StandardCharsets.UTF_8));
+            byte[] envelope = writer.toByteArray();
+            writer.reset();
+            return KeyValue.pair(key, envelope);
+        }
+
+        private void applyHeldIfPassedOn() {
+            if (!writer.isEmpty()) {
+                return;
+            }
+            for (Consumer<ProcessedObjectLedger> update : held) {
+                update.accept(ledger);
+            }
+            held.clear();
+        }
+
+        /**
+         * Ledger passing lookups through and holding back updates until the pending envelope is passed on.
+         */
+        private final class HoldingLedger implements ProcessedObjectLedger {
+            private final ProcessedObjectLedger delegate;
+
+            HoldingLedger(ProcessedObjectLedger delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public ProcessedObject lookup(String path) {
+                return delegate.lookup(path);
+            }
+
+            @Override
+            public FileCheckpoint lookupCheckpoint(String path) {
+                return delegate.lookupCheckpoint(path);
+            }
+
+            @Override
+            public void recordProcessed(ProcessedObject object) {
+                held.add(target -> target.recordProcessed(object));
+            }
+
+            @Override
+            public void recordSkipped(ProcessedObject object) {
+                held.add(target -> target.recordSkipped(object));
+            }
+
+            @Override
+            public void recordCheckpoint(FileCheckpoint checkpoint) {
+                held.add(target -> target.recordCheckpoint(checkpoint));
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serde for {@link FileCheckpoint} entries.
+ * 
+ * <p>Checkpoints are stored as small JSON objects, like the ledger entries:
+ * <pre>
+ * {"path":"s3://data01/tpch/orders.csv","etag":"\"9b2c...\"","offset":734003200,"row":5242880,
+ *  "headers":["o_orderkey","o_custkey",...]}
+ * </pre>
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see FileCheckpoint
+ */
+public class FileCheckpointSerde implements Serde<FileCheckpoint> {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Creates a new FileCheckpointSerde.
+     */
+    public FileCheckpointSerde() {
+        // Stateless
+    }
+
+    @Override
+    public Serializer<FileCheckpoint> serializer() {
+        return (topic, checkpoint) -> {
+            if (checkpoint == null) {
+                return null;
+            }
+            ObjectNode node = MAPPER.createObjectNode()
+                    .put("path", checkpoint.getPath())
+                    .put("etag", checkpoint.getETag())
+                    .put("offset", checkpoint.getByteOffset())
+                    .put("row", checkpoint.getRowNumber());
+            ArrayNode headers = node.putArray("headers");
+            checkpoint.getHeaders().forEach(headers::add);
+            try {
+                return MAPPER.writeValueAsBytes(node);
+            } catch (IOException e) {
+                throw new SerializationException("Failed to serialize checkpoint " + checkpoint, e);
+            }
+        };
+    }
+
+    @Override
+    public Deserializer<FileCheckpoint> deserializer() {
+        return (topic, data) -> {
+            if (data == null) {
+                return null;
+            }
+            try {
+                JsonNode node = MAPPER.readTree(data);
+                JsonNode eTag = node.path("etag");
+                List<String> headers = new ArrayList<>();
+                node.path("headers").forEach(header -> headers.add(header.asText()));
+                return new FileCheckpoint(node.path("path").asText(),
+                        eTag.isTextual() ? eTag.asText() : null,
+                        node.path("offset").asLong(), node.path("row").asLong(), headers);
+            } catch (IOException e) {
+                throw new SerializationException("Failed to deserialize checkpoint", e);
+            }
+        };
+    }
+}
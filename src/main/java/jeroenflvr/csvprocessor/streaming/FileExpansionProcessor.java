@@ -0,0 +1,164 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+import jeroenflvr.csvprocessor.processing.ProcessedObjectLedger;
+
+import java.util.function.BiFunction;
+
+/**
+ * Processor that expands file path messages into the records of the files.
+ * 
+ * <p>This is the Processor API counterpart of a {@code flatMap} over the
+ * file processing service, with an optional ledger of processed objects
+ * kept in a persistent key-value store keyed by path. Ledger updates go
+ * through the store, so under exactly-once processing they are committed
+ * atomically with the records produced from the file: an object that fails
+ * or is interrupted part-way is not marked as processed.
+ * 
+ * <p>The ledger is partitioned like the input topic, so an announcement is
+ * only recognized as a repeat when it lands on the same partition as the
+ * earlier one, which is the case when producers key messages by path.
+ * 
+ * <p>A file is expanded within a single call of {@link #process}, and so
+ * within a single exactly-once transaction, so this processor takes no
+ * checkpoints: one written in the middle of a file would be discarded with
+ * the records of an interrupted transaction. The {@link #openLedger ledger}
+ * it opens also keeps the checkpoints of the
+ * {@link AsyncFileExpansionProcessor}, whose files span several commits.
+ * 
+ * <p>Skipped objects are reported through the {@code skipped-bytes-rate}
+ * and {@code skipped-bytes-total} task metrics.
+ * 
+ * @param <K> the key type of the produced records
+ * @param <V> the value type of the produced records
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see StreamsTopologyBuilder
+ */
+final class FileExpansionProcessor<K, V> implements Processor<String, String, K, V> {
+
+    private final BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<K, V>>> expander;
+    private final String ledgerStoreName;
+    private ProcessorContext<K, V> context;
+    private ProcessedObjectLedger ledger;
+
+    /**
+     * Creates a processor expanding files with the given function.
+     * 
+     * @param expander turns a file path and an optional ledger into the file's records
+     * @param ledgerStoreName the name of the ledger store, or null to process every announcement
+     */
+    FileExpansionProcessor(BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<K, V>>> expander,
+                           String ledgerStoreName) {
+        this.expander = expander;
+        this.ledgerStoreName = ledgerStoreName;
+    }
+
+    @Override
+    public void init(ProcessorContext<K, V> context) {
+        this.context = context;
+        this.ledger = openLedger(context, ledgerStoreName, null, 0);
+    }
+
+    @Override
+    public void process(Record<String, String> record) {
+        for (KeyValue<K, V> expanded : expander.apply(record.value(), ledger)) {
+            context.forward(record.withKey(expanded.key).withValue(expanded.value));
+        }
+    }
+
+    /**
+     * Opens the ledger over the task's stores.
+     * 
+     * @param context the context of the processor using the ledger
+     * @param ledgerStoreName the name of the ledger store, or null
+     * @param checkpointStoreName the name of the checkpoint store, or null
+     * @param checkpointIntervalRows the minimum number of rows between two stored checkpoints
+     * @return the ledger, or null if neither store is used
+     */
+    static ProcessedObjectLedger openLedger(ProcessorContext<?, ?> context, String ledgerStoreName,
+                                            String checkpointStoreName, int checkpointIntervalRows) {
+        if (ledgerStoreName == null && checkpointStoreName == null) {
+            return null;
+        }
+        KeyValueStore<String, ProcessedObject> store =
+                ledgerStoreName != null ? context.getStateStore(ledgerStoreName) : null;
+        KeyValueStore<String, FileCheckpoint> checkpoints =
+                checkpointStoreName != null ? context.getStateStore(checkpointStoreName) : null;
+        Sensor skippedBytes = context.metrics().addRateTotalSensor("file-expansion",
+                context.taskId().toString(), "skipped-bytes", Sensor.RecordingLevel.INFO);
+        return new StoreLedger(store, checkpoints, checkpointIntervalRows, skippedBytes);
+    }
+
+    /**
+     * Ledger and checkpoints backed by state stores; either store may be absent.
+     */
+    private static final class StoreLedger implements ProcessedObjectLedger {
+        private final KeyValueStore<String, ProcessedObject> store;
+        private final KeyValueStore<String, FileCheckpoint> checkpoints;
+        private final int checkpointIntervalRows;
+        private final Sensor skippedBytes;
+        private String checkpointPath;
+        private long checkpointRow;
+
+        StoreLedger(KeyValueStore<String, ProcessedObject> store, KeyValueStore<String, FileCheckpoint> checkpoints,
+                    int checkpointIntervalRows, Sensor skippedBytes) {
+            this.store = store;
+            this.checkpoints = checkpoints;
+            this.checkpointIntervalRows = checkpointIntervalRows;
+            this.skippedBytes = skippedBytes;
+        }
+
+        @Override
+        public ProcessedObject lookup(String path) {
+            return store != null ? store.get(path) : null;
+        }
+
+        @Override
+        public void recordProcessed(ProcessedObject object) {
+            if (store != null) {
+                store.put(object.getPath(), object);
+            }
+            if (checkpoints != null) {
+                checkpoints.delete(object.getPath());
+            }
+        }
+
+        @Override
+        public FileCheckpoint lookupCheckpoint(String path) {
+            return checkpoints != null ? checkpoints.get(path) : null;
+        }
+
+        @Override
+        public void recordCheckpoint(FileCheckpoint checkpoint) {
+            if (checkpoints == null) {
+                return;
+            }
+            if (!checkpoint.getPath().equals(checkpointPath)) {
+                // A continued file counts from the checkpoint it continued at
+                FileCheckpoint stored = checkpoints.get(checkpoint.getPath());
+                checkpointPath = checkpoint.getPath();
+                checkpointRow = stored != null && stored.getETag().equals(checkpoint.getETag())
+                        ? stored.getRowNumber() : 0;
+            }
+            if (checkpoint.getRowNumber() - checkpointRow >= checkpointIntervalRows) {
+                checkpoints.put(checkpoint.getPath(), checkpoint);
+                checkpointRow = checkpoint.getRowNumber();
+            }
+        }
+
+        @Override
+        public void recordSkipped(ProcessedObject object) {
+            skippedBytes.record(object.getSize());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+
+import java.io.IOException;
+
+/**
+ * Serde for {@link ProcessedObject} ledger entries.
+ * 
+ * <p>Entries are stored as small JSON objects, which keeps the ledger's
+ * changelog topic readable with standard tooling:
+ * <pre>
+ * {"path":"s3://data01/tpch/orders.csv","etag":"\"9b2c...\"","size":1048576,"rows":15000}
+ * </pre>
+ * 
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ProcessedObject
+ */
+public class ProcessedObjectSerde implements Serde<ProcessedObject> {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Creates a new ProcessedObjectSerde.
+     */
+    public ProcessedObjectSerde() {
+        // Stateless
+    }
+
+    @Override
+    public Serializer<ProcessedObject> serializer() {
+        return (topic, object) -> {
+            if (object == null) {
+                return null;
+            }
+            ObjectNode node = MAPPER.createObjectNode()
+                    .put("path", object.getPath())
+                    .put("etag", object.getETag())
+                    .put("size", object.getSize())
+                    .put("rows", object.getRowCount());
+            try {
+                return MAPPER.writeValueAsBytes(node);
+            } catch (IOException e) {
+                throw new SerializationException("Failed to serialize ledger entry " + object, e);
+            }
+        };
+    }
+
+    @Override
+    public Deserializer<ProcessedObject> deserializer() {
+        return (topic, data) -> {
+            if (data == null) {
+                return null;
+            }
+            try {
+                JsonNode node = MAPPER.readTree(data);
+                JsonNode eTag = node.path("etag");
+                return new ProcessedObject(node.path("path").asText(),
+                        eTag.isTextual() ? eTag.asText() : null,
+                        node.path("size").asLong(), node.path("rows").asLong());
+            } catch (IOException e) {
+                throw new SerializationException("Failed to deserialize ledger entry", e);
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package jeroenflvr.csvprocessor.streaming;
 
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.KeyValue;
@@ -7,14 +8,37 @@ import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.*;
 import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jeroenflvr.csvprocessor.config.ApplicationConfig;
+import jeroenflvr.csvprocessor.config.TopologyConfig;
+import jeroenflvr.csvprocessor.config.TopologyConfig.ChangeDetection;
+import jeroenflvr.csvprocessor.config.TopologyConfig.OutputMode;
+import jeroenflvr.csvprocessor.config.TopologyConfig.RecordFormat;
+import jeroenflvr.csvprocessor.config.TopologyConfig.SerdeMode;
+import jeroenflvr.csvprocessor.config.TopologyConfig.StateMode;
+import jeroenflvr.csvprocessor.processing.EnvelopeReader;
 import jeroenflvr.csvprocessor.processing.FileProcessingService;
+import jeroenflvr.csvprocessor.processing.ProcessedObjectLedger;
+import jeroenflvr.csvprocessor.processing.RecordDigest;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * Builds the Kafka Streams topology for CSV file processing with change detection.
@@ -33,32 +57,121 @@ import java.util.Objects;
  * system to emit only changed records to the updates topic while still
  * providing a complete stream on the output topic.
  * 
+ * <p>In the {@link ChangeDetection#DIGEST digest} change detection mode, the
+ * state table holds a 64-bit {@link RecordDigest} of the business columns
+ * of each record instead of the record itself, so re-delivered rows that
+ * only differ in the {@code input_filename} and {@code imported} metadata
+ * are not reported as updates.
+ * 
+ * <p>Ahead of the change detection, the records are repartitioned by record
+ * key through the {@value #ROWS_REPARTITION} repartition topic, with
+ * {@link jeroenflvr.csvprocessor.config.TopologyConfig#getRepartitionPartitions()
+ * a configurable number of partitions} in the store state mode and the
+ * partition count of the state topic in the table state mode, whose join
+ * then needs no repartition topic of its own. The change detection of the
+ * records of a large file is thereby spread over all instances rather
+ * than done by the task that expanded the file.
+ * 
+ * <p>In the {@link StateMode#STORE store} state mode, a
+ * {@link ChangeDetectionProcessor} reads and updates the state of each key
+ * in the {@value #ROWS_STORE} state store in a single step. The state topic is neither read nor written;
+ * the store is backed by its own changelog topic.
+ * 
+ * <p>In the {@link OutputMode#ENVELOPES envelope} output mode, the records
+ * of each file are also packed into envelopes by an {@link EnvelopeExpansion};
+ * the envelopes are written to the output topic instead of the records,
+ * while the change detection and the updates topic still see every record.
+ * 
  * <p>Topology structure:
  * <pre>
- * Input Topic (file paths) 
+ * Input Topic (file paths)
+ *   ↓ ↘
+ *   ↓   Prefix / Manifest Listing → Input Topic (one path per object)
  *   ↓
- * File Processing (flatMap)
+ * File Processing (processed-object ledger)
  *   ↓
  * Record Expansion
  *   ↓ ↘
- * State Join    Output Topic (all records)
+ *   ↓   Output Topic (all records)
+ *   ↓
+ * Repartition by record key
+ *   ↓
+ * State Join (or Store)
  *   ↓
  * Updates Topic (changes only)
  *   ↓
- * State Topic (state maintenance)
+ * State Topic (state maintenance, table state mode only)
  * </pre>
  * 
+ * <p>Messages naming a prefix ({@code s3://bucket/tpch/sf10/orders/}) or a
+ * manifest object are not processed directly. The prefix is listed, or the
+ * manifest read, and every object found is written back to the input
+ * topic as a message of its own, keyed by its path. The objects of one
+ * drop are thereby spread over all partitions of the input topic, and so
+ * over all instances and stream threads, instead of being processed one
+ * after the other by the task that received the announcement.
+ * 
+ * <p>When {@link jeroenflvr.csvprocessor.config.TopologyConfig#isSkipProcessedObjects()
+ * skipping processed objects} is enabled, the file processing step keeps a
+ * ledger of processed objects in the {@value #LEDGER_STORE} state store and
+ * skips announcements of objects whose ETag and size are unchanged.
+ * With {@link jeroenflvr.csvprocessor.config.TopologyConfig#getCheckpointIntervalRows()
+ * checkpoints} enabled, it also records how far it got in the current
+ * object in the {@value #CHECKPOINT_STORE} state store, and an object that
+ * was interrupted part-way is continued from there with a ranged request.
+ * 
+ * <p>With {@link jeroenflvr.csvprocessor.config.TopologyConfig#getExpansionThreads()
+ * expansion threads}, files are downloaded and parsed on a shared thread
+ * pool by an {@link AsyncFileExpansionProcessor}, several per task at the
+ * same time, and their records are forwarded on the stream thread in the
+ * order of the announcements. Announcements are kept in the
+ * {@value #PENDING_STORE} state store until their file is complete. The
+ * builder owns that pool, shared by every topology it builds, and
+ * {@link #close()} shuts it down.
+ * 
+ * <p>Depending on the configured {@link SerdeMode}, records travel through the
+ * topology as Strings or as the UTF-8 encoded bytes produced by the parser.
+ * The byte mode skips all charset conversions between the parser and the
+ * producer and compares state values byte by byte; messages on the topics
+ * are the same in both modes.
+ * 
  * @author JeroenFL
  * @version 1.0.0
  * @since 1.0.0
  * @see ApplicationConfig
  * @see FileProcessingService
  */
-public class StreamsTopologyBuilder {
+public class StreamsTopologyBuilder implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(StreamsTopologyBuilder.class);
+
+    /**
+     * Name of the state store holding the ledger of processed objects.
+     */
+    public static final String LEDGER_STORE = "processed-objects-store";
+
+    /**
+     * Name of the state store holding the checkpoints of objects being processed.
+     */
+    public static final String CHECKPOINT_STORE = "file-checkpoints-store";
+
+    /**
+     * Name of the state store holding the announcements whose file is still being expanded asynchronously.
+     */
+    public static final String PENDING_STORE = "pending-files-store";
+
+    /**
+     * Name of the state store holding the last known state of every record key.
+     */
+    public static final String ROWS_STORE = "rows-state-store";
+
+    /**
+     * Name of the repartition step keying the records by record key ahead of the change detection.
+     */
+    public static final String ROWS_REPARTITION = "rows";
     
     private final ApplicationConfig config;
     private final FileProcessingService fileProcessingService;
+    private ExecutorService expansionExecutor;
 
     /**
      * Constructs a new StreamsTopologyBuilder with the specified configuration and services.
@@ -78,6 +191,7 @@ public class StreamsTopologyBuilder {
      * <p>This method constructs a topology that implements the following processing flow:
      * <ol>
      *   <li><strong>Source Stream:</strong> Reads file path messages from the input topic</li>
+     *   <li><strong>Work Item Expansion:</strong> Writes the objects of prefixes and manifests back to the input topic</li>
      *   <li><strong>File Expansion:</strong> Downloads and processes each CSV file into individual records</li>
      *   <li><strong>State Management:</strong> Maintains a table of current record states for change detection</li>
      *   <li><strong>Change Detection:</strong> Compares new records against stored state to identify changes</li>
@@ -88,11 +202,41 @@ public class StreamsTopologyBuilder {
      * backed by the state topic for fault tolerance and rebalancing support.
      * 
      * @return a complete Kafka Streams topology ready for execution
+     * @throws IllegalStateException if binary records or envelopes are configured with the String serde mode
      * @see Topology
      * @see KStream
      * @see KTable
      */
     public Topology build() {
+        TopologyConfig topologyConfig = config.getTopologyConfig();
+        boolean binary = topologyConfig.getRecordFormat() == RecordFormat.BINARY;
+        boolean envelopes = topologyConfig.getOutputMode() == OutputMode.ENVELOPES;
+        if (topologyConfig.getSerdeMode() == SerdeMode.BYTES) {
+            BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<Bytes, byte[]>>> expander =
+                    fileProcessingService::streamFileBytes;
+            if (envelopes) {
+                expander = new EnvelopeExpansion(expander, topologyConfig.getEnvelopeMaxRows(),
+                        topologyConfig.getEnvelopeMaxBytes());
+            }
+            return build(new RecordCodec<>(Serdes.Bytes(), Serdes.ByteArray(),
+                    expander, Arrays::equals,
+                    binary ? RecordDigest::ofBinary : RecordDigest::ofJson, EnvelopeReader::isEnvelope,
+                    key -> new String(key.get(), StandardCharsets.UTF_8),
+                    value -> binary || EnvelopeReader.isEnvelope(value)
+                            ? "<" + value.length + " bytes>" : new String(value, StandardCharsets.UTF_8)));
+        }
+        if (binary) {
+            throw new IllegalStateException("The binary record format requires the bytes serde mode");
+        }
+        if (envelopes) {
+            throw new IllegalStateException("The envelope output mode requires the bytes serde mode");
+        }
+        return build(new RecordCodec<>(Serdes.String(), Serdes.String(),
+                this::expandFileToRecords, Objects::equals, RecordDigest::ofJson, value -> false,
+                Function.identity(), Function.identity()));
+    }
+
+    private <K, V> Topology build(RecordCodec<K, V> codec) {
         StreamsBuilder builder = new StreamsBuilder();
 
         // Source stream from input topic
@@ -101,43 +245,196 @@ public class StreamsTopologyBuilder {
                 Consumed.with(Serdes.String(), Serdes.String())
         );
 
-        // Expand each file path into multiple records
-        KStream<String, String> expanded = source.flatMap(this::expandFileToRecords);
+        // Prefixes and manifests are fanned out into one input message per object,
+        // keyed by path so that the objects spread over all input partitions
+        Map<String, KStream<String, String>> inputs = source.split(Named.as("input-"))
+                .branch((k, v) -> fileProcessingService.isObjectCollection(v), Branched.as("collections"))
+                .defaultBranch(Branched.as("objects"));
+        inputs.get("input-collections")
+                .flatMap((k, v) -> expandCollection(v))
+                .to(config.getInputTopic(), Produced.with(Serdes.String(), Serdes.String()));
+        KStream<String, String> objects = inputs.get("input-objects");
 
-        // State table for tracking changes
-        KTable<String, String> stateTable = builder.table(
-                config.getStateTopic(),
-                Consumed.with(Serdes.String(), Serdes.String()),
-                Materialized.<String, String, KeyValueStore<Bytes, byte[]>>as("rows-state-store")
-                        .withKeySerde(Serdes.String())
-                        .withValueSerde(Serdes.String())
-        );
+        // Expand each file path into multiple records, skipping objects the ledger has seen
+        // and continuing objects from their last checkpoint
+        int checkpointInterval = config.getTopologyConfig().getCheckpointIntervalRows();
+        String ledgerStore = config.getTopologyConfig().isSkipProcessedObjects() ? LEDGER_STORE : null;
+        String checkpointStore = checkpointInterval > 0 ? CHECKPOINT_STORE : null;
+        List<String> stores = new ArrayList<>();
+        if (ledgerStore != null) {
+            builder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(LEDGER_STORE), Serdes.String(), new ProcessedObjectSerde()));
+            stores.add(LEDGER_STORE);
+        }
+        if (checkpointStore != null) {
+            builder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(CHECKPOINT_STORE), Serdes.String(), new FileCheckpointSerde()));
+            stores.add(CHECKPOINT_STORE);
+        }
+        KStream<K, V> expanded;
+        int expansionThreads = config.getTopologyConfig().getExpansionThreads();
+        if (expansionThreads > 0) {
+            // Downloads and parsing leave the stream threads; announcements stay pending until complete
+            builder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(PENDING_STORE), Serdes.Long(), Serdes.String()));
+            stores.add(PENDING_STORE);
+            ExecutorService executor = expansionExecutor(expansionThreads);
+            int maxFilesInFlight = config.getTopologyConfig().getMaxFilesInFlight();
+            expanded = objects.process(() -> new AsyncFileExpansionProcessor<>(codec.expander, executor,
+                    maxFilesInFlight, PENDING_STORE, ledgerStore, checkpointStore, checkpointInterval),
+                    stores.toArray(new String[0]));
+        } else {
+            // Checkpoints require expansion threads, so there is no checkpoint store here
+            expanded = objects.process(() -> new FileExpansionProcessor<>(codec.expander, ledgerStore),
+                    stores.toArray(new String[0]));
+        }
+
+        KStream<K, V> output = expanded;
+        if (config.getTopologyConfig().getOutputMode() == OutputMode.ENVELOPES) {
+            // Envelopes only go to the output topic, the records only to the change detection
+            Map<String, KStream<K, V>> parts = expanded.split(Named.as("expanded-"))
+                    .branch((k, v) -> codec.isEnvelope.test(v), Branched.as("envelopes"))
+                    .defaultBranch(Branched.as("records"));
+            output = parts.get("expanded-envelopes");
+            expanded = parts.get("expanded-records");
+        }
+
+        // The records are keyed by record key from here on; spreading them over the partitions
+        // of their keys moves the change detection of a file off the task that expanded it
+        Repartitioned<K, V> repartitioned = Repartitioned.with(codec.keySerde, codec.valueSerde)
+                .withName(ROWS_REPARTITION);
+        int partitions = config.getTopologyConfig().getRepartitionPartitions();
+        if (partitions > 0) {
+            repartitioned = repartitioned.withNumberOfPartitions(partitions);
+        }
+        KStream<K, V> rows = expanded.repartition(repartitioned);
+
+        boolean digests = config.getTopologyConfig().getChangeDetection() == ChangeDetection.DIGEST;
+        KStream<K, V> updatesOnly;
+        if (config.getTopologyConfig().getStateMode() == StateMode.STORE) {
+            // The store is read and updated by the change detection itself
+            updatesOnly = digests
+                    ? detectChanges(builder, rows, codec, Serdes.Long(), codec.digest::applyAsLong, Long::equals)
+                    : detectChanges(builder, rows, codec, codec.valueSerde, Function.identity(), codec.sameValue);
+        } else if (digests) {
+            // State table of the digests of the business columns
+            KTable<K, Long> digestTable = builder.table(
+                    config.getStateTopic(),
+                    Consumed.with(codec.keySerde, Serdes.Long()),
+                    Materialized.<K, Long, KeyValueStore<Bytes, byte[]>>as(ROWS_STORE)
+                            .withKeySerde(codec.keySerde)
+                            .withValueSerde(Serdes.Long())
+            );
+            updatesOnly = rows.leftJoin(
+                    digestTable,
+                    (newValue, oldDigest) -> filterUpdates(newValue, oldDigest, codec.digest),
+                    Joined.with(codec.keySerde, codec.valueSerde, Serdes.Long())
+            ).filter((k, v) -> v != null);
+            updatesOnly.mapValues(codec.digest::applyAsLong)
+                    .to(config.getStateTopic(), Produced.with(codec.keySerde, Serdes.Long()));
+        } else {
+            // State table for tracking changes
+            KTable<K, V> stateTable = builder.table(
+                    config.getStateTopic(),
+                    Consumed.with(codec.keySerde, codec.valueSerde),
+                    Materialized.<K, V, KeyValueStore<Bytes, byte[]>>as(ROWS_STORE)
+                            .withKeySerde(codec.keySerde)
+                            .withValueSerde(codec.valueSerde)
+            );
 
-        // Filter for updates only
-        KStream<String, String> updatesOnly = expanded.leftJoin(
-                stateTable,
-                this::filterUpdates
-        ).filter((k, v) -> v != null);
+            // Filter for updates only
+            updatesOnly = rows.leftJoin(
+                    stateTable,
+                    (newValue, oldValue) -> filterUpdates(newValue, oldValue, codec.sameValue),
+                    Joined.with(codec.keySerde, codec.valueSerde, codec.valueSerde)
+            ).filter((k, v) -> v != null);
+            updatesOnly.to(config.getStateTopic(), Produced.with(codec.keySerde, codec.valueSerde));
+        }
 
         // Output streams
-        setupOutputStreams(expanded, updatesOnly);
+        setupOutputStreams(output, updatesOnly, codec);
 
         return builder.build();
     }
 
+    /**
+     * Shuts down the expansion threads shared by the topologies of this builder.
+     *
+     * <p>Call this after the Kafka Streams instance running the topology has
+     * been closed; expansions still running are interrupted.
+     */
+    @Override
+    public synchronized void close() {
+        if (expansionExecutor != null) {
+            expansionExecutor.shutdownNow();
+        }
+    }
+
+    private synchronized ExecutorService expansionExecutor(int threads) {
+        if (expansionExecutor == null) {
+            expansionExecutor = Executors.newFixedThreadPool(threads, expansionThreads());
+        }
+        return expansionExecutor;
+    }
+
+    private static ThreadFactory expansionThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "file-expansion-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     /**
      * Expands a file path message into multiple CSV record messages.
      * 
      * <p>This method serves as the bridge between Kafka Streams and the file
      * processing service. It delegates the actual file processing work and
-     * returns the results in a format suitable for stream processing.
+     * returns a lazily evaluated sequence, so that each record is forwarded
+     * downstream as soon as it is parsed instead of after the whole file has
+     * been read into memory.
      * 
-     * @param key the message key (typically unused for file path messages)
      * @param pathValue the S3 file path to process
-     * @return a list of key-value pairs representing individual CSV records
+     * @param ledger the record of processed objects, or null to always process the file
+     * @return a lazily evaluated sequence of key-value pairs representing individual CSV records
+     */
+    private Iterable<KeyValue<String, String>> expandFileToRecords(String pathValue, ProcessedObjectLedger ledger) {
+        return fileProcessingService.streamFile(pathValue, ledger);
+    }
+
+    /**
+     * Expands a prefix or manifest message into one message per object.
+     * 
+     * @param pathValue the prefix or manifest path
+     * @return the object paths, each keyed by itself
+     */
+    private List<KeyValue<String, String>> expandCollection(String pathValue) {
+        List<KeyValue<String, String>> items = new ArrayList<>();
+        for (String path : fileProcessingService.expandWorkItems(pathValue)) {
+            items.add(KeyValue.pair(path, path));
+        }
+        return items;
+    }
+
+    /**
+     * Attaches a store to a change detection step over records keyed by record key.
+     * 
+     * @param builder the builder the store is added to
+     * @param rows the records, partitioned by record key
+     * @param codec the serdes of the record representation
+     * @param stateSerde the serde of the stored state
+     * @param stateOf turns a record value into the state to store and compare
+     * @param sameState the equality check for the state representation
+     * @return the stream of changed records only
      */
-    private List<KeyValue<String, String>> expandFileToRecords(String key, String pathValue) {
-        return fileProcessingService.processFile(pathValue);
+    private <K, V, S> KStream<K, V> detectChanges(StreamsBuilder builder, KStream<K, V> rows,
+                                                  RecordCodec<K, V> codec, Serde<S> stateSerde,
+                                                  Function<V, S> stateOf, BiPredicate<S, S> sameState) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(ROWS_STORE), codec.keySerde, stateSerde));
+        return rows.processValues(() -> new ChangeDetectionProcessor<>(ROWS_STORE, stateOf, sameState),
+                ROWS_STORE);
     }
 
     /**
@@ -149,11 +446,27 @@ public class StreamsTopologyBuilder {
      * 
      * @param newValue the incoming record value
      * @param oldValue the stored state value (may be null for new records)
+     * @param sameValue the equality check for the value representation
      * @return the new value if it represents a change, null otherwise
      */
-    private String filterUpdates(String newValue, String oldValue) {
+    private <V> V filterUpdates(V newValue, V oldValue, BiPredicate<V, V> sameValue) {
         // Only emit if values are different
-        if (Objects.equals(newValue, oldValue)) {
+        if (oldValue != null && sameValue.test(newValue, oldValue)) {
+            return null;
+        }
+        return newValue;
+    }
+
+    /**
+     * Filters record updates by comparing the digest of new values against the stored digest.
+     * 
+     * @param newValue the incoming record value
+     * @param oldDigest the stored digest (may be null for new records)
+     * @param digest computes the digest of the business columns of a value
+     * @return the new value if its business columns changed, null otherwise
+     */
+    private <V> V filterUpdates(V newValue, Long oldDigest, ToLongFunction<V> digest) {
+        if (oldDigest != null && oldDigest == digest.applyAsLong(newValue)) {
             return null;
         }
         return newValue;
@@ -164,26 +477,68 @@ public class StreamsTopologyBuilder {
      * 
      * <p>This method sets up the final output routing for the processed data:
      * <ul>
-     *   <li>Updates stream → updates topic and state topic</li>
-     *   <li>All records stream → output topic</li>
+     *   <li>Updates stream → updates topic</li>
+     *   <li>All records stream, or their envelopes → output topic</li>
      * </ul>
      * 
      * <p>Each output includes logging for observability and debugging.
      * 
-     * @param expanded the stream of all processed records
+     * @param expanded the stream of all processed records, or of their envelopes
      * @param updatesOnly the stream of changed records only
+     * @param codec the serdes and formatting of the record representation
      */
-    private void setupOutputStreams(KStream<String, String> expanded, KStream<String, String> updatesOnly) {
-        // Send updates to update topic and state topic
-        updatesOnly
-                .peek((k, v) -> log.info("UPDATE -> key='{}'", k))
-                .to(config.getUpdateTopic(), Produced.with(Serdes.String(), Serdes.String()));
+    private <K, V> void setupOutputStreams(KStream<K, V> expanded, KStream<K, V> updatesOnly,
+                                           RecordCodec<K, V> codec) {
+        Produced<K, V> produced = Produced.with(codec.keySerde, codec.valueSerde);
 
-        updatesOnly.to(config.getStateTopic(), Produced.with(Serdes.String(), Serdes.String()));
+        // Send updates to update topic
+        updatesOnly
+                .peek((k, v) -> {
+                    if (log.isInfoEnabled()) {
+                        log.info("UPDATE -> key='{}'", codec.keyFormatter.apply(k));
+                    }
+                })
+                .to(config.getUpdateTopic(), produced);
 
         // Send all expanded records to output topic
         expanded
-                .peek((k, v) -> log.info("OUT -> key='{}' value='{}'", k, v))
-                .to(config.getOutputTopic(), Produced.with(Serdes.String(), Serdes.String()));
+                .peek((k, v) -> {
+                    if (log.isInfoEnabled()) {
+                        log.info("OUT -> key='{}' value='{}'", codec.keyFormatter.apply(k),
+                                codec.valueFormatter.apply(v));
+                    }
+                })
+                .to(config.getOutputTopic(), produced);
+    }
+
+    /**
+     * Everything the topology needs to know about one record representation.
+     * 
+     * @param <K> the key type inside the topology
+     * @param <V> the value type inside the topology
+     */
+    private static final class RecordCodec<K, V> {
+        final Serde<K> keySerde;
+        final Serde<V> valueSerde;
+        final BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<K, V>>> expander;
+        final BiPredicate<V, V> sameValue;
+        final ToLongFunction<V> digest;
+        final Predicate<V> isEnvelope;
+        final Function<K, String> keyFormatter;
+        final Function<V, String> valueFormatter;
+
+        RecordCodec(Serde<K> keySerde, Serde<V> valueSerde,
+                    BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<K, V>>> expander,
+                    BiPredicate<V, V> sameValue, ToLongFunction<V> digest, Predicate<V> isEnvelope,
+                    Function<K, String> keyFormatter, Function<V, String> valueFormatter) {
+            this.keySerde = keySerde;
+            this.valueSerde = valueSerde;
+            this.expander = expander;
+            this.sameValue = sameValue;
+            this.digest = digest;
+            this.isEnvelope = isEnvelope;
+            this.keyFormatter = keyFormatter;
+            this.valueFormatter = valueFormatter;
+        }
     }
 }
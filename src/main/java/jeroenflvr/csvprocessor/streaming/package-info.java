@@ -9,6 +9,8 @@
  * <p>Key classes:
  * <ul>
  *   <li>{@link jeroenflvr.csvprocessor.streaming.StreamsTopologyBuilder} - Builds the complete Kafka Streams topology</li>
+ *   <li>{@link jeroenflvr.csvprocessor.streaming.ProcessedObjectSerde} - Serde for the processed-object ledger</li>
+ *   <li>{@link jeroenflvr.csvprocessor.streaming.FileCheckpointSerde} - Serde for the checkpoints of objects being processed</li>
  * </ul>
  * 
  * <p>Streaming features:
@@ -17,6 +19,7 @@
  *   <li><strong>Multi-Output:</strong> Routes data to different topics based on processing logic</li>
  *   <li><strong>Fault Tolerance:</strong> Leverages Kafka Streams built-in fault tolerance</li>
  *   <li><strong>Scalability:</strong> Horizontal scaling through partition assignment</li>
+ *   <li><strong>Asynchronous Expansion:</strong> Optionally downloads and parses files off the stream threads</li>
  *   <li><strong>Exactly-Once Semantics:</strong> Ensures data consistency across the pipeline</li>
  * </ul>
  * 
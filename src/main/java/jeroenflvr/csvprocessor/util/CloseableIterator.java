@@ -0,0 +1,31 @@
+package jeroenflvr.csvprocessor.util;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} that holds an underlying resource and must be closed.
+ *
+ * <p>Pull-based iterators are used to stream records out of large files
+ * without materializing the whole file on the heap. The iterator owns the
+ * underlying reader or connection; callers should close it as soon as they
+ * stop iterating, either after exhausting it or when abandoning it early.
+ *
+ * <p>Unlike {@link AutoCloseable#close()}, {@link #close()} does not declare
+ * a checked exception so the iterator can be used in try-with-resources
+ * blocks inside lambdas and stream callbacks.
+ *
+ * @param <T> the type of elements returned by this iterator
+ * @author JeroenFL
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+    /**
+     * Releases the resources held by this iterator.
+     *
+     * <p>Calling this method more than once has no effect.
+     */
+    @Override
+    void close();
+}
@@ -8,6 +8,7 @@
  * <p>Key classes:
  * <ul>
  *   <li>{@link jeroenflvr.csvprocessor.util.TimeUtils} - Time formatting and JSON timestamp extraction</li>
+ *   <li>{@link jeroenflvr.csvprocessor.util.CloseableIterator} - Resource-owning iterator for streaming large inputs</li>
  * </ul>
  * 
  * <p>Utility capabilities:
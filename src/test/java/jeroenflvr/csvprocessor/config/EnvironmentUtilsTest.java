@@ -31,4 +31,31 @@ class EnvironmentUtilsTest {
         String result = EnvironmentUtils.envOrDefault("NON_EXISTENT_VAR", "default_value");
         assertEquals("default_value", result);
     }
+
+    @Test
+    void testEnvEnumWithDefault() {
+        // Test with non-existent environment variable
+        ParserConfig.ScanMode result = EnvironmentUtils.envEnum(
+                "NON_EXISTENT_VAR", ParserConfig.ScanMode.class, ParserConfig.ScanMode.SWAR);
+        assertEquals(ParserConfig.ScanMode.SWAR, result);
+    }
+
+    @Test
+    void testEnvListWithDefault() {
+        // Test with non-existent environment variable
+        assertEquals(java.util.List.of("a"), EnvironmentUtils.envList("NON_EXISTENT_VAR", java.util.List.of("a")));
+    }
+
+    @Test
+    void testSplitList() {
+        assertEquals(java.util.List.of("a", "b", "c"), EnvironmentUtils.splitList(" a, b,,c ,"));
+        assertTrue(EnvironmentUtils.splitList(" , ").isEmpty());
+    }
+
+    @Test
+    void testEnvIntAndLongWithDefault() {
+        // Test with non-existent environment variable
+        assertEquals(7, EnvironmentUtils.envInt("NON_EXISTENT_VAR", 7));
+        assertEquals(1L << 40, EnvironmentUtils.envLong("NON_EXISTENT_VAR", 1L << 40));
+    }
 }
@@ -0,0 +1,44 @@
+package jeroenflvr.csvprocessor.config;
+
+import org.junit.jupiter.api.Test;
+
+import jeroenflvr.csvprocessor.model.ColumnType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for ParserConfig.
+ */
+class ParserConfigTest {
+
+    @Test
+    void testDefaults() {
+        ParserConfig config = ParserConfig.defaults();
+        assertEquals(ParserConfig.ScanMode.SCALAR, config.getScanMode());
+        assertEquals(List.of("o_orderkey", "o_custkey"), config.getKeyColumns());
+        assertTrue(config.getOutputColumns().isEmpty());
+        assertTrue(config.getColumnTypes().isEmpty());
+    }
+
+    @Test
+    void testParseColumnTypes() {
+        Map<String, ColumnType> types = ParserConfig.parseColumnTypes(
+                "o_orderkey:long, o_totalprice:DECIMAL(2),o_orderdate : date,o_comment:string");
+
+        assertEquals(List.of("o_orderkey", "o_totalprice", "o_orderdate", "o_comment"), List.copyOf(types.keySet()));
+        assertEquals(ColumnType.LONG, types.get("o_orderkey"));
+        assertEquals(ColumnType.decimal(2), types.get("o_totalprice"));
+        assertEquals(ColumnType.DATE, types.get("o_orderdate"));
+        assertEquals(ColumnType.STRING, types.get("o_comment"));
+        assertTrue(ParserConfig.parseColumnTypes("").isEmpty());
+    }
+
+    @Test
+    void testParseColumnTypesRejectsInvalidEntries() {
+        assertThrows(IllegalStateException.class, () -> ParserConfig.parseColumnTypes("o_orderkey"));
+        assertThrows(IllegalStateException.class, () -> ParserConfig.parseColumnTypes("o_orderkey:int128"));
+        assertThrows(IllegalStateException.class, () -> ParserConfig.parseColumnTypes("o_price:decimal(19)"));
+    }
+}
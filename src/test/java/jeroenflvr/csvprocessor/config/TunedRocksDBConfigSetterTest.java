@@ -0,0 +1,82 @@
+package jeroenflvr.csvprocessor.config;
+
+import org.apache.kafka.streams.StreamsConfig;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.CompressionType;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Unit tests for TunedRocksDBConfigSetter and the state store properties.
+ */
+class TunedRocksDBConfigSetterTest {
+
+    @Test
+    void testSettingsReachTheStoreOptions() {
+        StateStoreConfig config = new StateStoreConfig(64L * 1024 * 1024, 12, StateStoreConfig.Compression.ZSTD,
+                8L * 1024 * 1024, 2, true);
+        Properties properties = KafkaStreamsConfigFactory.createProperties(new ApplicationConfig("input", "output",
+                "updates", "state", "test-app", true, ParserConfig.defaults(), TopologyConfig.defaults(),
+                StorageConfig.defaults(), config));
+        assertEquals(TunedRocksDBConfigSetter.class.getName(),
+                properties.get(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG));
+        assertEquals("DEBUG", properties.get(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG));
+
+        Map<String, Object> configs = new HashMap<>();
+        properties.forEach((key, value) -> configs.put(key.toString(), value));
+        RocksDB.loadLibrary();
+        TunedRocksDBConfigSetter setter = new TunedRocksDBConfigSetter();
+        try (Options options = new Options()) {
+            // Kafka Streams hands over options with a block-based table config
+            options.setTableFormatConfig(new BlockBasedTableConfig());
+            setter.setConfig("rows-state-store", options, configs);
+
+            assertEquals(CompressionType.ZSTD_COMPRESSION, options.compressionType());
+            assertEquals(8L * 1024 * 1024, options.writeBufferSize());
+            assertEquals(2, options.maxWriteBufferNumber());
+            BlockBasedTableConfig tableConfig = (BlockBasedTableConfig) options.tableFormatConfig();
+            assertTrue(tableConfig.cacheIndexAndFilterBlocks());
+            assertNotNull(tableConfig.filterPolicy());
+            setter.close("rows-state-store", options);
+        }
+    }
+
+    @Test
+    void testMemtablesKeepTheKafkaStreamsDefaultsUnlessConfigured() {
+        Map<Object, Object> properties = new HashMap<>();
+        TunedRocksDBConfigSetter.putProperties(StateStoreConfig.defaults(), properties);
+        Map<String, Object> configs = new HashMap<>();
+        properties.forEach((key, value) -> configs.put(key.toString(), value));
+        RocksDB.loadLibrary();
+        TunedRocksDBConfigSetter setter = new TunedRocksDBConfigSetter();
+        try (Options options = new Options()) {
+            // As handed over by Kafka Streams
+            options.setTableFormatConfig(new BlockBasedTableConfig());
+            options.setWriteBufferSize(16L * 1024 * 1024);
+            options.setMaxWriteBufferNumber(3);
+            setter.setConfig("rows-state-store", options, configs);
+
+            assertEquals(16L * 1024 * 1024, options.writeBufferSize());
+            assertEquals(3, options.maxWriteBufferNumber());
+            setter.close("rows-state-store", options);
+        }
+    }
+
+    @Test
+    void testMissingPropertiesFallBackToDefaults() {
+        StateStoreConfig config = TunedRocksDBConfigSetter.fromConfigs(Map.of(
+                TunedRocksDBConfigSetter.BLOOM_FILTER_BITS_CONFIG, "0"));
+
+        assertEquals(0, config.getBloomFilterBitsPerKey());
+        assertEquals(StateStoreConfig.DEFAULT_BLOCK_CACHE_BYTES, config.getBlockCacheBytes());
+        assertEquals(StateStoreConfig.Compression.LZ4, config.getCompression());
+        assertThrows(IllegalArgumentException.class, () -> TunedRocksDBConfigSetter.fromConfigs(Map.of(
+                TunedRocksDBConfigSetter.MAX_WRITE_BUFFERS_CONFIG, -1)));
+    }
+}
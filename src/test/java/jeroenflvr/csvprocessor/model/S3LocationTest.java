@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 
 import jeroenflvr.csvprocessor.model.S3Location;
 
+import java.nio.file.Path;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -47,4 +49,16 @@ class S3LocationTest {
         assertEquals("my-bucket", location.getBucket());
         assertEquals("path/to/file.csv", location.getKey()); // Leading slash should be removed
     }
+
+    @Test
+    void testParseFileUri() {
+        S3Location location = S3Location.parse("file:///data/in/orders.csv");
+        assertTrue(location.isLocalFile());
+        assertEquals(Path.of("/data/in/orders.csv"), location.getLocalPath());
+        assertEquals("data/in/orders.csv", location.getKey());
+
+        assertFalse(S3Location.parse("s3://my-bucket/file.csv").isLocalFile());
+        assertThrows(IllegalArgumentException.class, () ->
+            S3Location.parse("file://relative/orders.csv"));
+    }
 }
@@ -0,0 +1,134 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.config.ParserConfig;
+import jeroenflvr.csvprocessor.model.ColumnType;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for BinaryRecordWriter, BinaryRecordReader and FieldParsers.
+ */
+class BinaryRecordWriterTest {
+
+    private static final Map<String, ColumnType> ORDER_TYPES = Map.of(
+            "o_totalprice", ColumnType.decimal(2),
+            "o_orderdate", ColumnType.DATE,
+            "o_shippriority", ColumnType.LONG);
+
+    @Test
+    void testRoundTripOfTypedOrders() throws Exception {
+        String csv = "o_orderkey;o_custkey;o_orderstatus;o_totalprice;o_orderdate;o_shippriority;o_comment\n"
+                + "1;370;O;172799.49;1996-01-02;0;nstructions sleep\n"
+                + "2;781;F;-46929.1;1996-12-01; 7 ;\n"
+                + "3;1234;O;;not-a-date;x;\u00e9t\u00e9\n";
+
+        List<Map<String, Object>> records = decodeAll(csv);
+
+        assertEquals(3, records.size());
+        Map<String, Object> first = records.get(0);
+        assertEquals(List.of("o_orderstatus", "o_totalprice", "o_orderdate", "o_shippriority", "o_comment",
+                "input_filename", "imported"), List.copyOf(first.keySet()));
+        assertEquals("O", first.get("o_orderstatus"));
+        assertEquals(new BigDecimal("172799.49"), first.get("o_totalprice"));
+        assertEquals(LocalDate.of(1996, 1, 2), first.get("o_orderdate"));
+        assertEquals(0L, first.get("o_shippriority"));
+        assertEquals("orders.csv", first.get("input_filename"));
+
+        Map<String, Object> second = records.get(1);
+        assertEquals(new BigDecimal("-46929.10"), second.get("o_totalprice"));
+        assertEquals(7L, second.get("o_shippriority"));
+        assertEquals("", second.get("o_comment"));
+
+        // Empty and invalid typed values become null, strings are kept as is
+        Map<String, Object> third = records.get(2);
+        assertNull(third.get("o_totalprice"));
+        assertNull(third.get("o_orderdate"));
+        assertNull(third.get("o_shippriority"));
+        assertEquals("\u00e9t\u00e9", third.get("o_comment"));
+    }
+
+    @Test
+    void testBinaryRecordIsSmallerThanJson() throws Exception {
+        String csv = "o_orderkey;o_custkey;o_orderstatus;o_totalprice;o_orderdate;o_shippriority\n"
+                + "1;370;O;172799.49;1996-01-02;0\n";
+        ParserConfig config = new ParserConfig(ParserConfig.ScanMode.SCALAR, ParserConfig.DEFAULT_KEY_COLUMNS,
+                List.of(), ORDER_TYPES);
+        try (CloseableIterator<RecordBatch> batches = new CsvProcessor(config)
+                .iterateBatches(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "orders.csv")) {
+            RecordBatch batch = batches.next();
+            int binary = new BinaryRecordWriter(batch.getSchema()).write(batch, 0);
+            int json = new JsonRecordWriter(batch.getSchema()).write(batch, 0);
+            assertTrue(binary * 2 < json, binary + " vs " + json);
+        }
+    }
+
+    @Test
+    void testFieldParsers() {
+        assertEquals(Long.MIN_VALUE, parseLong("-9223372036854775808"));
+        assertEquals(Long.MAX_VALUE, parseLong("+9223372036854775807"));
+        assertThrows(NumberFormatException.class, () -> parseLong("9223372036854775808"));
+        assertThrows(NumberFormatException.class, () -> parseLong("1.0"));
+        assertThrows(NumberFormatException.class, () -> parseLong("-"));
+
+        assertEquals(10050, parseDecimal("100.5", 2));
+        assertEquals(-5, parseDecimal("-.05", 2));
+        assertEquals(100, parseDecimal("1.000", 2));
+        assertEquals(12, parseDecimal("12.", 0));
+        assertThrows(NumberFormatException.class, () -> parseDecimal("1.005", 2));
+        assertThrows(NumberFormatException.class, () -> parseDecimal("92233720368547758.08", 2));
+        assertThrows(NumberFormatException.class, () -> parseDecimal(".", 2));
+
+        for (LocalDate date = LocalDate.of(1899, 12, 25); date.getYear() < 2101; date = date.plusDays(13)) {
+            assertEquals(date.toEpochDay(), parseEpochDay(date.toString()));
+        }
+        assertEquals(LocalDate.of(2000, 2, 29).toEpochDay(), parseEpochDay("2000-02-29"));
+        assertThrows(NumberFormatException.class, () -> parseEpochDay("1900-02-29"));
+        assertThrows(NumberFormatException.class, () -> parseEpochDay("1996-13-01"));
+        assertThrows(NumberFormatException.class, () -> parseEpochDay("1996/01/01"));
+    }
+
+    private static List<Map<String, Object>> decodeAll(String csv) throws Exception {
+        ParserConfig config = new ParserConfig(ParserConfig.ScanMode.SWAR, ParserConfig.DEFAULT_KEY_COLUMNS,
+                List.of(), ORDER_TYPES);
+        List<Map<String, Object>> records = new ArrayList<>();
+        try (CloseableIterator<RecordBatch> batches = new CsvProcessor(config)
+                .iterateBatches(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "orders.csv")) {
+            while (batches.hasNext()) {
+                RecordBatch batch = batches.next();
+                BinaryRecordWriter writer = new BinaryRecordWriter(batch.getSchema());
+                for (int r = 0; r < batch.size(); r++) {
+                    writer.write(batch, r);
+                    records.add(BinaryRecordReader.decode(writer.toByteArray(), batch.getSchema()));
+                }
+                // Blank values are null without being counted as invalid
+                assertEquals(2, writer.getInvalidValueCount());
+            }
+        }
+        return records;
+    }
+
+    private static long parseLong(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return FieldParsers.parseLong(bytes, 0, bytes.length);
+    }
+
+    private static long parseDecimal(String value, int scale) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return FieldParsers.parseDecimal(bytes, 0, bytes.length, scale);
+    }
+
+    private static long parseEpochDay(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return FieldParsers.parseEpochDay(bytes, 0, bytes.length);
+    }
+}
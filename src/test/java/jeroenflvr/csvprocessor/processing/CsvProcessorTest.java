@@ -1,14 +1,28 @@
 package jeroenflvr.csvprocessor.processing;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import jeroenflvr.csvprocessor.config.ParserConfig;
 import jeroenflvr.csvprocessor.model.ProcessedRecord;
 import jeroenflvr.csvprocessor.processing.CsvProcessor;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
 
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Unit tests for CsvProcessor.
@@ -73,4 +87,286 @@ class CsvProcessorTest {
         assertEquals(1, records.size());
         assertEquals("1_123", records.get(0).getCompositeKey());
     }
+
+    @Test
+    void testIterateCsvReadsRowsLazily() throws Exception {
+        StringBuilder csvData = new StringBuilder("o_orderkey;o_custkey;o_orderstatus;o_totalprice;o_orderdate\n");
+        for (int i = 0; i < 100_000; i++) {
+            csvData.append(i).append(";123;O;100.50;1996-01-02\n");
+        }
+        
+        CountingInputStream input = new CountingInputStream(
+                new ByteArrayInputStream(csvData.toString().getBytes(StandardCharsets.UTF_8)));
+        try (CloseableIterator<ProcessedRecord> records = csvProcessor.iterateCSV(input, "test-file.csv")) {
+            assertTrue(records.hasNext());
+            assertEquals("0_123", records.next().getCompositeKey());
+            
+            // Only a buffer's worth of the file has been read so far
+            assertTrue(input.bytesRead < csvData.length() / 4);
+        }
+        assertTrue(input.closed);
+    }
+
+    @Test
+    void testProcessCsvFromInputStreamWithCrLf() throws Exception {
+        String csvData = "o_orderkey;o_custkey;o_orderstatus;o_totalprice;o_comment\r\n" +
+                        "1;123;O;100.50;caf\u00e9\r\n" +
+                        "   \r\n" +
+                        "2;456;F;200.75;";
+        
+        List<ProcessedRecord> records = csvProcessor.processCSV(
+                new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8)), "crlf-file.csv");
+        
+        assertEquals(2, records.size());
+        assertEquals("caf\u00e9", records.get(0).getData().get("o_comment"));
+        assertEquals("2_456", records.get(1).getCompositeKey());
+        assertEquals("", records.get(1).getData().get("o_comment"));
+    }
+
+    @Test
+    void testProcessCsvOutputLayout() throws Exception {
+        String csvData = "o_comment;o_orderkey;o_custkey;;o_comment;o_totalprice\n" +
+                        "first;1;123;skipped;second\n";
+        
+        BufferedReader reader = new BufferedReader(new StringReader(csvData));
+        List<ProcessedRecord> records = csvProcessor.processCSV(reader, "layout.csv");
+        
+        assertEquals(1, records.size());
+        ProcessedRecord record = records.get(0);
+        assertEquals("1_123", record.getCompositeKey());
+        // Duplicate columns keep their first position and last value, blank headers are dropped
+        assertEquals(List.of("o_comment", "o_totalprice", "input_filename", "imported"),
+                List.copyOf(record.getData().keySet()));
+        assertEquals("second", record.getData().get("o_comment"));
+        assertEquals("", record.getData().get("o_totalprice"));
+    }
+
+    @Test
+    void testIterateBatchesMatchesRecords() throws Exception {
+        StringBuilder csv = new StringBuilder("o_orderkey;o_custkey;o_comment;o_totalprice\n");
+        for (int i = 0; i < RecordBatch.DEFAULT_CAPACITY * 3; i++) {
+            csv.append(i).append(';').append(i % 13).append(";comment ").append(i);
+            // Every third row is too short and must be rejected
+            csv.append(i % 3 == 0 ? "\n" : ";1.5\n");
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+        List<ProcessedRecord> expected = csvProcessor.processCSV(new ByteArrayInputStream(data), "batch.csv");
+
+        int row = 0;
+        int batches = 0;
+        try (CloseableIterator<RecordBatch> iterator =
+                     csvProcessor.iterateBatches(new ByteArrayInputStream(data), "batch.csv")) {
+            while (iterator.hasNext()) {
+                RecordBatch batch = iterator.next();
+                batches++;
+                RowSchema schema = batch.getSchema();
+                for (int r = 0; r < batch.size(); r++, row++) {
+                    ProcessedRecord record = expected.get(row);
+                    assertEquals(record.getCompositeKey(), batch.getKey(r));
+                    for (int c = 0; c < schema.getOutputCount(); c++) {
+                        if (schema.getOutputSlot(c) != RowSchema.IMPORTED_SLOT) {
+                            assertEquals(record.getData().get(schema.getOutputName(c)), batch.getValue(c, r));
+                        }
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected.size(), row);
+        assertEquals(RecordBatch.DEFAULT_CAPACITY * 2, expected.size());
+        assertEquals(2, batches);
+    }
+
+    @Test
+    void testParallelBatchesMatchRecordsInFileOrder() throws Exception {
+        StringBuilder csv = new StringBuilder("\uFEFFo_orderkey;o_custkey;o_comment;o_totalprice\r\n");
+        for (int i = 0; i < 20000; i++) {
+            csv.append(i).append(';').append(i % 13).append(";comm\u00e9nt ").append(i);
+            if (i % 5 == 0) {
+                // Lines longer than a chunk
+                csv.append("x".repeat(300));
+            }
+            // Mixed line endings, blank lines and short rows that must be rejected
+            csv.append(i % 3 == 0 ? "\r\n" : i % 7 == 0 ? "\n\n" : ";1.5\r");
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+        List<ProcessedRecord> expected = csvProcessor.processCSV(new ByteArrayInputStream(data), "batch.csv");
+
+        ParserConfig config = new ParserConfig(ParserConfig.ScanMode.SWAR, ParserConfig.DEFAULT_KEY_COLUMNS,
+                List.of(), Map.of(), 4, 256);
+        int row = 0;
+        try (CloseableIterator<RecordBatch> iterator = new CsvProcessor(config)
+                .iterateBatches(new ByteArrayInputStream(data), "batch.csv")) {
+            while (iterator.hasNext()) {
+                RecordBatch batch = iterator.next();
+                RowSchema schema = batch.getSchema();
+                for (int r = 0; r < batch.size(); r++, row++) {
+                    ProcessedRecord record = expected.get(row);
+                    assertEquals(record.getCompositeKey(), batch.getKey(r));
+                    for (int c = 0; c < schema.getOutputCount(); c++) {
+                        if (schema.getOutputSlot(c) != RowSchema.IMPORTED_SLOT) {
+                            assertEquals(record.getData().get(schema.getOutputName(c)), batch.getValue(c, r));
+                        }
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected.size(), row);
+        assertTrue(expected.size() > 10000);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void testMappedFileBatchesMatchStreamBatches(int parallelism, @TempDir Path dir) throws Exception {
+        StringBuilder csv = new StringBuilder("o_orderkey;o_custkey;o_comment;o_totalprice\r\n");
+        for (int i = 0; i < 5000; i++) {
+            csv.append(i).append(';').append(i % 13).append(";comm\u00e9nt ").append(i);
+            if (i % 1000 == 0) {
+                // Lines longer than a window
+                csv.append("x".repeat(3000));
+            }
+            // Short rows that must be rejected
+            csv.append(i % 3 == 0 ? "\r\n" : ";1.5\n");
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(dir.resolve("mapped.csv"), data);
+        CsvProcessor processor = new CsvProcessor(new ParserConfig(ParserConfig.ScanMode.SWAR,
+                ParserConfig.DEFAULT_KEY_COLUMNS, List.of(), Map.of(), parallelism, 256, 1024));
+
+        List<String> expected = new ArrayList<>();
+        try (CloseableIterator<RecordBatch> iterator = processor.iterateBatches(
+                new ByteArrayInputStream(data), "mapped.csv")) {
+            iterator.forEachRemaining(batch -> expected.addAll(rows(batch)));
+        }
+        List<String> actual = new ArrayList<>();
+        try (CloseableIterator<RecordBatch> iterator = processor.iterateBatches(file, "mapped.csv")) {
+            iterator.forEachRemaining(batch -> actual.addAll(rows(batch)));
+        }
+
+        assertTrue(expected.size() > 3000);
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void testParsingContinuesFromBatchEndOffset(int parallelism) throws Exception {
+        StringBuilder csv = new StringBuilder("\uFEFFo_orderkey;o_custkey;o_comment;o_totalprice\n");
+        for (int i = 0; i < 10000; i++) {
+            csv.append(i).append(';').append(i % 13).append(";comm\u00e9nt ").append(i)
+                    .append(i % 3 == 0 ? "\r\n" : ";1.5\n");
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+        CsvProcessor processor = new CsvProcessor(new ParserConfig(ParserConfig.ScanMode.SWAR,
+                ParserConfig.DEFAULT_KEY_COLUMNS, List.of(), Map.of(), parallelism, 4096));
+
+        List<String> expected = new ArrayList<>();
+        List<String> headers = null;
+        long offset = -1;
+        int rowsBefore = 0;
+        try (CloseableIterator<RecordBatch> iterator = processor.iterateBatches(
+                new ByteArrayInputStream(data), "resume.csv")) {
+            while (iterator.hasNext()) {
+                RecordBatch batch = iterator.next();
+                expected.addAll(rows(batch));
+                if (offset < 0 && expected.size() > 1000) {
+                    headers = batch.getSchema().getHeaders();
+                    offset = batch.getEndOffset();
+                    rowsBefore = expected.size();
+                }
+            }
+        }
+
+        List<String> resumed = new ArrayList<>();
+        try (CloseableIterator<RecordBatch> iterator = processor.iterateBatches(
+                new ByteArrayInputStream(data, (int) offset, data.length - (int) offset), "resume.csv",
+                headers, offset)) {
+            iterator.forEachRemaining(batch -> resumed.addAll(rows(batch)));
+        }
+
+        assertTrue(offset > 0 && offset < data.length);
+        assertEquals(expected.subList(rowsBefore, expected.size()), resumed);
+    }
+
+    @Test
+    void testMappedEmptyAndHeaderOnlyFiles(@TempDir Path dir) throws Exception {
+        for (String csv : List.of("", "o_orderkey;o_custkey;o_comment;o_totalprice")) {
+            Path file = Files.writeString(dir.resolve("empty.csv"), csv);
+            try (CloseableIterator<RecordBatch> iterator = csvProcessor.iterateBatches(file, "empty.csv")) {
+                assertFalse(iterator.hasNext());
+            }
+        }
+    }
+
+    @Test
+    void testParallelParsingOfEmptyAndHeaderOnlyFiles() throws Exception {
+        ParserConfig config = new ParserConfig(ParserConfig.ScanMode.SCALAR, ParserConfig.DEFAULT_KEY_COLUMNS,
+                List.of(), Map.of(), 2, 16);
+        CsvProcessor processor = new CsvProcessor(config);
+
+        for (String csv : List.of("", "o_orderkey;o_custkey;o_comment;o_totalprice", "a;b\n1;2\n")) {
+            try (CloseableIterator<RecordBatch> iterator = processor.iterateBatches(
+                    new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "empty.csv")) {
+                assertFalse(iterator.hasNext());
+            }
+        }
+    }
+
+    @Test
+    void testConfiguredKeyAndOutputColumns() throws Exception {
+        ParserConfig config = new ParserConfig(ParserConfig.ScanMode.SWAR,
+                List.of("l_orderkey", "l_linenumber"), List.of("l_quantity", "l_orderkey", "missing"));
+        String csvData = "l_orderkey;l_partkey;l_linenumber;l_quantity;l_comment;l_extra\n" +
+                        "7;99;2;17;unused;unused" + ";skipped".repeat(20) + "\n";
+        
+        List<ProcessedRecord> records = new CsvProcessor(config)
+                .processCSV(new BufferedReader(new StringReader(csvData)), "lineitem.csv");
+        
+        assertEquals(1, records.size());
+        ProcessedRecord record = records.get(0);
+        assertEquals("7_2", record.getCompositeKey());
+        assertEquals(List.of("l_quantity", "l_orderkey", "input_filename", "imported"),
+                List.copyOf(record.getData().keySet()));
+        assertEquals("17", record.getData().get("l_quantity"));
+        assertEquals("7", record.getData().get("l_orderkey"));
+    }
+
+    private static List<String> rows(RecordBatch batch) {
+        RowSchema schema = batch.getSchema();
+        List<String> rows = new ArrayList<>();
+        for (int r = 0; r < batch.size(); r++) {
+            StringBuilder row = new StringBuilder(batch.getKey(r));
+            for (int c = 0; c < schema.getOutputCount(); c++) {
+                if (schema.getOutputSlot(c) != RowSchema.IMPORTED_SLOT) {
+                    row.append('|').append(batch.getValue(c, r));
+                }
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long bytesRead;
+        boolean closed;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package jeroenflvr.csvprocessor.processing;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import jeroenflvr.csvprocessor.config.ParserConfig.ScanMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Unit tests for CsvTokenizer.
+ */
+class CsvTokenizerTest {
+
+    private static CsvTokenizer tokenizer(String data, int bufferSize, ScanMode scanMode) {
+        return new CsvTokenizer(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+                bufferSize, scanMode);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScanMode.class)
+    void testSplitsFieldsAndKeepsTrailingEmpties(ScanMode scanMode) throws Exception {
+        CsvTokenizer tokenizer = tokenizer("a;bb;;c;\n", 64, scanMode);
+        
+        assertTrue(tokenizer.nextLine());
+        assertEquals(5, tokenizer.fieldCount());
+        assertEquals("a", tokenizer.field(0));
+        assertEquals("bb", tokenizer.field(1));
+        assertEquals(2, tokenizer.fieldLength(1));
+        assertEquals("", tokenizer.field(2));
+        assertEquals("c", tokenizer.field(3));
+        assertEquals("", tokenizer.field(4));
+        assertFalse(tokenizer.nextLine());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScanMode.class)
+    void testLineTerminatorsAndBom(ScanMode scanMode) throws Exception {
+        CsvTokenizer tokenizer = tokenizer("\uFEFFh1;h2\r\nx;y\rlast", 64, scanMode);
+        
+        assertTrue(tokenizer.nextLine());
+        assertEquals("h1", tokenizer.field(0));
+        assertTrue(tokenizer.nextLine());
+        assertEquals("y", tokenizer.field(1));
+        assertTrue(tokenizer.nextLine());
+        assertEquals(1, tokenizer.fieldCount());
+        assertEquals("last", tokenizer.field(0));
+        assertFalse(tokenizer.nextLine());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScanMode.class)
+    void testLinesLongerThanBufferAreReassembled(ScanMode scanMode) throws Exception {
+        String longField = "x".repeat(100);
+        CsvTokenizer tokenizer = tokenizer("1;" + longField + ";\u00e9\n2;short;z\n", 8, scanMode);
+        
+        assertTrue(tokenizer.nextLine());
+        assertEquals(3, tokenizer.fieldCount());
+        assertEquals(longField, tokenizer.field(1));
+        assertEquals("\u00e9", tokenizer.field(2));
+        assertTrue(tokenizer.nextLine());
+        assertEquals("short", tokenizer.field(1));
+        assertFalse(tokenizer.nextLine());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScanMode.class)
+    void testBlankLines(ScanMode scanMode) throws Exception {
+        CsvTokenizer tokenizer = tokenizer("\n \t\nx\n", 64, scanMode);
+        
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.isBlankLine());
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.isBlankLine());
+        assertTrue(tokenizer.nextLine());
+        assertFalse(tokenizer.isBlankLine());
+        assertFalse(tokenizer.nextLine());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScanMode.class)
+    void testFieldLimitSkipsRemainingFields(ScanMode scanMode) throws Exception {
+        String skipped = ";x".repeat(40);
+        CsvTokenizer tokenizer = tokenizer("a;b;c;d\r\n1;2" + skipped + "\n3\n4;5;6", 8, scanMode);
+        
+        assertTrue(tokenizer.nextLine());
+        assertEquals(4, tokenizer.fieldCount());
+        tokenizer.setFieldLimit(2);
+        assertTrue(tokenizer.nextLine());
+        assertEquals(2, tokenizer.fieldCount());
+        assertEquals("2", tokenizer.field(1));
+        assertTrue(tokenizer.nextLine());
+        assertEquals(1, tokenizer.fieldCount());
+        assertEquals("3", tokenizer.field(0));
+        assertTrue(tokenizer.nextLine());
+        assertEquals(2, tokenizer.fieldCount());
+        assertEquals("5", tokenizer.field(1));
+        assertFalse(tokenizer.nextLine());
+    }
+}
@@ -0,0 +1,48 @@
+package jeroenflvr.csvprocessor.processing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Unit tests for DelimiterScanner.
+ */
+class DelimiterScannerTest {
+
+    @Test
+    void testSwarMatchesScalarOnRandomInput() {
+        byte[] alphabet = {'a', '1', ';', '\n', '\r', ' ', (byte) 0xC3, (byte) 0xA9, 0, (byte) 0xFF};
+        Random random = new Random(42);
+        byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            // Mostly non-structural bytes so that whole words are skipped too
+            data[i] = random.nextInt(10) < 8 ? alphabet[random.nextInt(2)] : alphabet[random.nextInt(alphabet.length)];
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        
+        for (int from = 0; from < data.length; from++) {
+            int to = Math.min(data.length, from + random.nextInt(64));
+            assertEquals(DelimiterScanner.scalar(buffer, from, to), DelimiterScanner.swar(buffer, from, to));
+        }
+    }
+
+    @Test
+    void testReturnsLimitWhenNothingFound() {
+        ByteBuffer buffer = ByteBuffer.wrap("abcdefghijklmnop".getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        
+        assertEquals(16, DelimiterScanner.swar(buffer, 0, 16));
+        assertEquals(16, DelimiterScanner.scalar(buffer, 0, 16));
+    }
+
+    @Test
+    void testFindsFirstMatchWithinWord() {
+        ByteBuffer buffer = ByteBuffer.wrap("abc;\n;\rxyz".getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        
+        assertEquals(3, DelimiterScanner.swar(buffer, 0, 11));
+        assertEquals(4, DelimiterScanner.swar(buffer, 4, 11));
+        assertEquals(6, DelimiterScanner.swar(buffer, 6, 11));
+    }
+}
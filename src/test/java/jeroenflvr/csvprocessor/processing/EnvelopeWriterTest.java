@@ -0,0 +1,59 @@
+package jeroenflvr.csvprocessor.processing;
+
+import org.apache.kafka.streams.KeyValue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for EnvelopeWriter and EnvelopeReader.
+ */
+class EnvelopeWriterTest {
+
+    @Test
+    void testRoundTrip() {
+        EnvelopeWriter writer = new EnvelopeWriter();
+        byte[] large = new byte[200_000];
+        Arrays.fill(large, (byte) 'x');
+        writer.add(bytes("1_10"), bytes("{\"o_status\":\"O\"}"));
+        writer.add(bytes("2_20"), large);
+        writer.add(bytes(""), new byte[0]);
+        assertEquals(3, writer.getRowCount());
+
+        byte[] envelope = writer.toByteArray();
+        assertEquals(envelope.length, writer.size());
+        assertTrue(EnvelopeReader.isEnvelope(envelope));
+        List<KeyValue<byte[], byte[]>> records = EnvelopeReader.decode(envelope);
+        assertEquals(3, records.size());
+        assertEquals("1_10", new String(records.get(0).key, StandardCharsets.UTF_8));
+        assertEquals("{\"o_status\":\"O\"}", new String(records.get(0).value, StandardCharsets.UTF_8));
+        assertArrayEquals(large, records.get(1).value);
+        assertEquals(0, records.get(2).value.length);
+
+        // The writer is reused for the next envelope
+        writer.reset();
+        assertTrue(writer.isEmpty());
+        writer.add(bytes("3_30"), bytes("{}"));
+        assertEquals(1, EnvelopeReader.decode(writer.toByteArray()).size());
+    }
+
+    @Test
+    void testRecordsAreNotEnvelopes() {
+        assertFalse(EnvelopeReader.isEnvelope(bytes("{\"o_status\":\"O\",\"input_filename\":\"f\"}")));
+        assertFalse(EnvelopeReader.isEnvelope(new byte[] {BinaryRecordWriter.FORMAT_VERSION, 0, 0, 0, 0, 0}));
+
+        EnvelopeWriter writer = new EnvelopeWriter();
+        writer.add(bytes("1_10"), bytes("{}"));
+        byte[] envelope = writer.toByteArray();
+        assertThrows(IllegalArgumentException.class,
+                () -> EnvelopeReader.decode(Arrays.copyOf(envelope, envelope.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeReader.decode(bytes("{}")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,218 @@
+package jeroenflvr.csvprocessor.processing;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+import jeroenflvr.csvprocessor.model.ProcessedRecord;
+import jeroenflvr.csvprocessor.model.S3Location;
+import jeroenflvr.csvprocessor.storage.S3FileReader;
+
+import org.apache.kafka.streams.KeyValue;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for FileProcessingService.
+ */
+class FileProcessingServiceTest {
+
+    private static final String PATH = "s3://bucket/orders.csv";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testStreamFileMatchesMapSerialization() throws Exception {
+        StringBuilder csv = new StringBuilder("o_orderkey;o_custkey;o_orderstatus;o_comment;o_clerk\n");
+        for (int i = 0; i < RecordBatch.DEFAULT_CAPACITY + 100; i++) {
+            csv.append(i).append(';').append(i % 7).append(";O;")
+                    .append("say \"hi\" \\ caf\u00e9\t\u0001/\u007f").append(i).append(";clerk\n");
+            if (i % 1000 == 0) {
+                // Rejected rows must not shift the remaining ones
+                csv.append("short;row\n").append(" ;;x;y\n").append("\n");
+            }
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<KeyValue<String, String>> actual = serviceFor(data).processFile(PATH);
+        List<ProcessedRecord> expected = new CsvProcessor()
+                .processCSV(new ByteArrayInputStream(data), PATH);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Map<String, String> parsed = objectMapper.readValue(actual.get(i).value,
+                    new TypeReference<LinkedHashMap<String, String>>() { });
+            Map<String, String> expectedData = expected.get(i).getData();
+            // The import timestamp is taken per file and may differ between the two runs
+            expectedData.put("imported", parsed.get("imported"));
+
+            assertEquals(expected.get(i).getCompositeKey(), actual.get(i).key);
+            assertEquals(objectMapper.writeValueAsString(expectedData), actual.get(i).value);
+        }
+    }
+
+    @Test
+    void testStreamFileWithMissingFileIsEmpty() {
+        FileProcessingService service = new FileProcessingService(new S3FileReader(null) {
+            @Override
+            public InputStream openStream(S3Location location) {
+                throw new IllegalStateException("missing");
+            }
+        });
+
+        assertFalse(service.streamFile(PATH).iterator().hasNext());
+        assertTrue(service.processFile("  ").isEmpty());
+    }
+
+    @Test
+    void testStreamFileSkipsObjectsInLedger() {
+        byte[] data = "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n".getBytes(StandardCharsets.UTF_8);
+        MapLedger ledger = new MapLedger();
+        FileProcessingService service = serviceFor(data);
+
+        assertEquals(2, count(service.streamFile(PATH, ledger)));
+        assertEquals(new ProcessedObject(PATH, "\"v1\"", data.length, 2), ledger.entries.get(PATH));
+
+        assertEquals(0, count(service.streamFile(PATH, ledger)));
+        assertEquals(1, service.getSkippedObjectCount());
+        assertEquals(data.length, service.getSkippedBytes());
+    }
+
+    @Test
+    void testPartiallyReadObjectIsNotRecorded() {
+        byte[] data = "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n".getBytes(StandardCharsets.UTF_8);
+        MapLedger ledger = new MapLedger();
+
+        Iterator<KeyValue<String, String>> records = serviceFor(data).streamFile(PATH, ledger).iterator();
+        records.next();
+
+        assertTrue(ledger.entries.isEmpty());
+    }
+
+    @Test
+    void testInterruptedObjectResumesFromCheckpoint() {
+        StringBuilder csv = new StringBuilder("o_orderkey;o_custkey;o_status;o_x\r\n");
+        for (int i = 0; i < RecordBatch.DEFAULT_CAPACITY * 3; i++) {
+            csv.append(i).append(';').append(i % 7).append(";O;x").append(i).append("\r\n");
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+        MapLedger ledger = new MapLedger();
+        FileProcessingService service = serviceFor(data);
+
+        // Stop in the middle of the second batch
+        Iterator<KeyValue<String, String>> records = service.streamFile(PATH, ledger).iterator();
+        for (int i = 0; i < RecordBatch.DEFAULT_CAPACITY + 10; i++) {
+            records.next();
+        }
+        FileCheckpoint checkpoint = ledger.checkpoints.get(PATH);
+        assertEquals(RecordBatch.DEFAULT_CAPACITY, checkpoint.getRowNumber());
+        assertEquals("\"v1\"", checkpoint.getETag());
+        // The offset follows the \r; the \n left over reads as a blank line
+        assertEquals('\r', data[(int) checkpoint.getByteOffset() - 1]);
+
+        // The next attempt continues after the first batch and completes the object
+        List<String> keys = new ArrayList<>();
+        service.streamFile(PATH, ledger).forEach(record -> keys.add(record.key));
+        assertEquals(RecordBatch.DEFAULT_CAPACITY * 2, keys.size());
+        assertEquals(RecordBatch.DEFAULT_CAPACITY + "_" + RecordBatch.DEFAULT_CAPACITY % 7, keys.get(0));
+        assertEquals(1, service.getResumedObjectCount());
+        assertEquals(RecordBatch.DEFAULT_CAPACITY * 3, ledger.entries.get(PATH).getRowCount());
+        assertTrue(ledger.checkpoints.isEmpty());
+    }
+
+    @Test
+    void testPrefixListingLeavesOutManifests() {
+        FileProcessingService service = new FileProcessingService(new S3FileReader(null) {
+            @Override
+            public List<String> listObjects(S3Location prefix) {
+                return List.of("a.csv", "all.manifest", "nested/b.csv");
+            }
+        });
+
+        assertEquals(List.of("s3://bucket/in/a.csv", "s3://bucket/in/nested/b.csv"),
+                service.expandWorkItems("s3://bucket/in/"));
+    }
+
+    @Test
+    void testManifestLinesNamingCollectionsAreIgnored() {
+        byte[] manifest = ("a.csv\n"
+                + "self.manifest\n"
+                + "s3://bucket/in/self.manifest\n"
+                + "other.manifest\n"
+                + "nested/\n"
+                + "s3://other/b.csv\n").getBytes(StandardCharsets.UTF_8);
+        FileProcessingService service = serviceFor(manifest);
+
+        assertEquals(List.of("s3://bucket/in/a.csv", "s3://other/b.csv"),
+                service.expandWorkItems("s3://bucket/in/self.manifest"));
+    }
+
+    private static int count(Iterable<?> records) {
+        int count = 0;
+        for (Object record : records) {
+            count++;
+        }
+        return count;
+    }
+
+    private static FileProcessingService serviceFor(byte[] data) {
+        return new FileProcessingService(new S3FileReader(null) {
+            @Override
+            public InputStream openStream(S3Location location) {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public InputStream openStream(S3Location location, long offset, String eTag) {
+                assertEquals("\"v1\"", eTag);
+                return new ByteArrayInputStream(data, (int) offset, data.length - (int) offset);
+            }
+
+            @Override
+            public HeadObjectResponse headObject(S3Location location) {
+                return HeadObjectResponse.builder().eTag("\"v1\"").contentLength((long) data.length).build();
+            }
+        });
+    }
+
+    /**
+     * In-memory ledger.
+     */
+    private static final class MapLedger implements ProcessedObjectLedger {
+        final Map<String, ProcessedObject> entries = new HashMap<>();
+        final Map<String, FileCheckpoint> checkpoints = new HashMap<>();
+
+        @Override
+        public ProcessedObject lookup(String path) {
+            return entries.get(path);
+        }
+
+        @Override
+        public void recordProcessed(ProcessedObject object) {
+            entries.put(object.getPath(), object);
+            checkpoints.remove(object.getPath());
+        }
+
+        @Override
+        public FileCheckpoint lookupCheckpoint(String path) {
+            return checkpoints.get(path);
+        }
+
+        @Override
+        public void recordCheckpoint(FileCheckpoint checkpoint) {
+            checkpoints.put(checkpoint.getPath(), checkpoint);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package jeroenflvr.csvprocessor.processing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for JsonRecordWriter.
+ */
+class JsonRecordWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testWriteMatchesJacksonForAllAsciiCharacters() throws Exception {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        csv.writeBytes("o_orderkey;o_custkey;o_x;o_\"quoted\\name\u0007\n".getBytes(StandardCharsets.UTF_8));
+        for (int b = 0; b < 128; b++) {
+            if (b == ';' || b == '\n' || b == '\r') {
+                continue;
+            }
+            csv.writeBytes(("1;" + b + ";a").getBytes(StandardCharsets.UTF_8));
+            csv.write(b);
+            csv.writeBytes(";z\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertSerializedLikeJackson(csv.toByteArray());
+    }
+
+    @Test
+    void testWriteMatchesJacksonForNonAsciiAndMalformedUtf8() throws Exception {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        csv.writeBytes("o_orderkey;o_custkey;o_comment;o_clerk\n".getBytes(StandardCharsets.UTF_8));
+        csv.writeBytes("1;1;caf\u00e9 \u20ac \ud83d\ude00;\u00fc\n".getBytes(StandardCharsets.UTF_8));
+        // Truncated sequence, lone continuation byte, overlong encoding and an encoded surrogate
+        byte[][] malformed = {
+                {(byte) 0xE2, (byte) 0x82}, {(byte) 0x80}, {(byte) 0xC0, (byte) 0xAF},
+                {(byte) 0xED, (byte) 0xA0, (byte) 0x80}, {(byte) 0xF5, (byte) 0x80, (byte) 0x80, (byte) 0x80}
+        };
+        for (int i = 0; i < malformed.length; i++) {
+            csv.writeBytes(("2;" + i + ";x").getBytes(StandardCharsets.UTF_8));
+            csv.writeBytes(malformed[i]);
+            csv.writeBytes(";\"\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertSerializedLikeJackson(csv.toByteArray());
+    }
+
+    @Test
+    void testSupplementaryCharactersAreWrittenAsRawUtf8() throws Exception {
+        byte[] csv = "o_orderkey;o_custkey;o_comment;o_clerk\n1;1;\ud83d\ude00;x\n".getBytes(StandardCharsets.UTF_8);
+        String json = null;
+        try (CloseableIterator<RecordBatch> batches = new CsvProcessor()
+                .iterateBatches(new ByteArrayInputStream(csv), "orders.csv")) {
+            while (batches.hasNext()) {
+                RecordBatch batch = batches.next();
+                JsonRecordWriter writer = new JsonRecordWriter(batch.getSchema());
+                writer.write(batch, 0);
+                json = new String(writer.toByteArray(), StandardCharsets.ISO_8859_1);
+            }
+        }
+        assertNotNull(json);
+        assertTrue(json.startsWith("{\"o_comment\":\"\u00f0\u009f\u0098\u0080\""), json);
+        assertSerializedLikeJackson(csv);
+    }
+
+    private void assertSerializedLikeJackson(byte[] csv) throws Exception {
+        int rows = 0;
+        try (CloseableIterator<RecordBatch> batches = new CsvProcessor()
+                .iterateBatches(new ByteArrayInputStream(csv), "s3://bucket/\u00e9\t.csv")) {
+            while (batches.hasNext()) {
+                RecordBatch batch = batches.next();
+                JsonRecordWriter writer = new JsonRecordWriter(batch.getSchema());
+                for (int r = 0; r < batch.size(); r++, rows++) {
+                    Map<String, String> expected = new LinkedHashMap<>();
+                    for (int c = 0; c < batch.getSchema().getOutputCount(); c++) {
+                        expected.put(batch.getSchema().getOutputName(c), batch.getValue(c, r));
+                    }
+                    writer.write(batch, r);
+                    assertArrayEquals(objectMapper.writeValueAsString(expected).getBytes(StandardCharsets.UTF_8), writer.toByteArray(),
+                            () -> writer.toString());
+                }
+            }
+        }
+        assertTrue(rows > 0);
+    }
+}
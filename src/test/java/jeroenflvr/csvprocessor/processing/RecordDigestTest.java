@@ -0,0 +1,65 @@
+package jeroenflvr.csvprocessor.processing;
+
+import jeroenflvr.csvprocessor.config.ParserConfig;
+import jeroenflvr.csvprocessor.util.CloseableIterator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for RecordDigest.
+ */
+class RecordDigestTest {
+
+    @Test
+    void testJsonDigestIgnoresTheMetadata() {
+        long digest = RecordDigest.ofJson(
+                "{\"o_status\":\"O\",\"input_filename\":\"day1.csv\",\"imported\":\"2024-01-01T00:00:00Z\"}");
+
+        assertEquals(digest, RecordDigest.ofJson(
+                "{\"o_status\":\"O\",\"input_filename\":\"day2.csv\",\"imported\":\"2024-01-02T00:00:00Z\"}"));
+        assertNotEquals(digest, RecordDigest.ofJson(
+                "{\"o_status\":\"F\",\"input_filename\":\"day1.csv\",\"imported\":\"2024-01-01T00:00:00Z\"}"));
+        // A value that merely contains the member name is part of the business columns
+        assertNotEquals(RecordDigest.ofJson("{\"o_x\":\"a\\\",\\\"input_filename\\\":1\",\"input_filename\":\"f\"}"),
+                RecordDigest.ofJson("{\"o_x\":\"b\\\",\\\"input_filename\\\":1\",\"input_filename\":\"f\"}"));
+    }
+
+    @Test
+    void testBinaryDigestCoversTheBusinessSectionOnly() throws Exception {
+        String csv = "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;a\n3;30;F;a\n";
+        List<byte[]> day1 = writeBinary(csv, "day1.csv");
+        List<byte[]> day2 = writeBinary(csv, "day2.csv");
+
+        assertFalse(Arrays.equals(day1.get(0), day2.get(0)));
+        assertEquals(RecordDigest.ofBinary(day1.get(0)), RecordDigest.ofBinary(day2.get(0)));
+        // The keys are not part of the record, the status is
+        assertEquals(RecordDigest.ofBinary(day1.get(0)), RecordDigest.ofBinary(day1.get(1)));
+        assertNotEquals(RecordDigest.ofBinary(day1.get(0)), RecordDigest.ofBinary(day1.get(2)));
+
+        byte[] truncated = Arrays.copyOf(day1.get(0), BinaryRecordWriter.BUSINESS_SECTION_OFFSET + 1);
+        assertThrows(IllegalArgumentException.class, () -> RecordDigest.ofBinary(truncated));
+    }
+
+    private static List<byte[]> writeBinary(String csv, String filename) throws Exception {
+        List<byte[]> records = new ArrayList<>();
+        try (CloseableIterator<RecordBatch> batches = new CsvProcessor(ParserConfig.defaults())
+                .iterateBatches(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), filename)) {
+            while (batches.hasNext()) {
+                RecordBatch batch = batches.next();
+                BinaryRecordWriter writer = new BinaryRecordWriter(batch.getSchema());
+                for (int r = 0; r < batch.size(); r++) {
+                    writer.write(batch, r);
+                    records.add(writer.toByteArray());
+                }
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,112 @@
+package jeroenflvr.csvprocessor.storage;
+
+import jeroenflvr.csvprocessor.model.S3Location;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for ObjectCache.
+ */
+class ObjectCacheTest {
+
+    private static final S3Location FIRST = S3Location.parse("s3://bucket/part_00001.csv");
+    private static final S3Location SECOND = S3Location.parse("s3://bucket/part_00002.csv");
+    private static final S3Location THIRD = S3Location.parse("s3://bucket/part_00003.csv");
+
+    @Test
+    void testObjectIsCachedAfterCompleteRead(@TempDir Path dir) throws Exception {
+        ObjectCache cache = new ObjectCache(dir, 1000);
+        byte[] content = content(100, 1);
+
+        read(cache.cacheWhileReading(FIRST, "\"etag-1\"", content.length, new ByteArrayInputStream(content)));
+
+        assertEquals("\"etag-1\"", cache.cachedETag(FIRST));
+        assertNull(cache.open(FIRST, "\"etag-2\""));
+        try (InputStream cached = cache.open(FIRST, "\"etag-1\"")) {
+            assertArrayEquals(content, cached.readAllBytes());
+        }
+        assertEquals(100, cache.getSizeBytes());
+    }
+
+    @Test
+    void testPartialReadIsNotCached(@TempDir Path dir) throws Exception {
+        ObjectCache cache = new ObjectCache(dir, 1000);
+        byte[] content = content(100, 1);
+
+        try (InputStream input = cache.cacheWhileReading(FIRST, "\"etag-1\"", content.length,
+                new ByteArrayInputStream(content))) {
+            input.readNBytes(50);
+        }
+
+        assertNull(cache.cachedETag(FIRST));
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedObjectIsEvicted(@TempDir Path dir) throws Exception {
+        ObjectCache cache = new ObjectCache(dir, 250);
+        put(cache, FIRST, "\"a\"", content(100, 1));
+        put(cache, SECOND, "\"b\"", content(100, 2));
+        cache.open(FIRST, "\"a\"").close();
+
+        put(cache, THIRD, "\"c\"", content(100, 3));
+
+        assertEquals("\"a\"", cache.cachedETag(FIRST));
+        assertNull(cache.cachedETag(SECOND));
+        assertEquals("\"c\"", cache.cachedETag(THIRD));
+        assertEquals(200, cache.getSizeBytes());
+    }
+
+    @Test
+    void testNewVersionReplacesOldOne(@TempDir Path dir) throws Exception {
+        ObjectCache cache = new ObjectCache(dir, 1000);
+        put(cache, FIRST, "\"a\"", content(100, 1));
+        put(cache, FIRST, "\"b\"", content(60, 2));
+
+        assertEquals("\"b\"", cache.cachedETag(FIRST));
+        assertEquals(60, cache.getSizeBytes());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    void testCacheIsReloadedFromDisk(@TempDir Path dir) throws Exception {
+        ObjectCache cache = new ObjectCache(dir, 1000);
+        byte[] content = content(100, 1);
+        put(cache, FIRST, "\"multipart-3\"", content);
+
+        ObjectCache reloaded = new ObjectCache(dir, 1000);
+
+        assertEquals("\"multipart-3\"", reloaded.cachedETag(FIRST));
+        try (InputStream cached = reloaded.open(FIRST, "\"multipart-3\"")) {
+            assertArrayEquals(content, cached.readAllBytes());
+        }
+    }
+
+    private static void put(ObjectCache cache, S3Location location, String eTag, byte[] content) throws IOException {
+        read(cache.cacheWhileReading(location, eTag, content.length, new ByteArrayInputStream(content)));
+    }
+
+    private static void read(InputStream input) throws IOException {
+        try (input) {
+            input.readAllBytes();
+        }
+    }
+
+    private static byte[] content(int size, int seed) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * seed);
+        }
+        return bytes;
+    }
+}
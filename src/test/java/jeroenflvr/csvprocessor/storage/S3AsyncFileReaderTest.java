@@ -0,0 +1,158 @@
+package jeroenflvr.csvprocessor.storage;
+
+import jeroenflvr.csvprocessor.config.StorageConfig;
+import jeroenflvr.csvprocessor.config.StorageConfig.ClientMode;
+import jeroenflvr.csvprocessor.config.StorageConfig.DownloadMode;
+import jeroenflvr.csvprocessor.model.S3Location;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Unit tests for S3AsyncFileReader.
+ */
+class S3AsyncFileReaderTest {
+
+    private static final StorageConfig CONFIG = new StorageConfig(DownloadMode.SINGLE,
+            StorageConfig.DEFAULT_PART_SIZE, 1, ClientMode.ASYNC, 8, 2);
+
+    @Test
+    void testStreamDeliversContentWithBoundedDemand() throws Exception {
+        byte[] content = new byte[10_000];
+        new Random(7).nextBytes(content);
+        FakeS3AsyncClient client = new FakeS3AsyncClient(content, 100);
+        S3AsyncFileReader reader = new S3AsyncFileReader(client, CONFIG);
+
+        try (InputStream input = reader.openStream(S3Location.parse("s3://bucket/orders.csv"))) {
+            // Nothing beyond the prefetch is pulled before the parser reads
+            assertEquals(2, client.publisher.delivered);
+
+            byte[] first = input.readNBytes(250);
+            assertArrayEquals(Arrays.copyOf(content, 250), first);
+            assertTrue(client.publisher.delivered <= 3 + 2, "delivered " + client.publisher.delivered);
+
+            byte[] rest = input.readAllBytes();
+            assertArrayEquals(Arrays.copyOfRange(content, 250, content.length), rest);
+        }
+        assertEquals(100, client.publisher.delivered);
+    }
+
+    @Test
+    void testCloseCancelsTheDownload() throws Exception {
+        FakeS3AsyncClient client = new FakeS3AsyncClient(new byte[1000], 10);
+        S3FileReader reader = new S3FileReader(null, CONFIG, new S3AsyncFileReader(client, CONFIG));
+
+        InputStream input = reader.openStream(S3Location.parse("s3://bucket/orders.csv"));
+        input.read();
+        input.close();
+
+        assertTrue(client.publisher.cancelled);
+        assertThrows(IOException.class, input::read);
+    }
+
+    @Test
+    void testMissingObject() {
+        FakeS3AsyncClient client = new FakeS3AsyncClient(null, 1);
+        S3AsyncFileReader reader = new S3AsyncFileReader(client, CONFIG);
+
+        IOException e = assertThrows(IOException.class,
+                () -> reader.openStream(S3Location.parse("s3://bucket/missing.csv")));
+        assertTrue(e.getMessage().contains("not found"));
+    }
+
+    /**
+     * In-memory asynchronous S3 client serving a single object.
+     */
+    private static final class FakeS3AsyncClient implements S3AsyncClient {
+        private final byte[] content;
+        private final int chunks;
+        ChunkPublisher publisher;
+
+        FakeS3AsyncClient(byte[] content, int chunks) {
+            this.content = content;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> getObject(GetObjectRequest request,
+                                                  AsyncResponseTransformer<GetObjectResponse, T> transformer) {
+            if (content == null) {
+                return CompletableFuture.failedFuture(NoSuchKeyException.builder().message("missing").build());
+            }
+            CompletableFuture<T> result = transformer.prepare();
+            transformer.onResponse(GetObjectResponse.builder().contentLength((long) content.length).build());
+            publisher = new ChunkPublisher(content, chunks);
+            transformer.onStream(SdkPublisher.adapt(publisher));
+            return result;
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+
+    /**
+     * Publishes a byte array in equal chunks, strictly on demand.
+     */
+    private static final class ChunkPublisher implements Publisher<ByteBuffer> {
+        private final byte[] content;
+        private final int chunkSize;
+        volatile int delivered;
+        volatile boolean cancelled;
+
+        ChunkPublisher(byte[] content, int chunks) {
+            this.content = content;
+            this.chunkSize = content.length / chunks;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int offset;
+                private boolean completed;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && !cancelled && offset < content.length; i++) {
+                        int length = Math.min(chunkSize, content.length - offset);
+                        ByteBuffer chunk = ByteBuffer.wrap(Arrays.copyOfRange(content, offset, offset + length));
+                        offset += length;
+                        delivered++;
+                        subscriber.onNext(chunk);
+                    }
+                    if (offset >= content.length && !cancelled && !completed) {
+                        completed = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package jeroenflvr.csvprocessor.storage;
+
+import jeroenflvr.csvprocessor.config.StorageConfig;
+import jeroenflvr.csvprocessor.config.StorageConfig.DownloadMode;
+import jeroenflvr.csvprocessor.model.S3Location;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Unit tests for S3FileReader.
+ */
+class S3FileReaderTest {
+
+    private static final S3Location LOCATION = S3Location.parse("s3://bucket/orders.csv");
+
+    @Test
+    void testRangedDownloadReassemblesPartsInOrder() throws Exception {
+        FakeS3Client client = new FakeS3Client(randomBytes(1000));
+        S3FileReader reader = new S3FileReader(client, new StorageConfig(DownloadMode.RANGED, 64, 3));
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(client.content, input.readAllBytes());
+        }
+
+        assertEquals(16, client.ranges.size());
+        assertTrue(client.ranges.contains("bytes=0-63"));
+        assertTrue(client.ranges.contains("bytes=960-999"));
+        assertTrue(client.maxConcurrent.get() <= 3, "at most 3 parts in flight");
+        assertEquals(0, client.fullGets.get());
+    }
+
+    @Test
+    void testSmallObjectUsesSingleGet() throws Exception {
+        FakeS3Client client = new FakeS3Client(randomBytes(64));
+        S3FileReader reader = new S3FileReader(client, new StorageConfig(DownloadMode.RANGED, 64, 3));
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(client.content, input.readAllBytes());
+        }
+
+        assertTrue(client.ranges.isEmpty());
+        assertEquals(1, client.fullGets.get());
+    }
+
+    @Test
+    void testFailedPartFailsTheRead() throws Exception {
+        FakeS3Client client = new FakeS3Client(randomBytes(1000));
+        client.failingRange = "bytes=128-191";
+        S3FileReader reader = new S3FileReader(client, new StorageConfig(DownloadMode.RANGED, 64, 2));
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertThrows(IOException.class, input::readAllBytes);
+        }
+    }
+
+    @Test
+    void testUnchangedObjectIsReadFromCache(@TempDir Path cacheDir) throws Exception {
+        FakeS3Client client = new FakeS3Client(randomBytes(1000));
+        ObjectCache cache = new ObjectCache(cacheDir, 10_000);
+        S3FileReader reader = new S3FileReader(client, StorageConfig.defaults(), null, cache);
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(client.content, input.readAllBytes());
+        }
+        assertEquals(1, cache.getEntryCount());
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(client.content, input.readAllBytes());
+        }
+        assertEquals(1, client.fullGets.get());
+        assertEquals(1, client.notModified.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void testReadAheadDeliversTheObjectInOrder() throws Exception {
+        FakeS3Client client = new FakeS3Client(randomBytes(10_000));
+        S3FileReader reader = new S3FileReader(client, new StorageConfig(DownloadMode.SINGLE,
+                StorageConfig.DEFAULT_PART_SIZE, 1, StorageConfig.ClientMode.BLOCKING, 1, 1, null,
+                StorageConfig.DEFAULT_CACHE_MAX_BYTES, 3, 256));
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(client.content, input.readAllBytes());
+        }
+        assertEquals(1, client.fullGets.get());
+    }
+
+    @Test
+    void testReadAheadReturnsBuffersAndRethrowsFailures() throws Exception {
+        byte[] content = randomBytes(1000);
+        InputStream failing = new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos >= 600) {
+                    throw new IllegalStateException("connection reset");
+                }
+                return super.read(b, off, len);
+            }
+        };
+        BufferPool pool = new BufferPool(128);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (InputStream input = new ReadAheadInputStream(failing, pool, 2, executor, "test")) {
+            assertArrayEquals(Arrays.copyOf(content, 512), input.readNBytes(512));
+            IOException e = assertThrows(IOException.class, input::readAllBytes);
+            assertTrue(e.getMessage().contains("connection reset"));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, pool.freeCount());
+    }
+
+    @Test
+    void testReadAheadReturnsTheWorkersBufferWhenClosedDuringARead() throws Exception {
+        byte[] content = randomBytes(1000);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        InputStream stalling = new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos >= 256) {
+                    // Like a socket read, this does not react to interrupts
+                    reading.countDown();
+                    while (resume.getCount() > 0) {
+                        try {
+                            resume.await();
+                        } catch (InterruptedException e) {
+                            // Keep waiting
+                        }
+                    }
+                }
+                return super.read(b, off, len);
+            }
+        };
+        BufferPool pool = new BufferPool(128);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        InputStream input = new ReadAheadInputStream(stalling, pool, 2, executor, "test");
+        assertArrayEquals(Arrays.copyOf(content, 129), input.readNBytes(129));
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        input.close();
+        resume.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2, pool.freeCount());
+    }
+
+    @Test
+    void testGzipObjectIsDecompressedByExtension() throws Exception {
+        byte[] plain = csvBytes(5000);
+        FakeS3Client client = new FakeS3Client(compress(CompressionCodec.GZIP, plain));
+        S3FileReader reader = new S3FileReader(client, StorageConfig.defaults());
+
+        try (InputStream input = reader.openStream(S3Location.parse("s3://bucket/orders.csv.gz"))) {
+            assertArrayEquals(plain, input.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionCodec.class, names = {"GZIP", "ZSTD", "LZ4"})
+    void testCompressionIsDetectedFromMagicBytes(CompressionCodec codec) throws Exception {
+        byte[] plain = csvBytes(5000);
+        FakeS3Client client = new FakeS3Client(compress(codec, plain));
+        S3FileReader reader = new S3FileReader(client, StorageConfig.defaults());
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(plain, input.readAllBytes());
+        }
+    }
+
+    @Test
+    void testRangedDownloadIsDecompressedByContentEncoding() throws Exception {
+        byte[] plain = csvBytes(20000);
+        FakeS3Client client = new FakeS3Client(compress(CompressionCodec.ZSTD, plain));
+        client.contentEncoding = "zstd";
+        S3FileReader reader = new S3FileReader(client, new StorageConfig(DownloadMode.RANGED, 1024, 3));
+
+        try (InputStream input = reader.openStream(LOCATION)) {
+            assertArrayEquals(plain, input.readAllBytes());
+        }
+        assertFalse(client.ranges.isEmpty());
+    }
+
+    @Test
+    void testCorruptCompressedObjectFailsTheRead() throws Exception {
+        FakeS3Client client = new FakeS3Client(randomBytes(1000));
+        S3FileReader reader = new S3FileReader(client, StorageConfig.defaults());
+
+        try (InputStream input = reader.openStream(S3Location.parse("s3://bucket/orders.csv.gz"))) {
+            assertThrows(IOException.class, input::readAllBytes);
+        }
+    }
+
+    @Test
+    void testListObjectsFollowsAllPages() throws Exception {
+        FakeS3Client client = new FakeS3Client(new byte[0]);
+        client.keys.addAll(List.of("orders/", "orders/part-0.csv", "orders/part-1.csv",
+                "orders/part-2.csv", "orders/2024/part-3.csv", "orders/part-4.csv"));
+        S3FileReader reader = new S3FileReader(client);
+
+        assertEquals(List.of("part-0.csv", "part-1.csv", "part-2.csv", "2024/part-3.csv", "part-4.csv"),
+                reader.listObjects(S3Location.parse("s3://bucket/orders/")));
+        assertEquals(3, client.listPages.get());
+    }
+
+    @Test
+    void testListLocalDirectory(@TempDir Path directory) throws Exception {
+        Files.createDirectories(directory.resolve("2024"));
+        Files.write(directory.resolve("part-1.csv"), new byte[1]);
+        Files.write(directory.resolve("2024/part-0.csv"), new byte[1]);
+        S3FileReader reader = new S3FileReader(null);
+
+        assertEquals(List.of("2024/part-0.csv", "part-1.csv"),
+                reader.listObjects(S3Location.parse(directory.toUri().toString())));
+    }
+
+    private static byte[] csvBytes(int rows) {
+        StringBuilder csv = new StringBuilder("o_orderkey;o_custkey;o_status;o_comment\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(';').append(i % 97).append(";O;comment ").append(i * 31).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compress(CompressionCodec codec, byte[] plain) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream output = codec == CompressionCodec.GZIP ? new GZIPOutputStream(bytes)
+                : codec == CompressionCodec.ZSTD ? new ZstdOutputStream(bytes)
+                : new LZ4FrameOutputStream(bytes)) {
+            output.write(plain);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * In-memory S3 client serving a single object.
+     */
+    private static final class FakeS3Client implements S3Client {
+        private static final String ETAG = "\"0123456789abcdef\"";
+
+        final byte[] content;
+        final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger fullGets = new AtomicInteger();
+        final AtomicInteger notModified = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        volatile String failingRange;
+        volatile String contentEncoding;
+        final List<String> keys = new ArrayList<>();
+        final AtomicInteger listPages = new AtomicInteger();
+
+        FakeS3Client(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public HeadObjectResponse headObject(HeadObjectRequest request) {
+            return HeadObjectResponse.builder().contentLength((long) content.length).eTag(ETAG)
+                    .contentEncoding(contentEncoding).build();
+        }
+
+        @Override
+        public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+            if (ETAG.equals(request.ifNoneMatch())) {
+                notModified.incrementAndGet();
+                throw S3Exception.builder().message("Not Modified").statusCode(304).build();
+            }
+            fullGets.incrementAndGet();
+            return new ResponseInputStream<>(
+                    GetObjectResponse.builder().eTag(ETAG).contentLength((long) content.length)
+                            .contentEncoding(contentEncoding).build(),
+                    AbortableInputStream.create(new ByteArrayInputStream(content)));
+        }
+
+        @Override
+        public ResponseBytes<GetObjectResponse> getObjectAsBytes(GetObjectRequest request) {
+            assertEquals(ETAG, request.ifMatch());
+            ranges.add(request.range());
+            int active = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(2);
+                if (request.range().equals(failingRange)) {
+                    throw S3Exception.builder().message("Precondition Failed").statusCode(412).build();
+                }
+                String[] bounds = request.range().substring("bytes=".length()).split("-");
+                byte[] part = Arrays.copyOfRange(content, Integer.parseInt(bounds[0]),
+                        Integer.parseInt(bounds[1]) + 1);
+                return ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), part);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        @Override
+        public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+            // Two keys per page; the continuation token is the index of the next key
+            listPages.incrementAndGet();
+            int start = request.continuationToken() != null ? Integer.parseInt(request.continuationToken()) : 0;
+            int end = Math.min(start + 2, keys.size());
+            ListObjectsV2Response.Builder response = ListObjectsV2Response.builder()
+                    .contents(keys.subList(start, end).stream()
+                            .map(key -> S3Object.builder().key(key).build())
+                            .toList())
+                    .isTruncated(end < keys.size());
+            if (end < keys.size()) {
+                response.nextContinuationToken(String.valueOf(end));
+            }
+            return response.build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
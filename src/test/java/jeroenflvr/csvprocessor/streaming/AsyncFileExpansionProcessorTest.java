@@ -0,0 +1,182 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.processing.ProcessedObjectLedger;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for AsyncFileExpansionProcessor.
+ */
+class AsyncFileExpansionProcessorTest {
+
+    /**
+     * Rows per file, more than the queue of an expansion holds.
+     */
+    private static final int ROWS = 40_000;
+
+    private static final BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<String, String>>> EXPANDER =
+            (path, ledger) -> () -> IntStream.range(0, ROWS)
+                    .mapToObj(i -> KeyValue.pair(path + "#" + i, "row"))
+                    .iterator();
+
+    @Test
+    void testTasksSharingOneThreadDoNotBlockEachOther() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            MockProcessorContext<String, String> contextA = new MockProcessorContext<>();
+            MockProcessorContext<String, String> contextB = new MockProcessorContext<>();
+            AsyncFileExpansionProcessor<String, String> taskA = newProcessor(contextA, executor);
+            AsyncFileExpansionProcessor<String, String> taskB = newProcessor(contextB, executor);
+
+            // Task B's file takes the only thread and fills its queue, task A's files queue up behind it
+            taskB.process(new Record<>("b1", "s3://bucket/b1.csv", 0L));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                taskA.process(new Record<>("a1", "s3://bucket/a1.csv", 0L));
+                taskA.process(new Record<>("a2", "s3://bucket/a2.csv", 0L));
+            });
+
+            // Punctuating both tasks drains task B, which frees the thread for task A
+            long deadline = System.currentTimeMillis() + 30_000;
+            while ((contextA.forwarded().size() < 2 * ROWS || contextB.forwarded().size() < ROWS)
+                    && System.currentTimeMillis() < deadline) {
+                punctuate(contextA);
+                punctuate(contextB);
+                Thread.sleep(1);
+            }
+            taskA.close();
+            taskB.close();
+
+            assertEquals(ROWS, contextB.forwarded().size());
+            List<String> paths = contextA.forwarded().stream()
+                    .map(forward -> forward.record().key().substring(0, forward.record().key().indexOf('#')))
+                    .distinct()
+                    .collect(Collectors.toList());
+            assertEquals(2 * ROWS, contextA.forwarded().size());
+            assertEquals(List.of("s3://bucket/a1.csv", "s3://bucket/a2.csv"), paths);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCheckpointsAreStoredAtTheConfiguredInterval() throws Exception {
+        // 100 rows with a checkpoint every 10 rows, and no completion so the last stored one remains
+        BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<String, String>>> expander =
+                (path, ledger) -> () -> new Iterator<>() {
+                    private int row;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (row > 0 && row % 10 == 0) {
+                            ledger.recordCheckpoint(new FileCheckpoint(path, "etag", row * 10L, row, List.of()));
+                        }
+                        return row < 100;
+                    }
+
+                    @Override
+                    public KeyValue<String, String> next() {
+                        if (row >= 100) {
+                            throw new NoSuchElementException();
+                        }
+                        row++;
+                        return KeyValue.pair(path + "#" + row, "row");
+                    }
+                };
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            MockProcessorContext<String, String> context = new MockProcessorContext<>();
+            KeyValueStore<String, FileCheckpoint> checkpoints = Stores.keyValueStoreBuilder(
+                    Stores.inMemoryKeyValueStore(StreamsTopologyBuilder.CHECKPOINT_STORE), Serdes.String(),
+                    new FileCheckpointSerde())
+                    .withLoggingDisabled()
+                    .build();
+            checkpoints.init(context.getStateStoreContext(), checkpoints);
+            context.addStateStore(checkpoints);
+            AsyncFileExpansionProcessor<String, String> processor = newProcessor(context, executor, expander,
+                    StreamsTopologyBuilder.CHECKPOINT_STORE, 25);
+
+            processor.process(new Record<>("day1", "s3://bucket/day1.csv", 0L));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (context.forwarded().size() < 100 && System.currentTimeMillis() < deadline) {
+                punctuate(context);
+                Thread.sleep(1);
+            }
+            processor.close();
+
+            // Stored at rows 30, 60 and 90; the checkpoints in between are left out
+            assertEquals(100, context.forwarded().size());
+            assertEquals(90, checkpoints.get("s3://bucket/day1.csv").getRowNumber());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCloseStopsTheExpansionsInFlight() throws Exception {
+        // A file that never ends keeps its thread until the task is closed
+        BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<String, String>>> endless =
+                (path, ledger) -> () -> IntStream.iterate(0, i -> i + 1)
+                        .mapToObj(i -> KeyValue.pair(path + "#" + i, "row"))
+                        .iterator();
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            MockProcessorContext<String, String> context = new MockProcessorContext<>();
+            AsyncFileExpansionProcessor<String, String> processor = newProcessor(context, executor, endless,
+                    null, 0);
+            processor.process(new Record<>("day1", "s3://bucket/day1.csv", 0L));
+            punctuate(context);
+            processor.close();
+
+            // The thread is free again for the expansions of other tasks
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> executor.submit(() -> { }).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static AsyncFileExpansionProcessor<String, String> newProcessor(
+            MockProcessorContext<String, String> context, ExecutorService executor) {
+        return newProcessor(context, executor, EXPANDER, null, 0);
+    }
+
+    private static AsyncFileExpansionProcessor<String, String> newProcessor(
+            MockProcessorContext<String, String> context, ExecutorService executor,
+            BiFunction<String, ProcessedObjectLedger, Iterable<KeyValue<String, String>>> expander,
+            String checkpointStoreName, int checkpointIntervalRows) {
+        KeyValueStore<Long, String> pending = Stores.keyValueStoreBuilder(
+                Stores.inMemoryKeyValueStore(StreamsTopologyBuilder.PENDING_STORE), Serdes.Long(), Serdes.String())
+                .withLoggingDisabled()
+                .build();
+        pending.init(context.getStateStoreContext(), pending);
+        context.addStateStore(pending);
+        AsyncFileExpansionProcessor<String, String> processor = new AsyncFileExpansionProcessor<>(expander,
+                executor, 1, StreamsTopologyBuilder.PENDING_STORE, null, checkpointStoreName,
+                checkpointIntervalRows);
+        processor.init(context);
+        return processor;
+    }
+
+    private static void punctuate(MockProcessorContext<String, String> context) {
+        for (MockProcessorContext.CapturedPunctuator punctuator : context.scheduledPunctuators()) {
+            punctuator.getPunctuator().punctuate(System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import jeroenflvr.csvprocessor.model.FileCheckpoint;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+import jeroenflvr.csvprocessor.processing.EnvelopeReader;
+import jeroenflvr.csvprocessor.processing.ProcessedObjectLedger;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Unit tests for EnvelopeExpansion.
+ */
+class EnvelopeExpansionTest {
+
+    @Test
+    void testLedgerUpdatesFollowTheEnvelopeOfTheirRecords() {
+        List<String> events = new ArrayList<>();
+        ProcessedObjectLedger ledger = new ProcessedObjectLedger() {
+            @Override
+            public ProcessedObject lookup(String path) {
+                return null;
+            }
+
+            @Override
+            public void recordProcessed(ProcessedObject object) {
+                events.add("processed");
+            }
+
+            @Override
+            public void recordCheckpoint(FileCheckpoint checkpoint) {
+                events.add("checkpoint@" + checkpoint.getRowNumber());
+            }
+        };
+        // Five records with a checkpoint after the third, recorded while looking for the fourth
+        EnvelopeExpansion expansion = new EnvelopeExpansion((path, target) -> () -> new Iterator<>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                if (row == 3) {
+                    target.recordCheckpoint(new FileCheckpoint(path, "etag", 0, row, List.of()));
+                }
+                if (row == 5) {
+                    target.recordProcessed(new ProcessedObject(path, "etag", 0, row));
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public KeyValue<Bytes, byte[]> next() {
+                if (row >= 5) {
+                    throw new NoSuchElementException();
+                }
+                row++;
+                return KeyValue.pair(Bytes.wrap(("k" + row).getBytes(StandardCharsets.UTF_8)), new byte[] {'{', '}'});
+            }
+        }, 2, Integer.MAX_VALUE);
+
+        for (KeyValue<Bytes, byte[]> record : expansion.apply("s3://bucket/day1.csv", ledger)) {
+            if (EnvelopeReader.isEnvelope(record.value)) {
+                events.add(new String(record.key.get(), StandardCharsets.UTF_8) + "="
+                        + EnvelopeReader.decode(record.value).size());
+            } else {
+                events.add(new String(record.key.get(), StandardCharsets.UTF_8));
+            }
+        }
+
+        // The checkpoint waits for the envelope to fill, only the end of the file passes on a partial one
+        assertEquals(List.of("k1", "k2", "s3://bucket/day1.csv#0=2", "k3", "k4", "s3://bucket/day1.csv#1=2",
+                "checkpoint@3", "k5", "s3://bucket/day1.csv#2=1", "processed"), events);
+    }
+}
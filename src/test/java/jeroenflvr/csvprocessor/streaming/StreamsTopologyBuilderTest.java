@@ -0,0 +1,460 @@
+package jeroenflvr.csvprocessor.streaming;
+
+import jeroenflvr.csvprocessor.config.ApplicationConfig;
+import jeroenflvr.csvprocessor.config.ParserConfig;
+import jeroenflvr.csvprocessor.config.TopologyConfig;
+import jeroenflvr.csvprocessor.config.TopologyConfig.ChangeDetection;
+import jeroenflvr.csvprocessor.config.TopologyConfig.OutputMode;
+import jeroenflvr.csvprocessor.config.TopologyConfig.RecordFormat;
+import jeroenflvr.csvprocessor.config.TopologyConfig.SerdeMode;
+import jeroenflvr.csvprocessor.config.TopologyConfig.StateMode;
+import jeroenflvr.csvprocessor.model.ProcessedObject;
+import jeroenflvr.csvprocessor.model.S3Location;
+import jeroenflvr.csvprocessor.processing.EnvelopeReader;
+import jeroenflvr.csvprocessor.processing.FileProcessingService;
+import jeroenflvr.csvprocessor.processing.RecordDigest;
+import jeroenflvr.csvprocessor.storage.S3FileReader;
+
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.processor.internals.InternalTopicConfig;
+import org.apache.kafka.streams.processor.internals.InternalTopologyBuilder;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Unit tests for StreamsTopologyBuilder.
+ */
+class StreamsTopologyBuilderTest {
+
+    private final Map<String, String> files = new HashMap<>();
+    private final Map<String, Long> delays = new HashMap<>();
+    private int downloads;
+
+    @ParameterizedTest
+    @EnumSource(SerdeMode.class)
+    void testRecordsAreWrittenToAllTopics(SerdeMode serdeMode) {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n");
+
+        try (TopologyTestDriver driver = newDriver(serdeMode)) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], byte[]> updates = driver.createOutputTopic("updates",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], byte[]> state = driver.createOutputTopic("state",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+
+            List<KeyValue<byte[], byte[]>> records = output.readKeyValuesToList();
+            assertEquals(List.of("1_10", "2_20"), keys(records));
+            assertTrue(new String(records.get(1).value, StandardCharsets.UTF_8)
+                    .startsWith("{\"o_status\":\"O\",\"o_x\":\"b\",\"input_filename\":\"s3://bucket/day1.csv\","));
+
+            // New keys are updates, and the updates are fed back into the state topic
+            List<KeyValue<byte[], byte[]>> changed = updates.readKeyValuesToList();
+            assertEquals(List.of("1_10", "2_20"), keys(changed));
+            List<KeyValue<byte[], byte[]>> stored = state.readKeyValuesToList();
+            for (int i = 0; i < records.size(); i++) {
+                assertArrayEquals(records.get(i).value, changed.get(i).value);
+                assertArrayEquals(records.get(i).value, stored.get(i).value);
+            }
+
+            // Without the ledger, a repeated announcement is processed again
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertEquals(List.of("1_10", "2_20"), keys(output.readKeyValuesToList()));
+            assertEquals(2, downloads);
+        }
+    }
+
+    private TopologyTestDriver newDriver(SerdeMode serdeMode) {
+        return newDriver(TopologyConfig.builder().serdeMode(serdeMode).build());
+    }
+
+    private TopologyTestDriver newDriver(TopologyConfig topologyConfig) {
+        FileProcessingService service = new FileProcessingService(new S3FileReader(null) {
+            @Override
+            public InputStream openStream(S3Location location) throws IOException {
+                downloads++;
+                Long delay = delays.get("s3://" + location.getBucket() + "/" + location.getKey());
+                if (delay != null) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+                return new ByteArrayInputStream(content(location));
+            }
+
+            @Override
+            public List<String> listObjects(S3Location prefix) {
+                String path = "s3://" + prefix.getBucket() + "/" + prefix.getKey();
+                return files.keySet().stream()
+                        .filter(file -> file.startsWith(path))
+                        .map(file -> file.substring(path.length()))
+                        .sorted()
+                        .toList();
+            }
+
+            @Override
+            public HeadObjectResponse headObject(S3Location location) {
+                byte[] content = content(location);
+                return HeadObjectResponse.builder()
+                        .eTag("\"" + Arrays.hashCode(content) + "\"")
+                        .contentLength((long) content.length)
+                        .build();
+            }
+        }, ParserConfig.defaults(), topologyConfig.getRecordFormat());
+        ApplicationConfig config = new ApplicationConfig("input", "output", "updates", "state",
+                "test-app", true, ParserConfig.defaults(), topologyConfig);
+
+        Properties properties = new Properties();
+        properties.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-app");
+        properties.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        return new TopologyTestDriver(new StreamsTopologyBuilder(config, service).build(), properties);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SerdeMode.class)
+    void testUnchangedObjectsAreSkipped(SerdeMode serdeMode) {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n");
+
+        try (TopologyTestDriver driver = newDriver(TopologyConfig.builder()
+                .serdeMode(serdeMode).skipProcessedObjects(true).build())) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertEquals(2, output.readKeyValuesToList().size());
+
+            // A repeated announcement of the same version is not downloaded again
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertTrue(output.isEmpty());
+            assertEquals(1, downloads);
+            KeyValueStore<String, ProcessedObject> ledger =
+                    driver.getKeyValueStore(StreamsTopologyBuilder.LEDGER_STORE);
+            assertEquals(2, ledger.get("s3://bucket/day1.csv").getRowCount());
+
+            // A new version is processed
+            files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;F;a\n");
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertEquals(List.of("1_10"), keys(output.readKeyValuesToList()));
+            assertEquals(2, downloads);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SerdeMode.class)
+    void testPrefixAndManifestAreExpandedIntoObjects(SerdeMode serdeMode) {
+        files.put("s3://bucket/drop/part-0.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n");
+        files.put("s3://bucket/drop/part-1.csv", "o_orderkey;o_custkey;o_status;o_x\n2;20;O;b\n");
+        files.put("s3://bucket/other/part-2.csv", "o_orderkey;o_custkey;o_status;o_x\n3;30;O;c\n");
+        files.put("s3://bucket/drop.manifest", "# objects of the drop\ndrop/part-1.csv\n\ns3://bucket/other/part-2.csv\n");
+
+        try (TopologyTestDriver driver = newDriver(serdeMode)) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            // Each object of the prefix comes back through the input topic, keyed by its path
+            input.pipeInput("drop", "s3://bucket/drop/");
+            assertEquals(List.of("1_10", "2_20"), keys(output.readKeyValuesToList()));
+
+            files.put("s3://bucket/drop/part-1.csv", "o_orderkey;o_custkey;o_status;o_x\n2;20;F;b\n");
+            input.pipeInput("drop", "s3://bucket/drop.manifest");
+            assertEquals(List.of("2_20", "3_30"), keys(output.readKeyValuesToList()));
+            assertEquals(5, downloads, "four object versions and the manifest");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SerdeMode.class)
+    void testAsyncExpansionKeepsTheOrderOfAnnouncements(SerdeMode serdeMode) throws Exception {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n");
+        files.put("s3://bucket/day2.csv", "o_orderkey;o_custkey;o_status;o_x\n3;30;O;c\n");
+        delays.put("s3://bucket/day1.csv", 200L);
+
+        try (TopologyTestDriver driver = newDriver(TopologyConfig.builder()
+                .serdeMode(serdeMode).skipProcessedObjects(true)
+                .checkpointIntervalRows(TopologyConfig.DEFAULT_CHECKPOINT_INTERVAL_ROWS)
+                .expansionThreads(2).maxFilesInFlight(4).build())) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            // The second file is ready first, but is forwarded after the first one
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            input.pipeInput("day2", "s3://bucket/day2.csv");
+            assertEquals(List.of("1_10", "2_20", "3_30"), awaitKeys(driver, output, 3));
+
+            KeyValueStore<Long, String> pending = driver.getKeyValueStore(StreamsTopologyBuilder.PENDING_STORE);
+            try (KeyValueIterator<Long, String> announcements = pending.all()) {
+                assertFalse(announcements.hasNext());
+            }
+            KeyValueStore<String, ProcessedObject> ledger =
+                    driver.getKeyValueStore(StreamsTopologyBuilder.LEDGER_STORE);
+            assertEquals(1, ledger.get("s3://bucket/day2.csv").getRowCount());
+
+            // The ledger is applied on the stream thread, so a repeat is still skipped
+            input.pipeInput("day2", "s3://bucket/day2.csv");
+            assertEquals(List.of(), awaitKeys(driver, output, 0));
+            assertEquals(2, downloads);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SerdeMode.class)
+    void testAsyncExpansionHoldsAnnouncementsWhenFull(SerdeMode serdeMode) throws Exception {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n");
+        files.put("s3://bucket/day2.csv", "o_orderkey;o_custkey;o_status;o_x\n2;20;O;b\n");
+        delays.put("s3://bucket/day1.csv", 100L);
+
+        try (TopologyTestDriver driver = newDriver(TopologyConfig.builder()
+                .serdeMode(serdeMode).skipProcessedObjects(true)
+                .checkpointIntervalRows(TopologyConfig.DEFAULT_CHECKPOINT_INTERVAL_ROWS)
+                .expansionThreads(2).maxFilesInFlight(1).build())) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            // Taking the second announcement does not wait for the first file, it holds the second one
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            input.pipeInput("day2", "s3://bucket/day2.csv");
+            assertTrue(output.isEmpty());
+            KeyValueStore<Long, String> pending = driver.getKeyValueStore(StreamsTopologyBuilder.PENDING_STORE);
+            assertEquals(2, count(pending));
+
+            assertEquals(List.of("1_10", "2_20"), awaitKeys(driver, output, 2));
+            assertEquals(0, count(pending));
+            assertEquals(2, downloads);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RecordFormat.class)
+    void testDigestsIgnoreRedeliveredRows(RecordFormat recordFormat) {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n");
+        files.put("s3://bucket/day2.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;F;b\n");
+
+        try (TopologyTestDriver driver = newDriver(TopologyConfig.builder()
+                .serdeMode(SerdeMode.BYTES).recordFormat(recordFormat).skipProcessedObjects(true)
+                .changeDetection(ChangeDetection.DIGEST).build())) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], byte[]> updates = driver.createOutputTopic("updates",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], Long> state = driver.createOutputTopic("state",
+                    new ByteArrayDeserializer(), new LongDeserializer());
+
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertEquals(List.of("1_10", "2_20"), keys(updates.readKeyValuesToList()));
+            List<KeyValue<byte[], byte[]>> records = output.readKeyValuesToList();
+            List<KeyValue<byte[], Long>> digests = state.readKeyValuesToList();
+            assertEquals(2, digests.size());
+            assertEquals(recordFormat == RecordFormat.BINARY
+                            ? RecordDigest.ofBinary(records.get(0).value) : RecordDigest.ofJson(records.get(0).value),
+                    digests.get(0).value);
+
+            // Only the row whose business columns changed is an update under the other file name
+            input.pipeInput("day2", "s3://bucket/day2.csv");
+            assertEquals(2, output.readKeyValuesToList().size());
+            assertEquals(List.of("2_20"), keys(updates.readKeyValuesToList()));
+            assertEquals(1, state.readKeyValuesToList().size());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ChangeDetection.class)
+    void testStoreStateDetectsChangesInOnePass(ChangeDetection changeDetection) {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n1;10;O;a\n2;20;O;b\n2;20;F;b\n");
+        files.put("s3://bucket/day2.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n");
+
+        try (TopologyTestDriver driver = newDriver(TopologyConfig.builder()
+                .serdeMode(SerdeMode.BYTES).skipProcessedObjects(true)
+                .changeDetection(changeDetection).stateMode(StateMode.STORE).build())) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], byte[]> updates = driver.createOutputTopic("updates",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], byte[]> state = driver.createOutputTopic("state",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            // A key repeated within the file is compared against its earlier row
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertEquals(4, output.readKeyValuesToList().size());
+            assertEquals(List.of("1_10", "2_20", "2_20"), keys(updates.readKeyValuesToList()));
+            assertTrue(state.isEmpty());
+            KeyValueStore<Object, Object> rows = driver.getKeyValueStore(StreamsTopologyBuilder.ROWS_STORE);
+            assertEquals(changeDetection == ChangeDetection.DIGEST, rows.get(key("1_10")) instanceof Long);
+
+            input.pipeInput("day2", "s3://bucket/day2.csv");
+            List<String> changed = keys(updates.readKeyValuesToList());
+            if (changeDetection == ChangeDetection.DIGEST) {
+                assertEquals(List.of("2_20"), changed);
+            } else {
+                // The whole records differ in their input file name
+                assertEquals(List.of("1_10", "2_20"), changed);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RecordFormat.class)
+    void testEnvelopesPackTheRecordsOfAFile(RecordFormat recordFormat) {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n3;30;O;c\n");
+
+        try (TopologyTestDriver driver = newDriver(TopologyConfig.builder()
+                .serdeMode(SerdeMode.BYTES).recordFormat(recordFormat).skipProcessedObjects(true)
+                .outputMode(OutputMode.ENVELOPES).envelopeMaxRows(2).build())) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> output = driver.createOutputTopic("output",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            TestOutputTopic<byte[], byte[]> updates = driver.createOutputTopic("updates",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+
+            List<KeyValue<byte[], byte[]>> envelopes = output.readKeyValuesToList();
+            assertEquals(List.of("s3://bucket/day1.csv#0", "s3://bucket/day1.csv#1"), keys(envelopes));
+            assertEquals(List.of("1_10", "2_20"), keys(EnvelopeReader.decode(envelopes.get(0).value)));
+            assertEquals(List.of("3_30"), keys(EnvelopeReader.decode(envelopes.get(1).value)));
+
+            // The change detection still sees every record
+            List<KeyValue<byte[], byte[]>> changed = updates.readKeyValuesToList();
+            assertEquals(List.of("1_10", "2_20", "3_30"), keys(changed));
+            assertArrayEquals(EnvelopeReader.decode(envelopes.get(1).value).get(0).value, changed.get(2).value);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(StateMode.class)
+    void testRecordsAreRepartitionedByKeyBeforeChangeDetection(StateMode stateMode) throws Exception {
+        files.put("s3://bucket/day1.csv", "o_orderkey;o_custkey;o_status;o_x\n1;10;O;a\n2;20;O;b\n");
+        // The table mode takes the partition count of the state topic it is joined with
+        int partitions = stateMode == StateMode.STORE ? 8 : 0;
+        TopologyConfig topologyConfig = TopologyConfig.builder()
+                .serdeMode(SerdeMode.BYTES).skipProcessedObjects(true)
+                .stateMode(stateMode).repartitionPartitions(partitions).build();
+
+        // The join adds no repartition topic of its own
+        Map<String, InternalTopicConfig> repartitionTopics = repartitionTopics(topologyConfig);
+        String rowsTopic = "test-app-" + StreamsTopologyBuilder.ROWS_REPARTITION + "-repartition";
+        assertEquals(Set.of(rowsTopic), repartitionTopics.keySet());
+        assertEquals(partitions > 0 ? Optional.of(partitions) : Optional.empty(),
+                repartitionTopics.get(rowsTopic).numberOfPartitions());
+
+        try (TopologyTestDriver driver = newDriver(topologyConfig)) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input",
+                    new StringSerializer(), new StringSerializer());
+            TestOutputTopic<byte[], byte[]> updates = driver.createOutputTopic("updates",
+                    new ByteArrayDeserializer(), new ByteArrayDeserializer());
+
+            input.pipeInput("day1", "s3://bucket/day1.csv");
+            assertEquals(List.of("1_10", "2_20"), keys(updates.readKeyValuesToList()));
+        }
+    }
+
+    @Test
+    void testRepartitionPartitionsAreRejectedInTableMode() {
+        assertThrows(IllegalArgumentException.class, () -> TopologyConfig.builder()
+                .stateMode(StateMode.TABLE).repartitionPartitions(8).build());
+    }
+
+    /**
+     * Gets the repartition topics of the built topology with their configuration.
+     */
+    private static Map<String, InternalTopicConfig> repartitionTopics(TopologyConfig topologyConfig)
+            throws ReflectiveOperationException {
+        Topology topology = new StreamsTopologyBuilder(new ApplicationConfig("input", "output", "updates", "state",
+                "test-app", true, ParserConfig.defaults(), topologyConfig), new FileProcessingService(null))
+                .build();
+        Field field = Topology.class.getDeclaredField("internalTopologyBuilder");
+        field.setAccessible(true);
+        InternalTopologyBuilder internal = ((InternalTopologyBuilder) field.get(topology)).setApplicationId("test-app");
+        Map<String, InternalTopicConfig> topics = new HashMap<>();
+        for (InternalTopologyBuilder.TopicsInfo info : internal.subtopologyToTopicsInfo().values()) {
+            topics.putAll(info.repartitionSourceTopics);
+        }
+        return topics;
+    }
+
+    private static int count(KeyValueStore<?, ?> store) {
+        int count = 0;
+        try (KeyValueIterator<?, ?> entries = store.all()) {
+            for (; entries.hasNext(); entries.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Advances the wall clock until the asynchronous expansion has forwarded the expected number of records.
+     */
+    private static List<String> awaitKeys(TopologyTestDriver driver, TestOutputTopic<byte[], byte[]> output,
+                                          int count) throws InterruptedException {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100 && (keys.size() < count || i < 5); i++) {
+            Thread.sleep(20);
+            driver.advanceWallClockTime(Duration.ofMillis(AsyncFileExpansionProcessor.FORWARD_INTERVAL_MS));
+            keys.addAll(keys(output.readKeyValuesToList()));
+        }
+        return keys;
+    }
+
+    private byte[] content(S3Location location) {
+        return files.get("s3://" + location.getBucket() + "/" + location.getKey()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Bytes key(String key) {
+        return Bytes.wrap(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> keys(List<KeyValue<byte[], byte[]>> records) {
+        return records.stream()
+                .map(record -> new String(record.key, StandardCharsets.UTF_8))
+                .toList();
+    }
+}